@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Base58} against the byte at a time {@code divmod} conversion it used
+ * before, for ids and larger payloads, and bulk encoding of {@code long} ids.
+ * Scores are encodings or decodings per second, or ids per second for the bulk
+ * benchmarks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class Base58Benchmark {
+
+    private static final int IDS = 1024;
+
+    @Param({"8", "16", "32", "1024"})
+    public int size;
+
+    private byte[] data;
+    private String encoded;
+    private long[] ids;
+    private char[] chars;
+    private final StringBuilder builder = new StringBuilder();
+
+    @Setup
+    public void setup() {
+        data = new byte[size];
+        ThreadLocalRandom.current().nextBytes(data);
+        encoded = Base58.encode(data);
+
+        ids = new long[IDS];
+        for (int i = 0; i < IDS; i++) {
+            ids[i] = ThreadLocalRandom.current().nextLong();
+        }
+        chars = new char[IDS * (Base58.MAX_LONG_LENGTH + 1)];
+    }
+
+    @Benchmark
+    public String encode() {
+        return Base58.encode(data);
+    }
+
+    @Benchmark
+    public String divmodEncode() {
+        return divmodEncode(data);
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        return Base58.decode(encoded);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IDS)
+    public int bulkChars() {
+        return Base58.encode(ids, chars, 0, ',');
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IDS)
+    public StringBuilder bulkStringBuilder() {
+        builder.setLength(0);
+        return Base58.append(builder, ids, ',');
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IDS)
+    public int toBase58() {
+        int length = 0;
+        for (long id : ids) {
+            length += Longs.toBase58(id).length();
+        }
+        return length;
+    }
+
+    /**
+     * The previous implementation, one base 256 digit per step of the long division
+     */
+    private static String divmodEncode(byte[] input) {
+        int zeros = 0;
+        while (zeros < input.length && input[zeros] == 0) {
+            ++zeros;
+        }
+        input = Arrays.copyOf(input, input.length);
+        final char[] encoded = new char[input.length * 2];
+        int outputStart = encoded.length;
+        for (int inputStart = zeros; inputStart < input.length; ) {
+            int remainder = 0;
+            for (int i = inputStart; i < input.length; i++) {
+                final int temp = remainder * 256 + (input[i] & 0xFF);
+                input[i] = (byte) (temp / 58);
+                remainder = temp % 58;
+            }
+            encoded[--outputStart] = Base58.ALPHABET[remainder];
+            if (input[inputStart] == 0) {
+                ++inputStart;
+            }
+        }
+        while (outputStart < encoded.length && encoded[outputStart] == Base58.ALPHABET[0]) {
+            ++outputStart;
+        }
+        while (--zeros >= 0) {
+            encoded[--outputStart] = Base58.ALPHABET[0];
+        }
+        return new String(encoded, outputStart, encoded.length - outputStart);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Base64.Codec} into caller provided buffers against {@code java.util.Base64}
+ * and the legacy {@link Base64#encodeBase64(byte[])} and {@link Base64#decodeBase64(byte[])}.
+ * Scores are encodings or decodings of {@code size} bytes per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class Base64Benchmark {
+
+    @Param({"8", "1024", "1048576"})
+    public int size;
+
+    private byte[] data;
+    private byte[] encoded;
+    private byte[] encodeBuffer;
+    private byte[] decodeBuffer;
+
+    @Setup
+    public void setup() {
+        data = new byte[size];
+        ThreadLocalRandom.current().nextBytes(data);
+        encoded = Base64.STANDARD.encode(data);
+        encodeBuffer = new byte[encoded.length];
+        decodeBuffer = new byte[size];
+    }
+
+    @Benchmark
+    public int codecEncode() {
+        return Base64.STANDARD.encode(data, 0, data.length, encodeBuffer, 0);
+    }
+
+    @Benchmark
+    public int javaUtilEncode() {
+        return java.util.Base64.getEncoder().encode(data, encodeBuffer);
+    }
+
+    @Benchmark
+    public byte[] legacyEncode() {
+        return Base64.encodeBase64(data);
+    }
+
+    @Benchmark
+    public int codecDecode() {
+        return Base64.STANDARD.decode(encoded, 0, encoded.length, decodeBuffer, 0);
+    }
+
+    @Benchmark
+    public int javaUtilDecode() {
+        return java.util.Base64.getDecoder().decode(encoded, decodeBuffer);
+    }
+
+    @Benchmark
+    public byte[] legacyDecode() {
+        return Base64.decodeBase64(encoded);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Small copies as a request handler makes them, from four threads: IO.copy with
+ * its pooled buffers against the same loops allocating a buffer of the same size
+ * per call.  Scores are copies per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@State(Scope.Thread)
+public class BufferPoolBenchmark {
+
+    private byte[] payload;
+
+    @Setup
+    public void setup() {
+        payload = new byte[2048];
+        ThreadLocalRandom.current().nextBytes(payload);
+    }
+
+    @Benchmark
+    public void streamPooled() throws IOException {
+        IO.copy(new ByteArrayInputStream(payload), IO.IGNORE_OUTPUT);
+    }
+
+    @Benchmark
+    public void streamAllocating() throws IOException {
+        final InputStream from = new ByteArrayInputStream(payload);
+        final OutputStream to = IO.IGNORE_OUTPUT;
+        final byte[] buffer = new byte[BufferPool.DEFAULT_BUFFER_SIZE];
+        int length;
+        while ((length = from.read(buffer)) != -1) {
+            to.write(buffer, 0, length);
+        }
+        to.flush();
+    }
+
+    @Benchmark
+    public void channelPooled() throws IOException {
+        IO.copy(Channels.newChannel(new ByteArrayInputStream(payload)), Channels.newChannel(IO.IGNORE_OUTPUT));
+    }
+
+    @Benchmark
+    public void channelAllocating() throws IOException {
+        final ReadableByteChannel in = Channels.newChannel(new ByteArrayInputStream(payload));
+        final WritableByteChannel out = Channels.newChannel(IO.IGNORE_OUTPUT);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BufferPool.DEFAULT_BUFFER_SIZE);
+        while (in.read(buffer) != -1) {
+            buffer.flip();
+            out.write(buffer);
+            buffer.compact();
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+}
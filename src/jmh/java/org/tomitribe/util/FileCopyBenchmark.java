@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copying one file to another through {@link IO#copy(File, File)}, which
+ * transfers channel to channel, against the stream copy it used to do and
+ * {@link IO#copyNIO} over the same streams.  The 1 GB case needs that much free
+ * space in the temp directory.  Scores are files copied per second; divide by
+ * the size for throughput.  The source stays in the page cache, so these
+ * measure copying and not the disk.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class FileCopyBenchmark {
+
+    @Param({"1024", "1048576", "1073741824"})
+    private long size;
+
+    private File dir;
+    private File from;
+    private File to;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.tmpdir();
+        from = new File(dir, "from");
+        to = new File(dir, "to");
+
+        final byte[] chunk = new byte[(int) Math.min(size, 1024 * 1024)];
+        new Random(size).nextBytes(chunk);
+        try (OutputStream out = IO.write(from)) {
+            for (long written = 0; written < size; written += chunk.length) {
+                out.write(chunk);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        Files.remove(dir);
+    }
+
+    @Benchmark
+    public File transfer() throws IOException {
+        IO.copy(from, to);
+        return to;
+    }
+
+    /**
+     * The stream copy IO used to do, with its own 1 KB buffer rather than the
+     * pooled buffer {@link IO#copy(File, OutputStream)} now uses.
+     */
+    @Benchmark
+    public File stream() throws IOException {
+        try (InputStream in = IO.read(from); OutputStream out = new FileOutputStream(to)) {
+            final byte[] buffer = new byte[1024];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+        }
+        return to;
+    }
+
+    @Benchmark
+    public File copyNIO() throws IOException {
+        try (InputStream in = IO.read(from); OutputStream out = new FileOutputStream(to)) {
+            IO.copyNIO(in, out);
+        }
+        return to;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting a 64 bit hash, and a 32 byte digest, the way a log line or trace
+ * id would: into a reused buffer, through a String, and through a byte[] as
+ * {@code Longs.toHex} used to.  Scores are values formatted or parsed per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class HexBenchmark {
+
+    private long hash;
+    private String hashHex;
+    private byte[] digest;
+    private String digestHex;
+
+    private final char[] chars = new char[64];
+    private final byte[] bytes = new byte[32];
+    private final StringBuilder line = new StringBuilder(128);
+
+    @Setup
+    public void setup() {
+        hash = ThreadLocalRandom.current().nextLong();
+        hashHex = Hex.toString(hash);
+        digest = new byte[32];
+        ThreadLocalRandom.current().nextBytes(digest);
+        digestHex = Hex.toString(digest);
+    }
+
+    @Benchmark
+    public String longToString() {
+        return Hex.toString(hash);
+    }
+
+    @Benchmark
+    public String longViaBytes() {
+        return Hex.toString(Longs.toBytes(hash));
+    }
+
+    @Benchmark
+    public int longIntoChars() {
+        return Hex.encode(hash, chars, 0);
+    }
+
+    @Benchmark
+    public StringBuilder longAppend() {
+        line.setLength(0);
+        return Hex.append(line.append("trace="), hash);
+    }
+
+    @Benchmark
+    public long parseLong() {
+        return Hex.parseLong(hashHex);
+    }
+
+    @Benchmark
+    public long parseLongViaBytes() {
+        return Longs.fromBytes(Hex.fromString(hashHex));
+    }
+
+    @Benchmark
+    public String digestToString() {
+        return Hex.toString(digest);
+    }
+
+    @Benchmark
+    public StringBuilder digestAppend() {
+        line.setLength(0);
+        return Hex.append(line.append("sha256="), digest);
+    }
+
+    @Benchmark
+    public int digestDecode() {
+        return Hex.decode(digestHex, 0, digestHex.length(), bytes, 0);
+    }
+
+    @Benchmark
+    public byte[] digestFromString() {
+        return Hex.fromString(digestHex);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counting long keys with {@link LongLongMap}, on and off the heap, against a
+ * {@code HashMap<Long, Long>}.  Scores are keys per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class LongLongMapBenchmark {
+
+    private static final int KEYS = 1 << 16;
+
+    @Param({"1024", "1048576"})
+    public int distinct;
+
+    private long[] keys;
+    private LongLongMap heap;
+    private LongLongMap direct;
+    private Map<Long, Long> hashMap;
+
+    @Setup
+    public void setup() {
+        keys = new long[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = ThreadLocalRandom.current().nextInt(distinct) * 0x9E3779B97F4A7C15L;
+        }
+        heap = new LongLongMap(distinct);
+        direct = new LongLongMap(distinct, true);
+        hashMap = new HashMap<>(distinct * 2);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public LongLongMap longLongMap() {
+        for (long key : keys) {
+            heap.addTo(key, 1);
+        }
+        return heap;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public LongLongMap longLongMapDirect() {
+        for (long key : keys) {
+            direct.addTo(key, 1);
+        }
+        return direct;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public Map<Long, Long> hashMap() {
+        for (long key : keys) {
+            hashMap.merge(key, 1L, Long::sum);
+        }
+        return hashMap;
+    }
+}
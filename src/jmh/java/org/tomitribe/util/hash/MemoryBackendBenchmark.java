@@ -0,0 +1,110 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Unsafe and VarHandle backends of {@link Memory} side by side.  The backend
+ * is fixed when the class is loaded, so each variant runs in its own fork.  Run
+ * with a Java 9+ JVM, e.g. {@code -jvm /path/to/jdk-21/bin/java}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MemoryBackendBenchmark {
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-D" + Memory.PROPERTY + "=unsafe")
+    public long xxHash64Unsafe(final SliceData data, final BytesProcessed processed) {
+        return xxHash64(data, processed);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-D" + Memory.PROPERTY + "=varhandle")
+    public long xxHash64VarHandle(final SliceData data, final BytesProcessed processed) {
+        return xxHash64(data, processed);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-D" + Memory.PROPERTY + "=unsafe")
+    public long xxHash3Unsafe(final SliceData data, final BytesProcessed processed) {
+        return xxHash3(data, processed);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-D" + Memory.PROPERTY + "=varhandle")
+    public long xxHash3VarHandle(final SliceData data, final BytesProcessed processed) {
+        return xxHash3(data, processed);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-D" + Memory.PROPERTY + "=unsafe")
+    public long getLongUnsafe(final SliceData data, final BytesProcessed processed) {
+        return getLong(data, processed);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-D" + Memory.PROPERTY + "=varhandle")
+    public long getLongVarHandle(final SliceData data, final BytesProcessed processed) {
+        return getLong(data, processed);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-D" + Memory.PROPERTY + "=unsafe")
+    public Slice setBytesUnsafe(final SliceData data, final BytesProcessed processed) {
+        return setBytes(data, processed);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-D" + Memory.PROPERTY + "=varhandle")
+    public Slice setBytesVarHandle(final SliceData data, final BytesProcessed processed) {
+        return setBytes(data, processed);
+    }
+
+    private static long xxHash64(final SliceData data, final BytesProcessed processed) {
+        processed.bytes += data.size;
+        return XxHash64.hash(data.slice);
+    }
+
+    private static long xxHash3(final SliceData data, final BytesProcessed processed) {
+        processed.bytes += data.size;
+        return XxHash3.hash(data.slice);
+    }
+
+    private static long getLong(final SliceData data, final BytesProcessed processed) {
+        processed.bytes += data.size;
+        final Slice slice = data.slice;
+        long sum = 0;
+        for (int index = 0; index + 8 <= slice.length(); index += 8) {
+            sum += slice.getLong(index);
+        }
+        return sum;
+    }
+
+    private static Slice setBytes(final SliceData data, final BytesProcessed processed) {
+        processed.bytes += data.size;
+        data.copy.setBytes(0, data.bytes);
+        return data.copy;
+    }
+}
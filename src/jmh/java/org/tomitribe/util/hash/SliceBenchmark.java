@@ -0,0 +1,67 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_LONG;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SliceBenchmark {
+
+    @Benchmark
+    public long getLong(final SliceData data, final BytesProcessed processed) {
+        final Slice slice = data.slice;
+        final int end = slice.length() - SIZE_OF_LONG;
+
+        long sum = 0;
+        for (int i = 0; i <= end; i += SIZE_OF_LONG) {
+            sum += slice.getLong(i);
+        }
+
+        processed.bytes += data.size;
+        return sum;
+    }
+
+    @Benchmark
+    public Slice setBytes(final SliceData data, final BytesProcessed processed) {
+        data.copy.setBytes(0, data.slice);
+        processed.bytes += data.size;
+        return data.copy;
+    }
+
+    @Benchmark
+    public int compareTo(final SliceData data, final BytesProcessed processed) {
+        processed.bytes += data.size;
+        return data.slice.compareTo(data.copy);
+    }
+
+    @Benchmark
+    public boolean equals(final SliceData data, final BytesProcessed processed) {
+        processed.bytes += data.size;
+        return data.slice.equals(data.copy);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Comparing keys that share a prefix and differ in their last byte, the worst
+ * case for a comparison, and sorting records of such keys with {@link SliceSorter}.
+ * Scores are comparisons, or records sorted, per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class SliceCompareBenchmark {
+
+    private static final int KEYS = 1024;
+
+    @Param({"7", "16", "100", "1000"})
+    public int keyLength;
+
+    private Slice keys;
+    private Slice copies;
+    private long[] sorted;
+    private long[] records;
+
+    @Setup
+    public void setup() {
+        final byte[] prefix = new byte[keyLength - 1];
+        ThreadLocalRandom.current().nextBytes(prefix);
+
+        keys = Slices.allocate(KEYS * keyLength);
+        copies = Slices.allocate(KEYS * keyLength);
+        sorted = new long[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            final int offset = i * keyLength;
+            keys.setBytes(offset, prefix);
+            keys.setByte(offset + keyLength - 1, ThreadLocalRandom.current().nextInt(256));
+            sorted[i] = SliceSorter.record(offset, keyLength);
+        }
+        copies.setBytes(0, keys);
+        records = new long[KEYS];
+    }
+
+    @Setup(Level.Invocation)
+    public void shuffle() {
+        System.arraycopy(sorted, 0, records, 0, KEYS);
+        for (int i = KEYS - 1; i > 0; i--) {
+            final int j = ThreadLocalRandom.current().nextInt(i + 1);
+            final long record = records[i];
+            records[i] = records[j];
+            records[j] = record;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public int compareTo() {
+        int result = 0;
+        for (int offset = keyLength; offset < KEYS * keyLength; offset += keyLength) {
+            result += keys.compareTo(offset - keyLength, keyLength, keys, offset, keyLength);
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public int equalTo() {
+        int result = 0;
+        for (int offset = 0; offset < KEYS * keyLength; offset += keyLength) {
+            if (keys.equals(offset, keyLength, copies, offset, keyLength)) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public int mismatch() {
+        int result = 0;
+        for (int offset = keyLength; offset < KEYS * keyLength; offset += keyLength) {
+            result += keys.mismatch(offset - keyLength, keyLength, keys, offset, keyLength);
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public long[] sort() {
+        SliceSorter.sort(keys, records);
+        return records;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Random slice contents shared by the hash package benchmarks,
+ * parameterized by size and by heap or direct backing.
+ */
+@State(Scope.Thread)
+public class SliceData {
+
+    public enum Backing {
+        HEAP, DIRECT
+    }
+
+    @Param({"8", "64", "1024", "65536", "1048576", "67108864"})
+    public int size;
+
+    @Param({"HEAP", "DIRECT"})
+    public Backing backing;
+
+    public byte[] bytes;
+
+    public Slice slice;
+
+    /**
+     * Same contents as {@link #slice}, different memory, so that
+     * equals and compareTo walk the whole range.
+     */
+    public Slice copy;
+
+    @Setup
+    public void setup() {
+        bytes = new byte[size];
+        ThreadLocalRandom.current().nextBytes(bytes);
+
+        slice = allocate();
+        slice.setBytes(0, bytes);
+
+        copy = allocate();
+        copy.setBytes(0, bytes);
+    }
+
+    private Slice allocate() {
+        if (backing == Backing.DIRECT) {
+            return Slices.allocateDirect(size);
+        }
+        return Slices.allocate(size);
+    }
+}
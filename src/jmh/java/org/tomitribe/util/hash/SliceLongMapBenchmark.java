@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counting keys read from a record buffer with {@link SliceLongMap} against a
+ * {@code HashMap<String, Long>}, which has to decode every key to a String first.
+ * Scores are keys per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class SliceLongMapBenchmark {
+
+    private static final int KEYS = 1 << 16;
+    private static final int STRIDE = 16;
+
+    @Param({"1024", "65536"})
+    public int distinct;
+
+    private Slice records;
+    private SliceLongMap sliceLongMap;
+    private Map<String, Long> hashMap;
+
+    @Setup
+    public void setup() {
+        final SliceOutput out = new SliceOutput(KEYS * STRIDE);
+        for (int i = 0; i < KEYS; i++) {
+            out.writeUtf8(String.format("key-%012d", i % distinct));
+        }
+        records = out.slice();
+        sliceLongMap = new SliceLongMap(distinct);
+        hashMap = new HashMap<>(distinct * 2);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public SliceLongMap sliceLongMap() {
+        for (int i = 0; i < KEYS; i++) {
+            sliceLongMap.addTo(records, i * STRIDE, STRIDE, 1);
+        }
+        return sliceLongMap;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public Map<String, Long> hashMap() {
+        for (int i = 0; i < KEYS; i++) {
+            hashMap.merge(records.toString(i * STRIDE, STRIDE, StandardCharsets.UTF_8), 1L, Long::sum);
+        }
+        return hashMap;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SlicesBenchmark {
+
+    @State(Scope.Thread)
+    public static class Buffers {
+
+        @Param({"8", "1024", "1048576"})
+        public int size;
+
+        public byte[] array;
+        public ByteBuffer heap;
+        public ByteBuffer direct;
+
+        @Setup
+        public void setup() {
+            array = new byte[size];
+            heap = ByteBuffer.wrap(array);
+            direct = ByteBuffer.allocateDirect(size);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class MappedInput {
+
+        @Param({"8", "65536", "67108864"})
+        public int size;
+
+        public File file;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            file = File.createTempFile("slices-benchmark", ".bin");
+            file.deleteOnExit();
+
+            final byte[] chunk = new byte[Math.min(size, 1 << 20)];
+            ThreadLocalRandom.current().nextBytes(chunk);
+
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                for (int written = 0; written < size; written += chunk.length) {
+                    out.write(chunk, 0, Math.min(chunk.length, size - written));
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    public Slice wrappedBufferArray(final Buffers buffers) {
+        return Slices.wrappedBuffer(buffers.array);
+    }
+
+    @Benchmark
+    public Slice wrappedBufferHeap(final Buffers buffers) {
+        return Slices.wrappedBuffer(buffers.heap);
+    }
+
+    @Benchmark
+    public Slice wrappedBufferDirect(final Buffers buffers) {
+        return Slices.wrappedBuffer(buffers.direct);
+    }
+
+    /**
+     * Maps and unmaps the file; the mapping is closed so the score does not
+     * depend on when the garbage collector releases address space.
+     */
+    @Benchmark
+    public byte mapFileReadOnly(final MappedInput input) throws IOException {
+        try (MappedFile mapped = Slices.openMappedFile(input.file)) {
+            return mapped.getSlice().getByte(0);
+        }
+    }
+
+    /**
+     * Maps the file and hashes it, the typical artifact verification path.
+     */
+    @Benchmark
+    public long mapFileReadOnlyAndHash(final MappedInput input, final BytesProcessed processed) throws IOException {
+        processed.bytes += input.size;
+        try (MappedFile mapped = Slices.openMappedFile(input.file)) {
+            return XxHash64.hash(mapped.getSlice());
+        }
+    }
+}
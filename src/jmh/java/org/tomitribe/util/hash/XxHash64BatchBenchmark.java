@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-key {@link XxHash64#hash(long, Slice, int, int)} calls against the
+ * batch {@link XxHash64#hashRecords} path.  Scores are keys per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class XxHash64BatchBenchmark {
+
+    private static final int RECORDS = 1 << 16;
+
+    @Param({"8", "16", "32", "64"})
+    public int stride;
+
+    private Slice records;
+    private long[] hashes;
+
+    @Setup
+    public void setup() {
+        final byte[] bytes = new byte[RECORDS * stride];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        records = Slices.wrappedBuffer(bytes);
+        hashes = new long[RECORDS];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long[] perKey() {
+        for (int i = 0; i < RECORDS; i++) {
+            hashes[i] = XxHash64.hash(0, records, i * stride, stride);
+        }
+        return hashes;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long[] hashRecords() {
+        XxHash64.hashRecords(0, records, 0, stride, stride, hashes, 0, RECORDS);
+        return hashes;
+    }
+}
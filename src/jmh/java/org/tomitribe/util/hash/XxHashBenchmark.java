@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class XxHashBenchmark {
+
+    @Benchmark
+    public long xxHash64(final SliceData data, final BytesProcessed processed) {
+        processed.bytes += data.size;
+        return XxHash64.hash(data.slice);
+    }
+
+    @Benchmark
+    public long xxHash64Streaming(final SliceData data, final BytesProcessed processed) {
+        processed.bytes += data.size;
+        return new XxHash64().update(data.slice).hash();
+    }
+
+    @Benchmark
+    public long xxHash64StreamingBytes(final SliceData data, final BytesProcessed processed) {
+        processed.bytes += data.size;
+        return new XxHash64().update(data.bytes).hash();
+    }
+
+    @Benchmark
+    public int xxHash32(final SliceData data, final BytesProcessed processed) {
+        processed.bytes += data.size;
+        return XxHash32.hash(data.slice);
+    }
+
+    @Benchmark
+    public int xxHash32Streaming(final SliceData data, final BytesProcessed processed) {
+        processed.bytes += data.size;
+        return new XxHash32().update(data.slice).hash();
+    }
+
+    @Benchmark
+    public long xxHash3(final SliceData data, final BytesProcessed processed) {
+        processed.bytes += data.size;
+        return XxHash3.hash(data.slice);
+    }
+
+    @Benchmark
+    public long xxHash3Streaming(final SliceData data, final BytesProcessed processed) {
+        processed.bytes += data.size;
+        return new XxHash3().update(data.slice).hash();
+    }
+
+    @Benchmark
+    public Hash128 xxHash128(final SliceData data, final BytesProcessed processed) {
+        processed.bytes += data.size;
+        return XxHash3.hash128(data.slice);
+    }
+}
@@ -18,7 +18,10 @@
 
 package org.tomitribe.util;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.Locale;
 
 /**
@@ -30,6 +33,11 @@ import java.util.Locale;
  * byte array, for example, string of sixteen 7s ("7...7") and seventeen 7s both
  * decode to the same byte array.
  *
+ * Besides the {@code String} methods there are variants working on caller
+ * buffers, streams, and {@code long} values, which always encode into
+ * {@value #LONG_LENGTH} characters.  Those report illegal input with an
+ * {@link IllegalArgumentException} rather than a {@link DecodingException}.
+ *
  * @author sweis@google.com (Steve Weis)
  * @author Neal Gafter
  */
@@ -39,6 +47,16 @@ public class Base32 {
     private static final Base32 INSTANCE =
             new Base32("ABCDEFGHIJKLMNOPQRSTUVWXYZ234567"); // RFC 4648/3548
 
+    /**
+     * Number of characters of an encoded {@code long}, 64 bits rounded up to 13 digits of 5 bits
+     */
+    public static final int LONG_LENGTH = 13;
+
+    /**
+     * Number of bytes the streams encode at a time, five bytes make eight characters
+     */
+    static final int STREAM_BLOCK_SIZE = 5 * 1024;
+
     static Base32 getInstance() {
         return INSTANCE;
     }
@@ -46,7 +64,11 @@ public class Base32 {
     private final char[] DIGITS;
     private final int MASK;
     private final int SHIFT;
-    private final HashMap<Character, Integer> CHAR_MAP;
+
+    /**
+     * Value of each ASCII character, upper or lower case, -1 if not a digit
+     */
+    private final byte[] VALUES = new byte[128];
 
     static final String SEPARATOR = "-";
 
@@ -55,9 +77,14 @@ public class Base32 {
         DIGITS = alphabet.toCharArray();
         MASK = DIGITS.length - 1;
         SHIFT = Integer.numberOfTrailingZeros(DIGITS.length);
-        CHAR_MAP = new HashMap<Character, Integer>();
-        for (int i = 0; i < DIGITS.length; i++) {
-            CHAR_MAP.put(DIGITS[i], i);
+
+        // decoding upper cases its input, so only upper case digits can match
+        Arrays.fill(VALUES, (byte) -1);
+        for (char c = 0; c < VALUES.length; c++) {
+            final int digit = alphabet.indexOf(Character.toUpperCase(c));
+            if (digit >= 0) {
+                VALUES[c] = (byte) digit;
+            }
         }
     }
 
@@ -65,49 +92,175 @@ public class Base32 {
         return getInstance().decodeInternal(encoded);
     }
 
-    protected byte[] decodeInternal(String encoded) throws DecodingException {
-        // Remove whitespace and separators
-        encoded = encoded.trim().replaceAll(SEPARATOR, "").replaceAll(" ", "");
+    /**
+     * Decodes {@code encoded[start, end)} into {@code dst} at {@code dstOff}, which
+     * needs room for {@code (end - start) * 5 / 8} bytes.  Spaces, separators and
+     * trailing padding are skipped as {@link #decode(String)} does.
+     *
+     * @return the number of bytes written
+     * @throws IllegalArgumentException if an illegal character is found
+     */
+    public static int decode(final CharSequence encoded, final int start, final int end, final byte[] dst, final int dstOff) {
+        return getInstance().decodeInternal(encoded, start, end, dst, dstOff);
+    }
+
+    /**
+     * Decodes the {@value #LONG_LENGTH} characters at {@code encoded[start]}, as
+     * written by {@link #encode(long)}, without separators.
+     *
+     * @throws IllegalArgumentException if fewer characters are available or one is illegal
+     */
+    public static long decodeLong(final CharSequence encoded, final int start) {
+        if (start < 0 || start > encoded.length() - LONG_LENGTH) {
+            throw new IllegalArgumentException("Expected " + LONG_LENGTH + " characters at " + start + ": " + encoded);
+        }
 
-        // Remove padding. Note: the padding is used as hint to determine how many
-        // bits to decode from the last incomplete chunk (which is commented out
-        // below, so this may have been wrong to start with).
-        encoded = encoded.replaceFirst("[=]*$", "");
+        final byte[] values = INSTANCE.VALUES;
+        long value = 0;
+        int invalid = 0;
+        for (int i = start; i < start + LONG_LENGTH - 1; i++) {
+            final char c = encoded.charAt(i);
+            final int digit = c < 128 ? values[c] : INSTANCE.nonAsciiValue(c);
+            invalid |= digit;
+            value = value << 5 | digit & 0x1F;
+        }
 
-        // Canonicalize to all upper case
-        encoded = encoded.toUpperCase(Locale.US);
-        if (encoded.length() == 0) {
-            return new byte[0];
+        // the last digit holds the lowest four bits, its fifth bit is padding
+        final char c = encoded.charAt(start + LONG_LENGTH - 1);
+        final int digit = c < 128 ? values[c] : INSTANCE.nonAsciiValue(c);
+        if ((invalid | digit) < 0) {
+            throw new IllegalArgumentException("Illegal character in " + encoded.subSequence(start, start + LONG_LENGTH));
         }
-        int encodedLength = encoded.length();
-        int outLength = encodedLength * SHIFT / 8;
-        byte[] result = new byte[outLength];
+        return value << 4 | digit >>> 1;
+    }
+
+    public static long decodeLong(final CharSequence encoded) {
+        if (encoded.length() != LONG_LENGTH) {
+            throw new IllegalArgumentException("Expected " + LONG_LENGTH + " characters: " + encoded);
+        }
+        return decodeLong(encoded, 0);
+    }
+
+    protected byte[] decodeInternal(final String encoded) throws DecodingException {
+        final byte[] result = new byte[encoded.length() * SHIFT / 8];
+        final int length;
+        try {
+            length = decodeInternal(encoded, 0, encoded.length(), result, 0);
+        } catch (IllegalArgumentException e) {
+            // characters upper casing to several, such as the sharp s to "SS"
+            final String upperCase = encoded.toUpperCase(Locale.US);
+            if (upperCase.length() == encoded.length()) {
+                throw new DecodingException(e.getMessage());
+            }
+            return decodeInternal(upperCase);
+        }
+        return length == result.length ? result : Arrays.copyOf(result, length);
+    }
+
+    protected int decodeInternal(final CharSequence encoded, int start, int end, final byte[] dst, final int dstOff) {
+        if (start < 0 || end < start || end > encoded.length()) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + encoded.length());
+        }
+
+        // Trim whitespace
+        while (start < end && encoded.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && encoded.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
         int buffer = 0;
-        int next = 0;
+        int next = dstOff;
         int bitsLeft = 0;
-        for (char c : encoded.toCharArray()) {
-            if (!CHAR_MAP.containsKey(c)) {
-                throw new DecodingException("Illegal character: " + c);
+        for (int i = start; i < end; i++) {
+            final char c = encoded.charAt(i);
+            final int digit = c < 128 ? VALUES[c] : nonAsciiValue(c);
+            if (digit < 0) {
+                // Skip separators, spaces and the padding at the end
+                if (c == SEPARATOR.charAt(0) || c == ' ' || c == '=' && isPaddingOnly(encoded, i, end)) {
+                    continue;
+                }
+                throw new IllegalArgumentException("Illegal character: " + c);
             }
+
             buffer <<= SHIFT;
-            buffer |= CHAR_MAP.get(c) & MASK;
+            buffer |= digit & MASK;
             bitsLeft += SHIFT;
             if (bitsLeft >= 8) {
-                result[next++] = (byte) (buffer >> (bitsLeft - 8));
+                dst[next++] = (byte) (buffer >> (bitsLeft - 8));
                 bitsLeft -= 8;
             }
         }
         // We'll ignore leftover bits for now.
-        // if (next != outLength || bitsLeft >= SHIFT) {
-        //  throw new DecodingException("Bits left: " + bitsLeft);
-        // }
-        return result;
+        return next - dstOff;
+    }
+
+    /**
+     * Value of a non-ASCII character that upper cases to a digit, such as the
+     * dotless i and the long s, -1 otherwise.
+     */
+    private int nonAsciiValue(final char c) {
+        final char upperCase = Character.toUpperCase(c);
+        return upperCase < 128 ? VALUES[upperCase] : -1;
+    }
+
+    private static boolean isPaddingOnly(final CharSequence encoded, final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            final char c = encoded.charAt(i);
+            if (c != '=' && c != ' ' && c != SEPARATOR.charAt(0)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public static String encode(byte[] data) {
         return getInstance().encodeInternal(data);
     }
 
+    /**
+     * Encodes {@code data[off, off + len)} into {@code dst} at {@code dstOff}.
+     *
+     * @return the number of characters written, {@link #encodedLength(int)}
+     */
+    public static int encode(final byte[] data, final int off, final int len, final char[] dst, final int dstOff) {
+        return getInstance().encodeInternal(data, off, len, dst, dstOff);
+    }
+
+    /**
+     * Encodes the eight big endian bytes of {@code value} into {@value #LONG_LENGTH}
+     * characters, the same as {@code encode(Longs.toBytes(value))}.
+     */
+    public static String encode(final long value) {
+        final char[] chars = new char[LONG_LENGTH];
+        encode(value, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * Writes the {@value #LONG_LENGTH} characters of {@code value} at {@code dst[off]}.
+     */
+    public static int encode(final long value, final char[] dst, final int off) {
+        if (off < 0 || off > dst.length - LONG_LENGTH) {
+            throw new IndexOutOfBoundsException("off " + off + ", dst.length " + dst.length);
+        }
+
+        final char[] digits = INSTANCE.DIGITS;
+        for (int i = 0; i < LONG_LENGTH - 1; i++) {
+            dst[off + i] = digits[(int) (value >>> (59 - 5 * i)) & 0x1F];
+        }
+        dst[off + LONG_LENGTH - 1] = digits[(int) (value << 1) & 0x1F];
+        return LONG_LENGTH;
+    }
+
+    /**
+     * Number of characters {@code length} bytes encode into.
+     */
+    public static int encodedLength(final int length) {
+        return (int) ((length * 8L + 4) / 5);
+    }
+
     protected String encodeInternal(byte[] data) {
         if (data.length == 0) {
             return "";
@@ -120,15 +273,28 @@ public class Base32 {
             throw new IllegalArgumentException();
         }
 
-        int outputLength = (data.length * 8 + SHIFT - 1) / SHIFT;
-        StringBuilder result = new StringBuilder(outputLength);
+        final char[] result = new char[(data.length * 8 + SHIFT - 1) / SHIFT];
+        encodeInternal(data, 0, data.length, result, 0);
+        return new String(result);
+    }
 
-        int buffer = data[0];
-        int next = 1;
-        int bitsLeft = 8;
-        while (bitsLeft > 0 || next < data.length) {
+    protected int encodeInternal(final byte[] data, final int off, final int len, final char[] dst, final int dstOff) {
+        if (off < 0 || len < 0 || off > data.length - len) {
+            throw new IndexOutOfBoundsException("off " + off + ", len " + len + ", length " + data.length);
+        }
+        final int outputLength = (int) (((long) len * 8 + SHIFT - 1) / SHIFT);
+        if (dstOff < 0 || dstOff > dst.length - outputLength) {
+            throw new IndexOutOfBoundsException("dstOff " + dstOff + ", length " + outputLength + ", dst.length " + dst.length);
+        }
+
+        int buffer = 0;
+        int next = off;
+        int bitsLeft = 0;
+        int position = dstOff;
+        final int end = off + len;
+        while (bitsLeft > 0 || next < end) {
             if (bitsLeft < SHIFT) {
-                if (next < data.length) {
+                if (next < end) {
                     buffer <<= 8;
                     buffer |= (data[next++] & 0xff);
                     bitsLeft += 8;
@@ -140,9 +306,34 @@ public class Base32 {
             }
             int index = MASK & (buffer >> (bitsLeft - SHIFT));
             bitsLeft -= SHIFT;
-            result.append(DIGITS[index]);
+            dst[position++] = DIGITS[index];
+        }
+        return position - dstOff;
+    }
+
+    /**
+     * Returns a stream that encodes the bytes written to it into {@code out} as
+     * ASCII characters, the same as {@link #encode(byte[])} over everything
+     * written.  Only {@value #STREAM_BLOCK_SIZE} bytes are held at a time; the
+     * last character is written when the stream is closed, which closes {@code out}.
+     */
+    public static OutputStream encodingStream(final OutputStream out) {
+        if (out == null) {
+            throw new NullPointerException("out is null");
+        }
+        return new EncodingOutputStream(getInstance(), out);
+    }
+
+    /**
+     * Returns a stream that decodes the ASCII characters read from {@code in}.
+     * Whitespace, separators and padding are skipped; an illegal character
+     * fails the read with an {@link IOException}.  Closing the stream closes {@code in}.
+     */
+    public static InputStream decodingStream(final InputStream in) {
+        if (in == null) {
+            throw new NullPointerException("in is null");
         }
-        return result.toString();
+        return new DecodingInputStream(getInstance(), in);
     }
 
     public static class DecodingException extends Exception {
@@ -151,4 +342,172 @@ public class Base32 {
         }
     }
 
-}
\ No newline at end of file
+    private static class EncodingOutputStream extends OutputStream {
+        private final Base32 base32;
+        private final OutputStream out;
+        private final byte[] encoded;
+
+        private int buffer;
+        private int bitsLeft;
+        private int position;
+        private boolean closed;
+
+        EncodingOutputStream(final Base32 base32, final OutputStream out) {
+            this.base32 = base32;
+            this.out = out;
+            this.encoded = new byte[encodedLength(STREAM_BLOCK_SIZE)];
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            ensureOpen();
+            append(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            ensureOpen();
+            if (off < 0 || len < 0 || off > b.length - len) {
+                throw new IndexOutOfBoundsException();
+            }
+            for (int i = off; i < off + len; i++) {
+                append(b[i]);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            ensureOpen();
+            // only whole characters can be written before the end of the data
+            out.write(encoded, 0, position);
+            position = 0;
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            try {
+                if (bitsLeft > 0) {
+                    // pad the last character with zero bits
+                    encoded[position++] = (byte) base32.DIGITS[base32.MASK & (buffer << (base32.SHIFT - bitsLeft))];
+                }
+                out.write(encoded, 0, position);
+            } finally {
+                out.close();
+            }
+        }
+
+        private void append(final int b) throws IOException {
+            buffer = buffer << 8 | (b & 0xff);
+            bitsLeft += 8;
+            while (bitsLeft >= base32.SHIFT) {
+                bitsLeft -= base32.SHIFT;
+                encoded[position++] = (byte) base32.DIGITS[base32.MASK & (buffer >> bitsLeft)];
+            }
+
+            if (position > encoded.length - 2) {
+                out.write(encoded, 0, position);
+                position = 0;
+            }
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+        }
+    }
+
+    private static class DecodingInputStream extends InputStream {
+        private final Base32 base32;
+        private final InputStream in;
+
+        private final byte[] block = new byte[STREAM_BLOCK_SIZE];
+        private final byte[] decoded = new byte[STREAM_BLOCK_SIZE * 5 / 8 + 1];
+        private int position;
+        private int limit;
+
+        private int buffer;
+        private int bitsLeft;
+        private boolean eof;
+
+        DecodingInputStream(final Base32 base32, final InputStream in) {
+            this.base32 = base32;
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return decoded[position++] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (off < 0 || len < 0 || off > b.length - len) {
+                throw new IndexOutOfBoundsException();
+            }
+            if (len == 0) {
+                return 0;
+            }
+            if (position == limit && !fill()) {
+                return -1;
+            }
+
+            final int count = Math.min(len, limit - position);
+            System.arraycopy(decoded, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return limit - position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private boolean fill() throws IOException {
+            position = 0;
+            limit = 0;
+
+            while (limit == 0 && !eof) {
+                final int read = in.read(block);
+                if (read == -1) {
+                    // leftover bits of the last character are ignored
+                    eof = true;
+                    break;
+                }
+
+                for (int i = 0; i < read; i++) {
+                    final int c = block[i] & 0xff;
+                    final int digit = c < 128 ? base32.VALUES[c] : -1;
+                    if (digit < 0) {
+                        if (c <= ' ' || c == '=' || c == SEPARATOR.charAt(0)) {
+                            continue;
+                        }
+                        throw new IOException("Illegal character: " + (char) c);
+                    }
+
+                    buffer = buffer << base32.SHIFT | digit;
+                    bitsLeft += base32.SHIFT;
+                    if (bitsLeft >= 8) {
+                        bitsLeft -= 8;
+                        decoded[limit++] = (byte) (buffer >> bitsLeft);
+                    }
+                }
+            }
+            return limit > 0;
+        }
+    }
+}
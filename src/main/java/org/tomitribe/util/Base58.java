@@ -33,7 +33,10 @@ import java.util.Arrays;
  * <li>Doubleclicking selects the whole number as one word if it's all alphanumeric.</li>
  * </ul>
  * <p>
- * However, note that the encoding/decoding runs in O(n&sup2;) time, so it is not useful for large data.
+ * The encoding/decoding still runs in O(n&sup2;) time, but converts 32 bits of
+ * input and five base58 digits per step, which makes kilobyte sized inputs
+ * practical.  Eight and sixteen byte inputs, such as {@code long} ids and UUIDs,
+ * are converted with long arithmetic alone.
  * <p>
  * The basic idea of the encoding is to treat the data bytes as a large number represented using
  * base-256 digits, convert the number to be represented using base-58 digits, preserve the exact
@@ -42,13 +45,39 @@ import java.util.Arrays;
  */
 public class Base58 {
     public static final char[] ALPHABET = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz".toCharArray();
+
+    /**
+     * Maximum length of an encoded {@code long}, see {@link #encode(long)}
+     */
+    public static final int MAX_LONG_LENGTH = 11;
+
     private static final char ENCODED_ZERO = ALPHABET[0];
     private static final int[] INDEXES = new int[128];
+
+    /**
+     * Number of base58 digits converted at a time, {@code 58^5} is just under {@code 2^30}
+     */
+    private static final int CHUNK_DIGITS = 5;
+
+    /**
+     * {@code 58^i} for i up to {@link #MAX_LONG_LENGTH} - 1
+     */
+    private static final long[] POWERS = new long[MAX_LONG_LENGTH];
+
+    private static final long CHUNK;
+    private static final long MASK = 0xFFFFFFFFL;
+
     static {
         Arrays.fill(INDEXES, -1);
         for (int i = 0; i < ALPHABET.length; i++) {
             INDEXES[ALPHABET[i]] = i;
         }
+
+        POWERS[0] = 1;
+        for (int i = 1; i < POWERS.length; i++) {
+            POWERS[i] = POWERS[i - 1] * 58;
+        }
+        CHUNK = POWERS[CHUNK_DIGITS];
     }
 
     private Base58() {
@@ -63,22 +92,49 @@ public class Base58 {
     public static String encode(byte[] input) {
         if (input.length == 0) {
             return "";
-        }       
+        }
+        if (input.length == 8) {
+            return encode(toLong(input, 0));
+        }
+        if (input.length == 16) {
+            return encode128(toLong(input, 0), toLong(input, 8));
+        }
+
         // Count leading zeros.
         int zeros = 0;
         while (zeros < input.length && input[zeros] == 0) {
             ++zeros;
         }
-        // Convert base-256 digits to base-58 digits (plus conversion to ASCII characters)
-        input = Arrays.copyOf(input, input.length); // since we modify it in-place
-        char[] encoded = new char[input.length * 2]; // upper bound
+
+        // Pack the remaining bytes into big endian 32 bit limbs, the first one partial
+        final int length = input.length - zeros;
+        final int[] limbs = new int[(length + 3) / 4];
+        final int pad = limbs.length * 4 - length;
+        for (int i = 0; i < length; i++) {
+            final int index = pad + i;
+            limbs[index >> 2] |= (input[zeros + i] & 0xFF) << (8 * (3 - (index & 3)));
+        }
+
+        // Each pass divides by 58^5, 29.3 bits, and yields five digits
+        final char[] encoded = new char[zeros + (length * 8 / 29 + 1) * CHUNK_DIGITS];
         int outputStart = encoded.length;
-        for (int inputStart = zeros; inputStart < input.length; ) {
-            encoded[--outputStart] = ALPHABET[divmod(input, inputStart, 256, 58)];
-            if (input[inputStart] == 0) {
-                ++inputStart; // optimization - skip leading zeros
+        int first = 0;
+        while (first < limbs.length) {
+            long remainder = 0;
+            for (int i = first; i < limbs.length; i++) {
+                final long current = remainder << 32 | (limbs[i] & MASK);
+                limbs[i] = (int) (current / CHUNK);
+                remainder = current % CHUNK;
+            }
+            while (first < limbs.length && limbs[first] == 0) {
+                ++first;
+            }
+            for (int i = 0; i < CHUNK_DIGITS; i++) {
+                encoded[--outputStart] = ALPHABET[(int) (remainder % 58)];
+                remainder /= 58;
             }
         }
+
         // Preserve exactly as many leading encoded zeros in output as there were leading zeros in input.
         while (outputStart < encoded.length && encoded[outputStart] == ENCODED_ZERO) {
             ++outputStart;
@@ -90,6 +146,158 @@ public class Base58 {
         return new String(encoded, outputStart, encoded.length - outputStart);
     }
 
+    /**
+     * Encodes the eight big endian bytes of {@code value}, the same as
+     * {@code encode(Longs.toBytes(value))} without the intermediate array.
+     */
+    public static String encode(long value) {
+        final char[] encoded = new char[MAX_LONG_LENGTH];
+        final int length = encode(value, encoded, 0);
+        return new String(encoded, 0, length);
+    }
+
+    /**
+     * Writes the encoding of {@code value}, see {@link #encode(long)}, at
+     * {@code dst[off]} and returns the number of characters written, at most
+     * {@link #MAX_LONG_LENGTH}.
+     */
+    public static int encode(long value, char[] dst, int off) {
+        final int length = encodedLength(value);
+        if (off < 0 || off > dst.length - length) {
+            throw new IndexOutOfBoundsException("off " + off + ", length " + length + ", dst.length " + dst.length);
+        }
+
+        int position = off + length;
+        if (value < 0) {
+            // unsigned division once, after which the value fits a signed long
+            final long quotient = (value >>> 1) / 29;
+            dst[--position] = ALPHABET[(int) (value - quotient * 58)];
+            value = quotient;
+        }
+        while (value != 0) {
+            dst[--position] = ALPHABET[(int) (value % 58)];
+            value /= 58;
+        }
+        while (position > off) {
+            dst[--position] = ENCODED_ZERO;
+        }
+        return length;
+    }
+
+    /**
+     * Appends the encoding of {@code value}, see {@link #encode(long)}.
+     */
+    public static StringBuilder append(StringBuilder out, long value) {
+        final int start = out.length();
+        final int length = encodedLength(value);
+        out.setLength(start + length);
+
+        int position = start + length;
+        if (value < 0) {
+            final long quotient = (value >>> 1) / 29;
+            out.setCharAt(--position, ALPHABET[(int) (value - quotient * 58)]);
+            value = quotient;
+        }
+        while (value != 0) {
+            out.setCharAt(--position, ALPHABET[(int) (value % 58)]);
+            value /= 58;
+        }
+        while (position > start) {
+            out.setCharAt(--position, ENCODED_ZERO);
+        }
+        return out;
+    }
+
+    /**
+     * Encodes each value, as {@link #encode(long)} does, into {@code dst} starting at
+     * {@code off}, with {@code separator} between values.  At most
+     * {@code values.length * (MAX_LONG_LENGTH + 1)} characters are written.
+     *
+     * @return the number of characters written
+     */
+    public static int encode(long[] values, char[] dst, int off, char separator) {
+        int position = off;
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                if (position >= dst.length) {
+                    throw new IndexOutOfBoundsException("dst.length " + dst.length);
+                }
+                dst[position++] = separator;
+            }
+            position += encode(values[i], dst, position);
+        }
+        return position - off;
+    }
+
+    /**
+     * Appends each value, as {@link #encode(long)} encodes it, with {@code separator} between values.
+     */
+    public static StringBuilder append(StringBuilder out, long[] values, char separator) {
+        out.ensureCapacity(out.length() + values.length * (MAX_LONG_LENGTH + 1));
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.append(separator);
+            }
+            append(out, values[i]);
+        }
+        return out;
+    }
+
+    /**
+     * Number of characters {@link #encode(long)} produces: one per leading zero
+     * byte followed by the base58 digits of the unsigned value.
+     */
+    private static int encodedLength(long value) {
+        if (value == 0) {
+            return 8;
+        }
+
+        int digits = 1;
+        while (digits < POWERS.length && Long.compareUnsigned(value, POWERS[digits]) >= 0) {
+            digits++;
+        }
+        return Long.numberOfLeadingZeros(value) / 8 + digits;
+    }
+
+    /**
+     * Encodes sixteen bytes given as two big endian longs.  The 128 bit value is
+     * divided by 58^5 through four 32 bit steps per pass, all in long arithmetic.
+     */
+    private static String encode128(long high, long low) {
+        final int zeros = high != 0 ? Long.numberOfLeadingZeros(high) / 8 : 8 + Long.numberOfLeadingZeros(low) / 8;
+
+        // 58^22 > 2^128, rounded up to whole passes
+        final char[] encoded = new char[16 + 25];
+        int outputStart = encoded.length;
+        while (high != 0 || low != 0) {
+            long current = high >>> 32;
+            final long q3 = current / CHUNK;
+            current = (current % CHUNK) << 32 | (high & MASK);
+            final long q2 = current / CHUNK;
+            current = (current % CHUNK) << 32 | (low >>> 32);
+            final long q1 = current / CHUNK;
+            current = (current % CHUNK) << 32 | (low & MASK);
+            final long q0 = current / CHUNK;
+            long remainder = current % CHUNK;
+
+            high = q3 << 32 | q2;
+            low = q1 << 32 | q0;
+
+            for (int i = 0; i < CHUNK_DIGITS; i++) {
+                encoded[--outputStart] = ALPHABET[(int) (remainder % 58)];
+                remainder /= 58;
+            }
+        }
+
+        while (outputStart < encoded.length && encoded[outputStart] == ENCODED_ZERO) {
+            ++outputStart;
+        }
+        for (int i = 0; i < zeros; i++) {
+            encoded[--outputStart] = ENCODED_ZERO;
+        }
+        return new String(encoded, outputStart, encoded.length - outputStart);
+    }
+
     /**
      * Decodes the given base58 string into the original data bytes.
      *
@@ -116,45 +324,45 @@ public class Base58 {
         while (zeros < input58.length && input58[zeros] == 0) {
             ++zeros;
         }
-        // Convert base-58 digits to base-256 digits.
-        byte[] decoded = new byte[input.length()];
-        int outputStart = decoded.length;
-        for (int inputStart = zeros; inputStart < input58.length; ) {
-            decoded[--outputStart] = divmod(input58, inputStart, 58, 256);
-            if (input58[inputStart] == 0) {
-                ++inputStart; // optimization - skip leading zeros
+
+        // Multiply little endian 32 bit limbs by 58^5 and add the next five digits,
+        // the first group takes the digits left over.  log(58) / log(256) < 3 / 4
+        final int length = input58.length - zeros;
+        final int[] limbs = new int[(length * 3 / 4 + 4) / 4 + 1];
+        int used = 0;
+        for (int i = zeros; i < input58.length; ) {
+            final int count = i == zeros && length % CHUNK_DIGITS != 0 ? length % CHUNK_DIGITS : CHUNK_DIGITS;
+            long carry = 0;
+            for (int j = 0; j < count; j++) {
+                carry = carry * 58 + input58[i++];
+            }
+
+            final long multiplier = POWERS[count];
+            for (int j = 0; j < used; j++) {
+                final long current = (limbs[j] & MASK) * multiplier + carry;
+                limbs[j] = (int) current;
+                carry = current >>> 32;
+            }
+            if (carry != 0) {
+                limbs[used++] = (int) carry;
             }
         }
-        // Ignore extra leading zeroes that were added during the calculation.
-        while (outputStart < decoded.length && decoded[outputStart] == 0) {
-            ++outputStart;
-        }
+
         // Return decoded data (including original number of leading zeros).
-        return Arrays.copyOfRange(decoded, outputStart - zeros, decoded.length);
+        final int significant = used == 0 ? 0 : used * 4 - Integer.numberOfLeadingZeros(limbs[used - 1]) / 8;
+        final byte[] decoded = new byte[zeros + significant];
+        for (int i = 0; i < significant; i++) {
+            decoded[decoded.length - 1 - i] = (byte) (limbs[i >> 2] >>> (8 * (i & 3)));
+        }
+        return decoded;
     }
-    
-    /**
-     * Divides a number, represented as an array of bytes each containing a single digit
-     * in the specified base, by the given divisor. The given number is modified in-place
-     * to contain the quotient, and the return value is the remainder.
-     *
-     * @param number the number to divide
-     * @param firstDigit the index within the array of the first non-zero digit
-     *        (this is used for optimization by skipping the leading zeros)
-     * @param base the base in which the number's digits are represented (up to 256)
-     * @param divisor the number to divide by (up to 256)
-     * @return the remainder of the division operation
-     */
-    private static byte divmod(byte[] number, int firstDigit, int base, int divisor) {
-        // this is just long division which accounts for the base of the input digits
-        int remainder = 0;
-        for (int i = firstDigit; i < number.length; i++) {
-            int digit = (int) number[i] & 0xFF;
-            int temp = remainder * base + digit;
-            number[i] = (byte) (temp / divisor);
-            remainder = temp % divisor;
-        }
-        return (byte) remainder;
+
+    private static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = value << 8 | (bytes[i] & 0xFF);
+        }
+        return value;
     }
 
     @SuppressWarnings("serial")
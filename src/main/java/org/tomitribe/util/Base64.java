@@ -18,6 +18,10 @@
 package org.tomitribe.util;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * Provides Base64 encoding and decoding as defined by RFC 2045.
@@ -89,6 +93,23 @@ public class Base64 {
      */
     static final byte PAD = (byte) '=';
 
+    /**
+     * Codec for the standard alphabet of RFC 4648 section 4, with padding.
+     * Produces the same output as {@link #encodeBase64(byte[])}.
+     */
+    public static final Codec STANDARD = new Codec(false, true);
+
+    /**
+     * Codec for the URL and filename safe alphabet of RFC 4648 section 5, with padding.
+     */
+    public static final Codec URL_SAFE = new Codec(true, true);
+
+    /**
+     * Number of bytes the streams encode or decode at a time.  A multiple of the
+     * 57 bytes that make up one chunk, so each encoded block ends with a full line.
+     */
+    static final int STREAM_BLOCK_SIZE = 57 * 64;
+
     /**
      * Contains the Base64 values <code>0</code> through <code>63</code> accessed by using character encodings as
      * indices.
@@ -459,6 +480,51 @@ public class Base64 {
         return decodedData;
     }
 
+    /**
+     * Returns a stream that encodes the bytes written to it with the base64
+     * algorithm into {@code out}, without chunking the output.
+     *
+     * @see #encodingStream(OutputStream, boolean)
+     */
+    public static OutputStream encodingStream(final OutputStream out) {
+        return encodingStream(out, false);
+    }
+
+    /**
+     * Returns a stream that encodes the bytes written to it with the base64
+     * algorithm into {@code out}.  The output is the same as
+     * {@link #encodeBase64(byte[], boolean)} over everything written, but only
+     * one block of {@value #STREAM_BLOCK_SIZE} bytes is held in memory.
+     * <p/>
+     * The padding and the final chunk separator are written when the stream
+     * is closed, which also closes {@code out}.
+     *
+     * @param out       stream receiving the Base64 characters
+     * @param isChunked if <code>true</code> the output is chunked into 76 character blocks
+     */
+    public static OutputStream encodingStream(final OutputStream out, final boolean isChunked) {
+        if (out == null) {
+            throw new NullPointerException("out is null");
+        }
+        return new EncodingOutputStream(out, isChunked);
+    }
+
+    /**
+     * Returns a stream that decodes the Base64 data read from {@code in}.  As with
+     * {@link #decodeBase64(byte[])} characters outside of the base64 alphabet,
+     * such as whitespace and chunk separators, are ignored.  Data read from
+     * {@code in} is decoded one block of {@value #STREAM_BLOCK_SIZE} bytes at a time.
+     * <p/>
+     * A trailing group of two or three characters without padding is decoded
+     * into one or two bytes.  Closing the stream closes {@code in}.
+     */
+    public static InputStream decodingStream(final InputStream in) {
+        if (in == null) {
+            throw new NullPointerException("in is null");
+        }
+        return new DecodingInputStream(in);
+    }
+
     /**
      * Discards any whitespace from a base-64 encoded block.
      *
@@ -482,6 +548,10 @@ public class Base64 {
             }
         }
 
+        if (bytesCopied == data.length) {
+            return groomedData;
+        }
+
         final byte[] packedData = new byte[bytesCopied];
 
         System.arraycopy(groomedData, 0, packedData, 0, bytesCopied);
@@ -508,6 +578,10 @@ public class Base64 {
             }
         }
 
+        if (bytesCopied == data.length) {
+            return groomedData;
+        }
+
         final byte[] packedData = new byte[bytesCopied];
 
         System.arraycopy(groomedData, 0, packedData, 0, bytesCopied);
@@ -549,4 +623,522 @@ public class Base64 {
         return encodeBase64(pArray, false);
     }
 
-}
\ No newline at end of file
+    private static class EncodingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final boolean isChunked;
+
+        /**
+         * Bytes not yet encoded, fewer than one block
+         */
+        private final byte[] block = new byte[STREAM_BLOCK_SIZE];
+        private int blockLength;
+
+        private final byte[] encoded;
+
+        /**
+         * Characters written on the current chunk line
+         */
+        private int column;
+        private boolean closed;
+
+        EncodingOutputStream(final OutputStream out, final boolean isChunked) {
+            this.out = out;
+            this.isChunked = isChunked;
+
+            final int characters = STREAM_BLOCK_SIZE / 3 * 4;
+            this.encoded = new byte[characters + (characters / CHUNK_SIZE + 1) * CHUNK_SEPARATOR.length];
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            ensureOpen();
+            block[blockLength++] = (byte) b;
+            if (blockLength == block.length) {
+                encodeBlock(false);
+            }
+        }
+
+        @Override
+        public void write(final byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            if (off < 0 || len < 0 || off + len > b.length || off + len < 0) {
+                throw new IndexOutOfBoundsException();
+            }
+
+            while (len > 0) {
+                final int count = Math.min(len, block.length - blockLength);
+                System.arraycopy(b, off, block, blockLength, count);
+                blockLength += count;
+                off += count;
+                len -= count;
+
+                if (blockLength == block.length) {
+                    encodeBlock(false);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            ensureOpen();
+            // only whole triplets can be written before the end of the data
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            try {
+                encodeBlock(true);
+                if (isChunked && column > 0) {
+                    out.write(CHUNK_SEPARATOR);
+                }
+            } finally {
+                out.close();
+            }
+        }
+
+        /**
+         * Encodes the whole triplets of the block, and the remaining one or two
+         * bytes with padding when {@code last} is set.
+         */
+        private void encodeBlock(final boolean last) throws IOException {
+            final int triplets = blockLength / 3;
+            int index = 0;
+
+            for (int i = 0; i < triplets; i++) {
+                final int offset = i * 3;
+                final int bits = (block[offset] & 0xff) << 16 | (block[offset + 1] & 0xff) << 8 | block[offset + 2] & 0xff;
+                encoded[index++] = lookUpBase64Alphabet[bits >>> 18];
+                encoded[index++] = lookUpBase64Alphabet[bits >>> 12 & 0x3f];
+                encoded[index++] = lookUpBase64Alphabet[bits >>> 6 & 0x3f];
+                encoded[index++] = lookUpBase64Alphabet[bits & 0x3f];
+                index = separate(index);
+            }
+
+            final int remaining = blockLength - triplets * 3;
+            if (last && remaining > 0) {
+                final int offset = triplets * 3;
+                final int bits = (block[offset] & 0xff) << 16 | (remaining == 2 ? (block[offset + 1] & 0xff) << 8 : 0);
+                encoded[index++] = lookUpBase64Alphabet[bits >>> 18];
+                encoded[index++] = lookUpBase64Alphabet[bits >>> 12 & 0x3f];
+                encoded[index++] = remaining == 2 ? lookUpBase64Alphabet[bits >>> 6 & 0x3f] : PAD;
+                encoded[index++] = PAD;
+                index = separate(index);
+                blockLength = 0;
+            } else {
+                // keep the incomplete triplet for the next block
+                System.arraycopy(block, triplets * 3, block, 0, remaining);
+                blockLength = remaining;
+            }
+
+            out.write(encoded, 0, index);
+        }
+
+        private int separate(int index) {
+            if (isChunked) {
+                column += 4;
+                // this assumes that CHUNK_SIZE % 4 == 0
+                if (column == CHUNK_SIZE) {
+                    System.arraycopy(CHUNK_SEPARATOR, 0, encoded, index, CHUNK_SEPARATOR.length);
+                    index += CHUNK_SEPARATOR.length;
+                    column = 0;
+                }
+            }
+            return index;
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+        }
+    }
+
+    private static class DecodingInputStream extends InputStream {
+        private final InputStream in;
+
+        /**
+         * Characters read from the stream, decoded into {@code decoded} in one pass
+         */
+        private final byte[] block = new byte[STREAM_BLOCK_SIZE];
+
+        /**
+         * Three bytes for every four characters, plus two for a group completed
+         * by the characters carried over from the previous block
+         */
+        private final byte[] decoded = new byte[STREAM_BLOCK_SIZE / 4 * 3 + 3];
+        private int position;
+        private int limit;
+
+        /**
+         * Sextets of the current group of four characters
+         */
+        private int bits;
+        private int sextets;
+
+        private boolean eof;
+
+        DecodingInputStream(final InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return decoded[position++] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (off < 0 || len < 0 || off + len > b.length || off + len < 0) {
+                throw new IndexOutOfBoundsException();
+            }
+            if (len == 0) {
+                return 0;
+            }
+            if (position == limit && !fill()) {
+                return -1;
+            }
+
+            final int count = Math.min(len, limit - position);
+            System.arraycopy(decoded, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return limit - position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        /**
+         * Decodes the next block, returns false at the end of the data.
+         */
+        private boolean fill() throws IOException {
+            position = 0;
+            limit = 0;
+
+            while (limit == 0 && !eof) {
+                final int read = in.read(block);
+                if (read == -1) {
+                    eof = true;
+                    // the data ended without padding
+                    pad();
+                } else {
+                    decode(read);
+                }
+            }
+            return limit > 0;
+        }
+
+        private void decode(final int length) {
+            for (int i = 0; i < length; i++) {
+                final byte octet = block[i];
+                if (octet == PAD) {
+                    pad();
+                } else if (octet >= 0 && base64Alphabet[octet] != -1) {
+                    bits = bits << 6 | base64Alphabet[octet];
+                    if (++sextets == 4) {
+                        decoded[limit++] = (byte) (bits >> 16);
+                        decoded[limit++] = (byte) (bits >> 8);
+                        decoded[limit++] = (byte) bits;
+                        bits = 0;
+                        sextets = 0;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Completes a group of two or three characters, extra padding is ignored.
+         */
+        private void pad() {
+            if (sextets == 2) {
+                decoded[limit++] = (byte) (bits >> 4);
+            } else if (sextets == 3) {
+                decoded[limit++] = (byte) (bits >> 10);
+                decoded[limit++] = (byte) (bits >> 2);
+            }
+            bits = 0;
+            sextets = 0;
+        }
+    }
+
+    /**
+     * Table driven Base64 codec working on caller provided buffers.
+     * <p/>
+     * Encoding translates 12 bits at a time through a table of character pairs.
+     * Decoding translates groups of four characters through a table in which
+     * anything but the alphabet is negative, so a single sign test per group
+     * tells whether the fast path applies.  Whitespace is skipped where it is
+     * found, without copying the input; padding is optional when decoding.
+     * Any other character fails with an {@link IllegalArgumentException}.
+     * <p/>
+     * Instances are immutable and thread-safe.
+     */
+    public static final class Codec {
+        private static final int WHITESPACE = -2;
+
+        private final boolean urlSafe;
+        private final boolean padding;
+        private final byte[] alphabet = new byte[LOOKUPLENGTH];
+        private final short[] pairs = new short[LOOKUPLENGTH * LOOKUPLENGTH];
+        private final int[] values = new int[256];
+
+        private Codec(final boolean urlSafe, final boolean padding) {
+            this.urlSafe = urlSafe;
+            this.padding = padding;
+
+            // not copied from lookUpBase64Alphabet, which is filled after the codecs are created
+            final String characters = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789" + (urlSafe ? "-_" : "+/");
+            for (int i = 0; i < LOOKUPLENGTH; i++) {
+                alphabet[i] = (byte) characters.charAt(i);
+            }
+
+            for (int i = 0; i < pairs.length; i++) {
+                pairs[i] = (short) (alphabet[i >>> 6] << 8 | alphabet[i & 0x3f]);
+            }
+
+            Arrays.fill(values, -1);
+            for (int i = 0; i < LOOKUPLENGTH; i++) {
+                values[alphabet[i]] = i;
+            }
+            values[' '] = WHITESPACE;
+            values['\t'] = WHITESPACE;
+            values['\r'] = WHITESPACE;
+            values['\n'] = WHITESPACE;
+        }
+
+        /**
+         * Same alphabet, without the {@code =} padding when encoding.
+         */
+        public Codec withoutPadding() {
+            return padding ? new Codec(urlSafe, false) : this;
+        }
+
+        public boolean isUrlSafe() {
+            return urlSafe;
+        }
+
+        public boolean isPadding() {
+            return padding;
+        }
+
+        /**
+         * Number of characters {@code length} bytes encode into.
+         */
+        public int encodedLength(final int length) {
+            if (length < 0) {
+                throw new IllegalArgumentException("length is negative");
+            }
+            if (padding) {
+                return (int) ((length + 2L) / 3 * 4);
+            }
+            return (int) ((length * 4L + 2) / 3);
+        }
+
+        /**
+         * Upper bound of the number of bytes {@code length} characters decode into.
+         */
+        public int maxDecodedLength(final int length) {
+            if (length < 0) {
+                throw new IllegalArgumentException("length is negative");
+            }
+            return (int) (length * 3L / 4);
+        }
+
+        /**
+         * Encodes {@code src[off, off + len)} into {@code dst} starting at {@code dstOff}.
+         *
+         * @return the number of characters written, {@link #encodedLength(int)}
+         * @throws IndexOutOfBoundsException if either range is out of bounds
+         */
+        public int encode(final byte[] src, final int off, final int len, final byte[] dst, final int dstOff) {
+            checkRange(src.length, off, len);
+            final int encodedLength = encodedLength(len);
+            checkRange(dst.length, dstOff, encodedLength);
+
+            final int end = off + len - len % 3;
+            int s = off;
+            int d = dstOff;
+            while (s < end) {
+                final int bits = (src[s] & 0xff) << 16 | (src[s + 1] & 0xff) << 8 | src[s + 2] & 0xff;
+                final short high = pairs[bits >>> 12];
+                final short low = pairs[bits & 0xfff];
+                dst[d] = (byte) (high >> 8);
+                dst[d + 1] = (byte) high;
+                dst[d + 2] = (byte) (low >> 8);
+                dst[d + 3] = (byte) low;
+                s += 3;
+                d += 4;
+            }
+
+            final int remaining = off + len - end;
+            if (remaining == 1) {
+                final int bits = (src[s] & 0xff) << 4;
+                final short pair = pairs[bits];
+                dst[d++] = (byte) (pair >> 8);
+                dst[d++] = (byte) pair;
+                if (padding) {
+                    dst[d++] = PAD;
+                    dst[d++] = PAD;
+                }
+            } else if (remaining == 2) {
+                final int bits = (src[s] & 0xff) << 10 | (src[s + 1] & 0xff) << 2;
+                final short pair = pairs[bits >>> 6];
+                dst[d++] = (byte) (pair >> 8);
+                dst[d++] = (byte) pair;
+                dst[d++] = alphabet[bits & 0x3f];
+                if (padding) {
+                    dst[d++] = PAD;
+                }
+            }
+
+            return d - dstOff;
+        }
+
+        public byte[] encode(final byte[] src) {
+            final byte[] dst = new byte[encodedLength(src.length)];
+            encode(src, 0, src.length, dst, 0);
+            return dst;
+        }
+
+        public String encodeToString(final byte[] src) {
+            return new String(encode(src), StandardCharsets.US_ASCII);
+        }
+
+        /**
+         * Decodes the characters of {@code src[off, off + len)} into {@code dst}
+         * starting at {@code dstOff}, which must have room for
+         * {@link #maxDecodedLength(int)} bytes, or for the exact decoded length.
+         *
+         * @return the number of bytes written
+         * @throws IllegalArgumentException  if the data is not valid Base64 for this alphabet
+         * @throws IndexOutOfBoundsException if either range is out of bounds
+         */
+        public int decode(final byte[] src, final int off, final int len, final byte[] dst, final int dstOff) {
+            checkRange(src.length, off, len);
+            checkRange(dst.length, dstOff, 0);
+
+            final int end = off + len;
+            final int fastEnd = end - 4;
+            int s = off;
+            int d = dstOff;
+
+            while (true) {
+                // whole groups with nothing to skip, the common case
+                while (s <= fastEnd && d <= dst.length - 3) {
+                    final int bits = values[src[s] & 0xff] << 18
+                            | values[src[s + 1] & 0xff] << 12
+                            | values[src[s + 2] & 0xff] << 6
+                            | values[src[s + 3] & 0xff];
+                    if (bits < 0) {
+                        break;
+                    }
+                    dst[d] = (byte) (bits >> 16);
+                    dst[d + 1] = (byte) (bits >> 8);
+                    dst[d + 2] = (byte) bits;
+                    s += 4;
+                    d += 3;
+                }
+
+                if (s == end) {
+                    return d - dstOff;
+                }
+
+                // one group a character at a time, skipping whitespace
+                int bits = 0;
+                int sextets = 0;
+                while (s < end && sextets < 4) {
+                    final byte octet = src[s++];
+                    final int value = values[octet & 0xff];
+                    if (value >= 0) {
+                        bits = bits << 6 | value;
+                        sextets++;
+                    } else if (octet == PAD) {
+                        return d - dstOff + padding(src, s, end, dst, d, bits, sextets);
+                    } else if (value != WHITESPACE) {
+                        throw illegal(octet, s - 1);
+                    }
+                }
+
+                if (sextets == 4) {
+                    checkRange(dst.length, d, 3);
+                    dst[d++] = (byte) (bits >> 16);
+                    dst[d++] = (byte) (bits >> 8);
+                    dst[d++] = (byte) bits;
+                } else {
+                    // end of the data without padding
+                    return d - dstOff + padding(src, s, end, dst, d, bits, sextets);
+                }
+            }
+        }
+
+        public byte[] decode(final byte[] src) {
+            final byte[] dst = new byte[maxDecodedLength(src.length)];
+            final int length = decode(src, 0, src.length, dst, 0);
+            return length == dst.length ? dst : Arrays.copyOf(dst, length);
+        }
+
+        public byte[] decode(final String src) {
+            return decode(src.getBytes(StandardCharsets.ISO_8859_1));
+        }
+
+        /**
+         * Writes the last one or two bytes of a group of two or three characters
+         * and checks that only padding and whitespace follow.
+         */
+        private int padding(final byte[] src, int s, final int end, final byte[] dst, final int d,
+                            final int bits, final int sextets) {
+            while (s < end) {
+                final byte octet = src[s++];
+                if (octet != PAD && values[octet & 0xff] != WHITESPACE) {
+                    throw illegal(octet, s - 1);
+                }
+            }
+
+            switch (sextets) {
+                case 0:
+                    return 0;
+                case 2:
+                    checkRange(dst.length, d, 1);
+                    dst[d] = (byte) (bits >> 4);
+                    return 1;
+                case 3:
+                    checkRange(dst.length, d, 2);
+                    dst[d] = (byte) (bits >> 10);
+                    dst[d + 1] = (byte) (bits >> 2);
+                    return 2;
+                default:
+                    throw new IllegalArgumentException("Last group of Base64 data has a single character");
+            }
+        }
+
+        private static IllegalArgumentException illegal(final byte octet, final int index) {
+            return new IllegalArgumentException(String.format("Illegal Base64 character 0x%02x at index %s", octet & 0xff, index));
+        }
+
+        private static void checkRange(final int length, final int off, final int len) {
+            if (off < 0 || len < 0 || off > length - len) {
+                throw new IndexOutOfBoundsException(String.format("off %s, len %s, length %s", off, len, length));
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Base64.Codec{urlSafe=" + urlSafe + ", padding=" + padding + '}';
+        }
+    }
+}
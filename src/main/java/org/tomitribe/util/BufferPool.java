@@ -0,0 +1,157 @@
+/*
+  Licensed to the Apache Software Foundation (ASF) under one
+  or more contributor license agreements. See the NOTICE file
+  distributed with this work for additional information
+  regarding copyright ownership. The ASF licenses this file
+  to you under the Apache License, Version 2.0 (the
+  "License"); you may not use this file except in compliance
+  with the License. You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing,
+  software distributed under the License is distributed on an
+  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+  KIND, either express or implied. See the License for the
+  specific language governing permissions and limitations
+  under the License.
+ */
+package org.tomitribe.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Reusable copy buffers, so that {@link IO#copy(java.io.InputStream, java.io.OutputStream)},
+ * {@link IO#copy(java.nio.channels.ReadableByteChannel, java.nio.channels.WritableByteChannel)}
+ * and {@link Pipe} do not allocate a buffer on every call.
+ *
+ * The pool keeps at most one heap and one direct buffer per stripe, and threads
+ * pick stripes by their id.  A buffer is taken out of its slot while in use, so
+ * it is never shared; when the slot is empty a new buffer is allocated, and a
+ * buffer released into an occupied slot is left to the garbage collector.  The
+ * direct memory held is therefore bounded by stripes times buffer size no
+ * matter how many threads copy.
+ *
+ * <pre>
+ * final byte[] buffer = pool.takeBytes();
+ * try {
+ *     ...
+ * } finally {
+ *     pool.release(buffer);
+ * }
+ * </pre>
+ *
+ * A buffer must not be used after it is released, neither by the caller nor by
+ * any stream or channel it was passed to.  Released buffers are not cleared, so
+ * whatever was copied through them remains readable by the next user; code that
+ * copies secrets should allocate its own buffer.  This class is thread-safe.
+ */
+public final class BufferPool {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+    private static volatile BufferPool defaultPool = new BufferPool(DEFAULT_BUFFER_SIZE);
+
+    private final int bufferSize;
+    private final int mask;
+    private final AtomicReferenceArray<byte[]> bytes;
+    private final AtomicReferenceArray<ByteBuffer> direct;
+
+    public BufferPool(final int bufferSize) {
+        this(bufferSize, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param stripes number of slots, rounded up to a power of two
+     */
+    public BufferPool(final int bufferSize, final int stripes) {
+        if (bufferSize < 1) throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+        if (stripes < 1) throw new IllegalArgumentException("stripes must be positive: " + stripes);
+
+        final int slots = Integer.highestOneBit(Math.min(stripes, 1 << 16) * 2 - 1);
+        this.bufferSize = bufferSize;
+        this.mask = slots - 1;
+        this.bytes = new AtomicReferenceArray<>(slots);
+        this.direct = new AtomicReferenceArray<>(slots);
+    }
+
+    /**
+     * The pool used by {@link IO} and {@link Pipe}.
+     */
+    public static BufferPool getDefault() {
+        return defaultPool;
+    }
+
+    /**
+     * Replaces the pool used by {@link IO} and {@link Pipe}, for example to change
+     * the buffer size.  Buffers of the previous pool are released into it.
+     */
+    public static void setDefault(final BufferPool pool) {
+        if (pool == null) throw new NullPointerException("pool must not be null");
+        defaultPool = pool;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * A heap buffer of {@link #getBufferSize()} bytes.  Its content is undefined.
+     */
+    public byte[] takeBytes() {
+        final int slot = slot();
+        byte[] buffer = bytes.getAndSet(slot, null);
+        if (buffer == null) {
+            buffer = bytes.getAndSet(next(slot), null);
+        }
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+
+    public void release(final byte[] buffer) {
+        if (buffer == null || buffer.length != bufferSize) return;
+
+        final int slot = slot();
+        if (!bytes.compareAndSet(slot, null, buffer)) {
+            bytes.compareAndSet(next(slot), null, buffer);
+        }
+    }
+
+    /**
+     * A cleared direct buffer with a capacity of {@link #getBufferSize()} bytes.
+     */
+    public ByteBuffer takeDirect() {
+        final int slot = slot();
+        ByteBuffer buffer = direct.getAndSet(slot, null);
+        if (buffer == null) {
+            buffer = direct.getAndSet(next(slot), null);
+        }
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    public void release(final ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || buffer.capacity() != bufferSize) return;
+
+        final int slot = slot();
+        if (!direct.compareAndSet(slot, null, buffer)) {
+            direct.compareAndSet(next(slot), null, buffer);
+        }
+    }
+
+    private int slot() {
+        return (int) Thread.currentThread().getId() & mask;
+    }
+
+    private int next(final int slot) {
+        return (slot + 1) & mask;
+    }
+
+    @Override
+    public String toString() {
+        return "BufferPool{bufferSize=" + bufferSize + ", stripes=" + (mask + 1) + '}';
+    }
+}
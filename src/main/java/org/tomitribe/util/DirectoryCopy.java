@@ -0,0 +1,352 @@
+/*
+  Licensed to the Apache Software Foundation (ASF) under one
+  or more contributor license agreements. See the NOTICE file
+  distributed with this work for additional information
+  regarding copyright ownership. The ASF licenses this file
+  to you under the Apache License, Version 2.0 (the
+  "License"); you may not use this file except in compliance
+  with the License. You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing,
+  software distributed under the License is distributed on an
+  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+  KIND, either express or implied. See the License for the
+  specific language governing permissions and limitations
+  under the License.
+ */
+package org.tomitribe.util;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies a directory tree, optionally with several threads.
+ *
+ * <pre>
+ * final DirectoryCopy.Stats stats = DirectoryCopy.of(webapp, deployed)
+ *         .threads(8)
+ *         .preserveTimestamps(true)
+ *         .progress(s -&gt; log.fine(s.toString()))
+ *         .copy();
+ * </pre>
+ *
+ * The tree is walked and the directories are created on the calling thread, while
+ * the files are copied by the executor.  Regular files are copied with
+ * {@link java.nio.channels.FileChannel#transferTo}, which lets the operating system
+ * move the bytes without passing them through the heap; pipes and devices are
+ * read as streams, as {@link IO#copy(File, File)} does.
+ * Without an executor or thread count everything happens on the calling thread,
+ * which is what {@link IO#copyDirectory(File, File)} does.
+ *
+ * Existing files in the destination are overwritten.  If the destination is
+ * inside the source, the copy does not descend into itself.  When a file fails
+ * to copy, or the executor rejects one, the files not yet started are skipped and
+ * the first failure is thrown once the running copies are done.
+ */
+public class DirectoryCopy {
+
+    private final File source;
+    private final File destination;
+
+    private Executor executor;
+    private int threads;
+    private boolean preserveTimestamps;
+    private boolean preservePermissions;
+    private Progress progress;
+
+    private DirectoryCopy(final File source, final File destination) {
+        if (source == null) throw new NullPointerException("Source must not be null");
+        if (destination == null) throw new NullPointerException("Destination must not be null");
+        this.source = source;
+        this.destination = destination;
+    }
+
+    public static DirectoryCopy of(final File source, final File destination) {
+        return new DirectoryCopy(source, destination);
+    }
+
+    /**
+     * Copies the files with the given executor, which is not shut down afterwards.
+     */
+    public DirectoryCopy executor(final Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Copies the files with a pool of {@code threads} threads created for this
+     * copy, unless an {@link #executor(Executor)} is set.
+     */
+    public DirectoryCopy threads(final int threads) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be positive: " + threads);
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Gives copied files and directories the last modified time of their source.
+     */
+    public DirectoryCopy preserveTimestamps(final boolean preserveTimestamps) {
+        this.preserveTimestamps = preserveTimestamps;
+        return this;
+    }
+
+    /**
+     * Gives copied files and directories the POSIX permissions of their source, or
+     * where those are not supported, the same readable, writable and executable flags.
+     */
+    public DirectoryCopy preservePermissions(final boolean preservePermissions) {
+        this.preservePermissions = preservePermissions;
+        return this;
+    }
+
+    /**
+     * Called after each copied file.  The calls may come from any of the copying
+     * threads, but never at the same time.
+     */
+    public DirectoryCopy progress(final Progress progress) {
+        this.progress = progress;
+        return this;
+    }
+
+    public Stats copy() throws IOException {
+        if (!source.exists()) throw new FileNotFoundException("Source '" + source + "' does not exist");
+        if (!source.isDirectory()) throw new IOException("Source '" + source + "' exists but is not a directory");
+        if (source.getCanonicalPath().equals(destination.getCanonicalPath())) {
+            throw new IOException("Source '" + source + "' and destination '" + destination + "' are the same");
+        }
+
+        // Cater for destination being directory within the source directory (see IO-141)
+        List<String> exclusionList = null;
+        if (destination.getCanonicalPath().startsWith(source.getCanonicalPath())) {
+            final File[] srcFiles = source.listFiles();
+            if (srcFiles != null && srcFiles.length > 0) {
+                exclusionList = new ArrayList<String>(srcFiles.length);
+                for (final File srcFile : srcFiles) {
+                    final File copiedFile = new File(destination, srcFile.getName());
+                    exclusionList.add(copiedFile.getCanonicalPath());
+                }
+            }
+        }
+
+        final ExecutorService pool = executor == null && threads > 0 ? Executors.newFixedThreadPool(threads) : null;
+        try {
+            final Executor target = executor != null ? executor : pool != null ? pool : Runnable::run;
+            return new Run(target).copy(exclusionList);
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Receives the totals so far after each copied file.
+     */
+    public interface Progress {
+        void progress(Stats stats);
+    }
+
+    /**
+     * Totals of a copy at one point in time.
+     */
+    public static class Stats {
+        private final long files;
+        private final long bytes;
+        private final long nanos;
+
+        Stats(final long files, final long bytes, final long nanos) {
+            this.files = files;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        public long getFiles() {
+            return files;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedNanos() {
+            return nanos;
+        }
+
+        public double getFilesPerSecond() {
+            return nanos == 0 ? 0 : files * 1e9 / nanos;
+        }
+
+        public double getBytesPerSecond() {
+            return nanos == 0 ? 0 : bytes * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s files, %s bytes in %s ms (%.1f files/s, %.1f MB/s)",
+                    files, bytes, nanos / 1000000, getFilesPerSecond(), getBytesPerSecond() / (1024 * 1024));
+        }
+    }
+
+    /**
+     * State of a single call to {@link #copy()}
+     */
+    private class Run {
+        private final CompletionService<Long> completion;
+        private final long start = System.nanoTime();
+        private final AtomicLong files = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicBoolean failed = new AtomicBoolean();
+        private final List<File[]> directories = new ArrayList<File[]>();
+        private int submitted;
+
+        Run(final Executor executor) {
+            this.completion = new ExecutorCompletionService<Long>(executor);
+        }
+
+        Stats copy(final List<String> exclusionList) throws IOException {
+            Exception failure = null;
+            try {
+                walk(source, destination, exclusionList);
+            } catch (final IOException | RuntimeException e) {
+                // such as a RejectedExecutionException from the executor
+                failed.set(true);
+                failure = e;
+            }
+
+            // wait for every submitted copy, even after a failure, so none is left running
+            for (int i = 0; i < submitted; i++) {
+                try {
+                    completion.take().get();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failed.set(true);
+                    final IOException interrupted = new InterruptedIOException("Interrupted copying " + source);
+                    if (failure == null) failure = interrupted;
+                    break;
+                } catch (final ExecutionException e) {
+                    final IOException cause = e.getCause() instanceof IOException
+                            ? (IOException) e.getCause()
+                            : new IOException(e.getCause());
+                    if (failure == null) {
+                        failure = cause;
+                    } else if (failure != cause) {
+                        failure.addSuppressed(cause);
+                    }
+                }
+            }
+
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure != null) {
+                throw (IOException) failure;
+            }
+
+            // copying files into a directory updates its time, so directories go last, deepest first
+            for (int i = directories.size() - 1; i >= 0; i--) {
+                final File[] pair = directories.get(i);
+                preserve(pair[0].toPath(), pair[1].toPath());
+            }
+
+            return stats();
+        }
+
+        private void walk(final File srcDir, final File destDir, final List<String> exclusionList) throws IOException {
+            final File[] files = srcDir.listFiles();
+            if (files == null) {  // null if security restricted
+                throw new IOException("Failed to list contents of " + srcDir);
+            }
+            if (destDir.exists()) {
+                if (!destDir.isDirectory()) {
+                    throw new IOException("Destination '" + destDir + "' exists but is not a directory");
+                }
+            } else {
+                if (!destDir.mkdirs()) {
+                    throw new IOException("Destination '" + destDir + "' directory cannot be created");
+                }
+            }
+            if (!destDir.canWrite()) {
+                throw new IOException("Destination '" + destDir + "' cannot be written to");
+            }
+            directories.add(new File[]{srcDir, destDir});
+
+            for (final File file : files) {
+                if (failed.get()) {
+                    return;
+                }
+
+                final File copiedFile = new File(destDir, file.getName());
+                if (exclusionList == null || !exclusionList.contains(file.getCanonicalPath())) {
+                    if (file.isDirectory()) {
+                        walk(file, copiedFile, exclusionList);
+                    } else {
+                        completion.submit(() -> copyFile(file, copiedFile));
+                        submitted++;
+                    }
+                }
+            }
+        }
+
+        private long copyFile(final File from, final File to) throws IOException {
+            if (failed.get()) {
+                return 0;
+            }
+
+            try {
+                final long size = IO.copyFile(from, to, false);
+                preserve(from.toPath(), to.toPath());
+
+                files.incrementAndGet();
+                bytes.addAndGet(size);
+                if (progress != null) {
+                    // snapshot under the lock so listeners see the counts in order
+                    synchronized (this) {
+                        progress.progress(stats());
+                    }
+                }
+                return size;
+            } catch (final IOException | RuntimeException e) {
+                failed.set(true);
+                throw e;
+            }
+        }
+
+        private void preserve(final Path from, final Path to) throws IOException {
+            if (preservePermissions) {
+                try {
+                    Files.setPosixFilePermissions(to, Files.getPosixFilePermissions(from));
+                } catch (final UnsupportedOperationException e) {
+                    final File source = from.toFile();
+                    final File target = to.toFile();
+                    target.setReadable(source.canRead());
+                    target.setWritable(source.canWrite());
+                    target.setExecutable(source.canExecute());
+                }
+            }
+            if (preserveTimestamps) {
+                Files.setLastModifiedTime(to, Files.getLastModifiedTime(from));
+            }
+        }
+
+        private Stats stats() {
+            return new Stats(files.get(), bytes.get(), System.nanoTime() - start);
+        }
+    }
+}
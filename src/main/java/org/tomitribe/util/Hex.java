@@ -16,49 +16,294 @@
  */
 package org.tomitribe.util;
 
-import java.util.regex.Pattern;
-
-import static java.lang.Character.digit;
+import java.io.IOException;
+import java.util.Arrays;
 
+/**
+ * Lower case hexadecimal encoding of bytes, ints and longs.
+ * <p/>
+ * Besides the {@code String} conversions, every encoding can be written into a
+ * caller's {@code char[]}, {@code byte[]} (as ASCII) or {@link Appendable}, and
+ * decoding reads any range of a {@link CharSequence}, so hot paths such as
+ * formatting hashes into log lines need not allocate.  Decoding accepts upper
+ * and lower case and fails with an {@link InvalidHexFormatException}.
+ */
 public class Hex {
 
-    private static final Pattern valid = Pattern.compile("^[A-Fa-f0-9]+$");
-
     final protected static char[] hexArray = "0123456789abcdef".toCharArray();
 
+    /**
+     * Value of each ASCII hex digit, -1 for any other character
+     */
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < 16; i++) {
+            VALUES[hexArray[i]] = (byte) i;
+            VALUES[Character.toUpperCase(hexArray[i])] = (byte) i;
+        }
+    }
+
     private Hex() {
     }
 
     public static String toString(final byte[] bytes) {
         final char[] hexChars = new char[bytes.length * 2];
-        for (int j = 0; j < bytes.length; j++) {
-            int v = bytes[j] & 0xFF;
-            hexChars[j * 2] = hexArray[v >>> 4];
-            hexChars[j * 2 + 1] = hexArray[v & 0x0F];
-        }
+        encode(bytes, 0, bytes.length, hexChars, 0);
+        return new String(hexChars);
+    }
+
+    /**
+     * The 16 hex digits of {@code value}, the same as {@code toString(Longs.toBytes(value))}.
+     */
+    public static String toString(final long value) {
+        final char[] hexChars = new char[16];
+        encode(value, hexChars, 0);
         return new String(hexChars);
     }
 
+    /**
+     * The 8 hex digits of {@code value}, the same as {@code toString(Ints.toBytes(value))}.
+     */
+    public static String toString(final int value) {
+        final char[] hexChars = new char[8];
+        encode(value, hexChars, 0);
+        return new String(hexChars);
+    }
+
+    /**
+     * Writes the hex digits of {@code bytes[off, off + len)} at {@code dst[dstOff]}.
+     *
+     * @return the number of characters written, {@code len * 2}
+     */
+    public static int encode(final byte[] bytes, final int off, final int len, final char[] dst, final int dstOff) {
+        checkRange(bytes.length, off, len);
+        checkRange(dst.length, dstOff, len * 2);
+
+        for (int i = 0, j = dstOff; i < len; i++, j += 2) {
+            final int v = bytes[off + i] & 0xFF;
+            dst[j] = hexArray[v >>> 4];
+            dst[j + 1] = hexArray[v & 0x0F];
+        }
+        return len * 2;
+    }
+
+    /**
+     * Writes the hex digits of {@code bytes[off, off + len)} as ASCII at {@code dst[dstOff]}.
+     *
+     * @return the number of bytes written, {@code len * 2}
+     */
+    public static int encode(final byte[] bytes, final int off, final int len, final byte[] dst, final int dstOff) {
+        checkRange(bytes.length, off, len);
+        checkRange(dst.length, dstOff, len * 2);
+
+        for (int i = 0, j = dstOff; i < len; i++, j += 2) {
+            final int v = bytes[off + i] & 0xFF;
+            dst[j] = (byte) hexArray[v >>> 4];
+            dst[j + 1] = (byte) hexArray[v & 0x0F];
+        }
+        return len * 2;
+    }
+
+    /**
+     * Writes the 16 hex digits of {@code value} at {@code dst[off]}.
+     */
+    public static int encode(final long value, final char[] dst, final int off) {
+        checkRange(dst.length, off, 16);
+        for (int i = 0; i < 16; i++) {
+            dst[off + i] = hexArray[(int) (value >>> (60 - 4 * i)) & 0x0F];
+        }
+        return 16;
+    }
+
+    /**
+     * Writes the 8 hex digits of {@code value} at {@code dst[off]}.
+     */
+    public static int encode(final int value, final char[] dst, final int off) {
+        checkRange(dst.length, off, 8);
+        for (int i = 0; i < 8; i++) {
+            dst[off + i] = hexArray[(value >>> (28 - 4 * i)) & 0x0F];
+        }
+        return 8;
+    }
+
+    public static <T extends Appendable> T append(final T out, final byte[] bytes) throws IOException {
+        return append(out, bytes, 0, bytes.length);
+    }
+
+    public static <T extends Appendable> T append(final T out, final byte[] bytes, final int off, final int len) throws IOException {
+        checkRange(bytes.length, off, len);
+        for (int i = off; i < off + len; i++) {
+            final int v = bytes[i] & 0xFF;
+            out.append(hexArray[v >>> 4]);
+            out.append(hexArray[v & 0x0F]);
+        }
+        return out;
+    }
+
+    public static <T extends Appendable> T append(final T out, final long value) throws IOException {
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            out.append(hexArray[(int) (value >>> shift) & 0x0F]);
+        }
+        return out;
+    }
+
+    public static <T extends Appendable> T append(final T out, final int value) throws IOException {
+        for (int shift = 28; shift >= 0; shift -= 4) {
+            out.append(hexArray[(value >>> shift) & 0x0F]);
+        }
+        return out;
+    }
+
+    /**
+     * Same as {@link #append(Appendable, byte[], int, int)}, without the checked exception.
+     */
+    public static StringBuilder append(final StringBuilder out, final byte[] bytes, final int off, final int len) {
+        checkRange(bytes.length, off, len);
+        final int start = out.length();
+        out.setLength(start + len * 2);
+        for (int i = 0, j = start; i < len; i++, j += 2) {
+            final int v = bytes[off + i] & 0xFF;
+            out.setCharAt(j, hexArray[v >>> 4]);
+            out.setCharAt(j + 1, hexArray[v & 0x0F]);
+        }
+        return out;
+    }
+
+    public static StringBuilder append(final StringBuilder out, final byte[] bytes) {
+        return append(out, bytes, 0, bytes.length);
+    }
+
+    public static StringBuilder append(final StringBuilder out, final long value) {
+        final int start = out.length();
+        out.setLength(start + 16);
+        for (int i = 0; i < 16; i++) {
+            out.setCharAt(start + i, hexArray[(int) (value >>> (60 - 4 * i)) & 0x0F]);
+        }
+        return out;
+    }
+
+    public static StringBuilder append(final StringBuilder out, final int value) {
+        final int start = out.length();
+        out.setLength(start + 8);
+        for (int i = 0; i < 8; i++) {
+            out.setCharAt(start + i, hexArray[(value >>> (28 - 4 * i)) & 0x0F]);
+        }
+        return out;
+    }
+
     public static byte[] fromString(String s) {
         if (s == null) {
             throw new IllegalArgumentException("hex string is null");
         }
+        return fromString(s, 0, s.length());
+    }
+
+    /**
+     * Decodes the hex digits of {@code s[start, end)}.
+     */
+    public static byte[] fromString(final CharSequence s, final int start, final int end) {
+        if (s == null) {
+            throw new IllegalArgumentException("hex string is null");
+        }
+        checkRange(s.length(), start, end - start);
+        if ((end - start) % 2 != 0) {
+            throw new InvalidHexFormatException(s.subSequence(start, end).toString());
+        }
 
-        // Empty string, empty bytes
-        if (s.length() == 0) {
-            return new byte[0];
+        final byte[] data = new byte[(end - start) / 2];
+        decode(s, start, end, data, 0);
+        return data;
+    }
+
+    /**
+     * Decodes the hex digits of {@code s[start, end)} into {@code dst} at {@code dstOff}.
+     *
+     * @return the number of bytes written, half the number of characters
+     */
+    public static int decode(final CharSequence s, final int start, final int end, final byte[] dst, final int dstOff) {
+        checkRange(s.length(), start, end - start);
+        final int length = (end - start) / 2;
+        if (length * 2 != end - start) {
+            throw new InvalidHexFormatException(s.subSequence(start, end).toString());
         }
+        checkRange(dst.length, dstOff, length);
 
-        if (!valid.matcher(s).matches()) {
-            throw new InvalidHexFormatException(s);
+        for (int i = start, j = dstOff; i < end; i += 2, j++) {
+            final int high = value(s.charAt(i));
+            final int low = value(s.charAt(i + 1));
+            if ((high | low) < 0) {
+                throw new InvalidHexFormatException(s.subSequence(start, end).toString());
+            }
+            dst[j] = (byte) (high << 4 | low);
         }
+        return length;
+    }
 
-        final int len = s.length();
-        final byte[] data = new byte[len / 2];
-        for (int i = 0; i < len; i += 2) {
-            data[i / 2] = (byte) ((digit(s.charAt(i), 16) << 4) + digit(s.charAt(i + 1), 16));
+    /**
+     * Parses exactly 16 hex digits at {@code s[start]}, as written by {@link #toString(long)}.
+     */
+    public static long parseLong(final CharSequence s, final int start) {
+        checkDigits(s, start, 16);
+        long value = 0;
+        for (int i = start; i < start + 16; i++) {
+            final int digit = value(s.charAt(i));
+            if (digit < 0) {
+                throw new InvalidHexFormatException(s.subSequence(start, start + 16).toString());
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    public static long parseLong(final CharSequence s) {
+        if (s.length() != 16) {
+            throw new InvalidHexFormatException(s.toString());
+        }
+        return parseLong(s, 0);
+    }
+
+    /**
+     * Parses exactly 8 hex digits at {@code s[start]}, as written by {@link #toString(int)}.
+     */
+    public static int parseInt(final CharSequence s, final int start) {
+        checkDigits(s, start, 8);
+        int value = 0;
+        for (int i = start; i < start + 8; i++) {
+            final int digit = value(s.charAt(i));
+            if (digit < 0) {
+                throw new InvalidHexFormatException(s.subSequence(start, start + 8).toString());
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    public static int parseInt(final CharSequence s) {
+        if (s.length() != 8) {
+            throw new InvalidHexFormatException(s.toString());
+        }
+        return parseInt(s, 0);
+    }
+
+    private static int value(final char c) {
+        return c < 128 ? VALUES[c] : -1;
+    }
+
+    private static void checkDigits(final CharSequence s, final int start, final int digits) {
+        if (s == null) {
+            throw new IllegalArgumentException("hex string is null");
+        }
+        if (start < 0 || start > s.length() - digits) {
+            throw new InvalidHexFormatException(s.toString());
+        }
+    }
+
+    private static void checkRange(final int length, final int off, final int len) {
+        if (off < 0 || len < 0 || off > length - len) {
+            throw new IndexOutOfBoundsException(String.format("off %s, len %s, length %s", off, len, length));
         }
-        return data;
     }
 
     public static class InvalidHexFormatException extends IllegalArgumentException {
@@ -41,11 +41,11 @@ import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
-import java.util.ArrayList;
+import java.nio.file.StandardOpenOption;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -59,6 +59,13 @@ public class IO {
         // no-op
     }
 
+    /**
+     * Largest number of bytes asked of a single {@link FileChannel#transferTo} call.
+     * Bigger requests are capped by some platforms anyway, and others fall back
+     * to mapping the requested range into memory.
+     */
+    public static final long TRANSFER_CHUNK_SIZE = 64 * 1024 * 1024;
+
     public static final OutputStream IGNORE_OUTPUT = new OutputStream() {
         @Override
         public void write(final int b) {
@@ -159,70 +166,54 @@ public class IO {
     }
 
     public static void copy(final File from, final File to) throws IOException {
-        if (!from.isDirectory()) {
-            try (FileOutputStream fos = new FileOutputStream(to)) {
-                copy(from, fos);
-            }
-        } else {
-            copyDirectory(from, to);
-        }
+        copy(from, to, false);
     }
 
-    public static void copyDirectory(final File srcDir, final File destDir) throws IOException {
-        if (srcDir == null) throw new NullPointerException("Source must not be null");
-        if (destDir == null) throw new NullPointerException("Destination must not be null");
-        if (!srcDir.exists()) throw new FileNotFoundException("Source '" + srcDir + "' does not exist");
-        if (!srcDir.isDirectory()) throw new IOException("Source '" + srcDir + "' exists but is not a directory");
-        if (srcDir.getCanonicalPath().equals(destDir.getCanonicalPath())) {
-            throw new IOException("Source '" + srcDir + "' and destination '" + destDir + "' are the same");
+    /**
+     * Copies a file, or a directory as {@link #copyDirectory(File, File)} does.
+     *
+     * Regular files are copied channel to channel with {@link #transfer(FileChannel, FileChannel)},
+     * so the bytes need not be read into the heap.  With {@code sync} the copy is
+     * forced to the storage device before this method returns.
+     */
+    public static void copy(final File from, final File to, final boolean sync) throws IOException {
+        if (from.isDirectory()) {
+            copyDirectory(from, to);
+            return;
         }
 
-        // Cater for destination being directory within the source directory (see IO-141)
-        List<String> exclusionList = null;
-        if (destDir.getCanonicalPath().startsWith(srcDir.getCanonicalPath())) {
-            final File[] srcFiles = srcDir.listFiles();
-            if (srcFiles != null && srcFiles.length > 0) {
-                exclusionList = new ArrayList<String>(srcFiles.length);
-                for (final File srcFile : srcFiles) {
-                    final File copiedFile = new File(destDir, srcFile.getName());
-                    exclusionList.add(copiedFile.getCanonicalPath());
-                }
-            }
-        }
-        doCopyDirectory(srcDir, destDir, exclusionList);
+        copyFile(from, to, sync);
     }
 
-    private static void doCopyDirectory(final File srcDir, final File destDir, final List<String> exclusionList)
-            throws IOException {
-
-        final File[] files = srcDir.listFiles();
-        if (files == null) {  // null if security restricted
-            throw new IOException("Failed to list contents of " + srcDir);
-        }
-        if (destDir.exists()) {
-            if (!destDir.isDirectory()) {
-                throw new IOException("Destination '" + destDir + "' exists but is not a directory");
-            }
-        } else {
-            if (!destDir.mkdirs()) {
-                throw new IOException("Destination '" + destDir + "' directory cannot be created");
+    /**
+     * Copies anything but a directory: regular files with {@link #transfer(FileChannel, FileChannel)},
+     * pipes and devices as streams.
+     *
+     * @return the number of bytes copied
+     */
+    static long copyFile(final File from, final File to, final boolean sync) throws IOException {
+        if (!from.isFile()) {
+            // pipes and devices have no size to transfer by and cannot seek
+            try (FileOutputStream fos = new FileOutputStream(to)) {
+                copy(from, fos);
+                if (sync) fos.getFD().sync();
+                return fos.getChannel().position();
             }
         }
-        if (!destDir.canWrite()) {
-            throw new IOException("Destination '" + destDir + "' cannot be written to");
-        }
-        for (final File file : files) {
-            final File copiedFile = new File(destDir, file.getName());
-            if (exclusionList == null || !exclusionList.contains(file.getCanonicalPath())) {
-                if (file.isDirectory()) {
-                    doCopyDirectory(file, copiedFile, exclusionList);
-                } else {
-                    copy(file, copiedFile);
-                }
-            }
+
+        try (FileChannel in = FileChannel.open(from.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(to.toPath(), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final long size = transfer(in, out);
+            if (sync) out.force(true);
+            return size;
         }
     }
 
+    public static void copyDirectory(final File srcDir, final File destDir) throws IOException {
+        DirectoryCopy.of(srcDir, destDir).copy();
+    }
+
     public static void copy(final File from, final OutputStream to) throws IOException {
         try (InputStream read = read(from)) {
             copy(read, to);
@@ -253,13 +244,23 @@ public class IO {
         }
     }
 
+    /**
+     * Copies {@code from} to {@code to} through a buffer of the {@link BufferPool#getDefault()
+     * default pool}.  The same array is later handed to other copies, so the streams
+     * must not keep a reference to it beyond the {@code read} or {@code write} call.
+     */
     public static void copy(final InputStream from, final OutputStream to) throws IOException {
-        final byte[] buffer = new byte[1024];
-        int length;
-        while ((length = from.read(buffer)) != -1) {
-            to.write(buffer, 0, length);
+        final BufferPool pool = BufferPool.getDefault();
+        final byte[] buffer = pool.takeBytes();
+        try {
+            int length;
+            while ((length = from.read(buffer)) != -1) {
+                to.write(buffer, 0, length);
+            }
+            to.flush();
+        } finally {
+            pool.release(buffer);
         }
-        to.flush();
     }
 
     public static void copy(final byte[] from, final File to) throws IOException {
@@ -376,16 +377,67 @@ public class IO {
         }
     }
 
+    /**
+     * Copies {@code in} to {@code out} through a direct buffer of the {@link BufferPool#getDefault()
+     * default pool}.  The channels must not keep a reference to the buffer beyond the
+     * {@code read} or {@code write} call.
+     */
     public static void copy(final ReadableByteChannel in, final WritableByteChannel out) throws IOException {
-        final ByteBuffer buffer = ByteBuffer.allocateDirect(8 * 1024);
-        while (in.read(buffer) != -1) {
+        final BufferPool pool = BufferPool.getDefault();
+        final ByteBuffer buffer = pool.takeDirect();
+        try {
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                out.write(buffer);
+                buffer.compact();
+            }
             buffer.flip();
-            out.write(buffer);
-            buffer.compact();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        } finally {
+            pool.release(buffer);
         }
-        buffer.flip();
-        while (buffer.hasRemaining()) {
-            out.write(buffer);
+    }
+
+    /**
+     * Transfers all of {@code in}, from position zero, to the current position of
+     * {@code out} with {@link FileChannel#transferTo} in chunks of at most
+     * {@link #TRANSFER_CHUNK_SIZE} bytes.  Where the operating system supports it
+     * the bytes go from file to file without being copied through user space.
+     * <p/>
+     * The size of {@code in} is checked again once it is reached, so bytes
+     * appended during the copy are transferred too.  Files reporting a size of
+     * zero, such as those of {@code /proc}, are read until their end instead.
+     *
+     * @return the number of bytes transferred
+     */
+    public static long transfer(final FileChannel in, final FileChannel out) throws IOException {
+        long size = in.size();
+        if (size == 0) {
+            // transferTo stops at size(), which procfs and sysfs files report as zero
+            in.position(0);
+            copy(in, out);
+            return in.position();
+        }
+
+        long position = 0;
+        while (true) {
+            if (position >= size) {
+                // the file may have grown while being copied
+                size = in.size();
+                if (position >= size) {
+                    return position;
+                }
+            }
+
+            final long transferred = in.transferTo(position, Math.min(size - position, TRANSFER_CHUNK_SIZE), out);
+            if (transferred > 0) {
+                position += transferred;
+            } else {
+                // the file may have shrunk while being copied
+                size = in.size();
+            }
         }
     }
 
@@ -41,13 +41,12 @@ public class Ints {
     }
 
     public static String toHex(final int value) {
-        final byte[] bytes = toBytes(value);
-        return Hex.toString(bytes);
+        return Hex.toString(value);
     }
 
     public static int fromHex(final String hex) {
-        final byte[] bytes = Hex.fromString(hex);
-        return fromBytes(bytes);
+        if (hex == null) throw new IllegalArgumentException("hex string is null");
+        return Hex.parseInt(hex);
     }
 
 }
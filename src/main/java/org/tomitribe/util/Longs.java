@@ -51,21 +51,27 @@ public class Longs {
     }
 
     public static String toHex(final long value) {
-        final byte[] bytes = toBytes(value);
-        return Hex.toString(bytes);
+        return Hex.toString(value);
     }
 
     public static long fromHex(final String hex) {
-        final byte[] bytes = Hex.fromString(hex);
-        return fromBytes(bytes);
+        if (hex == null) throw new IllegalArgumentException("hex string is null");
+        return Hex.parseLong(hex);
     }
 
     public static String toBase32(final long value) {
-        final byte[] bytes = toBytes(value);
-        return Base32.encode(bytes);
+        return Base32.encode(value);
     }
 
     public static long fromBase32(final String base32) {
+        if (base32 != null && base32.length() == Base32.LONG_LENGTH) {
+            try {
+                return Base32.decodeLong(base32);
+            } catch (IllegalArgumentException e) {
+                // separators or illegal characters, handled below
+            }
+        }
+
         try {
             final byte[] bytes = Base32.decode(base32);
             return fromBytes(bytes);
@@ -76,17 +82,20 @@ public class Longs {
 
     public static String toBase64(final long value) {
         final byte[] bytes = toBytes(value);
-        return new String(Base64.encodeBase64(bytes), StandardCharsets.UTF_8);
+        return Base64.STANDARD.encodeToString(bytes);
     }
 
+    /**
+     * Characters outside the Base64 alphabet, such as line breaks, are skipped
+     * as RFC 2045 requires.
+     */
     public static long fromBase64(final String base64) {
         final byte[] bytes = Base64.decodeBase64(base64.getBytes(StandardCharsets.UTF_8));
         return fromBytes(bytes);
     }
 
     public static String toBase58(final long value) {
-        final byte[] bytes = toBytes(value);
-        return Base58.encode(bytes);
+        return Base58.encode(value);
     }
 
     public static long fromBase58(final String base58) {
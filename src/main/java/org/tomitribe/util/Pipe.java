@@ -23,6 +23,13 @@ import java.io.OutputStream;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 
+/**
+ * Copies an input stream to an output stream, on a daemon thread with {@link #pipe(InputStream, OutputStream)}.
+ *
+ * The bytes pass through a buffer of the {@link BufferPool#getDefault() default pool},
+ * which is handed to other copies afterwards, so the streams must not keep a
+ * reference to it beyond the {@code read} or {@code write} call.
+ */
 public final class Pipe implements Runnable {
 
     private final InputStream in;
@@ -51,16 +58,18 @@ public final class Pipe implements Runnable {
     }
 
     public void run() {
+        final BufferPool pool = BufferPool.getDefault();
+        final byte[] buf = pool.takeBytes();
         try {
             int i = -1;
 
-            final byte[] buf = new byte[1024];
-
             while ((i = in.read(buf)) != -1) {
                 out.write(buf, 0, i);
             }
         } catch (final Exception e) {
             e.printStackTrace();
+        } finally {
+            pool.release(buf);
         }
     }
 }
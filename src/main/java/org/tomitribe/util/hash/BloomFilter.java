@@ -0,0 +1,231 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import static org.tomitribe.util.hash.Preconditions.checkArgument;
+import static org.tomitribe.util.hash.Preconditions.checkNotNull;
+import static org.tomitribe.util.hash.Preconditions.checkPositionIndexes;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_INT;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_LONG;
+
+/**
+ * Bloom filter whose state is a single {@link Slice}.
+ * <p/>
+ * The slice holds a 16 byte header, {@code [int magic][int hash functions][long bits]},
+ * followed by the bit array as longs, all in the byte order of the {@link Slice}
+ * accessors.  {@link #toSlice()} therefore is the serialized form, and
+ * {@link #fromSlice(Slice)} reads it back without copying, so a filter written
+ * to a file can be used straight from {@link Slices#mapFileReadOnly(java.io.File)}.
+ * A filter over a read-only mapping must not be modified.
+ * <p/>
+ * Bit positions are derived by double hashing: {@code h1} is the XxHash64 of the
+ * element, {@code h2} is {@link XxHash64#hash(long)} of {@code h1}, and the i-th
+ * position is {@code (h1 + i * h2) mod bits}.  {@code long} elements use
+ * {@link XxHash64#hash(long)} as {@code h1}.  This class is not thread-safe.
+ */
+public final class BloomFilter {
+    private static final int MAGIC = 0x424C4F4D; // BLOM
+
+    private static final int HASH_FUNCTIONS_OFFSET = SIZE_OF_INT;
+    private static final int BIT_SIZE_OFFSET = 2 * SIZE_OF_INT;
+    private static final int HEADER_SIZE = 2 * SIZE_OF_INT + SIZE_OF_LONG;
+
+    private static final long MAX_BITS = (long) (Integer.MAX_VALUE - HEADER_SIZE) / SIZE_OF_LONG * Long.SIZE;
+
+    private final Slice slice;
+    private final int hashFunctions;
+    private final long bitSize;
+
+    private BloomFilter(Slice slice, int hashFunctions, long bitSize) {
+        this.slice = slice;
+        this.hashFunctions = hashFunctions;
+        this.bitSize = bitSize;
+    }
+
+    /**
+     * Creates a filter sized for the expected number of elements and false positive probability.
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveProbability) {
+        return create(expectedInsertions, falsePositiveProbability, false);
+    }
+
+    /**
+     * @param direct store the filter in off-heap memory
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveProbability, boolean direct) {
+        checkArgument(expectedInsertions > 0, "expectedInsertions must be positive");
+        checkArgument(falsePositiveProbability > 0 && falsePositiveProbability < 1, "falsePositiveProbability must be between 0 and 1");
+
+        final double bits = -expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2));
+        checkArgument(bits <= MAX_BITS, "%s elements at %s need more than %s bits", expectedInsertions, falsePositiveProbability, MAX_BITS);
+
+        final long bitSize = Math.max(Long.SIZE, ((long) Math.ceil(bits) + Long.SIZE - 1) / Long.SIZE * Long.SIZE);
+        final int hashFunctions = (int) Math.max(1, Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+        return create(bitSize, hashFunctions, direct);
+    }
+
+    /**
+     * Creates a filter with the given geometry, rounding the bits up to a multiple of 64.
+     */
+    public static BloomFilter create(long bitSize, int hashFunctions, boolean direct) {
+        checkArgument(bitSize > 0 && bitSize <= MAX_BITS, "bitSize must be between 1 and %s", MAX_BITS);
+        checkArgument(hashFunctions > 0 && hashFunctions <= 255, "hashFunctions must be between 1 and 255");
+
+        final int words = (int) ((bitSize + Long.SIZE - 1) / Long.SIZE);
+        final int size = HEADER_SIZE + words * SIZE_OF_LONG;
+        final Slice slice = direct ? Slices.allocateDirect(size) : Slices.allocate(size);
+        slice.setInt(0, MAGIC);
+        slice.setInt(HASH_FUNCTIONS_OFFSET, hashFunctions);
+        slice.setLong(BIT_SIZE_OFFSET, (long) words * Long.SIZE);
+        return new BloomFilter(slice, hashFunctions, (long) words * Long.SIZE);
+    }
+
+    /**
+     * Uses a slice produced by {@link #toSlice()} as a filter.  The slice is not
+     * copied; changes to the filter are written to it.
+     *
+     * @throws IllegalArgumentException if the slice does not hold a filter
+     */
+    public static BloomFilter fromSlice(Slice slice) {
+        checkNotNull(slice, "slice is null");
+        checkArgument(slice.length() >= HEADER_SIZE && slice.getInt(0) == MAGIC, "slice does not contain a bloom filter");
+
+        final int hashFunctions = slice.getInt(HASH_FUNCTIONS_OFFSET);
+        final long bitSize = slice.getLong(BIT_SIZE_OFFSET);
+        checkArgument(hashFunctions > 0 && hashFunctions <= 255, "invalid hash function count %s", hashFunctions);
+        checkArgument(bitSize > 0 && bitSize % Long.SIZE == 0 && bitSize <= MAX_BITS, "invalid bit size %s", bitSize);
+        checkArgument(slice.length() == HEADER_SIZE + bitSize / Byte.SIZE, "slice length %s does not match %s bits", slice.length(), bitSize);
+
+        return new BloomFilter(slice, hashFunctions, bitSize);
+    }
+
+    /**
+     * The serialized filter.  The slice is shared with the filter.
+     */
+    public Slice toSlice() {
+        return slice;
+    }
+
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    /**
+     * Adds the element.
+     *
+     * @return {@code true} if the filter changed, which means the element was definitely not present before
+     */
+    public boolean put(Slice data) {
+        return put(data, 0, data.length());
+    }
+
+    public boolean put(Slice data, int offset, int length) {
+        checkPositionIndexes(offset, offset + length, data.length());
+        return putHash(XxHash64.hash(data, offset, length));
+    }
+
+    public boolean put(long value) {
+        return putHash(XxHash64.hash(value));
+    }
+
+    /**
+     * Returns {@code false} if the element was definitely never added, {@code true}
+     * if it probably was.
+     */
+    public boolean mightContain(Slice data) {
+        return mightContain(data, 0, data.length());
+    }
+
+    public boolean mightContain(Slice data, int offset, int length) {
+        checkPositionIndexes(offset, offset + length, data.length());
+        return mightContainHash(XxHash64.hash(data, offset, length));
+    }
+
+    public boolean mightContain(long value) {
+        return mightContainHash(XxHash64.hash(value));
+    }
+
+    /**
+     * Adds all elements of a filter with the same geometry to this filter.
+     */
+    public void putAll(BloomFilter that) {
+        checkNotNull(that, "that is null");
+        checkArgument(bitSize == that.bitSize && hashFunctions == that.hashFunctions,
+                "filters are not compatible: %s bits with %s hash functions and %s bits with %s hash functions",
+                bitSize, hashFunctions, that.bitSize, that.hashFunctions);
+
+        for (int index = HEADER_SIZE; index < slice.length(); index += SIZE_OF_LONG) {
+            slice.setLong(index, slice.getLong(index) | that.slice.getLong(index));
+        }
+    }
+
+    /**
+     * Number of bits set.
+     */
+    public long getBitCount() {
+        long count = 0;
+        for (int index = HEADER_SIZE; index < slice.length(); index += SIZE_OF_LONG) {
+            count += Long.bitCount(slice.getLong(index));
+        }
+        return count;
+    }
+
+    /**
+     * Probability that {@link #mightContain} returns {@code true} for an element
+     * that was not added, estimated from the bits set so far.
+     */
+    public double getExpectedFalsePositiveProbability() {
+        return Math.pow((double) getBitCount() / bitSize, hashFunctions);
+    }
+
+    @Override
+    public String toString() {
+        return "BloomFilter{bits=" + bitSize + ", hashFunctions=" + hashFunctions + '}';
+    }
+
+    private boolean putHash(long hash1) {
+        final long hash2 = XxHash64.hash(hash1);
+        boolean changed = false;
+        long combined = hash1;
+        for (int i = 0; i < hashFunctions; i++) {
+            final long bit = (combined & Long.MAX_VALUE) % bitSize;
+            final int index = HEADER_SIZE + (int) (bit >>> 6) * SIZE_OF_LONG;
+            final long word = slice.getLong(index);
+            final long mask = 1L << bit;
+            if ((word & mask) == 0) {
+                slice.setLong(index, word | mask);
+                changed = true;
+            }
+            combined += hash2;
+        }
+        return changed;
+    }
+
+    private boolean mightContainHash(long hash1) {
+        final long hash2 = XxHash64.hash(hash1);
+        long combined = hash1;
+        for (int i = 0; i < hashFunctions; i++) {
+            final long bit = (combined & Long.MAX_VALUE) % bitSize;
+            if ((slice.getLong(HEADER_SIZE + (int) (bit >>> 6) * SIZE_OF_LONG) & (1L << bit)) == 0) {
+                return false;
+            }
+            combined += hash2;
+        }
+        return true;
+    }
+}
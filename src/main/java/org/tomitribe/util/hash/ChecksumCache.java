@@ -0,0 +1,237 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.tomitribe.util.IO;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.tomitribe.util.hash.Preconditions.checkArgument;
+import static org.tomitribe.util.hash.Preconditions.checkNotNull;
+
+/**
+ * Cache of file checksums keyed by canonical path, length and last modified time.
+ * <p/>
+ * {@link #hash(File)} returns the same value as {@link XxHash64#hash(java.io.InputStream)}
+ * over the file, but reads the file only if its length or modification time changed
+ * since it was last hashed.  The most recently used {@code maxEntries} checksums
+ * are kept in memory.  With a sidecar file the checksums survive restarts: the
+ * sidecar is read when the cache is created and written by {@link #save()}.
+ * <p/>
+ * A file rewritten with the same length within the resolution of the file system's
+ * modification time is not noticed.  This class is thread-safe.
+ */
+public final class ChecksumCache {
+    private static final int MAGIC = 0x58584348; // XXCH
+    private static final int VERSION = 1;
+
+    private final int maxEntries;
+    private final File sidecar;
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ChecksumCache(int maxEntries) {
+        this(maxEntries, null);
+    }
+
+    /**
+     * @param sidecar file the checksums are loaded from and saved to, may be null.
+     * A sidecar that is missing or cannot be read is ignored.
+     */
+    public ChecksumCache(int maxEntries, File sidecar) {
+        checkArgument(maxEntries > 0, "maxEntries must be positive");
+        this.maxEntries = maxEntries;
+        this.sidecar = sidecar;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ChecksumCache.this.maxEntries;
+            }
+        };
+
+        if (sidecar != null && sidecar.isFile()) {
+            load(sidecar);
+        }
+    }
+
+    /**
+     * XxHash64 of the file's content, from the cache if the file is unchanged.
+     */
+    public long hash(File file) throws IOException {
+        checkNotNull(file, "file is null");
+        if (!file.isFile()) {
+            throw new FileNotFoundException(file.toString());
+        }
+
+        final String path = file.getCanonicalPath();
+
+        // stat before reading, a change while hashing makes the next lookup miss
+        final long length = file.length();
+        final long lastModified = file.lastModified();
+
+        synchronized (entries) {
+            final Entry entry = entries.get(path);
+            if (entry != null && entry.length == length && entry.lastModified == lastModified) {
+                hits.incrementAndGet();
+                return entry.hash;
+            }
+        }
+
+        misses.incrementAndGet();
+        final long hash;
+        // read rather than map: a file truncated while mapped faults with SIGBUS
+        try (InputStream in = new FileInputStream(file)) {
+            hash = XxHash64.hash(in);
+        }
+
+        synchronized (entries) {
+            entries.put(path, new Entry(length, lastModified, hash));
+        }
+        return hash;
+    }
+
+    /**
+     * Number of {@link #hash(File)} calls answered from the cache.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Number of {@link #hash(File)} calls that had to read the file.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void invalidate(File file) throws IOException {
+        synchronized (entries) {
+            entries.remove(file.getCanonicalPath());
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Writes the cached checksums to the sidecar file, replacing it atomically
+     * where the file system allows.  Does nothing without a sidecar.
+     */
+    public void save() throws IOException {
+        if (sidecar == null) {
+            return;
+        }
+
+        final List<Map.Entry<String, Entry>> snapshot;
+        synchronized (entries) {
+            snapshot = new ArrayList<>(entries.entrySet());
+        }
+
+        final SliceOutput out = new SliceOutput(64 + snapshot.size() * 64);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeVarInt(snapshot.size());
+        // least recently used first, so loading restores the order
+        for (Map.Entry<String, Entry> entry : snapshot) {
+            out.writeString(entry.getKey());
+            out.writeVarLong(entry.getValue().length);
+            out.writeLong(entry.getValue().lastModified);
+            out.writeLong(entry.getValue().hash);
+        }
+
+        final File parent = sidecar.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory " + parent);
+        }
+
+        final File temp = File.createTempFile(sidecar.getName(), ".tmp", parent);
+        try {
+            IO.copy(out.slice().getBytes(), temp);
+            try {
+                Files.move(temp.toPath(), sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(temp.toPath(), sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            if (temp.exists()) {
+                IO.delete(temp);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ChecksumCache{size=" + size() + ", hits=" + hits.get() + ", misses=" + misses.get() + '}';
+    }
+
+    private void load(File sidecar) {
+        final Map<String, Entry> loaded = new LinkedHashMap<>();
+        try {
+            final SliceInput in = new SliceInput(Slices.wrappedBuffer(IO.readBytes(sidecar)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+
+            final int count = in.readVarInt();
+            for (int i = 0; i < count; i++) {
+                final String path = in.readString();
+                final long length = in.readVarLong();
+                final long lastModified = in.readLong();
+                final long hash = in.readLong();
+                loaded.put(path, new Entry(length, lastModified, hash));
+            }
+        } catch (IOException | RuntimeException e) {
+            // an unreadable sidecar only costs the files being hashed again
+            return;
+        }
+
+        synchronized (entries) {
+            entries.putAll(loaded);
+        }
+    }
+
+    private static class Entry {
+        private final long length;
+        private final long lastModified;
+        private final long hash;
+
+        Entry(long length, long lastModified, long hash) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+}
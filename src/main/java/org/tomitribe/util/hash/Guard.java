@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Protects the memory of guarded slices from being freed while they access it.
+ * Counts the slice accesses in progress; the sign bit marks the memory as
+ * closed, and once it is set no new access is admitted.
+ */
+class Guard {
+    private static final int CLOSED = Integer.MIN_VALUE;
+
+    private final String closedMessage;
+    private final AtomicInteger state = new AtomicInteger();
+
+    /**
+     * @param closedMessage message of the {@link IllegalStateException} thrown
+     * by accesses after {@link #close()}
+     */
+    Guard(String closedMessage) {
+        this.closedMessage = closedMessage;
+    }
+
+    void acquire() {
+        if (state.incrementAndGet() < 0 || !isAlive()) {
+            state.decrementAndGet();
+            throw closed();
+        }
+    }
+
+    void release() {
+        state.decrementAndGet();
+    }
+
+    void checkOpen() {
+        if (state.get() < 0 || !isAlive()) {
+            throw closed();
+        }
+    }
+
+    /**
+     * Whether the memory is still there regardless of {@link #close()}, for
+     * memory that is freed by its owner rather than through this guard.
+     */
+    boolean isAlive() {
+        return true;
+    }
+
+    /**
+     * Refuses new accesses and waits for those in progress to finish.
+     */
+    void close() {
+        state.addAndGet(CLOSED);
+        while (state.get() != CLOSED) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+        }
+    }
+
+    private IllegalStateException closed() {
+        return new IllegalStateException(closedMessage);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+/**
+ * Immutable 128-bit hash value as produced by {@link XxHash3#hash128(Slice)}.
+ */
+public final class Hash128 {
+    private final long high;
+    private final long low;
+
+    public Hash128(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * The most significant 64 bits of the hash.
+     */
+    public long getHigh() {
+        return high;
+    }
+
+    /**
+     * The least significant 64 bits of the hash.
+     */
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * Returns the 16 bytes of this hash in big-endian order, matching
+     * the canonical representation of the reference implementation.
+     */
+    public byte[] toBytes() {
+        final byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (high >>> (56 - 8 * i));
+            bytes[i + 8] = (byte) (low >>> (56 - 8 * i));
+        }
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Hash128)) {
+            return false;
+        }
+
+        final Hash128 that = (Hash128) o;
+        return high == that.high && low == that.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (low ^ (low >>> 32));
+    }
+
+    /**
+     * Returns the hash as 32 lowercase hex digits, high bits first.
+     */
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
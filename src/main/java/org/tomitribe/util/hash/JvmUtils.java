@@ -18,8 +18,9 @@ import sun.misc.Unsafe;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 
 import static sun.misc.Unsafe.ARRAY_BOOLEAN_INDEX_SCALE;
@@ -31,36 +32,116 @@ import static sun.misc.Unsafe.ARRAY_LONG_INDEX_SCALE;
 import static sun.misc.Unsafe.ARRAY_SHORT_INDEX_SCALE;
 
 final class JvmUtils {
+    /**
+     * The Unsafe instance, or null if this JVM does not offer one, in which case
+     * {@link Memory} uses VarHandles.
+     */
     static final Unsafe unsafe;
-    static final MethodHandle newByteBuffer;
+
+    /**
+     * Offset of the native address field of direct buffers
+     */
+    private static final long bufferAddressOffset;
+
+    /**
+     * Releases the memory of a direct or mapped {@link ByteBuffer}, or null if
+     * this JVM offers no way to do so.
+     */
+    private static final MethodHandle unmap;
 
     static {
+        Unsafe theUnsafe = null;
+        long addressOffset = -1;
         try {
             // fetch theUnsafe object
             Field field = Unsafe.class.getDeclaredField("theUnsafe");
             field.setAccessible(true);
-            unsafe = (Unsafe) field.get(null);
-            if (unsafe == null) {
-                throw new RuntimeException("Unsafe access not available");
+            theUnsafe = (Unsafe) field.get(null);
+            if (theUnsafe != null) {
+                // verify the stride of arrays matches the width of primitives
+                assertArrayIndexScale("Boolean", ARRAY_BOOLEAN_INDEX_SCALE, 1);
+                assertArrayIndexScale("Byte", ARRAY_BYTE_INDEX_SCALE, 1);
+                assertArrayIndexScale("Short", ARRAY_SHORT_INDEX_SCALE, 2);
+                assertArrayIndexScale("Int", ARRAY_INT_INDEX_SCALE, 4);
+                assertArrayIndexScale("Long", ARRAY_LONG_INDEX_SCALE, 8);
+                assertArrayIndexScale("Float", ARRAY_FLOAT_INDEX_SCALE, 4);
+                assertArrayIndexScale("Double", ARRAY_DOUBLE_INDEX_SCALE, 8);
+
+                // read through Unsafe, the field is not accessible by reflection on Java 16+
+                addressOffset = theUnsafe.objectFieldOffset(Buffer.class.getDeclaredField("address"));
             }
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            // no usable Unsafe, memory is accessed through VarHandles
+            theUnsafe = null;
+        }
+
+        unsafe = theUnsafe;
+        bufferAddressOffset = addressOffset;
+        unmap = findUnmap();
+    }
+
+    /**
+     * Native address of the first byte of a direct buffer.
+     */
+    static long bufferAddress(ByteBuffer buffer) {
+        return unsafe.getLong(buffer, bufferAddressOffset);
+    }
+
+    /**
+     * Immediately frees the memory of a direct or memory-mapped buffer.  The buffer,
+     * and every Slice or view over it, must not be accessed afterwards.
+     *
+     * @return false if the memory could not be freed and is left to the garbage collector
+     */
+    static boolean unmap(ByteBuffer buffer) {
+        if (unmap == null || !buffer.isDirect()) {
+            return false;
+        }
+
+        try {
+            unmap.invokeExact(buffer);
+            return true;
+        } catch (Throwable throwable) {
+            throw propagate(throwable);
+        }
+    }
+
+    /**
+     * Rethrows an {@link Error} and returns any other failure of a method handle
+     * invocation as a {@link RuntimeException}, for callers to throw.
+     */
+    static RuntimeException propagate(Throwable throwable) {
+        if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+        if (throwable instanceof RuntimeException) {
+            return (RuntimeException) throwable;
+        }
+        return new RuntimeException(throwable);
+    }
 
-            // verify the stride of arrays matches the width of primitives
-            assertArrayIndexScale("Boolean", ARRAY_BOOLEAN_INDEX_SCALE, 1);
-            assertArrayIndexScale("Byte", ARRAY_BYTE_INDEX_SCALE, 1);
-            assertArrayIndexScale("Short", ARRAY_SHORT_INDEX_SCALE, 2);
-            assertArrayIndexScale("Int", ARRAY_INT_INDEX_SCALE, 4);
-            assertArrayIndexScale("Long", ARRAY_LONG_INDEX_SCALE, 8);
-            assertArrayIndexScale("Float", ARRAY_FLOAT_INDEX_SCALE, 4);
-            assertArrayIndexScale("Double", ARRAY_DOUBLE_INDEX_SCALE, 8);
-
-            // fetch a method handle for the hidden constructor for DirectByteBuffer
-            Class<?> directByteBufferClass = ClassLoader.getSystemClassLoader().loadClass("java.nio.DirectByteBuffer");
-            Constructor<?> constructor = directByteBufferClass.getDeclaredConstructor(long.class, int.class, Object.class);
-            constructor.setAccessible(true);
-            newByteBuffer = MethodHandles.lookup().unreflectConstructor(constructor)
-                    .asType(MethodType.methodType(ByteBuffer.class, long.class, int.class, Object.class));
+    static boolean canUnmap() {
+        return unmap != null;
+    }
+
+    private static MethodHandle findUnmap() {
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            // Java 9+
+            return lookup.findVirtual(Unsafe.class, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(unsafe);
+        } catch (Exception | LinkageError e) {
+            // fall through to the Java 8 cleaner
+        }
+
+        try {
+            final Class<?> directBuffer = Class.forName("sun.nio.ch.DirectBuffer");
+            final Method cleaner = directBuffer.getMethod("cleaner");
+            final Method clean = cleaner.getReturnType().getMethod("clean");
+            return MethodHandles.filterReturnValue(lookup.unreflect(cleaner), lookup.unreflect(clean))
+                    .asType(MethodType.methodType(void.class, ByteBuffer.class));
         } catch (Exception e) {
-            throw new RuntimeException(e);
+            return null;
         }
     }
 
@@ -0,0 +1,369 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import java.nio.ByteOrder;
+
+import static java.lang.Math.min;
+import static org.tomitribe.util.hash.Preconditions.checkArgument;
+import static org.tomitribe.util.hash.Preconditions.checkNotNull;
+import static org.tomitribe.util.hash.Preconditions.checkPositionIndexes;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_BYTE;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_INT;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_LONG;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_SHORT;
+
+/**
+ * A read-only, long-addressed view over a sequence of {@link Slice} segments,
+ * used for memory-mapped files larger than 2 GB.
+ * <p/>
+ * Every segment except the last is exactly {@code 2^segmentShift} bytes long,
+ * so an index resolves to its segment with a shift and a mask.  Values that
+ * straddle two segments are assembled byte by byte in native byte order, so
+ * they read exactly as {@link Slice} would read them from contiguous memory.
+ *
+ * @see Slices#mapLargeFileReadOnly(java.io.File)
+ */
+public final class LargeSlice
+        implements Comparable<LargeSlice> {
+
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    private final Slice[] segments;
+    private final int segmentShift;
+    private final long segmentMask;
+
+    /**
+     * Position of index zero of this view within the segments
+     */
+    private final long offset;
+
+    /**
+     * Size of this view
+     */
+    private final long size;
+
+    private int hash;
+
+    LargeSlice(Slice[] segments, int segmentShift) {
+        checkNotNull(segments, "segments is null");
+        checkArgument(segmentShift > 0 && segmentShift <= 31, "segmentShift must be between 1 and 31");
+
+        final long segmentSize = 1L << segmentShift;
+        long size = 0;
+        for (int i = 0; i < segments.length; i++) {
+            final int length = checkNotNull(segments[i], "segment is null").length();
+            checkArgument(length == segmentSize || (i == segments.length - 1 && length <= segmentSize),
+                    "segment %s has length %s, all but the last segment must be %s bytes", i, length, segmentSize);
+            size += length;
+        }
+
+        this.segments = segments;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1L << segmentShift) - 1;
+        this.offset = 0;
+        this.size = size;
+    }
+
+    private LargeSlice(LargeSlice parent, long offset, long size) {
+        this.segments = parent.segments;
+        this.segmentShift = parent.segmentShift;
+        this.segmentMask = parent.segmentMask;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    /**
+     * Length of this slice.
+     */
+    public long length() {
+        return size;
+    }
+
+    /**
+     * Gets a byte at the specified absolute {@code index} in this slice.
+     *
+     * @throws IndexOutOfBoundsException if the specified {@code index} is less than {@code 0} or
+     * {@code index + 1} is greater than {@code this.length()}
+     */
+    public byte getByte(long index) {
+        checkIndexLength(index, SIZE_OF_BYTE);
+        final long position = offset + index;
+        return segment(position).getByte(segmentOffset(position));
+    }
+
+    /**
+     * Gets an unsigned byte at the specified absolute {@code index} in this slice.
+     *
+     * @throws IndexOutOfBoundsException if the specified {@code index} is less than {@code 0} or
+     * {@code index + 1} is greater than {@code this.length()}
+     */
+    public short getUnsignedByte(long index) {
+        return (short) (getByte(index) & 0xFF);
+    }
+
+    /**
+     * Gets a 16-bit short integer at the specified absolute {@code index} in this slice.
+     *
+     * @throws IndexOutOfBoundsException if the specified {@code index} is less than {@code 0} or
+     * {@code index + 2} is greater than {@code this.length()}
+     */
+    public short getShort(long index) {
+        checkIndexLength(index, SIZE_OF_SHORT);
+        final long position = offset + index;
+        if (withinSegment(position, SIZE_OF_SHORT)) {
+            return segment(position).getShort(segmentOffset(position));
+        }
+        return (short) getStraddling(position, SIZE_OF_SHORT);
+    }
+
+    /**
+     * Gets a 32-bit integer at the specified absolute {@code index} in this slice.
+     *
+     * @throws IndexOutOfBoundsException if the specified {@code index} is less than {@code 0} or
+     * {@code index + 4} is greater than {@code this.length()}
+     */
+    public int getInt(long index) {
+        checkIndexLength(index, SIZE_OF_INT);
+        final long position = offset + index;
+        if (withinSegment(position, SIZE_OF_INT)) {
+            return segment(position).getInt(segmentOffset(position));
+        }
+        return (int) getStraddling(position, SIZE_OF_INT);
+    }
+
+    /**
+     * Gets a 64-bit long integer at the specified absolute {@code index} in this slice.
+     *
+     * @throws IndexOutOfBoundsException if the specified {@code index} is less than {@code 0} or
+     * {@code index + 8} is greater than {@code this.length()}
+     */
+    public long getLong(long index) {
+        checkIndexLength(index, SIZE_OF_LONG);
+        final long position = offset + index;
+        if (withinSegment(position, SIZE_OF_LONG)) {
+            return segment(position).getLong(segmentOffset(position));
+        }
+        return getStraddling(position, SIZE_OF_LONG);
+    }
+
+    /**
+     * Gets a 32-bit float at the specified absolute {@code index} in this slice.
+     *
+     * @throws IndexOutOfBoundsException if the specified {@code index} is less than {@code 0} or
+     * {@code index + 4} is greater than {@code this.length()}
+     */
+    public float getFloat(long index) {
+        return Float.intBitsToFloat(getInt(index));
+    }
+
+    /**
+     * Gets a 64-bit double at the specified absolute {@code index} in this slice.
+     *
+     * @throws IndexOutOfBoundsException if the specified {@code index} is less than {@code 0} or
+     * {@code index + 8} is greater than {@code this.length()}
+     */
+    public double getDouble(long index) {
+        return Double.longBitsToDouble(getLong(index));
+    }
+
+    /**
+     * Transfers a portion of data from this slice into the specified destination starting at
+     * the specified absolute {@code index}.
+     *
+     * @throws IndexOutOfBoundsException if the specified {@code index} is less than {@code 0}, or
+     * if {@code index + destination.length} is greater than {@code this.length()}
+     */
+    public void getBytes(long index, byte[] destination) {
+        getBytes(index, destination, 0, destination.length);
+    }
+
+    /**
+     * Transfers a portion of data from this slice into the specified destination starting at
+     * the specified absolute {@code index}.
+     *
+     * @param destinationIndex the first index of the destination
+     * @param length the number of bytes to transfer
+     * @throws IndexOutOfBoundsException if the specified {@code index} is less than {@code 0},
+     * if the specified {@code destinationIndex} is less than {@code 0},
+     * if {@code index + length} is greater than {@code this.length()}, or
+     * if {@code destinationIndex + length} is greater than {@code destination.length}
+     */
+    public void getBytes(long index, byte[] destination, int destinationIndex, int length) {
+        checkIndexLength(index, length);
+        checkPositionIndexes(destinationIndex, destinationIndex + length, destination.length);
+
+        while (length > 0) {
+            final Slice piece = piece(index, length);
+            piece.getBytes(0, destination, destinationIndex, piece.length());
+            index += piece.length();
+            destinationIndex += piece.length();
+            length -= piece.length();
+        }
+    }
+
+    /**
+     * Returns a view of this slice's sub-region.
+     */
+    public LargeSlice slice(long index, long length) {
+        if (index == 0 && length == size) {
+            return this;
+        }
+        checkIndexLength(index, length);
+        return new LargeSlice(this, offset + index, length);
+    }
+
+    /**
+     * Returns the sub-region as a {@link Slice}.  The result shares memory with
+     * this slice when the region lies within one segment and is a copy otherwise.
+     */
+    public Slice getSlice(long index, int length) {
+        checkIndexLength(index, length);
+        if (length == 0) {
+            return Slices.EMPTY_SLICE;
+        }
+
+        final Slice piece = piece(index, length);
+        if (piece.length() == length) {
+            return piece;
+        }
+
+        final byte[] copy = new byte[length];
+        getBytes(index, copy);
+        return Slices.wrappedBuffer(copy);
+    }
+
+    /**
+     * Compares the content of the specified slice to the content of this
+     * slice.  This comparison is performed byte by byte using an unsigned
+     * comparison.
+     */
+    @Override
+    public int compareTo(LargeSlice that) {
+        if (this == that) {
+            return 0;
+        }
+
+        long index = 0;
+        long remaining = min(size, that.size);
+        while (remaining > 0) {
+            final Slice thisPiece = this.piece(index, remaining);
+            final Slice thatPiece = that.piece(index, thisPiece.length());
+            final int length = thatPiece.length();
+
+            final int v = thisPiece.compareTo(0, length, thatPiece, 0, length);
+            if (v != 0) {
+                return v;
+            }
+
+            index += length;
+            remaining -= length;
+        }
+
+        return Long.compare(size, that.size);
+    }
+
+    /**
+     * Compares the specified object with this slice for equality.  Equality is
+     * solely based on the contents of the slice.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LargeSlice)) {
+            return false;
+        }
+
+        final LargeSlice that = (LargeSlice) o;
+        if (size != that.size) {
+            return false;
+        }
+
+        long index = 0;
+        long remaining = size;
+        while (remaining > 0) {
+            final Slice thisPiece = this.piece(index, remaining);
+            final Slice thatPiece = that.piece(index, thisPiece.length());
+            final int length = thatPiece.length();
+
+            if (!thisPiece.equals(0, length, thatPiece, 0, length)) {
+                return false;
+            }
+
+            index += length;
+            remaining -= length;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the hash code of this slice.  The hash code is cached once calculated
+     * and any future changes to the slice will not effect the hash code.
+     */
+    @SuppressWarnings("NonFinalFieldReferencedInHashCode")
+    @Override
+    public int hashCode() {
+        if (hash != 0) {
+            return hash;
+        }
+
+        hash = (int) XxHash64.hash(this);
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "LargeSlice{segments=" + segments.length + ", offset=" + offset + ", length=" + size + '}';
+    }
+
+    /**
+     * Returns the longest run of bytes starting at {@code index} that lies within
+     * one segment, limited to {@code maxLength}.  No bounds checks are performed.
+     */
+    Slice piece(long index, long maxLength) {
+        final long position = offset + index;
+        final Slice segment = segment(position);
+        final int segmentOffset = segmentOffset(position);
+        final int length = (int) min(segment.length() - segmentOffset, maxLength);
+        return segment.slice(segmentOffset, length);
+    }
+
+    private long getStraddling(long position, int length) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            final long bytePosition = LITTLE_ENDIAN ? position + length - 1 - i : position + i;
+            value = (value << 8) | (segment(bytePosition).getByte(segmentOffset(bytePosition)) & 0xFFL);
+        }
+        return value;
+    }
+
+    private boolean withinSegment(long position, int length) {
+        return (position & segmentMask) + length <= segmentMask + 1;
+    }
+
+    private Slice segment(long position) {
+        return segments[(int) (position >>> segmentShift)];
+    }
+
+    private int segmentOffset(long position) {
+        return (int) (position & segmentMask);
+    }
+
+    private void checkIndexLength(long index, long length) {
+        checkPositionIndexes(index, index + length, size);
+    }
+}
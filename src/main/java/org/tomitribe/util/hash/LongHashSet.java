@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import java.util.function.LongConsumer;
+
+import static org.tomitribe.util.hash.Preconditions.checkNotNull;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_LONG;
+
+/**
+ * Open-addressing set of {@code long} values.
+ * <p/>
+ * Values are placed by their {@link XxHash64#hash(long)} and collisions are resolved
+ * by linear probing.  Nothing is boxed, an element takes 8 bytes divided by the
+ * load factor.  The table doubles when it is three quarters full and can be kept
+ * off-heap by creating the set as {@code direct}.  This class is not thread-safe.
+ */
+public final class LongHashSet extends LongHashTable {
+
+    public LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongHashSet(int expectedSize) {
+        this(expectedSize, false);
+    }
+
+    /**
+     * @param direct store the table in off-heap memory
+     */
+    public LongHashSet(int expectedSize, boolean direct) {
+        super(expectedSize, direct, 0);
+    }
+
+    public boolean contains(long value) {
+        return containsKey(value);
+    }
+
+    /**
+     * @return {@code true} if the set did not already contain the value
+     */
+    public boolean add(long value) {
+        final int slot = find(value);
+        if (slot >= 0) {
+            return false;
+        }
+        insert(-slot - 1, value);
+        return true;
+    }
+
+    /**
+     * @return {@code true} if the set contained the value
+     */
+    public boolean remove(long value) {
+        final int slot = find(value);
+        if (slot < 0) {
+            return false;
+        }
+        removeSlot(slot);
+        return true;
+    }
+
+    /**
+     * Passes every value to the consumer, in no particular order.  The set must
+     * not be modified by the consumer.
+     */
+    public void forEach(LongConsumer consumer) {
+        checkNotNull(consumer, "consumer is null");
+        for (int slot = 0; slot < capacity; slot++) {
+            final long value = keys.getLong(slot * SIZE_OF_LONG);
+            if (value != 0) {
+                consumer.accept(value);
+            }
+        }
+        if (containsZero()) {
+            consumer.accept(0);
+        }
+    }
+}
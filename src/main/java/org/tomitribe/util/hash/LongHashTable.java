@@ -0,0 +1,235 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import static org.tomitribe.util.hash.Preconditions.checkArgument;
+import static org.tomitribe.util.hash.Preconditions.checkState;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_LONG;
+
+/**
+ * Linear probing table of {@code long} keys shared by {@link LongLongMap},
+ * {@link LongIntMap} and {@link LongHashSet}.
+ * <p/>
+ * Keys and values are stored in two {@link Slice}s, on the heap or off-heap, at
+ * {@code slot * 8} and {@code slot * valueSize}.  Slots are chosen with
+ * {@link XxHash64#hash(long)}.  Zero marks an empty key slot, so the zero key is
+ * kept out of the table and its value is stored in the extra slot {@code capacity}.
+ */
+abstract class LongHashTable {
+    static final int MIN_CAPACITY = 16;
+
+    /**
+     * Largest capacity whose keys fit in a single Slice
+     */
+    static final int MAX_CAPACITY = 1 << 27;
+
+    private final int expectedSize;
+    private final boolean direct;
+    private final int valueSize;
+
+    Slice keys;
+    Slice values;
+    int capacity;
+    int size;
+
+    private int mask;
+    private int maxFill;
+    private boolean containsZero;
+
+    LongHashTable(int expectedSize, boolean direct, int valueSize) {
+        checkArgument(expectedSize >= 0, "expectedSize is negative");
+        this.expectedSize = expectedSize;
+        this.direct = direct;
+        this.valueSize = valueSize;
+        allocate(capacity(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Removes all entries, keeping the capacity.
+     */
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        keys.clear();
+        containsZero = false;
+        size = 0;
+    }
+
+    /**
+     * Removes all entries and shrinks the table back to its initial capacity.
+     */
+    public void trim() {
+        allocate(capacity(expectedSize));
+        containsZero = false;
+        size = 0;
+    }
+
+    /**
+     * Memory used by the keys and values of the table.
+     */
+    public long getSizeInBytes() {
+        return (long) keys.length() + values.length();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{size=" + size + ", capacity=" + capacity + ", direct=" + direct + '}';
+    }
+
+    /**
+     * Returns the slot holding the key, or {@code -(slot + 1)} of the slot
+     * where it would be inserted.
+     */
+    final int find(long key) {
+        if (key == 0) {
+            return containsZero ? capacity : -capacity - 1;
+        }
+
+        int slot = slot(key);
+        while (true) {
+            final long current = keys.getLong(slot * SIZE_OF_LONG);
+            if (current == 0) {
+                return -slot - 1;
+            }
+            if (current == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    final boolean containsZero() {
+        return containsZero;
+    }
+
+    /**
+     * Stores the key in an empty slot returned by {@link #find(long)}.  The value
+     * must already be written to the slot, as the table may be resized.
+     */
+    final void insert(int slot, long key) {
+        if (slot == capacity) {
+            containsZero = true;
+        } else {
+            keys.setLong(slot * SIZE_OF_LONG, key);
+        }
+        if (++size > maxFill) {
+            rehash();
+        }
+    }
+
+    /**
+     * Empties an occupied slot, moving the entries that probed past it back so
+     * no tombstones are needed.
+     */
+    final void removeSlot(int slot) {
+        size--;
+        if (slot == capacity) {
+            containsZero = false;
+            return;
+        }
+
+        int last = slot;
+        while (true) {
+            int current = (last + 1) & mask;
+            long key;
+            while (true) {
+                key = keys.getLong(current * SIZE_OF_LONG);
+                if (key == 0) {
+                    keys.setLong(last * SIZE_OF_LONG, 0);
+                    return;
+                }
+                final int ideal = slot(key);
+                // move the entry unless its ideal slot lies cyclically within (last, current]
+                if (last <= current ? (last >= ideal || ideal > current) : (last >= ideal && ideal > current)) {
+                    break;
+                }
+                current = (current + 1) & mask;
+            }
+            keys.setLong(last * SIZE_OF_LONG, key);
+            copyValue(values, current, values, last);
+            last = current;
+        }
+    }
+
+    private void rehash() {
+        checkState(capacity < MAX_CAPACITY, "%s cannot hold more than %s entries", getClass().getSimpleName(), maxFill);
+
+        final Slice oldKeys = keys;
+        final Slice oldValues = values;
+        final int oldCapacity = capacity;
+
+        allocate(oldCapacity * 2);
+
+        for (int i = 0; i < oldCapacity; i++) {
+            final long key = oldKeys.getLong(i * SIZE_OF_LONG);
+            if (key == 0) {
+                continue;
+            }
+            int slot = slot(key);
+            while (keys.getLong(slot * SIZE_OF_LONG) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys.setLong(slot * SIZE_OF_LONG, key);
+            copyValue(oldValues, i, values, slot);
+        }
+        if (containsZero) {
+            copyValue(oldValues, oldCapacity, values, capacity);
+        }
+    }
+
+    private void copyValue(Slice source, int sourceSlot, Slice destination, int destinationSlot) {
+        if (valueSize > 0) {
+            destination.setBytes(destinationSlot * valueSize, source, sourceSlot * valueSize, valueSize);
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.maxFill = capacity / 4 * 3;
+        this.keys = allocateSlice(capacity * SIZE_OF_LONG);
+        this.values = allocateSlice((capacity + 1) * valueSize);
+    }
+
+    private Slice allocateSlice(int size) {
+        return direct ? Slices.allocateDirect(size) : Slices.allocate(size);
+    }
+
+    private int slot(long key) {
+        return (int) XxHash64.hash(key) & mask;
+    }
+
+    private static int capacity(int expectedSize) {
+        final long needed = Math.max(MIN_CAPACITY, (long) Math.ceil(expectedSize / 0.75));
+        checkArgument(needed <= MAX_CAPACITY, "expectedSize %s is too large", expectedSize);
+        return (int) Long.highestOneBit(needed - 1) << 1;
+    }
+}
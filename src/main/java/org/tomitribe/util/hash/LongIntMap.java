@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import static org.tomitribe.util.hash.Preconditions.checkNotNull;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_INT;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_LONG;
+
+/**
+ * Open-addressing map from {@code long} keys to {@code int} values.
+ * <p/>
+ * Keys are placed by their {@link XxHash64#hash(long)} and collisions are resolved
+ * by linear probing.  Nothing is boxed: a {@code HashMap<Long, Integer>} entry costs
+ * around 70 bytes, an entry here 12 bytes divided by the load factor.  The table
+ * doubles when it is three quarters full and can be kept off-heap by creating the
+ * map as {@code direct}.  This class is not thread-safe.
+ */
+public final class LongIntMap extends LongHashTable {
+
+    public LongIntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongIntMap(int expectedSize) {
+        this(expectedSize, false);
+    }
+
+    /**
+     * @param direct store the table in off-heap memory
+     */
+    public LongIntMap(int expectedSize, boolean direct) {
+        super(expectedSize, direct, SIZE_OF_INT);
+    }
+
+    /**
+     * Returns the value of the key, or {@code defaultValue} if the map does not contain it.
+     */
+    public int get(long key, int defaultValue) {
+        final int slot = find(key);
+        if (slot < 0) {
+            return defaultValue;
+        }
+        return values.getInt(slot * SIZE_OF_INT);
+    }
+
+    public void put(long key, int value) {
+        final int slot = find(key);
+        if (slot >= 0) {
+            values.setInt(slot * SIZE_OF_INT, value);
+            return;
+        }
+        values.setInt((-slot - 1) * SIZE_OF_INT, value);
+        insert(-slot - 1, key);
+    }
+
+    /**
+     * Adds {@code delta} to the value of the key, treating a missing key as zero.
+     *
+     * @return the new value
+     */
+    public int addTo(long key, int delta) {
+        final int slot = find(key);
+        if (slot >= 0) {
+            final int value = values.getInt(slot * SIZE_OF_INT) + delta;
+            values.setInt(slot * SIZE_OF_INT, value);
+            return value;
+        }
+        values.setInt((-slot - 1) * SIZE_OF_INT, delta);
+        insert(-slot - 1, key);
+        return delta;
+    }
+
+    /**
+     * Removes the key.
+     *
+     * @return the removed value, or {@code defaultValue} if the map did not contain the key
+     */
+    public int remove(long key, int defaultValue) {
+        final int slot = find(key);
+        if (slot < 0) {
+            return defaultValue;
+        }
+        final int value = values.getInt(slot * SIZE_OF_INT);
+        removeSlot(slot);
+        return value;
+    }
+
+    /**
+     * Passes every entry to the consumer, in no particular order.  The map must
+     * not be modified by the consumer.
+     */
+    public void forEach(LongIntConsumer consumer) {
+        checkNotNull(consumer, "consumer is null");
+        for (int slot = 0; slot < capacity; slot++) {
+            final long key = keys.getLong(slot * SIZE_OF_LONG);
+            if (key != 0) {
+                consumer.accept(key, values.getInt(slot * SIZE_OF_INT));
+            }
+        }
+        if (containsZero()) {
+            consumer.accept(0, values.getInt(capacity * SIZE_OF_INT));
+        }
+    }
+
+    @FunctionalInterface
+    public interface LongIntConsumer {
+        void accept(long key, int value);
+    }
+}
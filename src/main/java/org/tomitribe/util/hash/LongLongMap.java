@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import static org.tomitribe.util.hash.Preconditions.checkNotNull;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_LONG;
+
+/**
+ * Open-addressing map from {@code long} keys to {@code long} values.
+ * <p/>
+ * Keys are placed by their {@link XxHash64#hash(long)} and collisions are resolved
+ * by linear probing.  Nothing is boxed: a {@code HashMap<Long, Long>} entry costs
+ * around 80 bytes, an entry here 16 bytes divided by the load factor.  The table
+ * doubles when it is three quarters full and can be kept off-heap by creating the
+ * map as {@code direct}.  This class is not thread-safe.
+ */
+public final class LongLongMap extends LongHashTable {
+
+    public LongLongMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongLongMap(int expectedSize) {
+        this(expectedSize, false);
+    }
+
+    /**
+     * @param direct store the table in off-heap memory
+     */
+    public LongLongMap(int expectedSize, boolean direct) {
+        super(expectedSize, direct, SIZE_OF_LONG);
+    }
+
+    /**
+     * Returns the value of the key, or {@code defaultValue} if the map does not contain it.
+     */
+    public long get(long key, long defaultValue) {
+        final int slot = find(key);
+        if (slot < 0) {
+            return defaultValue;
+        }
+        return values.getLong(slot * SIZE_OF_LONG);
+    }
+
+    public void put(long key, long value) {
+        final int slot = find(key);
+        if (slot >= 0) {
+            values.setLong(slot * SIZE_OF_LONG, value);
+            return;
+        }
+        values.setLong((-slot - 1) * SIZE_OF_LONG, value);
+        insert(-slot - 1, key);
+    }
+
+    /**
+     * Adds {@code delta} to the value of the key, treating a missing key as zero.
+     *
+     * @return the new value
+     */
+    public long addTo(long key, long delta) {
+        final int slot = find(key);
+        if (slot >= 0) {
+            final long value = values.getLong(slot * SIZE_OF_LONG) + delta;
+            values.setLong(slot * SIZE_OF_LONG, value);
+            return value;
+        }
+        values.setLong((-slot - 1) * SIZE_OF_LONG, delta);
+        insert(-slot - 1, key);
+        return delta;
+    }
+
+    /**
+     * Removes the key.
+     *
+     * @return the removed value, or {@code defaultValue} if the map did not contain the key
+     */
+    public long remove(long key, long defaultValue) {
+        final int slot = find(key);
+        if (slot < 0) {
+            return defaultValue;
+        }
+        final long value = values.getLong(slot * SIZE_OF_LONG);
+        removeSlot(slot);
+        return value;
+    }
+
+    /**
+     * Passes every entry to the consumer, in no particular order.  The map must
+     * not be modified by the consumer.
+     */
+    public void forEach(LongLongConsumer consumer) {
+        checkNotNull(consumer, "consumer is null");
+        for (int slot = 0; slot < capacity; slot++) {
+            final long key = keys.getLong(slot * SIZE_OF_LONG);
+            if (key != 0) {
+                consumer.accept(key, values.getLong(slot * SIZE_OF_LONG));
+            }
+        }
+        if (containsZero()) {
+            consumer.accept(0, values.getLong(capacity * SIZE_OF_LONG));
+        }
+    }
+
+    @FunctionalInterface
+    public interface LongLongConsumer {
+        void accept(long key, long value);
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import static org.tomitribe.util.hash.Preconditions.checkPositionIndexes;
+
+/**
+ * A memory-mapped file that is unmapped as soon as it is closed rather than
+ * when the garbage collector gets to it.
+ * <pre>
+ * try (MappedFile mapped = Slices.openMappedFile(file)) {
+ *     return XxHash64.hash(mapped.getSlice());
+ * }
+ * </pre>
+ * After {@link #close()} the accessors throw {@link IllegalStateException}, and
+ * so does every access through a slice obtained before closing.  Each access
+ * pins the mapping while it runs, and {@code close()} waits for accesses in
+ * progress on other threads before unmapping, so a concurrent close fails the
+ * readers instead of pulling the memory from under them.  Bulk operations such
+ * as {@link XxHash64#hash(Slice)} pin once; single value accessors pin per call,
+ * which costs an atomic increment and decrement.
+ * <p/>
+ * The guard does not cover raw access through {@link Slice#getBase()} and
+ * {@link Slice#getAddress()}, nor {@link java.nio.ByteBuffer} views returned by
+ * {@link Slice#toByteBuffer()}; those must not outlive the mapped file.
+ * <p/>
+ * Files mapped with {@link Slices#mapFileReadWrite(File, long)} can be written
+ * through the Slice setters; {@link #force()} makes the writes durable.  Writing
+ * to a read-only mapping is not checked by Slice and will crash the JVM.
+ *
+ * @see Slices#openMappedFile(File)
+ * @see Slices#mapFileReadWrite(File, long)
+ */
+public final class MappedFile implements AutoCloseable {
+
+    /**
+     * MappedByteBuffer.force(int, int), Java 13+
+     */
+    private static final MethodHandle forceRange = findForceRange();
+
+    private final File file;
+    private final long length;
+    private final boolean writable;
+    private final int segmentShift;
+    private final MappedByteBuffer[] buffers;
+    private final Slice[] segments;
+    private final Guard guard;
+
+    private volatile boolean closed;
+
+    MappedFile(File file, FileChannel channel, MapMode mode, long length) throws IOException {
+        this.file = file;
+        this.length = length;
+        this.writable = mode == MapMode.READ_WRITE;
+        this.guard = new Guard("MappedFile is closed: " + file);
+
+        // files that fit are mapped in one piece so they can be used as a plain Slice
+        this.segmentShift = length <= Integer.MAX_VALUE ? 31 : 30;
+
+        final long segmentSize = 1L << segmentShift;
+        final int count = (int) ((length + segmentSize - 1) >>> segmentShift);
+        this.buffers = new MappedByteBuffer[count];
+        this.segments = new Slice[count];
+
+        try {
+            for (int i = 0; i < count; i++) {
+                final long position = i * segmentSize;
+                buffers[i] = channel.map(mode, position, Math.min(segmentSize, length - position));
+                segments[i] = Slices.wrappedBuffer(buffers[i], guard);
+            }
+        } catch (IOException | RuntimeException e) {
+            unmap();
+            throw e;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long length() {
+        return length;
+    }
+
+    /**
+     * The whole file as one slice.
+     *
+     * @throws IllegalStateException if the file is closed or larger than 2 GB
+     */
+    public synchronized Slice getSlice() {
+        checkOpen();
+        if (segments.length == 0) {
+            return Slices.EMPTY_SLICE;
+        }
+        if (segments.length > 1) {
+            throw new IllegalStateException("File is larger than 2 GB, use getLargeSlice(): " + file);
+        }
+        return segments[0];
+    }
+
+    /**
+     * The whole file as a long-addressed slice, whatever its size.
+     *
+     * @throws IllegalStateException if the file is closed
+     */
+    public synchronized LargeSlice getLargeSlice() {
+        checkOpen();
+        return new LargeSlice(segments.clone(), segmentShift);
+    }
+
+    public boolean isWritable() {
+        return writable;
+    }
+
+    /**
+     * Writes all changes made through the slices of this file to the storage device.
+     *
+     * @throws IllegalStateException if the file is closed
+     */
+    public synchronized void force() {
+        checkOpen();
+        if (!writable) {
+            return;
+        }
+        for (MappedByteBuffer buffer : buffers) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * Writes the changes made to the given range of the file to the storage device.
+     * On Java versions before 13 every mapped segment touching the range is forced
+     * as a whole.
+     *
+     * @throws IllegalStateException if the file is closed
+     * @throws IndexOutOfBoundsException if the range is not within the file
+     */
+    public synchronized void force(long position, long length) {
+        checkOpen();
+        checkPositionIndexes(position, position + length, this.length);
+        if (!writable || length == 0) {
+            return;
+        }
+
+        final long segmentSize = 1L << segmentShift;
+        final long end = position + length;
+        for (int i = (int) (position >>> segmentShift); i < buffers.length && (long) i * segmentSize < end; i++) {
+            final long segmentStart = (long) i * segmentSize;
+            final int from = (int) (Math.max(position, segmentStart) - segmentStart);
+            final int to = (int) (Math.min(end, segmentStart + buffers[i].capacity()) - segmentStart);
+            force(buffers[i], from, to - from);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Unmaps the file once slice accesses in progress on other threads are done.
+     * Closing an already closed file has no effect.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        guard.close();
+        unmap();
+    }
+
+    @Override
+    public String toString() {
+        return "MappedFile{file=" + file + ", length=" + length + (closed ? ", closed" : "") + '}';
+    }
+
+    private void unmap() {
+        for (int i = 0; i < buffers.length; i++) {
+            if (buffers[i] != null) {
+                JvmUtils.unmap(buffers[i]);
+                buffers[i] = null;
+                segments[i] = null;
+            }
+        }
+    }
+
+    private static void force(MappedByteBuffer buffer, int index, int length) {
+        if (forceRange == null) {
+            buffer.force();
+            return;
+        }
+
+        try {
+            forceRange.invokeExact(buffer, index, length);
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    private static MethodHandle findForceRange() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(MappedByteBuffer.class, "force",
+                    MethodType.methodType(MappedByteBuffer.class, int.class, int.class))
+                    .asType(MethodType.methodType(void.class, MappedByteBuffer.class, int.class, int.class));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("MappedFile is closed: " + file);
+        }
+    }
+}
@@ -0,0 +1,410 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import sun.misc.Unsafe;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Raw memory access for {@link Slice} and the hash functions, through one of
+ * two backends chosen when this class is loaded:
+ * <ul>
+ * <li>{@code unsafe}: {@link sun.misc.Unsafe}.  A base of null means the address
+ * is absolute; otherwise the address is an offset into the base object, and
+ * byte arrays start at {@link #ARRAY_BYTE_BASE_OFFSET}.</li>
+ * <li>{@code varhandle}: the byte array and byte buffer view VarHandles of Java 9+.
+ * The base is a {@code byte[]} or a {@link ByteBuffer} and the address is the
+ * index into it, so {@link #ARRAY_BYTE_BASE_OFFSET} is zero.  Other arrays are
+ * reached through a {@code java.lang.foreign.MemorySegment} base, available from
+ * Java 22 (preview in 21), and the address is the offset into the segment.
+ * Every access is bounds checked by the JVM and writes to read-only memory
+ * throw.</li>
+ * </ul>
+ * The VarHandles are reached through {@code VarHandle.toMethodHandle}, so this
+ * class still compiles for Java 8.  The system property
+ * {@code org.tomitribe.util.hash.memory} forces a backend.  By default
+ * {@code unsafe} is used up to Java 23, and {@code varhandle} from Java 24 on,
+ * where the memory access methods of Unsafe print a warning and are due for
+ * removal, or whenever Unsafe is not available.  On heap memory both backends
+ * are as fast; on direct memory VarHandles are up to 30% slower for single
+ * value reads such as {@code Slice.getLong} and {@link XxHash3}, measured on
+ * Java 21 with {@code MemoryBackendBenchmark}, which is why Unsafe stays the
+ * default while it can be used without warnings.
+ * <p/>
+ * Values are read and written in native byte order with either backend.
+ */
+final class Memory {
+    static final String PROPERTY = "org.tomitribe.util.hash.memory";
+
+    /**
+     * First Java version on which VarHandles are the default.
+     */
+    static final int VAR_HANDLES_BY_DEFAULT = 24;
+
+    /**
+     * True if the VarHandle backend is in use.
+     */
+    static final boolean VAR_HANDLES;
+
+    /**
+     * Address of the first element of a byte array.
+     */
+    static final int ARRAY_BYTE_BASE_OFFSET;
+
+    private static final Unsafe unsafe;
+
+    private static final MethodHandle getShortArray;
+    private static final MethodHandle getIntArray;
+    private static final MethodHandle getLongArray;
+    private static final MethodHandle putShortArray;
+    private static final MethodHandle putIntArray;
+    private static final MethodHandle putLongArray;
+
+    private static final MethodHandle getShortBuffer;
+    private static final MethodHandle getIntBuffer;
+    private static final MethodHandle getLongBuffer;
+    private static final MethodHandle putShortBuffer;
+    private static final MethodHandle putIntBuffer;
+    private static final MethodHandle putLongBuffer;
+
+    static {
+        final String requested = System.getProperty(PROPERTY, "");
+        final boolean varHandles = "varhandle".equals(requested)
+                || !"unsafe".equals(requested) && (JvmUtils.unsafe == null || javaVersion() >= VAR_HANDLES_BY_DEFAULT);
+        final MethodHandle[] handles = varHandles ? findVarHandles() : null;
+        if (handles == null && "varhandle".equals(requested)) {
+            throw new IllegalStateException(PROPERTY + "=varhandle requires Java 9 or later");
+        }
+        if (handles == null && JvmUtils.unsafe == null) {
+            throw new IllegalStateException("Neither sun.misc.Unsafe nor VarHandles are available");
+        }
+
+        VAR_HANDLES = handles != null;
+        unsafe = VAR_HANDLES ? null : JvmUtils.unsafe;
+        ARRAY_BYTE_BASE_OFFSET = VAR_HANDLES ? 0 : Unsafe.ARRAY_BYTE_BASE_OFFSET;
+
+        final MethodHandle[] h = VAR_HANDLES ? handles : new MethodHandle[12];
+        getShortArray = h[0];
+        getIntArray = h[1];
+        getLongArray = h[2];
+        putShortArray = h[3];
+        putIntArray = h[4];
+        putLongArray = h[5];
+        getShortBuffer = h[6];
+        getIntBuffer = h[7];
+        getLongBuffer = h[8];
+        putShortBuffer = h[9];
+        putIntBuffer = h[10];
+        putLongBuffer = h[11];
+    }
+
+    private Memory() {
+    }
+
+    /**
+     * Feature version of the running JVM, 8 for Java 8.
+     */
+    static int javaVersion() {
+        final String version = System.getProperty("java.specification.version");
+        try {
+            return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+        } catch (NumberFormatException e) {
+            return 8;
+        }
+    }
+
+    /**
+     * Name of the backend in use, {@code unsafe} or {@code varhandle}.
+     */
+    static String backend() {
+        return VAR_HANDLES ? "varhandle" : "unsafe";
+    }
+
+    /**
+     * Base object to access the memory of a direct buffer with.
+     */
+    static Object bufferBase(ByteBuffer buffer) {
+        if (!VAR_HANDLES) {
+            return null;
+        }
+        // absolute access is checked against the limit, which the caller may move
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.clear();
+        return duplicate;
+    }
+
+    /**
+     * Address of the first byte of a direct buffer, relative to {@link #bufferBase(ByteBuffer)}.
+     */
+    static long bufferAddress(ByteBuffer buffer) {
+        return VAR_HANDLES ? 0 : JvmUtils.bufferAddress(buffer);
+    }
+
+    static byte getByte(Object base, long address) {
+        if (!VAR_HANDLES) {
+            return unsafe.getByte(base, address);
+        }
+        if (base instanceof byte[]) {
+            return ((byte[]) base)[(int) address];
+        }
+        if (base instanceof ByteBuffer) {
+            return ((ByteBuffer) base).get((int) address);
+        }
+        return MemorySegments.getByte(base, address);
+    }
+
+    static short getShort(Object base, long address) {
+        if (!VAR_HANDLES) {
+            return unsafe.getShort(base, address);
+        }
+        try {
+            if (base instanceof byte[]) {
+                return (short) getShortArray.invokeExact((byte[]) base, (int) address);
+            }
+            if (base instanceof ByteBuffer) {
+                return (short) getShortBuffer.invokeExact((ByteBuffer) base, (int) address);
+            }
+            return MemorySegments.getShort(base, address);
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    static int getInt(Object base, long address) {
+        if (!VAR_HANDLES) {
+            return unsafe.getInt(base, address);
+        }
+        try {
+            if (base instanceof byte[]) {
+                return (int) getIntArray.invokeExact((byte[]) base, (int) address);
+            }
+            if (base instanceof ByteBuffer) {
+                return (int) getIntBuffer.invokeExact((ByteBuffer) base, (int) address);
+            }
+            return MemorySegments.getInt(base, address);
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    static long getLong(Object base, long address) {
+        if (!VAR_HANDLES) {
+            return unsafe.getLong(base, address);
+        }
+        try {
+            if (base instanceof byte[]) {
+                return (long) getLongArray.invokeExact((byte[]) base, (int) address);
+            }
+            if (base instanceof ByteBuffer) {
+                return (long) getLongBuffer.invokeExact((ByteBuffer) base, (int) address);
+            }
+            return MemorySegments.getLong(base, address);
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    static float getFloat(Object base, long address) {
+        if (!VAR_HANDLES) {
+            return unsafe.getFloat(base, address);
+        }
+        return Float.intBitsToFloat(getInt(base, address));
+    }
+
+    static double getDouble(Object base, long address) {
+        if (!VAR_HANDLES) {
+            return unsafe.getDouble(base, address);
+        }
+        return Double.longBitsToDouble(getLong(base, address));
+    }
+
+    static void putByte(Object base, long address, byte value) {
+        if (!VAR_HANDLES) {
+            unsafe.putByte(base, address, value);
+        } else if (base instanceof byte[]) {
+            ((byte[]) base)[(int) address] = value;
+        } else if (base instanceof ByteBuffer) {
+            ((ByteBuffer) base).put((int) address, value);
+        } else {
+            MemorySegments.setByte(base, address, value);
+        }
+    }
+
+    static void putShort(Object base, long address, short value) {
+        if (!VAR_HANDLES) {
+            unsafe.putShort(base, address, value);
+            return;
+        }
+        try {
+            if (base instanceof byte[]) {
+                putShortArray.invokeExact((byte[]) base, (int) address, value);
+            } else if (base instanceof ByteBuffer) {
+                putShortBuffer.invokeExact((ByteBuffer) base, (int) address, value);
+            } else {
+                MemorySegments.setShort(base, address, value);
+            }
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    static void putInt(Object base, long address, int value) {
+        if (!VAR_HANDLES) {
+            unsafe.putInt(base, address, value);
+            return;
+        }
+        try {
+            if (base instanceof byte[]) {
+                putIntArray.invokeExact((byte[]) base, (int) address, value);
+            } else if (base instanceof ByteBuffer) {
+                putIntBuffer.invokeExact((ByteBuffer) base, (int) address, value);
+            } else {
+                MemorySegments.setInt(base, address, value);
+            }
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    static void putLong(Object base, long address, long value) {
+        if (!VAR_HANDLES) {
+            unsafe.putLong(base, address, value);
+            return;
+        }
+        try {
+            if (base instanceof byte[]) {
+                putLongArray.invokeExact((byte[]) base, (int) address, value);
+            } else if (base instanceof ByteBuffer) {
+                putLongBuffer.invokeExact((ByteBuffer) base, (int) address, value);
+            } else {
+                MemorySegments.setLong(base, address, value);
+            }
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    static void putFloat(Object base, long address, float value) {
+        if (!VAR_HANDLES) {
+            unsafe.putFloat(base, address, value);
+        } else {
+            putInt(base, address, Float.floatToRawIntBits(value));
+        }
+    }
+
+    static void putDouble(Object base, long address, double value) {
+        if (!VAR_HANDLES) {
+            unsafe.putDouble(base, address, value);
+        } else {
+            putLong(base, address, Double.doubleToRawLongBits(value));
+        }
+    }
+
+    static void copyMemory(Object src, long srcAddress, Object dest, long destAddress, long length) {
+        if (length == 0) {
+            return;
+        }
+
+        if (!VAR_HANDLES) {
+            // The Unsafe Javadoc specifies that the transfer size is 8 iff length % 8 == 0
+            // so ensure that we copy big chunks whenever possible, even at the expense of two separate copy operations
+            final long bytesToCopy = length - (length % 8);
+            unsafe.copyMemory(src, srcAddress, dest, destAddress, bytesToCopy);
+            unsafe.copyMemory(src, srcAddress + bytesToCopy, dest, destAddress + bytesToCopy, length - bytesToCopy);
+            return;
+        }
+
+        if (!(src instanceof byte[] || src instanceof ByteBuffer) || !(dest instanceof byte[] || dest instanceof ByteBuffer)) {
+            MemorySegments.copy(segment(src), srcAddress, segment(dest), destAddress, length);
+            return;
+        }
+
+        final int from = (int) srcAddress;
+        final int to = (int) destAddress;
+        final int count = (int) length;
+        if (src instanceof byte[] && dest instanceof byte[]) {
+            System.arraycopy(src, from, dest, to, count);
+        } else if (src instanceof byte[]) {
+            window((ByteBuffer) dest, to, count).put((byte[]) src, from, count);
+        } else if (dest instanceof byte[]) {
+            window((ByteBuffer) src, from, count).get((byte[]) dest, to, count);
+        } else {
+            window((ByteBuffer) dest, to, count).put(window((ByteBuffer) src, from, count));
+        }
+    }
+
+    private static Object segment(Object base) {
+        if (base instanceof byte[]) {
+            return MemorySegments.ofArray(base);
+        }
+        if (base instanceof ByteBuffer) {
+            return MemorySegments.ofBuffer((ByteBuffer) base);
+        }
+        return base;
+    }
+
+    private static ByteBuffer window(ByteBuffer buffer, int index, int length) {
+        final ByteBuffer window = buffer.duplicate();
+        window.limit(index + length);
+        window.position(index);
+        return window;
+    }
+
+    /**
+     * The array and buffer view handles in the order of the static fields, or
+     * null before Java 9.
+     */
+    private static MethodHandle[] findVarHandles() {
+        try {
+            final Class<?> varHandle = Class.forName("java.lang.invoke.VarHandle");
+            final Class<?> accessMode = Class.forName("java.lang.invoke.VarHandle$AccessMode");
+            final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+            final MethodHandle arrayView = lookup.findStatic(MethodHandles.class, "byteArrayViewVarHandle",
+                    MethodType.methodType(varHandle, Class.class, ByteOrder.class));
+            final MethodHandle bufferView = lookup.findStatic(MethodHandles.class, "byteBufferViewVarHandle",
+                    MethodType.methodType(varHandle, Class.class, ByteOrder.class));
+            final MethodHandle toMethodHandle = lookup.findVirtual(varHandle, "toMethodHandle",
+                    MethodType.methodType(MethodHandle.class, accessMode));
+
+            final Object get = accessMode.getField("GET").get(null);
+            final Object set = accessMode.getField("SET").get(null);
+
+            final Class<?>[] views = {short[].class, int[].class, long[].class};
+            final Class<?>[] values = {short.class, int.class, long.class};
+            final MethodHandle[] handles = new MethodHandle[12];
+            for (int i = 0; i < 3; i++) {
+                final Object array = arrayView.invoke(views[i], ByteOrder.nativeOrder());
+                final Object buffer = bufferView.invoke(views[i], ByteOrder.nativeOrder());
+
+                handles[i] = ((MethodHandle) toMethodHandle.invoke(array, get))
+                        .asType(MethodType.methodType(values[i], byte[].class, int.class));
+                handles[3 + i] = ((MethodHandle) toMethodHandle.invoke(array, set))
+                        .asType(MethodType.methodType(void.class, byte[].class, int.class, values[i]));
+                handles[6 + i] = ((MethodHandle) toMethodHandle.invoke(buffer, get))
+                        .asType(MethodType.methodType(values[i], ByteBuffer.class, int.class));
+                handles[9 + i] = ((MethodHandle) toMethodHandle.invoke(buffer, set))
+                        .asType(MethodType.methodType(void.class, ByteBuffer.class, int.class, values[i]));
+            }
+            return handles;
+        } catch (Throwable throwable) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Access to {@code java.lang.foreign.MemorySegment} (Java 22, preview in 21)
+ * through method handles, so this library can keep compiling for Java 8.
+ * Loading this class has no effect on JVMs without the foreign memory API.
+ */
+final class MemorySegments {
+    private static final Class<?> segmentClass;
+    private static final MethodHandle byteSize;
+    private static final MethodHandle address;
+    private static final MethodHandle heapBase;
+    private static final MethodHandle asByteBuffer;
+    private static final MethodHandle asSlice;
+    private static final MethodHandle toByteArray;
+    private static final MethodHandle isAlive;
+
+    private static final Map<Class<?>, MethodHandle> ofArray;
+    private static final MethodHandle ofBuffer;
+    private static final MethodHandle copy;
+
+    private static final MethodHandle getByte;
+    private static final MethodHandle getShort;
+    private static final MethodHandle getInt;
+    private static final MethodHandle getLong;
+    private static final MethodHandle setByte;
+    private static final MethodHandle setShort;
+    private static final MethodHandle setInt;
+    private static final MethodHandle setLong;
+
+    static {
+        Class<?> type = null;
+        MethodHandle byteSizeHandle = null;
+        MethodHandle addressHandle = null;
+        MethodHandle heapBaseHandle = null;
+        MethodHandle asByteBufferHandle = null;
+        MethodHandle asSliceHandle = null;
+        MethodHandle toByteArrayHandle = null;
+        MethodHandle isAliveHandle = null;
+        final Map<Class<?>, MethodHandle> ofArrayHandles = new IdentityHashMap<>();
+        MethodHandle ofBufferHandle = null;
+        MethodHandle copyHandle = null;
+        final MethodHandle[] access = new MethodHandle[8];
+        try {
+            type = Class.forName("java.lang.foreign.MemorySegment");
+
+            final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            byteSizeHandle = lookup.findVirtual(type, "byteSize", MethodType.methodType(long.class))
+                    .asType(MethodType.methodType(long.class, Object.class));
+            addressHandle = lookup.findVirtual(type, "address", MethodType.methodType(long.class))
+                    .asType(MethodType.methodType(long.class, Object.class));
+            heapBaseHandle = lookup.findVirtual(type, "heapBase", MethodType.methodType(Optional.class))
+                    .asType(MethodType.methodType(Optional.class, Object.class));
+            asByteBufferHandle = lookup.findVirtual(type, "asByteBuffer", MethodType.methodType(ByteBuffer.class))
+                    .asType(MethodType.methodType(ByteBuffer.class, Object.class));
+            asSliceHandle = lookup.findVirtual(type, "asSlice", MethodType.methodType(type, long.class, long.class))
+                    .asType(MethodType.methodType(Object.class, Object.class, long.class, long.class));
+
+            final Class<?> byteLayout = Class.forName("java.lang.foreign.ValueLayout$OfByte");
+            final Object javaByte = Class.forName("java.lang.foreign.ValueLayout").getField("JAVA_BYTE").get(null);
+            toByteArrayHandle = MethodHandles.insertArguments(
+                    lookup.findVirtual(type, "toArray", MethodType.methodType(byte[].class, byteLayout)), 1, javaByte)
+                    .asType(MethodType.methodType(byte[].class, Object.class));
+
+            final Class<?> scope = Class.forName("java.lang.foreign.MemorySegment$Scope");
+            isAliveHandle = MethodHandles.filterReturnValue(
+                    lookup.findVirtual(type, "scope", MethodType.methodType(scope)),
+                    lookup.findVirtual(scope, "isAlive", MethodType.methodType(boolean.class)))
+                    .asType(MethodType.methodType(boolean.class, Object.class));
+
+            for (Class<?> array : new Class<?>[]{byte[].class, short[].class, int[].class, long[].class, float[].class, double[].class}) {
+                ofArrayHandles.put(array, lookup.findStatic(type, "ofArray", MethodType.methodType(type, array))
+                        .asType(MethodType.methodType(Object.class, Object.class)));
+            }
+            ofBufferHandle = lookup.findStatic(type, "ofBuffer", MethodType.methodType(type, Buffer.class))
+                    .asType(MethodType.methodType(Object.class, ByteBuffer.class));
+            copyHandle = lookup.findStatic(type, "copy", MethodType.methodType(void.class, type, long.class, type, long.class, long.class))
+                    .asType(MethodType.methodType(void.class, Object.class, long.class, Object.class, long.class, long.class));
+
+            // unaligned layouts in native byte order, as Memory reads and writes
+            final String[] layouts = {"JAVA_BYTE", "JAVA_SHORT_UNALIGNED", "JAVA_INT_UNALIGNED", "JAVA_LONG_UNALIGNED"};
+            final Class<?>[] values = {byte.class, short.class, int.class, long.class};
+            final Class<?> valueLayout = Class.forName("java.lang.foreign.ValueLayout");
+            for (int i = 0; i < 4; i++) {
+                final Object layout = valueLayout.getField(layouts[i]).get(null);
+                final Class<?> layoutType = Class.forName(valueLayout.getName() + "$Of" + capitalize(values[i].getName()));
+                access[i] = MethodHandles.insertArguments(
+                        lookup.findVirtual(type, "get", MethodType.methodType(values[i], layoutType, long.class)), 1, layout)
+                        .asType(MethodType.methodType(values[i], Object.class, long.class));
+                access[4 + i] = MethodHandles.insertArguments(
+                        lookup.findVirtual(type, "set", MethodType.methodType(void.class, layoutType, long.class, values[i])), 1, layout)
+                        .asType(MethodType.methodType(void.class, Object.class, long.class, values[i]));
+            }
+        } catch (ReflectiveOperationException e) {
+            type = null;
+        }
+
+        segmentClass = type;
+        byteSize = byteSizeHandle;
+        address = addressHandle;
+        heapBase = heapBaseHandle;
+        asByteBuffer = asByteBufferHandle;
+        asSlice = asSliceHandle;
+        toByteArray = toByteArrayHandle;
+        isAlive = isAliveHandle;
+        ofArray = ofArrayHandles;
+        ofBuffer = ofBufferHandle;
+        copy = copyHandle;
+        getByte = access[0];
+        getShort = access[1];
+        getInt = access[2];
+        getLong = access[3];
+        setByte = access[4];
+        setShort = access[5];
+        setInt = access[6];
+        setLong = access[7];
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private MemorySegments() {
+    }
+
+    static boolean isAvailable() {
+        return segmentClass != null;
+    }
+
+    static boolean isSegment(Object object) {
+        return segmentClass != null && segmentClass.isInstance(object);
+    }
+
+    static long byteSize(Object segment) {
+        try {
+            return (long) byteSize.invokeExact(segment);
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    /**
+     * Native address, or the offset into the array for heap segments.
+     */
+    static long address(Object segment) {
+        try {
+            return (long) address.invokeExact(segment);
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    /**
+     * The array behind a heap segment, null for native segments.
+     */
+    static Object heapBase(Object segment) {
+        try {
+            return ((Optional<?>) heapBase.invokeExact(segment)).orElse(null);
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    /**
+     * A buffer over the segment, or null if the segment cannot be viewed as one,
+     * as for heap segments over arrays other than {@code byte[]}.
+     */
+    static ByteBuffer asByteBuffer(Object segment) {
+        try {
+            return (ByteBuffer) asByteBuffer.invokeExact(segment);
+        } catch (UnsupportedOperationException e) {
+            return null;
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    static Object asSlice(Object segment, long offset, long length) {
+        try {
+            return asSlice.invokeExact(segment, offset, length);
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    /**
+     * A copy of the contents of the segment.
+     */
+    static byte[] toByteArray(Object segment) {
+        try {
+            return (byte[]) toByteArray.invokeExact(segment);
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    /**
+     * Whether the arena of the segment is still open.
+     */
+    static boolean isAlive(Object segment) {
+        try {
+            return (boolean) isAlive.invokeExact(segment);
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    /**
+     * A guard failing accesses once the arena of the segment is closed.  Closing
+     * the arena of a shared segment while an access runs on another thread is not
+     * detected.
+     */
+    static Guard guard(final Object segment) {
+        return new Guard("MemorySegment arena is closed") {
+            @Override
+            boolean isAlive() {
+                return MemorySegments.isAlive(segment);
+            }
+        };
+    }
+
+    /**
+     * A heap segment over a primitive array other than {@code boolean[]}.
+     */
+    static Object ofArray(Object array) {
+        try {
+            return (Object) ofArray.get(array.getClass()).invokeExact(array);
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    /**
+     * A segment over the bytes of the buffer between its position and limit.
+     */
+    static Object ofBuffer(ByteBuffer buffer) {
+        try {
+            return (Object) ofBuffer.invokeExact(buffer);
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    static void copy(Object src, long srcOffset, Object dest, long destOffset, long length) {
+        try {
+            copy.invokeExact(src, srcOffset, dest, destOffset, length);
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    static byte getByte(Object segment, long offset) {
+        try {
+            return (byte) getByte.invokeExact(segment, offset);
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    static short getShort(Object segment, long offset) {
+        try {
+            return (short) getShort.invokeExact(segment, offset);
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    static int getInt(Object segment, long offset) {
+        try {
+            return (int) getInt.invokeExact(segment, offset);
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    static long getLong(Object segment, long offset) {
+        try {
+            return (long) getLong.invokeExact(segment, offset);
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    static void setByte(Object segment, long offset, byte value) {
+        try {
+            setByte.invokeExact(segment, offset, value);
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    static void setShort(Object segment, long offset, short value) {
+        try {
+            setShort.invokeExact(segment, offset, value);
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    static void setInt(Object segment, long offset, int value) {
+        try {
+            setInt.invokeExact(segment, offset, value);
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+
+    static void setLong(Object segment, long offset, long value) {
+        try {
+            setLong.invokeExact(segment, offset, value);
+        } catch (Throwable throwable) {
+            throw JvmUtils.propagate(throwable);
+        }
+    }
+}
@@ -39,6 +39,12 @@ final class Preconditions {
         }
     }
 
+    public static void checkState(boolean expression, String errorMessageTemplate, Object... errorMessageArgs) {
+        if (!expression) {
+            throw new IllegalStateException(format(errorMessageTemplate, errorMessageArgs));
+        }
+    }
+
     public static int checkPositionIndex(int index, int size) {
         return checkPositionIndex(index, size, "index");
     }
@@ -51,7 +57,7 @@ final class Preconditions {
         return index;
     }
 
-    private static String badPositionIndex(int index, int size, String desc) {
+    private static String badPositionIndex(long index, long size, String desc) {
         if (index < 0) {
             return format("%s (%s) must not be negative", desc, index);
         } else if (size < 0) {
@@ -68,7 +74,13 @@ final class Preconditions {
         }
     }
 
-    private static String badPositionIndexes(int start, int end, int size) {
+    public static void checkPositionIndexes(long start, long end, long size) {
+        if (start < 0 || end < start || end > size) {
+            throw new IndexOutOfBoundsException(badPositionIndexes(start, end, size));
+        }
+    }
+
+    private static String badPositionIndexes(long start, long end, long size) {
         if (start < 0 || start > size) {
             return badPositionIndex(start, size, "start index");
         }
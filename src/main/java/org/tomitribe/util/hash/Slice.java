@@ -17,12 +17,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 
 import static java.lang.String.format;
 import static java.nio.charset.StandardCharsets.UTF_8;
-import static org.tomitribe.util.hash.JvmUtils.newByteBuffer;
-import static org.tomitribe.util.hash.JvmUtils.unsafe;
+import static org.tomitribe.util.hash.Memory.ARRAY_BYTE_BASE_OFFSET;
 import static org.tomitribe.util.hash.Preconditions.checkArgument;
 import static org.tomitribe.util.hash.Preconditions.checkNotNull;
 import static org.tomitribe.util.hash.Preconditions.checkPositionIndexes;
@@ -35,7 +35,6 @@ import static org.tomitribe.util.hash.SizeOf.SIZE_OF_SHORT;
 import static org.tomitribe.util.hash.StringDecoder.decodeString;
 import static sun.misc.Unsafe.ARRAY_BOOLEAN_BASE_OFFSET;
 import static sun.misc.Unsafe.ARRAY_BOOLEAN_INDEX_SCALE;
-import static sun.misc.Unsafe.ARRAY_BYTE_BASE_OFFSET;
 import static sun.misc.Unsafe.ARRAY_DOUBLE_BASE_OFFSET;
 import static sun.misc.Unsafe.ARRAY_DOUBLE_INDEX_SCALE;
 import static sun.misc.Unsafe.ARRAY_FLOAT_BASE_OFFSET;
@@ -49,6 +48,8 @@ import static sun.misc.Unsafe.ARRAY_SHORT_INDEX_SCALE;
 
 public final class Slice
         implements Comparable<Slice> {
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
     /**
      * @deprecated use {@link Slices#wrappedBuffer(java.nio.ByteBuffer)}
      */
@@ -71,6 +72,8 @@ public final class Slice
      * <p/>
      * Note: if base object is a byte array, this address ARRAY_BYTE_BASE_OFFSET,
      * since the byte array data starts AFTER the byte array object header.
+     * With the VarHandle backend of {@link Memory} the base is never null and
+     * the address is an index into it.
      */
     private final long address;
 
@@ -86,6 +89,13 @@ public final class Slice
      */
     private final Object reference;
 
+    /**
+     * Guard of the memory this slice accesses, or null.  Memory access through a
+     * guarded slice pins the memory so it cannot be freed meanwhile, such as the
+     * mapping of a {@link MappedFile}.
+     */
+    private final Guard guard;
+
     private int hash;
 
     /**
@@ -96,6 +106,7 @@ public final class Slice
         this.address = 0;
         this.size = 0;
         this.reference = null;
+        this.guard = null;
     }
 
     /**
@@ -107,6 +118,7 @@ public final class Slice
         this.address = ARRAY_BYTE_BASE_OFFSET;
         this.size = base.length;
         this.reference = null;
+        this.guard = null;
     }
 
     /**
@@ -120,6 +132,7 @@ public final class Slice
         this.address = ARRAY_BYTE_BASE_OFFSET + offset;
         this.size = length;
         this.reference = null;
+        this.guard = null;
     }
 
     /**
@@ -130,9 +143,10 @@ public final class Slice
         checkPositionIndexes(offset, offset + length, base.length);
 
         this.base = base;
-        this.address = ARRAY_BOOLEAN_BASE_OFFSET + offset;
+        this.address = ARRAY_BOOLEAN_BASE_OFFSET + (long) offset * ARRAY_BOOLEAN_INDEX_SCALE;
         this.size = length * ARRAY_BOOLEAN_INDEX_SCALE;
         this.reference = null;
+        this.guard = null;
     }
 
     /**
@@ -143,9 +157,10 @@ public final class Slice
         checkPositionIndexes(offset, offset + length, base.length);
 
         this.base = base;
-        this.address = ARRAY_SHORT_BASE_OFFSET + offset;
+        this.address = ARRAY_SHORT_BASE_OFFSET + (long) offset * ARRAY_SHORT_INDEX_SCALE;
         this.size = length * ARRAY_SHORT_INDEX_SCALE;
         this.reference = null;
+        this.guard = null;
     }
 
     /**
@@ -156,9 +171,10 @@ public final class Slice
         checkPositionIndexes(offset, offset + length, base.length);
 
         this.base = base;
-        this.address = ARRAY_INT_BASE_OFFSET + offset;
+        this.address = ARRAY_INT_BASE_OFFSET + (long) offset * ARRAY_INT_INDEX_SCALE;
         this.size = length * ARRAY_INT_INDEX_SCALE;
         this.reference = null;
+        this.guard = null;
     }
 
     /**
@@ -169,9 +185,10 @@ public final class Slice
         checkPositionIndexes(offset, offset + length, base.length);
 
         this.base = base;
-        this.address = ARRAY_LONG_BASE_OFFSET + offset;
+        this.address = ARRAY_LONG_BASE_OFFSET + (long) offset * ARRAY_LONG_INDEX_SCALE;
         this.size = length * ARRAY_LONG_INDEX_SCALE;
         this.reference = null;
+        this.guard = null;
     }
 
     /**
@@ -182,9 +199,10 @@ public final class Slice
         checkPositionIndexes(offset, offset + length, base.length);
 
         this.base = base;
-        this.address = ARRAY_FLOAT_BASE_OFFSET + offset;
+        this.address = ARRAY_FLOAT_BASE_OFFSET + (long) offset * ARRAY_FLOAT_INDEX_SCALE;
         this.size = length * ARRAY_FLOAT_INDEX_SCALE;
         this.reference = null;
+        this.guard = null;
     }
 
     /**
@@ -195,16 +213,25 @@ public final class Slice
         checkPositionIndexes(offset, offset + length, base.length);
 
         this.base = base;
-        this.address = ARRAY_DOUBLE_BASE_OFFSET + offset;
+        this.address = ARRAY_DOUBLE_BASE_OFFSET + (long) offset * ARRAY_DOUBLE_INDEX_SCALE;
         this.size = length * ARRAY_DOUBLE_INDEX_SCALE;
         this.reference = null;
+        this.guard = null;
     }
 
     /**
      * Creates a slice for directly accessing the base object.
      */
     Slice(Object base, long address, int size, Object reference) {
-        if (address <= 0) {
+        this(base, address, size, reference, null);
+    }
+
+    /**
+     * Creates a slice for directly accessing the base object, pinned by the
+     * guard on every access.
+     */
+    Slice(Object base, long address, int size, Object reference, Guard guard) {
+        if (address < 0 || (base == null && address == 0)) {
             throw new IllegalArgumentException(format("Invalid address: %s", address));
         }
         if (size <= 0) {
@@ -216,11 +243,17 @@ public final class Slice
         this.base = base;
         this.address = address;
         this.size = size;
+        this.guard = guard;
     }
 
     /**
      * Returns the base object of this Slice, or null.  This is appropriate for use
      * with {@link sun.misc.Unsafe} if you wish to avoid all the safety belts e.g. bounds checks.
+     * With the VarHandle memory backend, the default from Java 24 on, the base is
+     * a {@code byte[]}, a {@link ByteBuffer} or a {@code java.lang.foreign.MemorySegment}
+     * and never null.
+     * Raw access to a slice of a {@link MappedFile} is not guarded against the file
+     * being closed.
      */
     public Object getBase() {
         return base;
@@ -229,6 +262,7 @@ public final class Slice
     /**
      * Return the address offset of this Slice.  This is appropriate for use
      * with {@link sun.misc.Unsafe} if you wish to avoid all the safety belts e.g. bounds checks.
+     * With the VarHandle memory backend the address is the offset into the base.
      */
     public long getAddress() {
         return address;
@@ -248,16 +282,21 @@ public final class Slice
         int offset = 0;
         int length = size;
         long longValue = fillLong(value);
-        while (length >= SIZE_OF_LONG) {
-            unsafe.putLong(base, address + offset, longValue);
-            offset += SIZE_OF_LONG;
-            length -= SIZE_OF_LONG;
-        }
+        acquire();
+        try {
+            while (length >= SIZE_OF_LONG) {
+                Memory.putLong(base, address + offset, longValue);
+                offset += SIZE_OF_LONG;
+                length -= SIZE_OF_LONG;
+            }
 
-        while (length > 0) {
-            unsafe.putByte(base, address + offset, value);
-            offset++;
-            length--;
+            while (length > 0) {
+                Memory.putByte(base, address + offset, value);
+                offset++;
+                length--;
+            }
+        } finally {
+            release();
         }
     }
 
@@ -269,16 +308,21 @@ public final class Slice
     }
 
     public void clear(int offset, int length) {
-        while (length >= SIZE_OF_LONG) {
-            unsafe.putLong(base, address + offset, 0);
-            offset += SIZE_OF_LONG;
-            length -= SIZE_OF_LONG;
-        }
+        acquire();
+        try {
+            while (length >= SIZE_OF_LONG) {
+                Memory.putLong(base, address + offset, 0);
+                offset += SIZE_OF_LONG;
+                length -= SIZE_OF_LONG;
+            }
 
-        while (length > 0) {
-            unsafe.putByte(base, address + offset, (byte) 0);
-            offset++;
-            length--;
+            while (length > 0) {
+                Memory.putByte(base, address + offset, (byte) 0);
+                offset++;
+                length--;
+            }
+        } finally {
+            release();
         }
     }
 
@@ -290,7 +334,12 @@ public final class Slice
      */
     public byte getByte(int index) {
         checkIndexLength(index, SIZE_OF_BYTE);
-        return unsafe.getByte(base, address + index);
+        acquire();
+        try {
+            return Memory.getByte(base, address + index);
+        } finally {
+            release();
+        }
     }
 
     /**
@@ -313,7 +362,12 @@ public final class Slice
      */
     public short getShort(int index) {
         checkIndexLength(index, SIZE_OF_SHORT);
-        return unsafe.getShort(base, address + index);
+        acquire();
+        try {
+            return Memory.getShort(base, address + index);
+        } finally {
+            release();
+        }
     }
 
     /**
@@ -325,7 +379,12 @@ public final class Slice
      */
     public int getInt(int index) {
         checkIndexLength(index, SIZE_OF_INT);
-        return unsafe.getInt(base, address + index);
+        acquire();
+        try {
+            return Memory.getInt(base, address + index);
+        } finally {
+            release();
+        }
     }
 
     /**
@@ -337,7 +396,12 @@ public final class Slice
      */
     public long getLong(int index) {
         checkIndexLength(index, SIZE_OF_LONG);
-        return unsafe.getLong(base, address + index);
+        acquire();
+        try {
+            return Memory.getLong(base, address + index);
+        } finally {
+            release();
+        }
     }
 
     /**
@@ -349,7 +413,12 @@ public final class Slice
      */
     public float getFloat(int index) {
         checkIndexLength(index, SIZE_OF_FLOAT);
-        return unsafe.getFloat(base, address + index);
+        acquire();
+        try {
+            return Memory.getFloat(base, address + index);
+        } finally {
+            release();
+        }
     }
 
     /**
@@ -361,7 +430,12 @@ public final class Slice
      */
     public double getDouble(int index) {
         checkIndexLength(index, SIZE_OF_DOUBLE);
-        return unsafe.getDouble(base, address + index);
+        acquire();
+        try {
+            return Memory.getDouble(base, address + index);
+        } finally {
+            release();
+        }
     }
 
     /**
@@ -420,7 +494,12 @@ public final class Slice
         checkIndexLength(index, length);
         checkPositionIndexes(destinationIndex, destinationIndex + length, destination.length);
 
-        copyMemory(base, address + index, destination, (long) ARRAY_BYTE_BASE_OFFSET + destinationIndex, length);
+        acquire();
+        try {
+            Memory.copyMemory(base, address + index, destination, (long) ARRAY_BYTE_BASE_OFFSET + destinationIndex, length);
+        } finally {
+            release();
+        }
     }
 
     /**
@@ -477,7 +556,12 @@ public final class Slice
      */
     public void setByte(int index, int value) {
         checkIndexLength(index, SIZE_OF_BYTE);
-        unsafe.putByte(base, address + index, (byte) (value & 0xFF));
+        acquire();
+        try {
+            Memory.putByte(base, address + index, (byte) (value & 0xFF));
+        } finally {
+            release();
+        }
     }
 
     /**
@@ -490,7 +574,12 @@ public final class Slice
      */
     public void setShort(int index, int value) {
         checkIndexLength(index, SIZE_OF_SHORT);
-        unsafe.putShort(base, address + index, (short) (value & 0xFFFF));
+        acquire();
+        try {
+            Memory.putShort(base, address + index, (short) (value & 0xFFFF));
+        } finally {
+            release();
+        }
     }
 
     /**
@@ -502,7 +591,12 @@ public final class Slice
      */
     public void setInt(int index, int value) {
         checkIndexLength(index, SIZE_OF_INT);
-        unsafe.putInt(base, address + index, value);
+        acquire();
+        try {
+            Memory.putInt(base, address + index, value);
+        } finally {
+            release();
+        }
     }
 
     /**
@@ -514,7 +608,12 @@ public final class Slice
      */
     public void setLong(int index, long value) {
         checkIndexLength(index, SIZE_OF_LONG);
-        unsafe.putLong(base, address + index, value);
+        acquire();
+        try {
+            Memory.putLong(base, address + index, value);
+        } finally {
+            release();
+        }
     }
 
     /**
@@ -526,7 +625,12 @@ public final class Slice
      */
     public void setFloat(int index, float value) {
         checkIndexLength(index, SIZE_OF_FLOAT);
-        unsafe.putFloat(base, address + index, value);
+        acquire();
+        try {
+            Memory.putFloat(base, address + index, value);
+        } finally {
+            release();
+        }
     }
 
     /**
@@ -538,7 +642,12 @@ public final class Slice
      */
     public void setDouble(int index, double value) {
         checkIndexLength(index, SIZE_OF_DOUBLE);
-        unsafe.putDouble(base, address + index, value);
+        acquire();
+        try {
+            Memory.putDouble(base, address + index, value);
+        } finally {
+            release();
+        }
     }
 
     /**
@@ -569,7 +678,17 @@ public final class Slice
         checkIndexLength(index, length);
         checkPositionIndexes(sourceIndex, sourceIndex + length, source.length());
 
-        copyMemory(source.base, source.address + sourceIndex, base, address + index, length);
+        acquire();
+        try {
+            source.acquire();
+            try {
+                Memory.copyMemory(source.base, source.address + sourceIndex, base, address + index, length);
+            } finally {
+                source.release();
+            }
+        } finally {
+            release();
+        }
     }
 
     /**
@@ -595,7 +714,12 @@ public final class Slice
      */
     public void setBytes(int index, byte[] source, int sourceIndex, int length) {
         checkPositionIndexes(sourceIndex, sourceIndex + length, source.length);
-        copyMemory(source, (long) ARRAY_BYTE_BASE_OFFSET + sourceIndex, base, address + index, length);
+        acquire();
+        try {
+            Memory.copyMemory(source, (long) ARRAY_BYTE_BASE_OFFSET + sourceIndex, base, address + index, length);
+        } finally {
+            release();
+        }
     }
 
     /**
@@ -616,7 +740,12 @@ public final class Slice
                 }
                 break;
             }
-            copyMemory(bytes, ARRAY_BYTE_BASE_OFFSET, base, address + index, bytesRead);
+            acquire();
+            try {
+                Memory.copyMemory(bytes, ARRAY_BYTE_BASE_OFFSET, base, address + index, bytesRead);
+            } finally {
+                release();
+            }
             remaining -= bytesRead;
             index += bytesRead;
         }
@@ -635,7 +764,7 @@ public final class Slice
         if (length == 0) {
             return Slices.EMPTY_SLICE;
         }
-        return new Slice(base, address + index, length, reference);
+        return new Slice(base, address + index, length, reference, guard);
     }
 
     /**
@@ -665,37 +794,44 @@ public final class Slice
         checkIndexLength(offset, length);
         that.checkIndexLength(otherOffset, otherLength);
 
-        int compareLength = Math.min(length, otherLength);
-        while (compareLength >= SIZE_OF_LONG) {
-            long thisLong = unsafe.getLong(base, address + offset);
-            thisLong = Long.reverseBytes(thisLong);
-            long thatLong = unsafe.getLong(that.base, that.address + otherOffset);
-            thatLong = Long.reverseBytes(thatLong);
+        final int index = mismatch(this, offset, that, otherOffset, Math.min(length, otherLength));
+        if (index < 0) {
+            return Integer.compare(length, otherLength);
+        }
 
-            int v = compareUnsignedLongs(thisLong, thatLong);
-            if (v != 0) {
-                return v;
-            }
+        return compareUnsignedBytes(getByte(offset + index), that.getByte(otherOffset + index));
+    }
 
-            offset += SIZE_OF_LONG;
-            otherOffset += SIZE_OF_LONG;
-            compareLength -= SIZE_OF_LONG;
-        }
+    /**
+     * Returns the index of the first byte that differs between this slice and the
+     * specified slice, the length of the shorter slice if one is a prefix of the
+     * other, or -1 if both have the same content.
+     */
+    public int mismatch(Slice that) {
+        return mismatch(0, size, that, 0, that.size);
+    }
 
-        while (compareLength > 0) {
-            byte thisByte = unsafe.getByte(base, address + offset);
-            byte thatByte = unsafe.getByte(that.base, that.address + otherOffset);
+    /**
+     * Returns the index, relative to the start of both portions, of the first byte
+     * that differs between a portion of this slice and a portion of the specified slice,
+     * the length of the shorter portion if one is a prefix of the other, or -1 if both
+     * portions have the same content.
+     */
+    @SuppressWarnings("ObjectEquality")
+    public int mismatch(int offset, int length, Slice that, int otherOffset, int otherLength) {
+        checkIndexLength(offset, length);
+        that.checkIndexLength(otherOffset, otherLength);
 
-            int v = compareUnsignedBytes(thisByte, thatByte);
-            if (v != 0) {
-                return v;
-            }
-            offset++;
-            otherOffset++;
-            compareLength--;
+        if ((this == that) && (offset == otherOffset)) {
+            return length == otherLength ? -1 : Math.min(length, otherLength);
         }
 
-        return Integer.compare(length, otherLength);
+        final int compareLength = Math.min(length, otherLength);
+        final int index = mismatch(this, offset, that, otherOffset, compareLength);
+        if (index < 0 && length != otherLength) {
+            return compareLength;
+        }
+        return index;
     }
 
     /**
@@ -716,31 +852,7 @@ public final class Slice
             return false;
         }
 
-        int offset = 0;
-        int length = size;
-        while (length >= SIZE_OF_LONG) {
-            long thisLong = unsafe.getLong(base, address + offset);
-            long thatLong = unsafe.getLong(that.base, that.address + offset);
-
-            if (thisLong != thatLong) {
-                return false;
-            }
-
-            offset += SIZE_OF_LONG;
-            length -= SIZE_OF_LONG;
-        }
-
-        while (length > 0) {
-            byte thisByte = unsafe.getByte(base, address + offset);
-            byte thatByte = unsafe.getByte(that.base, that.address + offset);
-            if (thisByte != thatByte) {
-                return false;
-            }
-            offset++;
-            length--;
-        }
-
-        return true;
+        return mismatch(this, 0, that, 0, size) < 0;
     }
 
     /**
@@ -782,31 +894,7 @@ public final class Slice
         checkIndexLength(offset, length);
         that.checkIndexLength(otherOffset, otherLength);
 
-        while (length >= SIZE_OF_LONG) {
-            long thisLong = unsafe.getLong(base, address + offset);
-            long thatLong = unsafe.getLong(that.base, that.address + otherOffset);
-
-            if (thisLong != thatLong) {
-                return false;
-            }
-
-            offset += SIZE_OF_LONG;
-            otherOffset += SIZE_OF_LONG;
-            length -= SIZE_OF_LONG;
-        }
-
-        while (length > 0) {
-            byte thisByte = unsafe.getByte(base, address + offset);
-            byte thatByte = unsafe.getByte(that.base, that.address + otherOffset);
-            if (thisByte != thatByte) {
-                return false;
-            }
-            offset++;
-            otherOffset++;
-            length--;
-        }
-
-        return true;
+        return mismatch(this, offset, that, otherOffset, length) < 0;
     }
 
     /**
@@ -837,35 +925,47 @@ public final class Slice
             return new String((byte[]) base, (int) ((address - ARRAY_BYTE_BASE_OFFSET) + index), length, charset);
         }
         // direct memory can only be converted to a string using a ByteBuffer
-        return decodeString(toByteBuffer(index, length), charset);
+        acquire();
+        try {
+            return decodeString(toByteBuffer(index, length), charset);
+        } finally {
+            release();
+        }
     }
 
     public ByteBuffer toByteBuffer() {
         return toByteBuffer(0, size);
     }
 
+    /**
+     * Returns a buffer over a portion of this slice.  Slices of byte arrays and
+     * of direct buffers share memory with the returned buffer, slices of other
+     * arrays are copied.
+     * <p/>
+     * For a guarded slice, such as one of a {@link MappedFile}, the returned buffer
+     * shares the memory but is not guarded: it must not be used after the memory
+     * is freed.
+     *
+     * @throws IllegalStateException if the memory of the slice has been freed
+     */
     public ByteBuffer toByteBuffer(int index, int length) {
         checkIndexLength(index, length);
+        checkOpen();
 
         if (base instanceof byte[]) {
             return ByteBuffer.wrap((byte[]) base, (int) ((address - ARRAY_BYTE_BASE_OFFSET) + index), length);
         }
 
-        try {
-            final Object[] args = {address + index, length, (Object) reference};
-            return (ByteBuffer) newByteBuffer.invokeExact(args);
-        } catch (Throwable throwable) {
-            if (throwable instanceof Error) {
-                throw (Error) throwable;
-            }
-            if (throwable instanceof RuntimeException) {
-                throw (RuntimeException) throwable;
-            }
-            if (throwable instanceof InterruptedException) {
-                Thread.currentThread().interrupt();
-            }
-            throw new RuntimeException(throwable);
+        if (reference instanceof ByteBuffer) {
+            final ByteBuffer buffer = ((ByteBuffer) reference).duplicate();
+            final int position = (int) (address - Memory.bufferAddress(buffer)) + index;
+            buffer.clear();
+            buffer.position(position);
+            buffer.limit(position + length);
+            return buffer.slice();
         }
+
+        return ByteBuffer.wrap(getBytes(index, length));
     }
 
     /**
@@ -891,12 +991,77 @@ public final class Slice
         return o.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(o));
     }
 
-    private static void copyMemory(Object src, long srcAddress, Object dest, long destAddress, int length) {
-        // The Unsafe Javadoc specifies that the transfer size is 8 iff length % 8 == 0
-        // so ensure that we copy big chunks whenever possible, even at the expense of two separate copy operations
-        int bytesToCopy = length - (length % 8);
-        unsafe.copyMemory(src, srcAddress, dest, destAddress, bytesToCopy);
-        unsafe.copyMemory(src, srcAddress + bytesToCopy, dest, destAddress + bytesToCopy, length - bytesToCopy);
+    /**
+     * Pins the memory of a guarded slice, such as one of a {@link MappedFile}, so
+     * it is not freed until {@link #release()} is called.  Does nothing for other
+     * slices.
+     *
+     * @throws IllegalStateException if the memory has been freed
+     */
+    void acquire() {
+        if (guard != null) {
+            guard.acquire();
+        }
+    }
+
+    void release() {
+        if (guard != null) {
+            guard.release();
+        }
+    }
+
+    private void checkOpen() {
+        if (guard != null) {
+            guard.checkOpen();
+        }
+    }
+
+    private static int mismatch(Slice slice, int offset, Slice that, int otherOffset, int length) {
+        slice.acquire();
+        try {
+            that.acquire();
+            try {
+                return mismatch(slice.base, slice.address + offset, that.base, that.address + otherOffset, length);
+            } finally {
+                that.release();
+            }
+        } finally {
+            slice.release();
+        }
+    }
+
+    /**
+     * Index of the first differing byte of two memory regions, or -1 if they are equal.
+     * Whole words are compared and the differing byte is located within the word from
+     * the trailing (little endian) or leading (big endian) zero bits of their xor.
+     */
+    private static int mismatch(Object base, long address, Object thatBase, long thatAddress, int length) {
+        int index = 0;
+        for (; index <= length - SIZE_OF_LONG; index += SIZE_OF_LONG) {
+            final long difference = Memory.getLong(base, address + index) ^ Memory.getLong(thatBase, thatAddress + index);
+            if (difference != 0) {
+                return index + (LITTLE_ENDIAN
+                        ? Long.numberOfTrailingZeros(difference)
+                        : Long.numberOfLeadingZeros(difference)) / Byte.SIZE;
+            }
+        }
+
+        if (index <= length - SIZE_OF_INT) {
+            final int difference = Memory.getInt(base, address + index) ^ Memory.getInt(thatBase, thatAddress + index);
+            if (difference != 0) {
+                return index + (LITTLE_ENDIAN
+                        ? Integer.numberOfTrailingZeros(difference)
+                        : Integer.numberOfLeadingZeros(difference)) / Byte.SIZE;
+            }
+            index += SIZE_OF_INT;
+        }
+
+        for (; index < length; index++) {
+            if (Memory.getByte(base, address + index) != Memory.getByte(thatBase, thatAddress + index)) {
+                return index;
+            }
+        }
+        return -1;
     }
 
     private void checkIndexLength(int index, int length) {
@@ -925,12 +1090,4 @@ public final class Slice
     private static int unsignedByteToInt(byte thisByte) {
         return thisByte & 0xFF;
     }
-
-    private static int compareUnsignedLongs(long thisLong, long thatLong) {
-        return Long.compare(flipUnsignedLong(thisLong), flipUnsignedLong(thatLong));
-    }
-
-    private static long flipUnsignedLong(long thisLong) {
-        return thisLong ^ Long.MIN_VALUE;
-    }
 }
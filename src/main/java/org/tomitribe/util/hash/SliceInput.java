@@ -0,0 +1,237 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import java.io.InputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.tomitribe.util.hash.Preconditions.checkNotNull;
+import static org.tomitribe.util.hash.Preconditions.checkPositionIndex;
+import static org.tomitribe.util.hash.Preconditions.checkPositionIndexes;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_BYTE;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_DOUBLE;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_FLOAT;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_INT;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_LONG;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_SHORT;
+
+/**
+ * Sequential reader over a {@link Slice}, the counterpart of {@link SliceOutput}.
+ * <p/>
+ * The typed reads throw {@link IndexOutOfBoundsException} when fewer bytes than
+ * needed remain and leave the position unchanged.  The {@link InputStream} methods
+ * follow the stream contract and return {@code -1} at the end of the slice.
+ * <p/>
+ * Reads never copy more than they return: {@link #readSlice(int)} shares memory
+ * with the underlying slice, which must not change while the input is in use.
+ * This class is not thread-safe.
+ */
+public final class SliceInput extends InputStream {
+    private final Slice slice;
+    private int position;
+
+    public SliceInput(Slice slice) {
+        this.slice = checkNotNull(slice, "slice is null");
+    }
+
+    /**
+     * Index of the next byte to read.
+     */
+    public int position() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        checkPositionIndex(position, slice.length());
+        this.position = position;
+    }
+
+    /**
+     * Number of bytes left to read.
+     */
+    public int remaining() {
+        return slice.length() - position;
+    }
+
+    public boolean isReadable() {
+        return position < slice.length();
+    }
+
+    @Override
+    public int available() {
+        return remaining();
+    }
+
+    @Override
+    public int read() {
+        if (position >= slice.length()) {
+            return -1;
+        }
+        return slice.getUnsignedByte(position++);
+    }
+
+    @Override
+    public int read(byte[] destination, int destinationIndex, int length) {
+        checkPositionIndexes(destinationIndex, destinationIndex + length, destination.length);
+        if (length == 0) {
+            return 0;
+        }
+        if (position >= slice.length()) {
+            return -1;
+        }
+
+        length = Math.min(length, remaining());
+        slice.getBytes(position, destination, destinationIndex, length);
+        position += length;
+        return length;
+    }
+
+    @Override
+    public long skip(long length) {
+        if (length <= 0) {
+            return 0;
+        }
+        final int skipped = (int) Math.min(length, remaining());
+        position += skipped;
+        return skipped;
+    }
+
+    public byte readByte() {
+        final byte value = slice.getByte(position);
+        position += SIZE_OF_BYTE;
+        return value;
+    }
+
+    public short readUnsignedByte() {
+        final short value = slice.getUnsignedByte(position);
+        position += SIZE_OF_BYTE;
+        return value;
+    }
+
+    public short readShort() {
+        final short value = slice.getShort(position);
+        position += SIZE_OF_SHORT;
+        return value;
+    }
+
+    public int readInt() {
+        final int value = slice.getInt(position);
+        position += SIZE_OF_INT;
+        return value;
+    }
+
+    public long readLong() {
+        final long value = slice.getLong(position);
+        position += SIZE_OF_LONG;
+        return value;
+    }
+
+    public float readFloat() {
+        final float value = slice.getFloat(position);
+        position += SIZE_OF_FLOAT;
+        return value;
+    }
+
+    public double readDouble() {
+        final double value = slice.getDouble(position);
+        position += SIZE_OF_DOUBLE;
+        return value;
+    }
+
+    /**
+     * Reads a value written by {@link SliceOutput#writeVarInt(int)}.
+     *
+     * @throws IllegalStateException if the encoding is longer than five bytes
+     */
+    public int readVarInt() {
+        int index = position;
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final byte b = slice.getByte(index++);
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                position = index;
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed var int at position " + position);
+    }
+
+    /**
+     * Reads a value written by {@link SliceOutput#writeVarLong(long)}.
+     *
+     * @throws IllegalStateException if the encoding is longer than ten bytes
+     */
+    public long readVarLong() {
+        int index = position;
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            final byte b = slice.getByte(index++);
+            value |= (b & 0x7FL) << shift;
+            if (b >= 0) {
+                position = index;
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed var long at position " + position);
+    }
+
+    public void readBytes(byte[] destination) {
+        readBytes(destination, 0, destination.length);
+    }
+
+    public void readBytes(byte[] destination, int destinationIndex, int length) {
+        slice.getBytes(position, destination, destinationIndex, length);
+        position += length;
+    }
+
+    /**
+     * Returns the next {@code length} bytes as a slice sharing memory with the
+     * underlying slice.
+     */
+    public Slice readSlice(int length) {
+        final Slice value = slice.slice(position, length);
+        position += length;
+        return value;
+    }
+
+    /**
+     * Decodes the next {@code length} bytes as UTF-8.
+     */
+    public String readUtf8(int length) {
+        checkPositionIndexes(position, position + length, slice.length());
+        final String value = slice.toString(position, length, UTF_8);
+        position += length;
+        return value;
+    }
+
+    /**
+     * Reads a string written by {@link SliceOutput#writeString(CharSequence)}.
+     */
+    public String readString() {
+        final int start = position;
+        final int length = readVarInt();
+        try {
+            return readUtf8(length);
+        } catch (IndexOutOfBoundsException e) {
+            position = start;
+            throw e;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SliceInput{position=" + position + ", length=" + slice.length() + '}';
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import java.util.Arrays;
+import java.util.function.ObjLongConsumer;
+
+import static org.tomitribe.util.hash.Preconditions.checkArgument;
+import static org.tomitribe.util.hash.Preconditions.checkNotNull;
+import static org.tomitribe.util.hash.Preconditions.checkPositionIndexes;
+import static org.tomitribe.util.hash.Preconditions.checkState;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_INT;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_LONG;
+
+/**
+ * Open-addressing hash map from {@link Slice} keys to {@code long} values.
+ * <p/>
+ * Keys are copied into slab pages together with their value, laid out as
+ * {@code [int key length][long value][key bytes]}.  The hash table itself is
+ * two primitive arrays holding the XxHash64 of every key and the slab position
+ * of its entry, so the map creates no objects per entry and lookups, updates
+ * and inserts of existing keys do not allocate.  Collisions are resolved by
+ * linear probing; the stored hash is compared before the key bytes.
+ * <p/>
+ * The slab pages are allocated on the heap or, for {@code direct} maps, off-heap.
+ * Entries cannot be removed individually, {@link #clear()} drops them all.
+ * This class is not thread-safe.
+ */
+public final class SliceLongMap {
+    static final int DEFAULT_PAGE_SIZE = 1 << 20;
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final int VALUE_OFFSET = SIZE_OF_INT;
+    private static final int KEY_OFFSET = SIZE_OF_INT + SIZE_OF_LONG;
+
+    private final int expectedSize;
+    private final boolean direct;
+    private final int pageSize;
+
+    /**
+     * Hash of the key in each slot, zero marks an empty slot
+     */
+    private long[] hashes;
+
+    /**
+     * Slab position of the entry in each slot, page index in the high 32 bits
+     */
+    private long[] entries;
+    private int mask;
+    private int maxFill;
+    private int size;
+
+    private Slice[] pages;
+    private int pageCount;
+    private int pagePosition;
+    private long slabBytes;
+
+    public SliceLongMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public SliceLongMap(int expectedSize) {
+        this(expectedSize, false);
+    }
+
+    /**
+     * @param direct store the keys in off-heap memory
+     */
+    public SliceLongMap(int expectedSize, boolean direct) {
+        this(expectedSize, direct, DEFAULT_PAGE_SIZE);
+    }
+
+    SliceLongMap(int expectedSize, boolean direct, int pageSize) {
+        checkArgument(expectedSize >= 0, "expectedSize is negative");
+        checkArgument(pageSize > KEY_OFFSET, "pageSize must be larger than %s", KEY_OFFSET);
+        this.expectedSize = expectedSize;
+        this.direct = direct;
+        this.pageSize = pageSize;
+        clear();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(Slice key) {
+        return containsKey(key, 0, key.length());
+    }
+
+    public boolean containsKey(Slice key, int offset, int length) {
+        checkKey(key, offset, length);
+        return find(key, offset, length, hash(key, offset, length)) >= 0;
+    }
+
+    /**
+     * Returns the value of the key, or {@code defaultValue} if the map does not contain it.
+     */
+    public long get(Slice key, long defaultValue) {
+        return get(key, 0, key.length(), defaultValue);
+    }
+
+    public long get(Slice key, int offset, int length, long defaultValue) {
+        checkKey(key, offset, length);
+        final int slot = find(key, offset, length, hash(key, offset, length));
+        if (slot < 0) {
+            return defaultValue;
+        }
+        return getValue(entries[slot]);
+    }
+
+    /**
+     * Associates the value with the key.  The key bytes are copied.
+     */
+    public void put(Slice key, long value) {
+        put(key, 0, key.length(), value);
+    }
+
+    public void put(Slice key, int offset, int length, long value) {
+        checkKey(key, offset, length);
+        final long hash = hash(key, offset, length);
+        final int slot = find(key, offset, length, hash);
+        if (slot >= 0) {
+            setValue(entries[slot], value);
+            return;
+        }
+        insert(-slot - 1, hash, key, offset, length, value);
+    }
+
+    /**
+     * Adds {@code delta} to the value of the key, treating a missing key as zero.
+     *
+     * @return the new value
+     */
+    public long addTo(Slice key, long delta) {
+        return addTo(key, 0, key.length(), delta);
+    }
+
+    public long addTo(Slice key, int offset, int length, long delta) {
+        checkKey(key, offset, length);
+        final long hash = hash(key, offset, length);
+        final int slot = find(key, offset, length, hash);
+        if (slot >= 0) {
+            final long value = getValue(entries[slot]) + delta;
+            setValue(entries[slot], value);
+            return value;
+        }
+        insert(-slot - 1, hash, key, offset, length, delta);
+        return delta;
+    }
+
+    /**
+     * Passes every entry to the consumer, in no particular order.  The key slices
+     * share memory with the map and must not be modified.
+     */
+    public void forEach(ObjLongConsumer<Slice> consumer) {
+        checkNotNull(consumer, "consumer is null");
+        for (int slot = 0; slot < hashes.length; slot++) {
+            if (hashes[slot] == 0) {
+                continue;
+            }
+            final long entry = entries[slot];
+            final Slice page = page(entry);
+            final int position = (int) entry;
+            consumer.accept(page.slice(position + KEY_OFFSET, page.getInt(position)), page.getLong(position + VALUE_OFFSET));
+        }
+    }
+
+    /**
+     * Removes all entries and releases the slab pages.
+     */
+    public void clear() {
+        final int capacity = capacity(expectedSize);
+        hashes = new long[capacity];
+        entries = new long[capacity];
+        mask = capacity - 1;
+        maxFill = maxFill(capacity);
+        size = 0;
+
+        pages = new Slice[4];
+        pageCount = 0;
+        pagePosition = 0;
+        slabBytes = 0;
+    }
+
+    /**
+     * Approximate memory used by the map: the hash table plus the slab pages.
+     */
+    public long getSizeInBytes() {
+        return SizeOf.sizeOf(hashes) + SizeOf.sizeOf(entries) + slabBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "SliceLongMap{size=" + size + ", capacity=" + hashes.length + ", pages=" + pageCount + ", direct=" + direct + '}';
+    }
+
+    /**
+     * Returns the slot holding the key, or {@code -(slot + 1)} of the empty slot
+     * where it would be inserted.
+     */
+    private int find(Slice key, int offset, int length, long hash) {
+        int slot = (int) hash & mask;
+        while (true) {
+            final long current = hashes[slot];
+            if (current == 0) {
+                return -slot - 1;
+            }
+            if (current == hash) {
+                final long entry = entries[slot];
+                final Slice page = page(entry);
+                final int position = (int) entry;
+                if (page.getInt(position) == length && page.equals(position + KEY_OFFSET, length, key, offset, length)) {
+                    return slot;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void insert(int slot, long hash, Slice key, int offset, int length, long value) {
+        hashes[slot] = hash;
+        entries[slot] = append(key, offset, length, value);
+        if (++size > maxFill) {
+            rehash();
+        }
+    }
+
+    private long append(Slice key, int offset, int length, long value) {
+        checkArgument(length <= Integer.MAX_VALUE - KEY_OFFSET, "key is too large");
+        final int entrySize = KEY_OFFSET + length;
+        if (pageCount == 0 || pagePosition + entrySize > pages[pageCount - 1].length()) {
+            // keys larger than a page get a page of their own
+            addPage(Math.max(pageSize, entrySize));
+        }
+
+        final Slice page = pages[pageCount - 1];
+        final int position = pagePosition;
+        page.setInt(position, length);
+        page.setLong(position + VALUE_OFFSET, value);
+        page.setBytes(position + KEY_OFFSET, key, offset, length);
+        pagePosition += entrySize;
+
+        return ((long) (pageCount - 1) << 32) | position;
+    }
+
+    private void addPage(int size) {
+        if (pageCount == pages.length) {
+            pages = Arrays.copyOf(pages, pages.length * 2);
+        }
+        pages[pageCount++] = direct ? Slices.allocateDirect(size) : Slices.allocate(size);
+        pagePosition = 0;
+        slabBytes += size;
+    }
+
+    private void rehash() {
+        checkState(hashes.length < MAX_CAPACITY, "SliceLongMap cannot hold more than %s entries", maxFill);
+
+        final long[] oldHashes = hashes;
+        final long[] oldEntries = entries;
+
+        final int capacity = oldHashes.length * 2;
+        hashes = new long[capacity];
+        entries = new long[capacity];
+        mask = capacity - 1;
+        maxFill = maxFill(capacity);
+
+        for (int i = 0; i < oldHashes.length; i++) {
+            final long hash = oldHashes[i];
+            if (hash == 0) {
+                continue;
+            }
+            int slot = (int) hash & mask;
+            while (hashes[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            hashes[slot] = hash;
+            entries[slot] = oldEntries[i];
+        }
+    }
+
+    private long getValue(long entry) {
+        return page(entry).getLong((int) entry + VALUE_OFFSET);
+    }
+
+    private void setValue(long entry, long value) {
+        page(entry).setLong((int) entry + VALUE_OFFSET, value);
+    }
+
+    private Slice page(long entry) {
+        return pages[(int) (entry >>> 32)];
+    }
+
+    private static long hash(Slice key, int offset, int length) {
+        final long hash = XxHash64.hash(key, offset, length);
+        // zero marks empty slots
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static void checkKey(Slice key, int offset, int length) {
+        checkNotNull(key, "key is null");
+        checkPositionIndexes(offset, offset + length, key.length());
+    }
+
+    private static int capacity(int expectedSize) {
+        final long needed = Math.max(MIN_CAPACITY, (long) Math.ceil(expectedSize / 0.75));
+        checkArgument(needed <= MAX_CAPACITY, "expectedSize %s is too large", expectedSize);
+        return (int) Long.highestOneBit(needed - 1) << 1;
+    }
+
+    private static int maxFill(int capacity) {
+        return capacity / 4 * 3;
+    }
+}
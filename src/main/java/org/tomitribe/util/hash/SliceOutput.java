@@ -0,0 +1,293 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import java.io.OutputStream;
+
+import static org.tomitribe.util.hash.Preconditions.checkArgument;
+import static org.tomitribe.util.hash.Preconditions.checkNotNull;
+import static org.tomitribe.util.hash.Preconditions.checkPositionIndexes;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_BYTE;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_DOUBLE;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_FLOAT;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_INT;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_LONG;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_SHORT;
+
+/**
+ * Sequential writer over a heap {@link Slice} that grows as needed.
+ * <p/>
+ * Values are written in the byte order of the {@link Slice} setters and can be
+ * read back with {@link SliceInput}.  {@link #slice()} returns the written bytes
+ * without copying them; the output can be {@link #reset()} and reused.
+ * <p/>
+ * When a write does not fit, the bytes are copied into a new slice 1.5 times
+ * the size of the old one (at least 16 bytes, and at least what the write
+ * needs), so a sequence of writes costs amortized constant time per byte.
+ * Capacity is never released.  An output cannot grow beyond
+ * {@code Integer.MAX_VALUE - 8} bytes; writes beyond that throw
+ * {@link IllegalArgumentException}.  This class is not thread-safe.
+ */
+public final class SliceOutput extends OutputStream {
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private Slice slice;
+    private int size;
+
+    public SliceOutput(int estimatedSize) {
+        checkArgument(estimatedSize >= 0, "estimatedSize is negative");
+        this.slice = Slices.allocate(estimatedSize);
+    }
+
+    /**
+     * Number of bytes written so far.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Discards the written bytes, keeping the allocated capacity.
+     */
+    public void reset() {
+        size = 0;
+    }
+
+    /**
+     * The bytes written so far.  The returned slice shares memory with this
+     * output and is only valid until the next write or {@link #reset()}.
+     */
+    public Slice slice() {
+        return slice.slice(0, size);
+    }
+
+    @Override
+    public void write(int value) {
+        writeByte(value);
+    }
+
+    @Override
+    public void write(byte[] source, int sourceIndex, int length) {
+        writeBytes(source, sourceIndex, length);
+    }
+
+    /**
+     * Writes a byte.  The 24 high-order bits of the value are ignored.
+     */
+    public void writeByte(int value) {
+        ensureCapacity(SIZE_OF_BYTE);
+        slice.setByte(size, value);
+        size += SIZE_OF_BYTE;
+    }
+
+    /**
+     * Writes a 16-bit short integer.  The 16 high-order bits of the value are ignored.
+     */
+    public void writeShort(int value) {
+        ensureCapacity(SIZE_OF_SHORT);
+        slice.setShort(size, value);
+        size += SIZE_OF_SHORT;
+    }
+
+    public void writeInt(int value) {
+        ensureCapacity(SIZE_OF_INT);
+        slice.setInt(size, value);
+        size += SIZE_OF_INT;
+    }
+
+    public void writeLong(long value) {
+        ensureCapacity(SIZE_OF_LONG);
+        slice.setLong(size, value);
+        size += SIZE_OF_LONG;
+    }
+
+    public void writeFloat(float value) {
+        ensureCapacity(SIZE_OF_FLOAT);
+        slice.setFloat(size, value);
+        size += SIZE_OF_FLOAT;
+    }
+
+    public void writeDouble(double value) {
+        ensureCapacity(SIZE_OF_DOUBLE);
+        slice.setDouble(size, value);
+        size += SIZE_OF_DOUBLE;
+    }
+
+    /**
+     * Writes an unsigned variable length integer, seven bits per byte with the high
+     * bit set on all but the last byte.  Values below 128 take one byte, negative
+     * values take five.
+     */
+    public void writeVarInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            slice.setByte(size++, (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        slice.setByte(size++, value);
+    }
+
+    /**
+     * Writes an unsigned variable length long, see {@link #writeVarInt(int)}.
+     * Negative values take ten bytes.
+     */
+    public void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            slice.setByte(size++, (int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        slice.setByte(size++, (int) value);
+    }
+
+    public void writeBytes(byte[] source) {
+        writeBytes(source, 0, source.length);
+    }
+
+    public void writeBytes(byte[] source, int sourceIndex, int length) {
+        checkPositionIndexes(sourceIndex, sourceIndex + length, source.length);
+        ensureCapacity(length);
+        slice.setBytes(size, source, sourceIndex, length);
+        size += length;
+    }
+
+    public void writeBytes(Slice source) {
+        writeBytes(source, 0, source.length());
+    }
+
+    public void writeBytes(Slice source, int sourceIndex, int length) {
+        checkPositionIndexes(sourceIndex, sourceIndex + length, source.length());
+        ensureCapacity(length);
+        slice.setBytes(size, source, sourceIndex, length);
+        size += length;
+    }
+
+    /**
+     * Writes the UTF-8 encoding of the characters, without a length.  Unpaired
+     * surrogates are written as {@code '?'}, as {@link String#getBytes} does.
+     *
+     * @return the number of bytes written
+     */
+    public int writeUtf8(CharSequence value) {
+        checkNotNull(value, "value is null");
+        final int start = size;
+        final int length = value.length();
+        ensureCapacity(length);
+
+        int i = 0;
+
+        // ASCII fast path, capacity was ensured above
+        while (i < length) {
+            final char c = value.charAt(i);
+            if (c >= 0x80) {
+                break;
+            }
+            slice.setByte(size++, c);
+            i++;
+        }
+
+        for (; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                ensureCapacity(1);
+                slice.setByte(size++, c);
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                slice.setByte(size++, 0xC0 | (c >> 6));
+                slice.setByte(size++, 0x80 | (c & 0x3F));
+            } else if (!Character.isSurrogate(c)) {
+                writeUtf8(c);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                ensureCapacity(4);
+                slice.setByte(size++, 0xF0 | (codePoint >> 18));
+                slice.setByte(size++, 0x80 | ((codePoint >> 12) & 0x3F));
+                slice.setByte(size++, 0x80 | ((codePoint >> 6) & 0x3F));
+                slice.setByte(size++, 0x80 | (codePoint & 0x3F));
+            } else {
+                ensureCapacity(1);
+                slice.setByte(size++, '?');
+            }
+        }
+
+        return size - start;
+    }
+
+    /**
+     * Writes the UTF-8 length of the string as a {@link #writeVarInt(int) var int}
+     * followed by its UTF-8 encoding.
+     *
+     * @see SliceInput#readString()
+     */
+    public void writeString(CharSequence value) {
+        writeVarInt(utf8Length(value));
+        writeUtf8(value);
+    }
+
+    /**
+     * Number of bytes {@link #writeUtf8(CharSequence)} writes for the characters.
+     */
+    public static int utf8Length(CharSequence value) {
+        checkNotNull(value, "value is null");
+        final int length = value.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                bytes += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                bytes += 2;
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                bytes += 2;
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "SliceOutput{size=" + size + ", capacity=" + slice.length() + '}';
+    }
+
+    private void writeUtf8(char c) {
+        ensureCapacity(3);
+        slice.setByte(size++, 0xE0 | (c >> 12));
+        slice.setByte(size++, 0x80 | ((c >> 6) & 0x3F));
+        slice.setByte(size++, 0x80 | (c & 0x3F));
+    }
+
+    /**
+     * Grows the slice by half until {@code length} more bytes fit.
+     */
+    private void ensureCapacity(int length) {
+        final long minCapacity = (long) size + length;
+        if (minCapacity <= slice.length()) {
+            return;
+        }
+        checkArgument(minCapacity <= MAX_CAPACITY, "SliceOutput cannot grow beyond %s bytes", MAX_CAPACITY);
+
+        long capacity = Math.max(slice.length(), 16);
+        while (capacity < minCapacity) {
+            capacity += capacity >> 1;
+        }
+
+        final Slice grown = Slices.allocate((int) Math.min(capacity, MAX_CAPACITY));
+        grown.setBytes(0, slice, 0, size);
+        slice = grown;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static org.tomitribe.util.hash.Preconditions.checkArgument;
+import static org.tomitribe.util.hash.Preconditions.checkNotNull;
+
+/**
+ * Pool of off-heap slices, a recycling alternative to {@link Slices#allocateDirect(int)}.
+ * <p/>
+ * Requests are rounded up to a power of two size class, at least
+ * {@value #MIN_SIZE_CLASS} bytes.  {@link #release(Slice)} returns the memory to
+ * the pool of its size class instead of leaving it to the garbage collector.  The
+ * bytes held by the pool, in use or pooled, never exceed the limit given at
+ * construction; pooled memory of other size classes is freed first when a new
+ * allocation would pass it.
+ * <p/>
+ * Slices handed out again are not cleared and contain whatever was last written
+ * to them.  Once released, a slice and the slices taken from it throw
+ * {@link IllegalStateException} on access; like the slices of a {@link MappedFile},
+ * each access pins the memory with an atomic increment and decrement, and
+ * {@link #release(Slice)} waits for accesses in progress on other threads.  Raw
+ * access through {@link Slice#getAddress()} and buffers returned by
+ * {@link Slice#toByteBuffer()} are not guarded and must not outlive the release.
+ */
+public final class SlicePool {
+    public static final int MIN_SIZE_CLASS = 64;
+    public static final int MAX_SIZE_CLASS = 1 << 30;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_SIZE_CLASS);
+    private static final int MAX_SHIFT = Integer.numberOfTrailingZeros(MAX_SIZE_CLASS);
+
+    private final long maxBytes;
+
+    /**
+     * Free buffers, indexed by size class shift.  Guarded by this.
+     */
+    private final ArrayDeque<ByteBuffer>[] pooled;
+
+    /**
+     * Buffers currently handed out, keyed by the slice handed out.  Guarded by this.
+     */
+    private final Map<Slice, Allocation> inUse = new IdentityHashMap<>();
+
+    private volatile long allocatedBytes;
+    private volatile long pooledBytes;
+
+    @SuppressWarnings("unchecked")
+    public SlicePool(long maxBytes) {
+        checkArgument(maxBytes > 0, "maxBytes must be positive");
+        this.maxBytes = maxBytes;
+        this.pooled = new ArrayDeque[MAX_SHIFT + 1];
+        for (int i = MIN_SHIFT; i <= MAX_SHIFT; i++) {
+            pooled[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Returns a direct slice of exactly {@code capacity} bytes.
+     *
+     * @throws IllegalStateException if the memory limit of the pool would be exceeded
+     */
+    public Slice allocate(int capacity) {
+        checkArgument(capacity >= 0 && capacity <= MAX_SIZE_CLASS, "capacity must be between 0 and %s", MAX_SIZE_CLASS);
+        if (capacity == 0) {
+            return Slices.EMPTY_SLICE;
+        }
+
+        final int shift = shift(capacity);
+        final int size = 1 << shift;
+
+        ByteBuffer buffer;
+        synchronized (this) {
+            buffer = pooled[shift].pollFirst();
+            if (buffer != null) {
+                pooledBytes -= size;
+            } else {
+                if (allocatedBytes + size > maxBytes) {
+                    free(allocatedBytes + size - maxBytes);
+                }
+                if (allocatedBytes + size > maxBytes) {
+                    throw new IllegalStateException(String.format("Cannot allocate %s bytes, %s of the %s bytes limit are in use",
+                            size, allocatedBytes - pooledBytes, maxBytes));
+                }
+                allocatedBytes += size;
+            }
+        }
+
+        if (buffer == null) {
+            try {
+                buffer = ByteBuffer.allocateDirect(size);
+            } catch (OutOfMemoryError e) {
+                synchronized (this) {
+                    allocatedBytes -= size;
+                }
+                throw e;
+            }
+        }
+
+        final Allocation allocation = new Allocation(buffer);
+        final Slice slice = Slices.wrappedBuffer(buffer, allocation.guard).slice(0, capacity);
+        synchronized (this) {
+            inUse.put(slice, allocation);
+        }
+        return slice;
+    }
+
+    /**
+     * Returns a slice obtained from {@link #allocate(int)} to the pool.
+     *
+     * @throws IllegalArgumentException if the slice was not allocated by this pool
+     * or has already been released
+     */
+    public void release(Slice slice) {
+        checkNotNull(slice, "slice is null");
+        if (slice.length() == 0) {
+            return;
+        }
+
+        final Allocation allocation;
+        synchronized (this) {
+            allocation = inUse.remove(slice);
+        }
+        checkArgument(allocation != null, "slice was not allocated by this pool or was already released");
+
+        // the memory is only reused, or freed by trim, once no access is left
+        allocation.guard.close();
+
+        final ByteBuffer buffer = allocation.buffer;
+        synchronized (this) {
+            pooled[shift(buffer.capacity())].addFirst(buffer);
+            pooledBytes += buffer.capacity();
+        }
+    }
+
+    /**
+     * Frees all pooled memory.  Slices in use are not affected.
+     */
+    public synchronized void trim() {
+        free(Long.MAX_VALUE);
+    }
+
+    /**
+     * Limit on the bytes held by this pool.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Off-heap bytes currently held by this pool, the sum of in use and pooled bytes.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Bytes of released slices waiting to be handed out again.
+     */
+    public long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    /**
+     * Bytes of slices handed out and not yet released, rounded up to their size class.
+     */
+    public synchronized long getInUseBytes() {
+        return allocatedBytes - pooledBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "SlicePool{maxBytes=" + maxBytes + ", allocatedBytes=" + allocatedBytes + ", pooledBytes=" + pooledBytes + '}';
+    }
+
+    /**
+     * Frees pooled buffers, largest first, until at least {@code bytes} have been freed.
+     */
+    private void free(long bytes) {
+        long freed = 0;
+        for (int shift = MAX_SHIFT; shift >= MIN_SHIFT && freed < bytes; shift--) {
+            ByteBuffer buffer;
+            while (freed < bytes && (buffer = pooled[shift].pollFirst()) != null) {
+                JvmUtils.unmap(buffer);
+                freed += buffer.capacity();
+            }
+        }
+        pooledBytes -= freed;
+        allocatedBytes -= freed;
+    }
+
+    /**
+     * A buffer handed out, with the guard of the slices over it.
+     */
+    private static final class Allocation {
+        private final ByteBuffer buffer;
+        private final Guard guard = new Guard("Slice was released to its SlicePool");
+
+        Allocation(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    private static int shift(int capacity) {
+        if (capacity <= MIN_SIZE_CLASS) {
+            return MIN_SHIFT;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1);
+    }
+}
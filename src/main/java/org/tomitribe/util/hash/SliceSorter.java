@@ -0,0 +1,210 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import static org.tomitribe.util.hash.Preconditions.checkArgument;
+import static org.tomitribe.util.hash.Preconditions.checkNotNull;
+import static org.tomitribe.util.hash.Preconditions.checkPositionIndexes;
+
+/**
+ * Sorts and searches records stored back to back in one {@link Slice} without
+ * creating a {@code Slice} per record.  A record is its offset and length packed
+ * in a long by {@link #record(int, int)}; records are ordered as
+ * {@link Slice#compareTo(int, int, Slice, int, int)} orders them.
+ * <pre>
+ * long[] records = new long[count];
+ * for (int i = 0; i < count; i++) {
+ *     records[i] = SliceSorter.record(offsets[i], lengths[i]);
+ * }
+ * SliceSorter.sort(data, records);
+ * int index = SliceSorter.binarySearch(data, records, key);
+ * </pre>
+ * The sort is an introsort: quicksort with a median of three pivot, insertion
+ * sort for short ranges and heapsort once the recursion gets too deep.  It is
+ * not stable.
+ */
+public final class SliceSorter {
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private SliceSorter() {
+    }
+
+    public static long record(int offset, int length) {
+        checkArgument(offset >= 0, "offset is negative");
+        checkArgument(length >= 0, "length is negative");
+        return ((long) offset << 32) | length;
+    }
+
+    public static int offset(long record) {
+        return (int) (record >>> 32);
+    }
+
+    public static int length(long record) {
+        return (int) record;
+    }
+
+    public static void sort(Slice slice, long[] records) {
+        sort(slice, records, 0, records.length);
+    }
+
+    /**
+     * Sorts {@code records[fromIndex, toIndex)} by the content of the slice they point to.
+     */
+    public static void sort(Slice slice, long[] records, int fromIndex, int toIndex) {
+        checkNotNull(slice, "slice is null");
+        checkPositionIndexes(fromIndex, toIndex, records.length);
+
+        int depthLimit = 2 * (32 - Integer.numberOfLeadingZeros(toIndex - fromIndex));
+        introSort(slice, records, fromIndex, toIndex - 1, depthLimit);
+    }
+
+    /**
+     * Searches sorted records for the content of {@code key}.
+     *
+     * @return the index of a matching record, or {@code -(insertion point) - 1}
+     */
+    public static int binarySearch(Slice slice, long[] records, Slice key) {
+        return binarySearch(slice, records, 0, records.length, key);
+    }
+
+    public static int binarySearch(Slice slice, long[] records, int fromIndex, int toIndex, Slice key) {
+        checkNotNull(slice, "slice is null");
+        checkNotNull(key, "key is null");
+        checkPositionIndexes(fromIndex, toIndex, records.length);
+
+        int low = fromIndex;
+        int high = toIndex - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final long record = records[middle];
+            final int compare = slice.compareTo(offset(record), length(record), key, 0, key.length());
+            if (compare < 0) {
+                low = middle + 1;
+            } else if (compare > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static void introSort(Slice slice, long[] records, int low, int high, int depthLimit) {
+        while (high - low >= INSERTION_SORT_THRESHOLD) {
+            if (depthLimit-- == 0) {
+                heapSort(slice, records, low, high);
+                return;
+            }
+
+            final int pivot = partition(slice, records, low, high);
+
+            // recurse into the smaller side so the stack stays logarithmic
+            if (pivot - low < high - pivot) {
+                introSort(slice, records, low, pivot - 1, depthLimit);
+                low = pivot + 1;
+            } else {
+                introSort(slice, records, pivot + 1, high, depthLimit);
+                high = pivot - 1;
+            }
+        }
+        insertionSort(slice, records, low, high);
+    }
+
+    /**
+     * Partitions around the median of the first, middle and last record and
+     * returns the final index of the pivot.
+     */
+    private static int partition(Slice slice, long[] records, int low, int high) {
+        final int middle = (low + high) >>> 1;
+        if (compare(slice, records[middle], records[low]) < 0) {
+            swap(records, middle, low);
+        }
+        if (compare(slice, records[high], records[low]) < 0) {
+            swap(records, high, low);
+        }
+        if (compare(slice, records[high], records[middle]) < 0) {
+            swap(records, high, middle);
+        }
+
+        // records[low] <= pivot <= records[high], park the pivot next to the end
+        swap(records, middle, high - 1);
+        final long pivot = records[high - 1];
+
+        int i = low + 1;
+        int j = high - 2;
+        while (true) {
+            while (compare(slice, records[i], pivot) < 0) {
+                i++;
+            }
+            while (compare(slice, pivot, records[j]) < 0) {
+                j--;
+            }
+            if (i >= j) {
+                break;
+            }
+            swap(records, i++, j--);
+        }
+        swap(records, i, high - 1);
+        return i;
+    }
+
+    private static void insertionSort(Slice slice, long[] records, int low, int high) {
+        for (int i = low + 1; i <= high; i++) {
+            final long record = records[i];
+            int j = i - 1;
+            while (j >= low && compare(slice, records[j], record) > 0) {
+                records[j + 1] = records[j];
+                j--;
+            }
+            records[j + 1] = record;
+        }
+    }
+
+    private static void heapSort(Slice slice, long[] records, int low, int high) {
+        final int count = high - low + 1;
+        for (int i = count / 2 - 1; i >= 0; i--) {
+            siftDown(slice, records, low, i, count);
+        }
+        for (int end = count - 1; end > 0; end--) {
+            swap(records, low, low + end);
+            siftDown(slice, records, low, 0, end);
+        }
+    }
+
+    private static void siftDown(Slice slice, long[] records, int low, int node, int count) {
+        final long record = records[low + node];
+        int child;
+        while ((child = 2 * node + 1) < count) {
+            if (child + 1 < count && compare(slice, records[low + child], records[low + child + 1]) < 0) {
+                child++;
+            }
+            if (compare(slice, record, records[low + child]) >= 0) {
+                break;
+            }
+            records[low + node] = records[low + child];
+            node = child;
+        }
+        records[low + node] = record;
+    }
+
+    private static int compare(Slice slice, long left, long right) {
+        return slice.compareTo(offset(left), length(left), slice, offset(right), length(right));
+    }
+
+    private static void swap(long[] records, int i, int j) {
+        final long record = records[i];
+        records[i] = records[j];
+        records[j] = record;
+    }
+}
@@ -14,7 +14,6 @@
 package org.tomitribe.util.hash;
 
 import org.tomitribe.util.IO;
-import sun.nio.ch.DirectBuffer;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -27,9 +26,14 @@ import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.tomitribe.util.hash.Preconditions.checkArgument;
 import static org.tomitribe.util.hash.Preconditions.checkNotNull;
 import static org.tomitribe.util.hash.Preconditions.checkPositionIndexes;
-import static sun.misc.Unsafe.ARRAY_BYTE_BASE_OFFSET;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_DOUBLE;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_FLOAT;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_INT;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_LONG;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_SHORT;
 
 @SuppressWarnings("PMD.IllegalImport")
 public final class Slices {
@@ -40,6 +44,7 @@ public final class Slices {
 
     private static final int SLICE_ALLOC_THRESHOLD = 524288; // 2^19
     private static final double SLICE_ALLOW_SKEW = 1.25; // must be > 1!
+    private static final int LARGE_SLICE_SEGMENT_SHIFT = 30; // 1 GB
 
     private Slices() {
     }
@@ -104,19 +109,96 @@ public final class Slices {
      * Wrap the entire capacity of a {@link java.nio.ByteBuffer}.
      */
     public static Slice wrappedBuffer(ByteBuffer buffer) {
-        if (buffer instanceof DirectBuffer) {
-            DirectBuffer direct = (DirectBuffer) buffer;
-            return new Slice(null, direct.address(), buffer.capacity(), direct);
+        if (buffer.isDirect()) {
+            return new Slice(Memory.bufferBase(buffer), Memory.bufferAddress(buffer), buffer.capacity(), buffer);
         }
 
         if (buffer.hasArray()) {
-            int address = ARRAY_BYTE_BASE_OFFSET + buffer.arrayOffset();
+            int address = Memory.ARRAY_BYTE_BASE_OFFSET + buffer.arrayOffset();
             return new Slice(buffer.array(), address, buffer.capacity(), null);
         }
 
         throw new IllegalArgumentException("cannot wrap " + buffer.getClass().getName());
     }
 
+    /**
+     * Wraps a direct buffer, such as one of a {@link MappedFile}; the slice is
+     * pinned by the guard on every access.
+     */
+    static Slice wrappedBuffer(ByteBuffer buffer, Guard guard) {
+        return new Slice(Memory.bufferBase(buffer), Memory.bufferAddress(buffer), buffer.capacity(), buffer, guard);
+    }
+
+    /**
+     * Wraps a {@code java.lang.foreign.MemorySegment} of up to 2 GB, native or on
+     * the heap.  The parameter is typed {@code Object} as this library is compiled
+     * for Java 8; the foreign memory API needs Java 22, or 21 with preview features.
+     * <p/>
+     * Accesses through the slice throw {@link IllegalStateException} once the
+     * segment's arena is closed.  Closing a shared arena while another thread
+     * accesses the slice, and writing through a slice of a read-only native
+     * segment, are not checked with the {@code sun.misc.Unsafe} memory backend
+     * and may crash the JVM.
+     * <p/>
+     * With the {@code sun.misc.Unsafe} memory backend, the default up to Java 23,
+     * read-only heap segments do not expose their array and are copied, so writes
+     * to such a slice do not reach the segment.  With the VarHandle backend, the
+     * default from Java 24 on, every slice is a view of the segment.
+     *
+     * @throws IllegalArgumentException if the object is not a memory segment or is larger than 2 GB
+     * @see #wrappedLargeSegment(Object)
+     */
+    public static Slice wrappedSegment(Object segment) {
+        checkNotNull(segment, "segment is null");
+        checkArgument(MemorySegments.isSegment(segment), "not a MemorySegment: %s", segment.getClass().getName());
+
+        final long size = MemorySegments.byteSize(segment);
+        checkArgument(size <= Integer.MAX_VALUE, "segment is larger than 2 GB, use wrappedLargeSegment: %s bytes", size);
+        if (size == 0) {
+            return EMPTY_SLICE;
+        }
+
+        final ByteBuffer buffer = MemorySegments.asByteBuffer(segment);
+        if (buffer != null && buffer.isDirect() && !Memory.VAR_HANDLES) {
+            // Unsafe reads the native memory directly, the guard checks the arena
+            return wrappedBuffer(buffer, MemorySegments.guard(segment));
+        }
+        if (buffer != null && (buffer.isDirect() || buffer.hasArray())) {
+            return wrappedBuffer(buffer);
+        }
+
+        // heap segments over arrays other than byte[] have no buffer view, and
+        // read-only heap segments hide their array
+        if (Memory.VAR_HANDLES) {
+            return new Slice(segment, 0, (int) size, segment);
+        }
+        final Object base = MemorySegments.heapBase(segment);
+        if (base == null) {
+            return new Slice(MemorySegments.toByteArray(segment));
+        }
+        final long address = JvmUtils.unsafe.arrayBaseOffset(base.getClass()) + MemorySegments.address(segment);
+        return new Slice(base, address, (int) size, null);
+    }
+
+    /**
+     * Wraps a {@code java.lang.foreign.MemorySegment} of any size, such as a file
+     * mapped with {@code FileChannel.map(MapMode, long, long, Arena)}.  The same
+     * restrictions as for {@link #wrappedSegment(Object)} apply.
+     */
+    public static LargeSlice wrappedLargeSegment(Object segment) {
+        checkNotNull(segment, "segment is null");
+        checkArgument(MemorySegments.isSegment(segment), "not a MemorySegment: %s", segment.getClass().getName());
+
+        final long size = MemorySegments.byteSize(segment);
+        final long segmentSize = 1L << LARGE_SLICE_SEGMENT_SHIFT;
+        final Slice[] segments = new Slice[(int) ((size + segmentSize - 1) >>> LARGE_SLICE_SEGMENT_SHIFT)];
+        for (int i = 0; i < segments.length; i++) {
+            final long offset = i * segmentSize;
+            segments[i] = wrappedSegment(MemorySegments.asSlice(segment, offset, Math.min(segmentSize, size - offset)));
+        }
+        return new LargeSlice(segments, LARGE_SLICE_SEGMENT_SHIFT);
+    }
+
     public static Slice wrappedBuffer(byte[] array) {
         if (array.length == 0) {
             return EMPTY_SLICE;
@@ -135,10 +217,26 @@ public final class Slices {
         return wrappedBooleanArray(array, 0, array.length);
     }
 
+    /**
+     * Wraps a range of the array without copying it, one byte per element.
+     * <p/>
+     * Slices share memory with arrays other than {@code byte[]} through the
+     * memory backend, which is {@code sun.misc.Unsafe} by default up to Java 23
+     * and VarHandles from Java 24 on (see the {@code org.tomitribe.util.hash.memory}
+     * system property).  VarHandles reach such arrays through
+     * {@code java.lang.foreign.MemorySegment}, which has no view of
+     * {@code boolean[]}.
+     *
+     * @throws UnsupportedOperationException with the VarHandle backend
+     */
     public static Slice wrappedBooleanArray(boolean[] array, int offset, int length) {
         if (length == 0) {
             return EMPTY_SLICE;
         }
+        if (Memory.VAR_HANDLES) {
+            throw new UnsupportedOperationException("boolean[] cannot be wrapped with the varhandle memory backend, "
+                    + "set -D" + Memory.PROPERTY + "=unsafe or wrap a byte[]");
+        }
         return new Slice(array, offset, length);
     }
 
@@ -146,10 +244,21 @@ public final class Slices {
         return wrappedShortArray(array, 0, array.length);
     }
 
+    /**
+     * Wraps a range of the array without copying it.  Elements are read and
+     * written in native byte order.  See {@link #wrappedBooleanArray(boolean[], int, int)}
+     * for the memory backend.
+     *
+     * @throws UnsupportedOperationException with the VarHandle backend on a JVM
+     * without {@code java.lang.foreign.MemorySegment}
+     */
     public static Slice wrappedShortArray(short[] array, int offset, int length) {
         if (length == 0) {
             return EMPTY_SLICE;
         }
+        if (Memory.VAR_HANDLES) {
+            return wrappedArraySegment(array, offset, length, array.length, SIZE_OF_SHORT);
+        }
         return new Slice(array, offset, length);
     }
 
@@ -157,10 +266,21 @@ public final class Slices {
         return wrappedIntArray(array, 0, array.length);
     }
 
+    /**
+     * Wraps a range of the array without copying it.  Elements are read and
+     * written in native byte order.  See {@link #wrappedBooleanArray(boolean[], int, int)}
+     * for the memory backend.
+     *
+     * @throws UnsupportedOperationException with the VarHandle backend on a JVM
+     * without {@code java.lang.foreign.MemorySegment}
+     */
     public static Slice wrappedIntArray(int[] array, int offset, int length) {
         if (length == 0) {
             return EMPTY_SLICE;
         }
+        if (Memory.VAR_HANDLES) {
+            return wrappedArraySegment(array, offset, length, array.length, SIZE_OF_INT);
+        }
         return new Slice(array, offset, length);
     }
 
@@ -168,10 +288,21 @@ public final class Slices {
         return wrappedLongArray(array, 0, array.length);
     }
 
+    /**
+     * Wraps a range of the array without copying it.  Elements are read and
+     * written in native byte order.  See {@link #wrappedBooleanArray(boolean[], int, int)}
+     * for the memory backend.
+     *
+     * @throws UnsupportedOperationException with the VarHandle backend on a JVM
+     * without {@code java.lang.foreign.MemorySegment}
+     */
     public static Slice wrappedLongArray(long[] array, int offset, int length) {
         if (length == 0) {
             return EMPTY_SLICE;
         }
+        if (Memory.VAR_HANDLES) {
+            return wrappedArraySegment(array, offset, length, array.length, SIZE_OF_LONG);
+        }
         return new Slice(array, offset, length);
     }
 
@@ -179,10 +310,21 @@ public final class Slices {
         return wrappedFloatArray(array, 0, array.length);
     }
 
+    /**
+     * Wraps a range of the array without copying it.  Elements are read and
+     * written in native byte order.  See {@link #wrappedBooleanArray(boolean[], int, int)}
+     * for the memory backend.
+     *
+     * @throws UnsupportedOperationException with the VarHandle backend on a JVM
+     * without {@code java.lang.foreign.MemorySegment}
+     */
     public static Slice wrappedFloatArray(float[] array, int offset, int length) {
         if (length == 0) {
             return EMPTY_SLICE;
         }
+        if (Memory.VAR_HANDLES) {
+            return wrappedArraySegment(array, offset, length, array.length, SIZE_OF_FLOAT);
+        }
         return new Slice(array, offset, length);
     }
 
@@ -190,13 +332,34 @@ public final class Slices {
         return wrappedDoubleArray(array, 0, array.length);
     }
 
+    /**
+     * Wraps a range of the array without copying it.  Elements are read and
+     * written in native byte order.  See {@link #wrappedBooleanArray(boolean[], int, int)}
+     * for the memory backend.
+     *
+     * @throws UnsupportedOperationException with the VarHandle backend on a JVM
+     * without {@code java.lang.foreign.MemorySegment}
+     */
     public static Slice wrappedDoubleArray(double[] array, int offset, int length) {
         if (length == 0) {
             return EMPTY_SLICE;
         }
+        if (Memory.VAR_HANDLES) {
+            return wrappedArraySegment(array, offset, length, array.length, SIZE_OF_DOUBLE);
+        }
         return new Slice(array, offset, length);
     }
 
+    private static Slice wrappedArraySegment(Object array, int offset, int length, int arrayLength, int elementSize) {
+        checkPositionIndexes(offset, offset + length, arrayLength);
+        if (!MemorySegments.isAvailable()) {
+            throw new UnsupportedOperationException(array.getClass().getSimpleName()
+                    + " can only be wrapped with the varhandle memory backend on Java 22 or later, "
+                    + "set -D" + Memory.PROPERTY + "=unsafe or wrap a byte[]");
+        }
+        return new Slice(MemorySegments.ofArray(array), (long) offset * elementSize, length * elementSize, array);
+    }
+
     public static Slice copiedBuffer(String string, Charset charset) {
         checkNotNull(string, "string is null");
         checkNotNull(charset, "charset is null");
@@ -227,4 +390,121 @@ public final class Slices {
             IO.close(channel);
         }
     }
+
+    /**
+     * Maps {@code length} bytes of the file starting at {@code position}.  Unlike
+     * {@link #mapFileReadOnly(File)} the position is a long, so any region of files
+     * larger than 2 GB can be mapped.
+     */
+    public static Slice mapFileReadOnly(File file, long position, int length)
+            throws IOException {
+        checkNotNull(file, "file is null");
+
+        if (!file.exists()) {
+            throw new FileNotFoundException(file.toString());
+        }
+
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        final FileChannel channel = randomAccessFile.getChannel();
+
+        try {
+            return mapReadOnly(channel, position, length);
+        } finally {
+            IO.close(randomAccessFile);
+            IO.close(channel);
+        }
+    }
+
+    /**
+     * Maps the whole file read-only.  Unlike {@link #mapFileReadOnly(File)}, the
+     * mapping is released as soon as the returned {@link MappedFile} is closed.
+     */
+    public static MappedFile openMappedFile(File file)
+            throws IOException {
+        checkNotNull(file, "file is null");
+
+        if (!file.exists()) {
+            throw new FileNotFoundException(file.toString());
+        }
+
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        final FileChannel channel = randomAccessFile.getChannel();
+
+        try {
+            return new MappedFile(file, channel, MapMode.READ_ONLY, channel.size());
+        } finally {
+            IO.close(randomAccessFile);
+            IO.close(channel);
+        }
+    }
+
+    /**
+     * Maps the first {@code size} bytes of the file for reading and writing.  The
+     * file is created if it does not exist and extended to {@code size} bytes if it
+     * is shorter; a longer file is left as it is.
+     */
+    public static MappedFile mapFileReadWrite(File file, long size)
+            throws IOException {
+        checkNotNull(file, "file is null");
+        checkArgument(size >= 0, "size is negative");
+
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        final FileChannel channel = randomAccessFile.getChannel();
+
+        try {
+            if (randomAccessFile.length() < size) {
+                randomAccessFile.setLength(size);
+            }
+            return new MappedFile(file, channel, MapMode.READ_WRITE, size);
+        } finally {
+            IO.close(randomAccessFile);
+            IO.close(channel);
+        }
+    }
+
+    /**
+     * Maps the whole file, whatever its size, as a {@link LargeSlice} made of
+     * 1 GB read-only mappings.
+     */
+    public static LargeSlice mapLargeFileReadOnly(File file)
+            throws IOException {
+        return mapLargeFileReadOnly(file, LARGE_SLICE_SEGMENT_SHIFT);
+    }
+
+    static LargeSlice mapLargeFileReadOnly(File file, int segmentShift)
+            throws IOException {
+        checkNotNull(file, "file is null");
+
+        if (!file.exists()) {
+            throw new FileNotFoundException(file.toString());
+        }
+
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        final FileChannel channel = randomAccessFile.getChannel();
+
+        try {
+            final long length = channel.size();
+            final long segmentSize = 1L << segmentShift;
+            final Slice[] segments = new Slice[(int) ((length + segmentSize - 1) >>> segmentShift)];
+            for (int i = 0; i < segments.length; i++) {
+                final long position = i * segmentSize;
+                segments[i] = mapReadOnly(channel, position, (int) Math.min(segmentSize, length - position));
+            }
+            return new LargeSlice(segments, segmentShift);
+        } finally {
+            IO.close(randomAccessFile);
+            IO.close(channel);
+        }
+    }
+
+    static Slice mapReadOnly(FileChannel channel, long position, int length)
+            throws IOException {
+        checkArgument(position >= 0, "position is negative");
+        checkArgument(length >= 0, "length is negative");
+
+        if (length == 0) {
+            return EMPTY_SLICE;
+        }
+        return wrappedBuffer(channel.map(MapMode.READ_ONLY, position, length));
+    }
 }
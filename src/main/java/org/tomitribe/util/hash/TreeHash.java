@@ -0,0 +1,240 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.tomitribe.util.IO;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntToLongFunction;
+
+import static java.lang.Math.min;
+import static org.tomitribe.util.hash.Preconditions.checkArgument;
+import static org.tomitribe.util.hash.Preconditions.checkNotNull;
+import static org.tomitribe.util.hash.SizeOf.SIZE_OF_LONG;
+
+/**
+ * Two level XxHash64 tree hash that can be computed in parallel.
+ * <p/>
+ * The input is split into chunks of {@code chunkSize} bytes (the last one may be
+ * shorter) and every chunk is hashed independently with {@link XxHash64#hash(Slice)}.
+ * The root hash is the XxHash64 of the little-endian longs
+ * {@code [length, chunkSize, chunk hash 0, chunk hash 1, ...]}.
+ * <p/>
+ * The result therefore depends on the chunk size, which is kept alongside the hash
+ * so the same value can be recomputed later.  It is not the same value as
+ * {@link XxHash64#hash(java.io.InputStream)} over the same bytes.
+ * <p/>
+ * Data that is assembled concurrently, such as a parallel download, can be
+ * hashed as it arrives with a {@link TreeHasher}.
+ */
+public final class TreeHash {
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private final long hash;
+    private final long length;
+    private final int chunkSize;
+
+    public TreeHash(long hash, long length, int chunkSize) {
+        this.hash = hash;
+        this.length = length;
+        this.chunkSize = chunkSize;
+    }
+
+    public static TreeHash hash(File file) throws IOException {
+        return hash(file, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    public static TreeHash hash(File file, int chunkSize) throws IOException {
+        return hash(file, chunkSize, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Memory-maps the file chunk by chunk and hashes the chunks on the given pool.
+     * Files of any size are supported as only one chunk is mapped per task, and
+     * each chunk is unmapped as soon as it is hashed.
+     */
+    public static TreeHash hash(File file, int chunkSize, ForkJoinPool pool) throws IOException {
+        checkNotNull(file, "file is null");
+        checkNotNull(pool, "pool is null");
+        checkArgument(chunkSize > 0, "chunkSize must be positive");
+
+        if (!file.exists()) {
+            throw new FileNotFoundException(file.toString());
+        }
+
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        final FileChannel channel = randomAccessFile.getChannel();
+        try {
+            final long length = channel.size();
+            final long[] hashes = new long[chunks(length, chunkSize)];
+
+            pool.invoke(new HashChunks(hashes, 0, hashes.length, index -> {
+                final long position = (long) index * chunkSize;
+                try {
+                    return hashChunk(channel, position, (int) min(chunkSize, length - position));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+
+            return new TreeHash(root(length, chunkSize, hashes), length, chunkSize);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            IO.close(randomAccessFile);
+            IO.close(channel);
+        }
+    }
+
+    public static TreeHash hash(Slice data) {
+        return hash(data, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Hashes the chunks of an in-memory slice on the given pool.
+     */
+    public static TreeHash hash(Slice data, int chunkSize, ForkJoinPool pool) {
+        checkNotNull(data, "data is null");
+        checkNotNull(pool, "pool is null");
+        checkArgument(chunkSize > 0, "chunkSize must be positive");
+
+        final int length = data.length();
+        final long[] hashes = new long[chunks(length, chunkSize)];
+
+        pool.invoke(new HashChunks(hashes, 0, hashes.length, index -> {
+            final int position = index * chunkSize;
+            return XxHash64.hash(data, position, min(chunkSize, length - position));
+        }));
+
+        return new TreeHash(root(length, chunkSize, hashes), length, chunkSize);
+    }
+
+    /**
+     * The root hash.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Number of bytes that were hashed.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Chunk size the hash was computed with, required to reproduce it.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TreeHash)) {
+            return false;
+        }
+
+        final TreeHash that = (TreeHash) o;
+        return hash == that.hash && length == that.length && chunkSize == that.chunkSize;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x/%s", hash, chunkSize);
+    }
+
+    private static int chunks(long length, int chunkSize) {
+        final long chunks = (length + chunkSize - 1) / chunkSize;
+        checkArgument(chunks < Integer.MAX_VALUE - 2, "chunkSize %s is too small for %s bytes", chunkSize, length);
+        return (int) chunks;
+    }
+
+    /**
+     * Maps one chunk, hashes it and unmaps it again, so hashing a large file does
+     * not hold on to address space until the garbage collector runs.
+     */
+    private static long hashChunk(FileChannel channel, long position, int length) throws IOException {
+        if (length == 0) {
+            return XxHash64.hash(Slices.EMPTY_SLICE);
+        }
+
+        final MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, position, length);
+        try {
+            return XxHash64.hash(Slices.wrappedBuffer(buffer));
+        } finally {
+            JvmUtils.unmap(buffer);
+        }
+    }
+
+    static long root(long length, int chunkSize, long[] hashes) {
+        final ByteBuffer tree = ByteBuffer.allocate((hashes.length + 2) * SIZE_OF_LONG).order(ByteOrder.LITTLE_ENDIAN);
+        tree.putLong(length);
+        tree.putLong(chunkSize);
+        for (long hash : hashes) {
+            tree.putLong(hash);
+        }
+        return XxHash64.hash(Slices.wrappedBuffer(tree.array()));
+    }
+
+    /**
+     * Splits the chunk range in halves until a single chunk is left, then hashes it.
+     */
+    private static class HashChunks extends RecursiveAction {
+        private final long[] hashes;
+        private final int from;
+        private final int to;
+        private final IntToLongFunction chunks;
+
+        HashChunks(long[] hashes, int from, int to, IntToLongFunction chunks) {
+            this.hashes = hashes;
+            this.from = from;
+            this.to = to;
+            this.chunks = chunks;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    hashes[from] = chunks.applyAsLong(from);
+                }
+                return;
+            }
+
+            final int middle = (from + to) >>> 1;
+            invokeAll(new HashChunks(hashes, from, middle, chunks), new HashChunks(hashes, middle, to, chunks));
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.Math.min;
+import static org.tomitribe.util.hash.Preconditions.checkArgument;
+import static org.tomitribe.util.hash.Preconditions.checkNotNull;
+import static org.tomitribe.util.hash.Preconditions.checkPositionIndexes;
+import static org.tomitribe.util.hash.Preconditions.checkState;
+
+/**
+ * Thread-safe builder of a {@link TreeHash} for data that arrives in pieces at
+ * known positions, in any order and from any number of threads.
+ * <pre>
+ * TreeHasher hasher = new TreeHasher(TreeHash.DEFAULT_CHUNK_SIZE);
+ * // on the download threads
+ * hasher.update(rangeStart, bytes, 0, count);
+ * // once all ranges are in
+ * TreeHash hash = hasher.hash();
+ * </pre>
+ * Each chunk is hashed with its own streaming {@link XxHash64}.  A piece that
+ * continues where its chunk left off is hashed right away, one that arrives
+ * ahead of the bytes before it is copied and held until the gap is filled, so
+ * producers that each write a contiguous range only buffer at range boundaries.
+ * The result is the same as {@link TreeHash#hash(Slice, int, java.util.concurrent.ForkJoinPool)}
+ * over the assembled bytes with the same chunk size.
+ */
+public final class TreeHasher {
+    private final int chunkSize;
+    private final Map<Integer, Chunk> chunks = new ConcurrentHashMap<>();
+    private final AtomicLong length = new AtomicLong();
+
+    public TreeHasher() {
+        this(TreeHash.DEFAULT_CHUNK_SIZE);
+    }
+
+    public TreeHasher(int chunkSize) {
+        checkArgument(chunkSize > 0, "chunkSize must be positive");
+        this.chunkSize = chunkSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Hashes the bytes found at {@code position} of the stream.
+     *
+     * @throws IllegalStateException if some of the bytes were already hashed
+     */
+    public void update(long position, byte[] data, int offset, int length) {
+        checkPositionIndexes(offset, offset + length, data.length);
+        update(position, Slices.wrappedBuffer(data).slice(offset, length));
+    }
+
+    public void update(long position, byte[] data) {
+        update(position, data, 0, data.length);
+    }
+
+    public void update(long position, Slice data) {
+        checkNotNull(data, "data is null");
+        checkArgument(position >= 0, "position is negative");
+
+        final long end = position + data.length();
+        length.accumulateAndGet(end, Math::max);
+
+        int index = 0;
+        while (index < data.length()) {
+            final long chunk = (position + index) / chunkSize;
+            checkArgument(chunk < Integer.MAX_VALUE - 2, "chunkSize %s is too small for position %s", chunkSize, end);
+
+            final int chunkOffset = (int) ((position + index) % chunkSize);
+            final int pieceLength = min(chunkSize - chunkOffset, data.length() - index);
+            chunks.computeIfAbsent((int) chunk, i -> new Chunk()).update(chunkOffset, data.slice(index, pieceLength));
+            index += pieceLength;
+        }
+    }
+
+    /**
+     * Number of bytes of the stream, the end of the furthest piece seen so far.
+     */
+    public long getLength() {
+        return length.get();
+    }
+
+    /**
+     * Computes the tree hash of everything hashed so far.  Call it once all
+     * producers are done; the hasher can still be updated afterwards.
+     *
+     * @throws IllegalStateException if bytes before the end of the stream are missing
+     */
+    public TreeHash hash() {
+        final long length = this.length.get();
+        final int count = (int) ((length + chunkSize - 1) / chunkSize);
+
+        final long[] hashes = new long[count];
+        for (int i = 0; i < count; i++) {
+            final Chunk chunk = chunks.get(i);
+            final int expected = (int) min(chunkSize, length - (long) i * chunkSize);
+            checkState(chunk != null, "bytes %s to %s are missing", (long) i * chunkSize, (long) i * chunkSize + expected);
+            hashes[i] = chunk.hash((long) i * chunkSize, expected);
+        }
+
+        return new TreeHash(TreeHash.root(length, chunkSize, hashes), length, chunkSize);
+    }
+
+    @Override
+    public String toString() {
+        return "TreeHasher{chunkSize=" + chunkSize + ", length=" + length.get() + '}';
+    }
+
+    private static class Chunk {
+        private final XxHash64 hasher = new XxHash64();
+
+        /**
+         * Bytes of the chunk hashed so far
+         */
+        private int hashed;
+
+        /**
+         * Copies of pieces ahead of {@code hashed}, by chunk offset
+         */
+        private final TreeMap<Integer, Slice> pending = new TreeMap<>();
+
+        synchronized void update(int offset, Slice data) {
+            checkState(offset >= hashed && !overlapsPending(offset, data.length()),
+                    "bytes at chunk offset %s were already hashed", offset);
+
+            if (offset > hashed) {
+                pending.put(offset, Slices.copyOf(data));
+                return;
+            }
+
+            hasher.update(data);
+            hashed += data.length();
+
+            Map.Entry<Integer, Slice> next;
+            while ((next = pending.firstEntry()) != null && next.getKey() == hashed) {
+                pending.pollFirstEntry();
+                hasher.update(next.getValue());
+                hashed += next.getValue().length();
+            }
+        }
+
+        synchronized long hash(long position, int length) {
+            checkState(hashed >= length, "bytes %s to %s are missing", position + hashed,
+                    pending.isEmpty() ? position + length : position + pending.firstKey());
+            return hasher.hash();
+        }
+
+        private boolean overlapsPending(int offset, int length) {
+            final Map.Entry<Integer, Slice> before = pending.floorEntry(offset);
+            if (before != null && before.getKey() + before.getValue().length() > offset) {
+                return true;
+            }
+            final Integer after = pending.higherKey(offset);
+            return after != null && after < offset + length;
+        }
+    }
+}
@@ -0,0 +1,667 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static java.lang.Long.rotateLeft;
+import static org.tomitribe.util.hash.Memory.ARRAY_BYTE_BASE_OFFSET;
+import static org.tomitribe.util.hash.Preconditions.checkPositionIndexes;
+
+/**
+ * XXH3 64-bit and 128-bit hashes, following the reference implementation
+ * of xxHash 0.8 (https://github.com/Cyan4973/xxHash) with the default secret.
+ * <p/>
+ * Like {@link XxHash64} the static methods hash a single input and an
+ * instance hashes a stream fed through {@code update()}; the same stream
+ * state yields both the 64-bit {@link #hash()} and the 128-bit {@link #hash128()}.
+ */
+public class XxHash3 {
+    private final static long PRIME32_1 = 0x9E3779B1L;
+    private final static long PRIME32_2 = 0x85EBCA77L;
+    private final static long PRIME32_3 = 0xC2B2AE3DL;
+
+    private final static long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private final static long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private final static long PRIME64_3 = 0x165667B19E3779F9L;
+    private final static long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private final static long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    private final static long PRIME_MX1 = 0x165667919E3779F9L;
+    private final static long PRIME_MX2 = 0x9FB21C651E98DF25L;
+
+    private final static long DEFAULT_SEED = 0;
+
+    private static final int STRIPE_LEN = 64;
+    private static final int SECRET_CONSUME_RATE = 8;
+    private static final int SECRET_SIZE = 192;
+    private static final int SECRET_SIZE_MIN = 136;
+    private static final int SECRET_LASTACC_START = 7;
+    private static final int SECRET_MERGEACCS_START = 11;
+    private static final int STRIPES_PER_BLOCK = (SECRET_SIZE - STRIPE_LEN) / SECRET_CONSUME_RATE;
+    private static final int BLOCK_LEN = STRIPE_LEN * STRIPES_PER_BLOCK;
+    private static final int MIDSIZE_MAX = 240;
+    private static final int MIDSIZE_STARTOFFSET = 3;
+    private static final int MIDSIZE_LASTOFFSET = 17;
+
+    private static final long SECRET_ADDRESS = ARRAY_BYTE_BASE_OFFSET;
+
+    private static final byte[] DEFAULT_SECRET = toBytes(new int[]{
+            0xb8, 0xfe, 0x6c, 0x39, 0x23, 0xa4, 0x4b, 0xbe, 0x7c, 0x01, 0x81, 0x2c, 0xf7, 0x21, 0xad, 0x1c,
+            0xde, 0xd4, 0x6d, 0xe9, 0x83, 0x90, 0x97, 0xdb, 0x72, 0x40, 0xa4, 0xa4, 0xb7, 0xb3, 0x67, 0x1f,
+            0xcb, 0x79, 0xe6, 0x4e, 0xcc, 0xc0, 0xe5, 0x78, 0x82, 0x5a, 0xd0, 0x7d, 0xcc, 0xff, 0x72, 0x21,
+            0xb8, 0x08, 0x46, 0x74, 0xf7, 0x43, 0x24, 0x8e, 0xe0, 0x35, 0x90, 0xe6, 0x81, 0x3a, 0x26, 0x4c,
+            0x3c, 0x28, 0x52, 0xbb, 0x91, 0xc3, 0x00, 0xcb, 0x88, 0xd0, 0x65, 0x8b, 0x1b, 0x53, 0x2e, 0xa3,
+            0x71, 0x64, 0x48, 0x97, 0xa2, 0x0d, 0xf9, 0x4e, 0x38, 0x19, 0xef, 0x46, 0xa9, 0xde, 0xac, 0xd8,
+            0xa8, 0xfa, 0x76, 0x3f, 0xe3, 0x9c, 0x34, 0x3f, 0xf9, 0xdc, 0xbb, 0xc7, 0xc7, 0x0b, 0x4f, 0x1d,
+            0x8a, 0x51, 0xe0, 0x4b, 0xcd, 0xb4, 0x59, 0x31, 0xc8, 0x9f, 0x7e, 0xc9, 0xd9, 0x78, 0x73, 0x64,
+            0xea, 0xc5, 0xac, 0x83, 0x34, 0xd3, 0xeb, 0xc3, 0xc5, 0x81, 0xa0, 0xff, 0xfa, 0x13, 0x63, 0xeb,
+            0x17, 0x0d, 0xdd, 0x51, 0xb7, 0xf0, 0xda, 0x49, 0xd3, 0x16, 0x55, 0x26, 0x29, 0xd4, 0x68, 0x9e,
+            0x2b, 0x16, 0xbe, 0x58, 0x7d, 0x47, 0xa1, 0xfc, 0x8f, 0xf8, 0xb8, 0xd1, 0x7a, 0xd0, 0x31, 0xce,
+            0x45, 0xcb, 0x3a, 0x8f, 0x95, 0x16, 0x04, 0x28, 0xaf, 0xd7, 0xfb, 0xca, 0xbb, 0x4b, 0x40, 0x7e,
+    });
+
+    private static final int BUFFER_SIZE = 256;
+    private static final int BUFFER_STRIPES = BUFFER_SIZE / STRIPE_LEN;
+    private static final long BUFFER_ADDRESS = ARRAY_BYTE_BASE_OFFSET;
+
+    private final long seed;
+    private final byte[] secret;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferSize;
+
+    private long totalLength;
+
+    private final long[] acc = initialAccumulators();
+    private int stripesSoFar;
+
+    public XxHash3() {
+        this(DEFAULT_SEED);
+    }
+
+    public XxHash3(long seed) {
+        this.seed = seed;
+        this.secret = secretFor(seed);
+    }
+
+    public XxHash3 update(byte[] data) {
+        return update(data, 0, data.length);
+    }
+
+    public XxHash3 update(byte[] data, int offset, int length) {
+        checkPositionIndexes(offset, offset + length, data.length);
+        updateHash(data, ARRAY_BYTE_BASE_OFFSET + offset, length);
+        return this;
+    }
+
+    public XxHash3 update(Slice data) {
+        return update(data, 0, data.length());
+    }
+
+    public XxHash3 update(Slice data, int offset, int length) {
+        checkPositionIndexes(0, offset + length, data.length());
+        data.acquire();
+        try {
+            updateHash(data.getBase(), data.getAddress() + offset, length);
+        } finally {
+            data.release();
+        }
+        return this;
+    }
+
+    /**
+     * Returns the 64-bit XXH3 hash of everything passed to {@code update()} so far.
+     */
+    public long hash() {
+        if (totalLength <= MIDSIZE_MAX) {
+            return hash(seed, buffer, BUFFER_ADDRESS, (int) totalLength);
+        }
+
+        final long[] acc = digestAccumulators();
+        return mergeAccumulators(acc, secret, SECRET_MERGEACCS_START, totalLength * PRIME64_1);
+    }
+
+    /**
+     * Returns the 128-bit XXH3 hash of everything passed to {@code update()} so far.
+     */
+    public Hash128 hash128() {
+        if (totalLength <= MIDSIZE_MAX) {
+            return hash128(seed, buffer, BUFFER_ADDRESS, (int) totalLength);
+        }
+
+        final long[] acc = digestAccumulators();
+        final long low = mergeAccumulators(acc, secret, SECRET_MERGEACCS_START, totalLength * PRIME64_1);
+        final long high = mergeAccumulators(acc, secret, SECRET_SIZE - STRIPE_LEN - SECRET_MERGEACCS_START, ~(totalLength * PRIME64_2));
+        return new Hash128(high, low);
+    }
+
+    private void updateHash(Object base, long address, int length) {
+        totalLength += length;
+
+        if (length <= BUFFER_SIZE - bufferSize) {
+            Memory.copyMemory(base, address, buffer, BUFFER_ADDRESS + bufferSize, length);
+            bufferSize += length;
+            return;
+        }
+
+        // the buffer is only consumed once more input follows it, so the
+        // final stripe is always handled by the digest
+        if (bufferSize > 0) {
+            final int available = BUFFER_SIZE - bufferSize;
+            Memory.copyMemory(base, address, buffer, BUFFER_ADDRESS + bufferSize, available);
+            address += available;
+            length -= available;
+
+            stripesSoFar = consumeStripes(acc, stripesSoFar, buffer, BUFFER_ADDRESS, BUFFER_STRIPES, secret);
+            bufferSize = 0;
+        }
+
+        if (length > BUFFER_SIZE) {
+            final int stripes = (length - 1) / STRIPE_LEN;
+            stripesSoFar = consumeStripes(acc, stripesSoFar, base, address, stripes, secret);
+            address += stripes * STRIPE_LEN;
+            length -= stripes * STRIPE_LEN;
+
+            // keep the last consumed stripe, the digest may need part of it
+            Memory.copyMemory(base, address - STRIPE_LEN, buffer, BUFFER_ADDRESS + BUFFER_SIZE - STRIPE_LEN, STRIPE_LEN);
+        }
+
+        Memory.copyMemory(base, address, buffer, BUFFER_ADDRESS, length);
+        bufferSize = length;
+    }
+
+    private long[] digestAccumulators() {
+        final long[] acc = this.acc.clone();
+
+        if (bufferSize >= STRIPE_LEN) {
+            final int stripes = (bufferSize - 1) / STRIPE_LEN;
+            consumeStripes(acc, stripesSoFar, buffer, BUFFER_ADDRESS, stripes, secret);
+            accumulate512(acc, buffer, BUFFER_ADDRESS + bufferSize - STRIPE_LEN, secret, SECRET_SIZE - STRIPE_LEN - SECRET_LASTACC_START);
+        } else {
+            // the last stripe straddles the previously consumed data and the buffer
+            final byte[] lastStripe = new byte[STRIPE_LEN];
+            final int catchup = STRIPE_LEN - bufferSize;
+            System.arraycopy(buffer, BUFFER_SIZE - catchup, lastStripe, 0, catchup);
+            System.arraycopy(buffer, 0, lastStripe, catchup, bufferSize);
+            accumulate512(acc, lastStripe, ARRAY_BYTE_BASE_OFFSET, secret, SECRET_SIZE - STRIPE_LEN - SECRET_LASTACC_START);
+        }
+
+        return acc;
+    }
+
+    public static long hash(long value) {
+        // equivalent to hashing the 8 bytes of value in native (little-endian) order
+        final long bitflip = getLong(DEFAULT_SECRET, 8) ^ getLong(DEFAULT_SECRET, 16);
+        return rrmxmx(rotateLeft(value, 32) ^ bitflip, SizeOf.SIZE_OF_LONG);
+    }
+
+    public static long hash(String data) {
+        return hash(Slices.utf8Slice(data));
+    }
+
+    public static long hash(InputStream in) throws IOException {
+        return hash(DEFAULT_SEED, in);
+    }
+
+    public static long hash(long seed, InputStream in)
+            throws IOException {
+        return update(new XxHash3(seed), in).hash();
+    }
+
+    public static long hash(Slice data) {
+        return hash(data, 0, data.length());
+    }
+
+    public static long hash(long seed, Slice data) {
+        return hash(seed, data, 0, data.length());
+    }
+
+    public static long hash(Slice data, int offset, int length) {
+        return hash(DEFAULT_SEED, data, offset, length);
+    }
+
+    public static long hash(long seed, Slice data, int offset, int length) {
+        checkPositionIndexes(0, offset + length, data.length());
+
+        data.acquire();
+        try {
+            return hash(seed, data.getBase(), data.getAddress() + offset, length);
+        } finally {
+            data.release();
+        }
+    }
+
+    public static Hash128 hash128(String data) {
+        return hash128(Slices.utf8Slice(data));
+    }
+
+    public static Hash128 hash128(InputStream in) throws IOException {
+        return hash128(DEFAULT_SEED, in);
+    }
+
+    public static Hash128 hash128(long seed, InputStream in)
+            throws IOException {
+        return update(new XxHash3(seed), in).hash128();
+    }
+
+    public static Hash128 hash128(Slice data) {
+        return hash128(data, 0, data.length());
+    }
+
+    public static Hash128 hash128(long seed, Slice data) {
+        return hash128(seed, data, 0, data.length());
+    }
+
+    public static Hash128 hash128(Slice data, int offset, int length) {
+        return hash128(DEFAULT_SEED, data, offset, length);
+    }
+
+    public static Hash128 hash128(long seed, Slice data, int offset, int length) {
+        checkPositionIndexes(0, offset + length, data.length());
+
+        data.acquire();
+        try {
+            return hash128(seed, data.getBase(), data.getAddress() + offset, length);
+        } finally {
+            data.release();
+        }
+    }
+
+    private static XxHash3 update(XxHash3 hash, InputStream in)
+            throws IOException {
+        byte[] buffer = new byte[8192];
+        while (true) {
+            int length = in.read(buffer);
+            if (length == -1) {
+                break;
+            }
+            hash.update(buffer, 0, length);
+        }
+        return hash;
+    }
+
+    //
+    // 64-bit
+    //
+
+    private static long hash(long seed, Object base, long address, int length) {
+        if (length <= 16) {
+            return hashUpTo16(seed, base, address, length);
+        }
+        if (length <= 128) {
+            return hashUpTo128(seed, base, address, length);
+        }
+        if (length <= MIDSIZE_MAX) {
+            return hashUpTo240(seed, base, address, length);
+        }
+
+        final byte[] secret = secretFor(seed);
+        final long[] acc = hashLong(base, address, length, secret);
+        return mergeAccumulators(acc, secret, SECRET_MERGEACCS_START, length * PRIME64_1);
+    }
+
+    private static long hashUpTo16(long seed, Object base, long address, int length) {
+        if (length > 8) {
+            final long bitflip1 = (getLong(DEFAULT_SECRET, 24) ^ getLong(DEFAULT_SECRET, 32)) + seed;
+            final long bitflip2 = (getLong(DEFAULT_SECRET, 40) ^ getLong(DEFAULT_SECRET, 48)) - seed;
+            final long low = Memory.getLong(base, address) ^ bitflip1;
+            final long high = Memory.getLong(base, address + length - 8) ^ bitflip2;
+            final long acc = length + Long.reverseBytes(low) + high + multiplyFold64(low, high);
+            return avalanche(acc);
+        }
+        if (length >= 4) {
+            seed ^= (Integer.reverseBytes((int) seed) & 0xFFFFFFFFL) << 32;
+            final long input1 = Memory.getInt(base, address) & 0xFFFFFFFFL;
+            final long input2 = Memory.getInt(base, address + length - 4) & 0xFFFFFFFFL;
+            final long bitflip = (getLong(DEFAULT_SECRET, 8) ^ getLong(DEFAULT_SECRET, 16)) - seed;
+            final long input64 = input2 + (input1 << 32);
+            return rrmxmx(input64 ^ bitflip, length);
+        }
+        if (length > 0) {
+            final long bitflip = (getInt(DEFAULT_SECRET, 0) ^ getInt(DEFAULT_SECRET, 4)) + seed;
+            return avalanche64(combine1to3(base, address, length) ^ bitflip);
+        }
+        return avalanche64(seed ^ getLong(DEFAULT_SECRET, 56) ^ getLong(DEFAULT_SECRET, 64));
+    }
+
+    private static long hashUpTo128(long seed, Object base, long address, int length) {
+        long acc = length * PRIME64_1;
+
+        if (length > 32) {
+            if (length > 64) {
+                if (length > 96) {
+                    acc += mix16(seed, base, address + 48, 96);
+                    acc += mix16(seed, base, address + length - 64, 112);
+                }
+                acc += mix16(seed, base, address + 32, 64);
+                acc += mix16(seed, base, address + length - 48, 80);
+            }
+            acc += mix16(seed, base, address + 16, 32);
+            acc += mix16(seed, base, address + length - 32, 48);
+        }
+        acc += mix16(seed, base, address, 0);
+        acc += mix16(seed, base, address + length - 16, 16);
+
+        return avalanche(acc);
+    }
+
+    private static long hashUpTo240(long seed, Object base, long address, int length) {
+        long acc = length * PRIME64_1;
+        for (int i = 0; i < 8; i++) {
+            acc += mix16(seed, base, address + 16 * i, 16 * i);
+        }
+        acc = avalanche(acc);
+
+        final int rounds = length / 16;
+        for (int i = 8; i < rounds; i++) {
+            acc += mix16(seed, base, address + 16 * i, 16 * (i - 8) + MIDSIZE_STARTOFFSET);
+        }
+        acc += mix16(seed, base, address + length - 16, SECRET_SIZE_MIN - MIDSIZE_LASTOFFSET);
+
+        return avalanche(acc);
+    }
+
+    //
+    // 128-bit
+    //
+
+    private static Hash128 hash128(long seed, Object base, long address, int length) {
+        if (length <= 16) {
+            return hash128UpTo16(seed, base, address, length);
+        }
+        if (length <= 128) {
+            return hash128UpTo128(seed, base, address, length);
+        }
+        if (length <= MIDSIZE_MAX) {
+            return hash128UpTo240(seed, base, address, length);
+        }
+
+        final byte[] secret = secretFor(seed);
+        final long[] acc = hashLong(base, address, length, secret);
+        final long low = mergeAccumulators(acc, secret, SECRET_MERGEACCS_START, length * PRIME64_1);
+        final long high = mergeAccumulators(acc, secret, SECRET_SIZE - STRIPE_LEN - SECRET_MERGEACCS_START, ~(length * PRIME64_2));
+        return new Hash128(high, low);
+    }
+
+    private static Hash128 hash128UpTo16(long seed, Object base, long address, int length) {
+        if (length > 8) {
+            final long bitflipLow = (getLong(DEFAULT_SECRET, 32) ^ getLong(DEFAULT_SECRET, 40)) - seed;
+            final long bitflipHigh = (getLong(DEFAULT_SECRET, 48) ^ getLong(DEFAULT_SECRET, 56)) + seed;
+            final long inputLow = Memory.getLong(base, address);
+            long inputHigh = Memory.getLong(base, address + length - 8);
+
+            final long folded = inputLow ^ inputHigh ^ bitflipLow;
+            long mLow = folded * PRIME64_1;
+            long mHigh = unsignedMultiplyHigh(folded, PRIME64_1);
+
+            mLow += (long) (length - 1) << 54;
+            inputHigh ^= bitflipHigh;
+            mHigh += inputHigh + (inputHigh & 0xFFFFFFFFL) * (PRIME32_2 - 1);
+            mLow ^= Long.reverseBytes(mHigh);
+
+            final long low = mLow * PRIME64_2;
+            final long high = unsignedMultiplyHigh(mLow, PRIME64_2) + mHigh * PRIME64_2;
+            return new Hash128(avalanche(high), avalanche(low));
+        }
+        if (length >= 4) {
+            seed ^= (Integer.reverseBytes((int) seed) & 0xFFFFFFFFL) << 32;
+            final long inputLow = Memory.getInt(base, address) & 0xFFFFFFFFL;
+            final long inputHigh = Memory.getInt(base, address + length - 4) & 0xFFFFFFFFL;
+            final long input64 = inputLow + (inputHigh << 32);
+            final long bitflip = (getLong(DEFAULT_SECRET, 16) ^ getLong(DEFAULT_SECRET, 24)) + seed;
+            final long keyed = input64 ^ bitflip;
+
+            final long multiplier = PRIME64_1 + ((long) length << 2);
+            long low = keyed * multiplier;
+            long high = unsignedMultiplyHigh(keyed, multiplier);
+
+            high += low << 1;
+            low ^= high >>> 3;
+            low ^= low >>> 35;
+            low *= PRIME_MX2;
+            low ^= low >>> 28;
+            return new Hash128(avalanche(high), low);
+        }
+        if (length > 0) {
+            final long combinedLow = combine1to3(base, address, length);
+            final long combinedHigh = Integer.rotateLeft(Integer.reverseBytes((int) combinedLow), 13) & 0xFFFFFFFFL;
+            final long bitflipLow = (getInt(DEFAULT_SECRET, 0) ^ getInt(DEFAULT_SECRET, 4)) + seed;
+            final long bitflipHigh = (getInt(DEFAULT_SECRET, 8) ^ getInt(DEFAULT_SECRET, 12)) - seed;
+            return new Hash128(avalanche64(combinedHigh ^ bitflipHigh), avalanche64(combinedLow ^ bitflipLow));
+        }
+        final long low = avalanche64(seed ^ getLong(DEFAULT_SECRET, 64) ^ getLong(DEFAULT_SECRET, 72));
+        final long high = avalanche64(seed ^ getLong(DEFAULT_SECRET, 80) ^ getLong(DEFAULT_SECRET, 88));
+        return new Hash128(high, low);
+    }
+
+    private static Hash128 hash128UpTo128(long seed, Object base, long address, int length) {
+        final long[] acc = {length * PRIME64_1, 0};
+
+        if (length > 32) {
+            if (length > 64) {
+                if (length > 96) {
+                    mix32(acc, seed, base, address + 48, address + length - 64, 96);
+                }
+                mix32(acc, seed, base, address + 32, address + length - 48, 64);
+            }
+            mix32(acc, seed, base, address + 16, address + length - 32, 32);
+        }
+        mix32(acc, seed, base, address, address + length - 16, 0);
+
+        return finish128(acc, seed, length);
+    }
+
+    private static Hash128 hash128UpTo240(long seed, Object base, long address, int length) {
+        final long[] acc = {length * PRIME64_1, 0};
+
+        for (int i = 0; i < 4; i++) {
+            mix32(acc, seed, base, address + 32 * i, address + 32 * i + 16, 32 * i);
+        }
+        acc[0] = avalanche(acc[0]);
+        acc[1] = avalanche(acc[1]);
+
+        final int rounds = length / 32;
+        for (int i = 4; i < rounds; i++) {
+            mix32(acc, seed, base, address + 32 * i, address + 32 * i + 16, MIDSIZE_STARTOFFSET + 32 * (i - 4));
+        }
+        mix32(acc, -seed, base, address + length - 16, address + length - 32, SECRET_SIZE_MIN - MIDSIZE_LASTOFFSET - 16);
+
+        return finish128(acc, seed, length);
+    }
+
+    private static Hash128 finish128(long[] acc, long seed, int length) {
+        final long low = acc[0] + acc[1];
+        final long high = acc[0] * PRIME64_1 + acc[1] * PRIME64_4 + (length - seed) * PRIME64_2;
+        return new Hash128(-avalanche(high), avalanche(low));
+    }
+
+    private static void mix32(long[] acc, long seed, Object base, long address1, long address2, int secretOffset) {
+        acc[0] += mix16(seed, base, address1, secretOffset);
+        acc[0] ^= Memory.getLong(base, address2) + Memory.getLong(base, address2 + 8);
+        acc[1] += mix16(seed, base, address2, secretOffset + 16);
+        acc[1] ^= Memory.getLong(base, address1) + Memory.getLong(base, address1 + 8);
+    }
+
+    //
+    // Inputs longer than 240 bytes
+    //
+
+    private static long[] hashLong(Object base, long address, int length, byte[] secret) {
+        final long[] acc = initialAccumulators();
+
+        final int blocks = (length - 1) / BLOCK_LEN;
+        for (int block = 0; block < blocks; block++) {
+            accumulate(acc, base, address + (long) block * BLOCK_LEN, secret, 0, STRIPES_PER_BLOCK);
+            scramble(acc, secret, SECRET_SIZE - STRIPE_LEN);
+        }
+
+        final int stripes = ((length - 1) - BLOCK_LEN * blocks) / STRIPE_LEN;
+        accumulate(acc, base, address + (long) blocks * BLOCK_LEN, secret, 0, stripes);
+        accumulate512(acc, base, address + length - STRIPE_LEN, secret, SECRET_SIZE - STRIPE_LEN - SECRET_LASTACC_START);
+
+        return acc;
+    }
+
+    private static int consumeStripes(long[] acc, int stripesSoFar, Object base, long address, int stripes, byte[] secret) {
+        while (stripes > 0) {
+            final int toEndOfBlock = STRIPES_PER_BLOCK - stripesSoFar;
+            if (stripes < toEndOfBlock) {
+                accumulate(acc, base, address, secret, stripesSoFar * SECRET_CONSUME_RATE, stripes);
+                return stripesSoFar + stripes;
+            }
+
+            accumulate(acc, base, address, secret, stripesSoFar * SECRET_CONSUME_RATE, toEndOfBlock);
+            scramble(acc, secret, SECRET_SIZE - STRIPE_LEN);
+            address += (long) toEndOfBlock * STRIPE_LEN;
+            stripes -= toEndOfBlock;
+            stripesSoFar = 0;
+        }
+        return stripesSoFar;
+    }
+
+    private static void accumulate(long[] acc, Object base, long address, byte[] secret, int secretOffset, int stripes) {
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            accumulate512(acc, base, address + (long) stripe * STRIPE_LEN, secret, secretOffset + stripe * SECRET_CONSUME_RATE);
+        }
+    }
+
+    private static void accumulate512(long[] acc, Object base, long address, byte[] secret, int secretOffset) {
+        for (int i = 0; i < 8; i++) {
+            final long value = Memory.getLong(base, address + 8 * i);
+            final long key = value ^ getLong(secret, secretOffset + 8 * i);
+            acc[i ^ 1] += value;
+            acc[i] += (key & 0xFFFFFFFFL) * (key >>> 32);
+        }
+    }
+
+    private static void scramble(long[] acc, byte[] secret, int secretOffset) {
+        for (int i = 0; i < 8; i++) {
+            long value = acc[i];
+            value ^= value >>> 47;
+            value ^= getLong(secret, secretOffset + 8 * i);
+            acc[i] = value * PRIME32_1;
+        }
+    }
+
+    private static long mergeAccumulators(long[] acc, byte[] secret, int secretOffset, long start) {
+        long result = start;
+        for (int i = 0; i < 4; i++) {
+            result += multiplyFold64(
+                    acc[2 * i] ^ getLong(secret, secretOffset + 16 * i),
+                    acc[2 * i + 1] ^ getLong(secret, secretOffset + 16 * i + 8));
+        }
+        return avalanche(result);
+    }
+
+    private static long[] initialAccumulators() {
+        return new long[]{PRIME32_3, PRIME64_1, PRIME64_2, PRIME64_3, PRIME64_4, PRIME32_2, PRIME64_5, PRIME32_1};
+    }
+
+    /**
+     * Inputs longer than 240 bytes are hashed with a secret derived from the seed.
+     */
+    private static byte[] secretFor(long seed) {
+        if (seed == 0) {
+            return DEFAULT_SECRET;
+        }
+
+        final byte[] secret = new byte[SECRET_SIZE];
+        for (int i = 0; i < SECRET_SIZE; i += 16) {
+            Memory.putLong(secret, SECRET_ADDRESS + i, getLong(DEFAULT_SECRET, i) + seed);
+            Memory.putLong(secret, SECRET_ADDRESS + i + 8, getLong(DEFAULT_SECRET, i + 8) - seed);
+        }
+        return secret;
+    }
+
+    //
+    // Mixing primitives
+    //
+
+    private static long mix16(long seed, Object base, long address, int secretOffset) {
+        final long low = Memory.getLong(base, address);
+        final long high = Memory.getLong(base, address + 8);
+        return multiplyFold64(
+                low ^ (getLong(DEFAULT_SECRET, secretOffset) + seed),
+                high ^ (getLong(DEFAULT_SECRET, secretOffset + 8) - seed));
+    }
+
+    private static long combine1to3(Object base, long address, int length) {
+        final int c1 = Memory.getByte(base, address) & 0xFF;
+        final int c2 = Memory.getByte(base, address + (length >> 1)) & 0xFF;
+        final int c3 = Memory.getByte(base, address + length - 1) & 0xFF;
+        return ((c1 << 16) | (c2 << 24) | c3 | (length << 8)) & 0xFFFFFFFFL;
+    }
+
+    private static long multiplyFold64(long a, long b) {
+        return (a * b) ^ unsignedMultiplyHigh(a, b);
+    }
+
+    private static long unsignedMultiplyHigh(long a, long b) {
+        final long aLow = a & 0xFFFFFFFFL;
+        final long aHigh = a >>> 32;
+        final long bLow = b & 0xFFFFFFFFL;
+        final long bHigh = b >>> 32;
+
+        final long lowLow = aLow * bLow;
+        final long highLow = aHigh * bLow;
+        final long lowHigh = aLow * bHigh;
+        final long highHigh = aHigh * bHigh;
+
+        final long cross = (lowLow >>> 32) + (highLow & 0xFFFFFFFFL) + lowHigh;
+        return (highLow >>> 32) + (cross >>> 32) + highHigh;
+    }
+
+    private static long avalanche(long hash) {
+        hash ^= hash >>> 37;
+        hash *= PRIME_MX1;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private static long avalanche64(long hash) {
+        hash ^= hash >>> 33;
+        hash *= PRIME64_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME64_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private static long rrmxmx(long hash, int length) {
+        hash ^= rotateLeft(hash, 49) ^ rotateLeft(hash, 24);
+        hash *= PRIME_MX2;
+        hash ^= (hash >>> 35) + length;
+        hash *= PRIME_MX2;
+        hash ^= hash >>> 28;
+        return hash;
+    }
+
+    private static long getLong(byte[] secret, int offset) {
+        return Memory.getLong(secret, SECRET_ADDRESS + offset);
+    }
+
+    private static long getInt(byte[] secret, int offset) {
+        return Memory.getInt(secret, SECRET_ADDRESS + offset) & 0xFFFFFFFFL;
+    }
+
+    private static byte[] toBytes(int[] values) {
+        final byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+}
@@ -18,9 +18,8 @@ import java.io.InputStream;
 
 import static java.lang.Integer.rotateLeft;
 import static java.lang.Math.min;
-import static org.tomitribe.util.hash.JvmUtils.unsafe;
+import static org.tomitribe.util.hash.Memory.ARRAY_BYTE_BASE_OFFSET;
 import static org.tomitribe.util.hash.Preconditions.checkPositionIndexes;
-import static sun.misc.Unsafe.ARRAY_BYTE_BASE_OFFSET;
 
 /**
  * Lifted from Airlift Slice
@@ -76,7 +75,12 @@ public class XxHash32 {
 
     public XxHash32 update(Slice data, int offset, int length) {
         checkPositionIndexes(0, offset + length, data.length());
-        updateHash(data.getBase(), data.getAddress() + offset, length);
+        data.acquire();
+        try {
+            updateHash(data.getBase(), data.getAddress() + offset, length);
+        } finally {
+            data.release();
+        }
         return this;
     }
 
@@ -101,7 +105,7 @@ public class XxHash32 {
         if (bufferSize > 0) {
             int available = min(16 - bufferSize, length);
 
-            unsafe.copyMemory(base, address, buffer, BUFFER_ADDRESS + bufferSize, available);
+            Memory.copyMemory(base, address, buffer, BUFFER_ADDRESS + bufferSize, available);
 
             bufferSize += available;
             address += available;
@@ -120,7 +124,7 @@ public class XxHash32 {
         }
 
         if (length > 0) {
-            unsafe.copyMemory(base, address, buffer, BUFFER_ADDRESS, length);
+            Memory.copyMemory(base, address, buffer, BUFFER_ADDRESS, length);
             bufferSize = length;
         }
     }
@@ -128,10 +132,10 @@ public class XxHash32 {
     private int updateBody(Object base, long address, int length) {
         int remaining = length;
         while (remaining >= 16) {
-            v1 = mix(v1, unsafe.getInt(base, address));
-            v2 = mix(v2, unsafe.getInt(base, address + 4));
-            v3 = mix(v3, unsafe.getInt(base, address + 8));
-            v4 = mix(v4, unsafe.getInt(base, address + 12));
+            v1 = mix(v1, Memory.getInt(base, address));
+            v2 = mix(v2, Memory.getInt(base, address + 4));
+            v3 = mix(v3, Memory.getInt(base, address + 8));
+            v4 = mix(v4, Memory.getInt(base, address + 12));
 
             address += 16;
             remaining -= 16;
@@ -187,9 +191,15 @@ public class XxHash32 {
     public static int hash(int seed, Slice data, int offset, int length) {
         checkPositionIndexes(0, offset + length, data.length());
 
-        Object base = data.getBase();
-        final long address = data.getAddress() + offset;
+        data.acquire();
+        try {
+            return hash(seed, data.getBase(), data.getAddress() + offset, length);
+        } finally {
+            data.release();
+        }
+    }
 
+    private static int hash(int seed, Object base, long address, int length) {
         int hash;
 
         if (length >= 16) {
@@ -209,12 +219,12 @@ public class XxHash32 {
 
     private static int updateTail(int hash, Object base, long address, int index, int length) {
         if (index <= length - 4) {
-            hash = updateTail(hash, unsafe.getInt(base, address + index));
+            hash = updateTail(hash, Memory.getInt(base, address + index));
             index += 4;
         }
 
         while (index < length) {
-            hash = updateTail(hash, unsafe.getByte(base, address + index));
+            hash = updateTail(hash, Memory.getByte(base, address + index));
             index++;
         }
 
@@ -231,10 +241,10 @@ public class XxHash32 {
 
         int remaining = length;
         while (remaining >= 16) {
-            v1 = mix(v1, unsafe.getInt(base, address));
-            v2 = mix(v2, unsafe.getInt(base, address + 4));
-            v3 = mix(v3, unsafe.getInt(base, address + 8));
-            v4 = mix(v4, unsafe.getInt(base, address + 12));
+            v1 = mix(v1, Memory.getInt(base, address));
+            v2 = mix(v2, Memory.getInt(base, address + 4));
+            v3 = mix(v3, Memory.getInt(base, address + 8));
+            v4 = mix(v4, Memory.getInt(base, address + 12));
 
             address += 16;
             remaining -= 16;
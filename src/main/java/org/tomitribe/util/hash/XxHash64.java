@@ -18,9 +18,9 @@ import java.io.InputStream;
 
 import static java.lang.Long.rotateLeft;
 import static java.lang.Math.min;
-import static org.tomitribe.util.hash.JvmUtils.unsafe;
+import static org.tomitribe.util.hash.Memory.ARRAY_BYTE_BASE_OFFSET;
+import static org.tomitribe.util.hash.Preconditions.checkArgument;
 import static org.tomitribe.util.hash.Preconditions.checkPositionIndexes;
-import static sun.misc.Unsafe.ARRAY_BYTE_BASE_OFFSET;
 
 /**
  * Lifted from Airlift Slice
@@ -77,7 +77,27 @@ public class XxHash64 {
 
     public XxHash64 update(Slice data, int offset, int length) {
         checkPositionIndexes(0, offset + length, data.length());
-        updateHash(data.getBase(), data.getAddress() + offset, length);
+        data.acquire();
+        try {
+            updateHash(data.getBase(), data.getAddress() + offset, length);
+        } finally {
+            data.release();
+        }
+        return this;
+    }
+
+    public XxHash64 update(LargeSlice data) {
+        return update(data, 0, data.length());
+    }
+
+    public XxHash64 update(LargeSlice data, long offset, long length) {
+        checkPositionIndexes(offset, offset + length, data.length());
+        while (length > 0) {
+            final Slice piece = data.piece(offset, length);
+            update(piece);
+            offset += piece.length();
+            length -= piece.length();
+        }
         return this;
     }
 
@@ -109,7 +129,7 @@ public class XxHash64 {
         if (bufferSize > 0) {
             int available = min(32 - bufferSize, length);
 
-            unsafe.copyMemory(base, address, buffer, BUFFER_ADDRESS + bufferSize, available);
+            Memory.copyMemory(base, address, buffer, BUFFER_ADDRESS + bufferSize, available);
 
             bufferSize += available;
             address += available;
@@ -128,7 +148,7 @@ public class XxHash64 {
         }
 
         if (length > 0) {
-            unsafe.copyMemory(base, address, buffer, BUFFER_ADDRESS, length);
+            Memory.copyMemory(base, address, buffer, BUFFER_ADDRESS, length);
             bufferSize = length;
         }
     }
@@ -136,10 +156,10 @@ public class XxHash64 {
     private int updateBody(Object base, long address, int length) {
         int remaining = length;
         while (remaining >= 32) {
-            v1 = mix(v1, unsafe.getLong(base, address));
-            v2 = mix(v2, unsafe.getLong(base, address + 8));
-            v3 = mix(v3, unsafe.getLong(base, address + 16));
-            v4 = mix(v4, unsafe.getLong(base, address + 24));
+            v1 = mix(v1, Memory.getLong(base, address));
+            v2 = mix(v2, Memory.getLong(base, address + 8));
+            v3 = mix(v3, Memory.getLong(base, address + 16));
+            v4 = mix(v4, Memory.getLong(base, address + 24));
 
             address += 32;
             remaining -= 32;
@@ -188,6 +208,26 @@ public class XxHash64 {
         return hash(seed, data, 0, data.length());
     }
 
+    public static long hash(LargeSlice data) {
+        return hash(DEFAULT_SEED, data);
+    }
+
+    /**
+     * Hashes a slice of any length, the result is identical to hashing
+     * the same bytes held in a single {@link Slice}.
+     */
+    public static long hash(long seed, LargeSlice data) {
+        if (data.length() == 0) {
+            return hash(seed, Slices.EMPTY_SLICE);
+        }
+
+        final Slice piece = data.piece(0, data.length());
+        if (piece.length() == data.length()) {
+            return hash(seed, piece);
+        }
+        return new XxHash64(seed).update(data).hash();
+    }
+
     public static long hash(Slice data, int offset, int length) {
         return hash(DEFAULT_SEED, data, offset, length);
     }
@@ -195,9 +235,88 @@ public class XxHash64 {
     public static long hash(long seed, Slice data, int offset, int length) {
         checkPositionIndexes(0, offset + length, data.length());
 
-        Object base = data.getBase();
-        final long address = data.getAddress() + offset;
+        data.acquire();
+        try {
+            return hash(seed, data.getBase(), data.getAddress() + offset, length);
+        } finally {
+            data.release();
+        }
+    }
+
+    /**
+     * Hashes every fixed-width record of a buffer, see
+     * {@link #hashRecords(long, Slice, int, int, int, long[], int, int)}.
+     */
+    public static long[] hashRecords(Slice data, int stride) {
+        checkArgument(stride > 0, "stride must be positive");
+
+        final long[] hashes = new long[data.length() / stride];
+        hashRecords(DEFAULT_SEED, data, 0, stride, stride, hashes, 0, hashes.length);
+        return hashes;
+    }
+
+    /**
+     * Hashes {@code count} fixed-width records laid out back to back in {@code data}.
+     * <p/>
+     * Record {@code i} starts at {@code offset + i * stride} and its key is the
+     * first {@code keyLength} bytes of the record.  The hash of each key is
+     * identical to {@link #hash(long, Slice, int, int)} over the same bytes and
+     * is written to {@code hashes[hashesOffset + i]}.
+     * <p/>
+     * Bounds are checked once for the whole batch rather than once per key.
+     */
+    public static void hashRecords(long seed, Slice data, int offset, int stride, int keyLength, long[] hashes, int hashesOffset, int count) {
+        checkArgument(keyLength >= 0 && keyLength <= stride, "keyLength (%s) must be between 0 and stride (%s)", keyLength, stride);
+        checkArgument(count >= 0, "count must not be negative");
+        checkPositionIndexes(hashesOffset, hashesOffset + count, hashes.length);
+        if (count == 0) {
+            return;
+        }
+        final long end = offset + (long) stride * (count - 1) + keyLength;
+        checkPositionIndexes(offset, (int) min(end, Integer.MAX_VALUE), data.length());
+
+        final Object base = data.getBase();
+        long address = data.getAddress() + offset;
+        data.acquire();
+        try {
+            for (int i = hashesOffset; i < hashesOffset + count; i++) {
+                hashes[i] = hash(seed, base, address, keyLength);
+                address += stride;
+            }
+        } finally {
+            data.release();
+        }
+    }
+
+    /**
+     * Hashes {@code count} variable-length keys of {@code data} given as
+     * {@code offsets[i]}, {@code lengths[i]} pairs into {@code hashes[i]}.
+     * The hash of each key is identical to {@link #hash(long, Slice, int, int)}.
+     */
+    public static void hashRanges(long seed, Slice data, int[] offsets, int[] lengths, long[] hashes, int count) {
+        checkPositionIndexes(0, count, offsets.length);
+        checkPositionIndexes(0, count, lengths.length);
+        checkPositionIndexes(0, count, hashes.length);
+
+        final Object base = data.getBase();
+        final long address = data.getAddress();
+        final int size = data.length();
+        data.acquire();
+        try {
+            for (int i = 0; i < count; i++) {
+                final int offset = offsets[i];
+                final int length = lengths[i];
+                if ((offset | length) < 0 || offset > size - length) {
+                    checkPositionIndexes(offset, offset + length, size);
+                }
+                hashes[i] = hash(seed, base, address + offset, length);
+            }
+        } finally {
+            data.release();
+        }
+    }
 
+    private static long hash(long seed, Object base, long address, int length) {
         long hash;
 
         if (length >= 32) {
@@ -217,17 +336,17 @@ public class XxHash64 {
 
     private static long updateTail(long hash, Object base, long address, int index, int length) {
         while (index <= length - 8) {
-            hash = updateTail(hash, unsafe.getLong(base, address + index));
+            hash = updateTail(hash, Memory.getLong(base, address + index));
             index += 8;
         }
 
         if (index <= length - 4) {
-            hash = updateTail(hash, unsafe.getInt(base, address + index));
+            hash = updateTail(hash, Memory.getInt(base, address + index));
             index += 4;
         }
 
         while (index < length) {
-            hash = updateTail(hash, unsafe.getByte(base, address + index));
+            hash = updateTail(hash, Memory.getByte(base, address + index));
             index++;
         }
 
@@ -244,10 +363,10 @@ public class XxHash64 {
 
         int remaining = length;
         while (remaining >= 32) {
-            v1 = mix(v1, unsafe.getLong(base, address));
-            v2 = mix(v2, unsafe.getLong(base, address + 8));
-            v3 = mix(v3, unsafe.getLong(base, address + 16));
-            v4 = mix(v4, unsafe.getLong(base, address + 24));
+            v1 = mix(v1, Memory.getLong(base, address));
+            v2 = mix(v2, Memory.getLong(base, address + 8));
+            v3 = mix(v3, Memory.getLong(base, address + 16));
+            v4 = mix(v4, Memory.getLong(base, address + 24));
 
             address += 32;
             remaining -= 32;
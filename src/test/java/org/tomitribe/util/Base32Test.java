@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class Base32Test {
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void buffers() throws Exception {
+        for (int length = 0; length < 50; length++) {
+            final byte[] data = bytes(length);
+            final String expected = Base32.encode(data);
+
+            final char[] chars = new char[expected.length() + 4];
+            assertEquals(expected.length(), Base32.encode(data, 0, length, chars, 2));
+            assertEquals(expected.length(), Base32.encodedLength(length));
+            assertEquals(expected, new String(chars, 2, expected.length()));
+
+            final byte[] decoded = new byte[length + 1];
+            assertEquals(length, Base32.decode("[" + expected + "]", 1, expected.length() + 1, decoded, 1));
+            assertArrayEquals(data, Arrays.copyOfRange(decoded, 1, length + 1));
+            assertArrayEquals(data, Base32.decode(expected));
+        }
+    }
+
+    @Test
+    public void lenientDecoding() throws Exception {
+        final byte[] data = "Hello, world".getBytes(US_ASCII);
+        final String encoded = Base32.encode(data);
+        assertEquals("JBSWY3DPFQQHO33SNRSA", encoded);
+
+        assertArrayEquals(data, Base32.decode(encoded.toLowerCase()));
+        assertArrayEquals(data, Base32.decode(" \tJBSWY-3DPF QQHO3-3SNRSA====\n"));
+        assertArrayEquals(data, Base32.decode("JBSWY3DPFQQHO33SNRSA= - ="));
+
+        for (String invalid : new String[]{"JBSW\tY3DP", "JBSW=Y3DP", "JBSW1Y3DP", "JBSW\u00e9"}) {
+            try {
+                Base32.decode(invalid);
+                fail(invalid);
+            } catch (Base32.DecodingException e) {
+                // pass
+            }
+            try {
+                Base32.decode(invalid, 0, invalid.length(), new byte[10], 0);
+                fail(invalid);
+            } catch (IllegalArgumentException e) {
+                // pass
+            }
+        }
+    }
+
+    @Test
+    public void nonAsciiUpperCase() throws Exception {
+        // as with String.toUpperCase(Locale.US): the dotless i, long s and sharp s
+        // fold to I, S and SS, and ligatures to their letters
+        final String encoded = "JBSWY3DPFQQHO33SNRSA";
+        final byte[] data = Base32.decode(encoded);
+
+        final String folded = encoded.replace('I', '\u0131').replace('S', '\u017f');
+        assertArrayEquals(data, Base32.decode(folded));
+        assertArrayEquals(data, Base32.decode(folded.toLowerCase()));
+
+        final byte[] dst = new byte[data.length];
+        assertEquals(data.length, Base32.decode(folded, 0, folded.length(), dst, 0));
+        assertArrayEquals(data, dst);
+
+        assertArrayEquals(Base32.decode("SSSSSSSS"), Base32.decode("\u00df\u00dfSS\u00df"));
+        assertArrayEquals(Base32.decode("STFFSTFL"), Base32.decode("\ufb06\ufb00\ufb05\ufb02"));
+
+        final String longValue = Base32.encode(0x123456789L);
+        assertEquals(0x123456789L, Base32.decodeLong(longValue.replace('S', '\u017f').replace('I', '\u0131')));
+    }
+
+    @Test
+    public void longs() throws Exception {
+        final long[] values = {0, 1, -1, Long.MIN_VALUE, Long.MAX_VALUE, 0xDCFEAB01L};
+        for (long value : values) {
+            assertLong(value);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertLong(random.nextLong());
+        }
+
+        final char[] chars = new char[15];
+        assertEquals(13, Base32.encode(0xDCFEAB01L, chars, 2));
+        assertEquals("AAAAAAG472VQC", new String(chars, 2, 13));
+        assertEquals(0xDCFEAB01L, Base32.decodeLong("id:AAAAAAG472VQC", 3));
+        assertEquals(0xDCFEAB01L, Base32.decodeLong("aaaaaag472vqc"));
+
+        // separators still go through the general decoder
+        assertEquals(0xDCFEAB01L, Longs.fromBase32("AAAAA-AG472-VQC"));
+
+        for (String invalid : new String[]{"AAAAAAG472VQ", "AAAAAAG472VQ1", "AAAAAAG472-QC"}) {
+            try {
+                Base32.decodeLong(invalid);
+                fail(invalid);
+            } catch (IllegalArgumentException e) {
+                // pass
+            }
+        }
+    }
+
+    @Test
+    public void streams() throws Exception {
+        final int[] lengths = {0, 1, 4, 5, 6, Base32.STREAM_BLOCK_SIZE - 1, Base32.STREAM_BLOCK_SIZE, Base32.STREAM_BLOCK_SIZE * 3 + 7};
+        for (int length : lengths) {
+            final byte[] data = bytes(length);
+
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (OutputStream out = Base32.encodingStream(bytes)) {
+                int offset = 0;
+                while (offset < length) {
+                    if (random.nextInt(4) == 0) {
+                        out.write(data[offset++]);
+                    } else {
+                        final int count = Math.min(length - offset, random.nextInt(7000));
+                        out.write(data, offset, count);
+                        offset += count;
+                    }
+                    if (random.nextInt(8) == 0) {
+                        out.flush();
+                    }
+                }
+            }
+
+            final String encoded = new String(bytes.toByteArray(), US_ASCII);
+            assertEquals(Base32.encode(data), encoded);
+
+            assertArrayEquals(data, IO.readBytes(Base32.decodingStream(new ByteArrayInputStream(bytes.toByteArray()))));
+        }
+
+        final InputStream in = Base32.decodingStream(new ByteArrayInputStream("JBSWY-3DPF\r\nqqho33snrsa==".getBytes(US_ASCII)));
+        assertEquals("Hello, world", new String(IO.readBytes(in), US_ASCII));
+
+        try {
+            IO.readBytes(Base32.decodingStream(new ByteArrayInputStream("JBSW1".getBytes(US_ASCII))));
+            fail();
+        } catch (IOException e) {
+            // pass
+        }
+    }
+
+    private void assertLong(final long value) throws Exception {
+        final String expected = Base32.encode(Longs.toBytes(value));
+        assertEquals(expected, Base32.encode(value));
+        assertEquals(expected, Longs.toBase32(value));
+        assertEquals(value, Base32.decodeLong(expected));
+        assertEquals(value, Longs.fromBase32(expected));
+        assertEquals(value, Longs.fromBytes(Base32.decode(expected)));
+    }
+
+    private byte[] bytes(final int length) {
+        final byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
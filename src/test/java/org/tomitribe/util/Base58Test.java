@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class Base58Test {
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void encodeDecode() throws Exception {
+        for (int length = 0; length < 100; length++) {
+            for (int zeros = 0; zeros <= Math.min(length, 3); zeros++) {
+                assertRoundTrip(bytes(length, zeros));
+            }
+        }
+        assertRoundTrip(bytes(1024, 0));
+        assertRoundTrip(bytes(3000, 2));
+    }
+
+    @Test
+    public void fixedWidth() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            assertRoundTrip(bytes(8, i % 9));
+            assertRoundTrip(bytes(16, i % 17));
+        }
+
+        final byte[] ones = new byte[16];
+        Arrays.fill(ones, (byte) 0xFF);
+        assertRoundTrip(ones);
+        assertRoundTrip(Arrays.copyOf(ones, 8));
+        assertEquals("1111111111111111", Base58.encode(new byte[16]));
+    }
+
+    @Test
+    public void longs() throws Exception {
+        final long[] values = {0, 1, 57, 58, 255, 256, Long.MAX_VALUE, Long.MIN_VALUE, -1, -58, 0x00FFFFFFFFFFFFFFL};
+        for (long value : values) {
+            assertLong(value);
+        }
+        for (int i = 0; i < 10000; i++) {
+            assertLong(random.nextLong() >>> random.nextInt(64));
+        }
+
+        assertEquals("11111111", Base58.encode(0L));
+        assertEquals("jpXCZedGfVQ", Base58.encode(-1L));
+    }
+
+    @Test
+    public void bulk() throws Exception {
+        final long[] values = {0, 42, -1, Long.MAX_VALUE, 1L << 40};
+
+        final StringBuilder expected = new StringBuilder();
+        for (long value : values) {
+            expected.append(expected.length() == 0 ? "" : ",").append(Longs.toBase58(value));
+        }
+
+        final char[] chars = new char[values.length * (Base58.MAX_LONG_LENGTH + 1) + 3];
+        final int length = Base58.encode(values, chars, 3, ',');
+        assertEquals(expected.toString(), new String(chars, 3, length));
+
+        assertEquals("x" + expected, Base58.append(new StringBuilder("x"), values, ',').toString());
+        assertEquals("", Base58.append(new StringBuilder(), new long[0], ',').toString());
+
+        try {
+            Base58.encode(values, new char[length - 1], 0, ',');
+            throw new AssertionError();
+        } catch (IndexOutOfBoundsException e) {
+            // pass
+        }
+    }
+
+    private void assertLong(final long value) {
+        final String expected = reference(Longs.toBytes(value));
+        assertEquals(expected, Base58.encode(value));
+        assertEquals(expected, Longs.toBase58(value));
+        assertEquals(expected, Base58.append(new StringBuilder(), value).toString());
+        assertEquals(value, Longs.fromBase58(expected));
+    }
+
+    private void assertRoundTrip(final byte[] bytes) {
+        final String encoded = Base58.encode(bytes);
+        assertEquals(reference(bytes), encoded);
+        assertArrayEquals(bytes, Base58.decode(encoded));
+    }
+
+    private byte[] bytes(final int length, final int zeros) {
+        final byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        Arrays.fill(bytes, 0, zeros, (byte) 0);
+        if (zeros < length && bytes[zeros] == 0) {
+            bytes[zeros] = 1;
+        }
+        return bytes;
+    }
+
+    /**
+     * The definition: leading zero bytes as '1', then the digits of the number
+     */
+    private static String reference(final byte[] bytes) {
+        final StringBuilder sb = new StringBuilder();
+        BigInteger value = new BigInteger(1, bytes);
+        final BigInteger base = BigInteger.valueOf(58);
+        while (value.signum() > 0) {
+            final BigInteger[] division = value.divideAndRemainder(base);
+            sb.append(Base58.ALPHABET[division[1].intValue()]);
+            value = division[0];
+        }
+        for (int i = 0; i < bytes.length && bytes[i] == 0; i++) {
+            sb.append('1');
+        }
+        return sb.reverse().toString();
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class Base64Test {
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void encodingStream() throws Exception {
+        for (int length : lengths()) {
+            final byte[] data = bytes(length);
+
+            assertArrayEquals(Base64.encodeBase64(data, false), encode(data, false));
+            assertArrayEquals(Base64.encodeBase64(data, true), encode(data, true));
+        }
+    }
+
+    @Test
+    public void decodingStream() throws Exception {
+        for (int length : lengths()) {
+            final byte[] data = bytes(length);
+
+            assertArrayEquals(data, decode(Base64.encodeBase64(data, false)));
+            assertArrayEquals(data, decode(Base64.encodeBase64(data, true)));
+        }
+    }
+
+    @Test
+    public void decodingStreamIgnoresNonBase64() throws Exception {
+        final byte[] encoded = " SGVs\tbG8s\r\nIHdv*cmxk\n".getBytes(US_ASCII);
+        assertEquals("Hello, world", new String(decode(encoded), US_ASCII));
+        assertArrayEquals(Base64.decodeBase64(encoded), decode(encoded));
+    }
+
+    @Test
+    public void decodingStreamPadding() throws Exception {
+        assertEquals("a", new String(decode("YQ==".getBytes(US_ASCII)), US_ASCII));
+        assertEquals("ab", new String(decode("YWI=".getBytes(US_ASCII)), US_ASCII));
+        assertEquals("aab", new String(decode("YQ==YWI=".getBytes(US_ASCII)), US_ASCII));
+
+        // no padding at the end of the data
+        assertEquals("a", new String(decode("YQ".getBytes(US_ASCII)), US_ASCII));
+        assertEquals("ab", new String(decode("YWI".getBytes(US_ASCII)), US_ASCII));
+        assertEquals("", new String(decode("".getBytes(US_ASCII)), US_ASCII));
+    }
+
+    @Test
+    public void closesUnderlyingStreams() throws Exception {
+        final boolean[] closed = new boolean[2];
+
+        final OutputStream out = Base64.encodingStream(new ByteArrayOutputStream() {
+            @Override
+            public void close() throws IOException {
+                closed[0] = true;
+            }
+        });
+        out.write(1);
+        out.close();
+        out.close();
+
+        final InputStream in = Base64.decodingStream(new ByteArrayInputStream(new byte[0]) {
+            @Override
+            public void close() throws IOException {
+                closed[1] = true;
+            }
+        });
+        assertEquals(-1, in.read());
+        in.close();
+
+        assertEquals(true, closed[0]);
+        assertEquals(true, closed[1]);
+    }
+
+    @Test
+    public void codecMatchesJavaUtil() throws Exception {
+        for (int length = 0; length < 200; length++) {
+            final byte[] data = bytes(length);
+
+            assertCodec(Base64.STANDARD, java.util.Base64.getEncoder(), data);
+            assertCodec(Base64.STANDARD.withoutPadding(), java.util.Base64.getEncoder().withoutPadding(), data);
+            assertCodec(Base64.URL_SAFE, java.util.Base64.getUrlEncoder(), data);
+            assertCodec(Base64.URL_SAFE.withoutPadding(), java.util.Base64.getUrlEncoder().withoutPadding(), data);
+
+            assertArrayEquals(Base64.encodeBase64(data), Base64.STANDARD.encode(data));
+        }
+    }
+
+    @Test
+    public void codecBuffers() throws Exception {
+        final byte[] data = bytes(100);
+        final byte[] encoded = new byte[200];
+        final int length = Base64.STANDARD.encode(data, 10, 50, encoded, 7);
+        assertEquals(68, length);
+        assertEquals(java.util.Base64.getEncoder().encodeToString(Arrays.copyOfRange(data, 10, 60)),
+                new String(encoded, 7, length, US_ASCII));
+
+        // exactly sized destination
+        final byte[] decoded = new byte[53];
+        assertEquals(50, Base64.STANDARD.decode(encoded, 7, length, decoded, 3));
+        assertArrayEquals(Arrays.copyOfRange(data, 10, 60), Arrays.copyOfRange(decoded, 3, 53));
+
+        try {
+            Base64.STANDARD.encode(data, 0, 100, new byte[135], 0);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // pass
+        }
+
+        try {
+            Base64.STANDARD.decode(encoded, 7, length, new byte[49], 0);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // pass
+        }
+    }
+
+    @Test
+    public void codecDecodesWhitespaceAndOptionalPadding() throws Exception {
+        assertEquals("Hello, world", new String(Base64.STANDARD.decode(" SGVs\tbG8s\r\nIHdv\ncmxk\r\n"), US_ASCII));
+        assertEquals("ab", new String(Base64.STANDARD.decode("YW I = \r\n"), US_ASCII));
+        assertEquals("ab", new String(Base64.STANDARD.decode("YWI"), US_ASCII));
+        assertEquals("ab", new String(Base64.STANDARD.withoutPadding().decode("YWI="), US_ASCII));
+        assertEquals("a", new String(Base64.URL_SAFE.decode("YQ"), US_ASCII));
+        assertEquals(0, Base64.STANDARD.decode("  \r\n").length);
+
+        final byte[] chunked = Base64.encodeBase64Chunked(bytes(1000));
+        assertArrayEquals(Base64.decodeBase64(chunked), Base64.STANDARD.decode(chunked));
+
+        assertIllegal(Base64.STANDARD, "YW*I");
+        assertIllegal(Base64.STANDARD, "YWI=YQ==");
+        assertIllegal(Base64.STANDARD, "Y");
+        assertIllegal(Base64.STANDARD, "YWJjZ");
+        assertIllegal(Base64.STANDARD, "_-8=");
+        assertIllegal(Base64.URL_SAFE, "/+8=");
+    }
+
+    @Test
+    public void longs() throws Exception {
+        assertEquals("f/////////8=", Longs.toBase64(Long.MAX_VALUE));
+        assertEquals(Long.MIN_VALUE, Longs.fromBase64("gAAAAAAAAAA="));
+    }
+
+    private void assertCodec(final Base64.Codec codec, final java.util.Base64.Encoder encoder, final byte[] data) {
+        final String expected = encoder.encodeToString(data);
+        assertEquals(expected, codec.encodeToString(data));
+        assertEquals(expected.length(), codec.encodedLength(data.length));
+        assertArrayEquals(data, codec.decode(expected));
+    }
+
+    private void assertIllegal(final Base64.Codec codec, final String encoded) {
+        try {
+            codec.decode(encoded);
+            fail(encoded);
+        } catch (IllegalArgumentException e) {
+            // pass
+        }
+    }
+
+    private int[] lengths() {
+        final int block = Base64.STREAM_BLOCK_SIZE;
+        return new int[]{0, 1, 2, 3, 4, 56, 57, 58, 113, 114, 115, block - 1, block, block + 1, block * 3 + 2, 100_000};
+    }
+
+    private byte[] bytes(final int length) {
+        final byte[] data = new byte[length];
+        random.nextBytes(data);
+        return data;
+    }
+
+    /**
+     * Writes the data in pieces of random size, mixing single bytes and arrays
+     */
+    private byte[] encode(final byte[] data, final boolean chunked) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = Base64.encodingStream(bytes, chunked)) {
+            int offset = 0;
+            while (offset < data.length) {
+                if (random.nextInt(4) == 0) {
+                    out.write(data[offset++]);
+                } else {
+                    final int count = Math.min(data.length - offset, random.nextInt(5000));
+                    out.write(data, offset, count);
+                    offset += count;
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads through a stream that returns at most 7 bytes per read
+     */
+    private byte[] decode(final byte[] encoded) throws IOException {
+        final InputStream trickle = new FilterInputStream(new ByteArrayInputStream(encoded)) {
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = Base64.decodingStream(trickle)) {
+            final byte[] buffer = new byte[1000];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+                final int b = in.read();
+                if (b != -1) {
+                    bytes.write(b);
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
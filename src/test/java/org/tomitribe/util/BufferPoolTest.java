@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BufferPoolTest {
+
+    @Test
+    public void reuse() {
+        final BufferPool pool = new BufferPool(100, 4);
+
+        final byte[] bytes = pool.takeBytes();
+        assertEquals(100, bytes.length);
+        // taken buffers are never handed out twice
+        assertNotSame(bytes, pool.takeBytes());
+
+        pool.release(bytes);
+        assertSame(bytes, pool.takeBytes());
+
+        final ByteBuffer direct = pool.takeDirect();
+        assertTrue(direct.isDirect());
+        assertEquals(100, direct.capacity());
+        direct.put((byte) 1).flip();
+
+        pool.release(direct);
+        final ByteBuffer again = pool.takeDirect();
+        assertSame(direct, again);
+        assertEquals(0, again.position());
+        assertEquals(100, again.limit());
+    }
+
+    @Test
+    public void foreignBuffersAreDropped() {
+        final BufferPool pool = new BufferPool(100, 1);
+
+        final byte[] small = new byte[10];
+        pool.release(small);
+        assertEquals(100, pool.takeBytes().length);
+
+        final ByteBuffer heap = ByteBuffer.allocate(100);
+        pool.release(heap);
+        assertTrue(pool.takeDirect().isDirect());
+    }
+
+    @Test
+    public void bounded() {
+        final BufferPool pool = new BufferPool(10, 1);
+
+        final byte[] a = pool.takeBytes();
+        final byte[] b = pool.takeBytes();
+        pool.release(a);
+        pool.release(b);
+
+        assertSame(a, pool.takeBytes());
+        assertNotSame(b, pool.takeBytes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSize() {
+        new BufferPool(0);
+    }
+
+    @Test
+    public void copy() throws Exception {
+        final BufferPool original = BufferPool.getDefault();
+        BufferPool.setDefault(new BufferPool(7));
+        try {
+            final byte[] bytes = new byte[1000];
+            new Random(1).nextBytes(bytes);
+
+            assertArrayEquals(bytes, IO.readBytes(new ByteArrayInputStream(bytes)));
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IO.copy(Channels.newChannel(new ByteArrayInputStream(bytes)), Channels.newChannel(out));
+            assertArrayEquals(bytes, out.toByteArray());
+
+            out.reset();
+            new Pipe(new ByteArrayInputStream(bytes), out).run();
+            assertArrayEquals(bytes, out.toByteArray());
+        } finally {
+            BufferPool.setDefault(original);
+        }
+    }
+
+    @Test
+    public void concurrent() throws Exception {
+        final BufferPool pool = new BufferPool(64, 2);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final byte value = (byte) t;
+                futures.add(executor.submit((Callable<Boolean>) () -> {
+                    for (int i = 0; i < 10000; i++) {
+                        final byte[] buffer = pool.takeBytes();
+                        Arrays.fill(buffer, value);
+                        Thread.yield();
+                        for (byte b : buffer) {
+                            if (b != value) return false;
+                        }
+                        pool.release(buffer);
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DirectoryCopyTest {
+
+    private final Random random = new Random(42);
+    private File tmp;
+    private File source;
+
+    @Before
+    public void setUp() throws Exception {
+        tmp = Files.tmpdir();
+        source = Files.mkdirs(tmp, "source");
+
+        // a few levels of directories with files of assorted sizes, some empty
+        for (int i = 0; i < 50; i++) {
+            final File dir = Files.mkdirs(source, "d" + i % 5, "e" + i % 3);
+            write(new File(dir, "file" + i + ".bin"), random.nextInt(3) == 0 ? 0 : random.nextInt(200_000));
+        }
+        write(new File(source, "top.txt"), 10);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.remove(tmp);
+    }
+
+    @Test
+    public void sequential() throws Exception {
+        final File destination = new File(tmp, "destination");
+        final DirectoryCopy.Stats stats = DirectoryCopy.of(source, destination).copy();
+
+        assertSame(source, destination);
+        assertEquals(51, stats.getFiles());
+        assertEquals(size(source), stats.getBytes());
+    }
+
+    @Test
+    public void parallel() throws Exception {
+        final File destination = new File(tmp, "destination");
+        final List<DirectoryCopy.Stats> progress = Collections.synchronizedList(new ArrayList<>());
+
+        final DirectoryCopy.Stats stats = DirectoryCopy.of(source, destination)
+                .threads(4)
+                .progress(progress::add)
+                .copy();
+
+        assertSame(source, destination);
+        assertEquals(51, stats.getFiles());
+        assertEquals(51, progress.size());
+        assertEquals(size(source), progress.get(50).getBytes());
+        assertTrue(stats.getFilesPerSecond() > 0);
+    }
+
+    @Test
+    public void executor() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final File destination = new File(tmp, "destination");
+            DirectoryCopy.of(source, destination).executor(executor).copy();
+            assertSame(source, destination);
+
+            // overwrites what is already there, and the executor is still usable
+            write(new File(source, "top.txt"), 5000);
+            DirectoryCopy.of(source, destination).executor(executor).copy();
+            assertSame(source, destination);
+            assertFalse(executor.isShutdown());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void preserve() throws Exception {
+        final File script = new File(source, "d1/run.sh");
+        write(script, 100);
+        script.setExecutable(true);
+
+        final long time = 1500000000000L;
+        for (File file : Files.collect(source)) {
+            file.setLastModified(time);
+        }
+        source.setLastModified(time);
+
+        final File destination = new File(tmp, "destination");
+        DirectoryCopy.of(source, destination)
+                .threads(2)
+                .preserveTimestamps(true)
+                .preservePermissions(true)
+                .copy();
+
+        assertSame(source, destination);
+        assertEquals(time, destination.lastModified());
+        for (File file : Files.collect(destination)) {
+            assertEquals(file.getPath(), time, file.lastModified());
+        }
+
+        final File copied = new File(destination, "d1/run.sh");
+        assertTrue(copied.canExecute());
+        try {
+            assertEquals(java.nio.file.Files.getPosixFilePermissions(script.toPath()),
+                    java.nio.file.Files.getPosixFilePermissions(copied.toPath()));
+            assertTrue(java.nio.file.Files.getPosixFilePermissions(copied.toPath()).contains(PosixFilePermission.OWNER_EXECUTE));
+        } catch (UnsupportedOperationException e) {
+            // not a POSIX file system
+        }
+    }
+
+    @Test
+    public void destinationInsideSource() throws Exception {
+        final File destination = new File(source, "copy");
+        IO.copyDirectory(source, destination);
+
+        assertTrue(new File(destination, "top.txt").isFile());
+        assertFalse(new File(destination, "copy").exists());
+    }
+
+    @Test
+    public void failures() throws Exception {
+        try {
+            DirectoryCopy.of(new File(tmp, "missing"), new File(tmp, "destination")).copy();
+            fail();
+        } catch (FileNotFoundException e) {
+            // pass
+        }
+
+        try {
+            DirectoryCopy.of(source, source).copy();
+            fail();
+        } catch (IOException e) {
+            // pass
+        }
+
+        // a file where a directory has to go
+        final File destination = Files.mkdirs(tmp, "destination");
+        write(new File(destination, "d2"), 1);
+        try {
+            DirectoryCopy.of(source, destination).threads(2).copy();
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("not a directory"));
+        }
+    }
+
+    @Test
+    public void rejectedByExecutor() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final AtomicInteger accepted = new AtomicInteger();
+        final AtomicInteger pending = new AtomicInteger();
+        final Executor rejecting = command -> {
+            if (accepted.incrementAndGet() > 3) {
+                throw new RejectedExecutionException("full");
+            }
+            pending.incrementAndGet();
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                pending.decrementAndGet();
+                command.run();
+            });
+        };
+
+        final File destination = new File(tmp, "destination");
+        try {
+            DirectoryCopy.of(source, destination).executor(rejecting).copy();
+            fail();
+        } catch (RejectedExecutionException e) {
+            // the accepted copies ran before the failure was thrown
+            assertEquals(0, pending.get());
+        } finally {
+            executor.shutdown();
+        }
+
+        // and none was left half written
+        for (File copy : Files.collect(destination)) {
+            if (copy.isFile()) {
+                final String path = copy.getAbsolutePath().substring(destination.getAbsolutePath().length());
+                assertArrayEquals(path, IO.readBytes(new File(source, path)), IO.readBytes(copy));
+            }
+        }
+    }
+
+    @Test
+    public void pipe() throws Exception {
+        final File fifo = new File(source, "fifo");
+        try {
+            Assume.assumeTrue(new ProcessBuilder("mkfifo", fifo.getPath()).start().waitFor() == 0);
+        } catch (IOException e) {
+            Assume.assumeNoException(e);
+        }
+
+        // opening the pipe for reading blocks until this writer opens it, and the other way round
+        final Thread writer = new Thread(() -> {
+            try {
+                IO.copy("through the pipe".getBytes(), fifo);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.start();
+
+        final File destination = new File(tmp, "destination");
+        DirectoryCopy.of(source, destination).threads(2).copy();
+        writer.join();
+
+        assertEquals("through the pipe", new String(IO.readBytes(new File(destination, "fifo"))));
+        assertTrue(new File(destination, "top.txt").isFile());
+    }
+
+    private void write(final File file, final int length) throws IOException {
+        final byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        IO.copy(bytes, file);
+    }
+
+    private static long size(final File dir) {
+        long size = 0;
+        for (File file : Files.collect(dir)) {
+            size += file.isFile() ? file.length() : 0;
+        }
+        return size;
+    }
+
+    private static void assertSame(final File expected, final File actual) throws IOException {
+        final File[] files = expected.listFiles();
+        assertEquals(files.length, actual.listFiles().length);
+        for (File file : files) {
+            final File copy = new File(actual, file.getName());
+            if (file.isDirectory()) {
+                assertSame(file, copy);
+            } else {
+                assertArrayEquals(file.getPath(), IO.readBytes(file), IO.readBytes(copy));
+            }
+        }
+    }
+}
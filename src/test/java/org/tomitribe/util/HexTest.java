@@ -19,6 +19,8 @@ package org.tomitribe.util;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.StringWriter;
+
 public class HexTest extends Assert {
 
     @Test
@@ -67,6 +69,109 @@ public class HexTest extends Assert {
         }
     }
 
+    @Test
+    public void testOddLength() throws Exception {
+        try {
+            Hex.fromString("fff");
+            fail();
+        } catch (Hex.InvalidHexFormatException e) {
+            assertEquals("fff", e.getString());
+        }
+    }
+
+    @Test
+    public void testBuffers() throws Exception {
+        final byte[] bytes = bytes(0xDC, 0xFE, 0xAB, 0x01, 0x32);
+
+        final char[] chars = new char[12];
+        assertEquals(6, Hex.encode(bytes, 1, 3, chars, 4));
+        assertEquals("feab01", new String(chars, 4, 6));
+
+        final byte[] ascii = new byte[10];
+        assertEquals(10, Hex.encode(bytes, 0, 5, ascii, 0));
+        assertEquals("dcfeab0132", new String(ascii, "US-ASCII"));
+
+        final byte[] decoded = new byte[5];
+        assertEquals(3, Hex.decode("id=FEAB01;", 3, 9, decoded, 2));
+        assertArrayEquals(bytes(0, 0, 0xFE, 0xAB, 0x01), decoded);
+        assertArrayEquals(bytes(0xAB, 0x01), Hex.fromString(new StringBuilder("feab01"), 2, 6));
+
+        try {
+            Hex.encode(bytes, 0, 5, new char[9], 0);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // pass
+        }
+        try {
+            Hex.decode("feab01", 0, 6, new byte[2], 0);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // pass
+        }
+        try {
+            Hex.decode("trace=fe-b01", 6, 12, new byte[3], 0);
+            fail();
+        } catch (Hex.InvalidHexFormatException e) {
+            assertEquals("fe-b01", e.getString());
+        }
+    }
+
+    @Test
+    public void testAppend() throws Exception {
+        final byte[] bytes = bytes(0xDC, 0xFE, 0xAB, 0x01);
+
+        assertEquals("x=dcfeab01", Hex.append(new StringBuilder("x="), bytes).toString());
+        assertEquals("x=feab", Hex.append(new StringBuilder("x="), bytes, 1, 2).toString());
+        assertEquals("00000000deadbeef", Hex.append(new StringBuilder(), 0xDEADBEEFL).toString());
+        assertEquals("0000002a", Hex.append(new StringBuilder(), 42).toString());
+
+        final StringWriter writer = new StringWriter();
+        Hex.append(writer, bytes);
+        writer.append(' ');
+        Hex.append(writer, -1L);
+        writer.append(' ');
+        Hex.append(writer, 0x0102);
+        assertEquals("dcfeab01 ffffffffffffffff 00000102", writer.toString());
+    }
+
+    @Test
+    public void testLongAndInt() throws Exception {
+        final long[] values = {0, 1, -1, Long.MIN_VALUE, Long.MAX_VALUE, 0xDCFEAB0132547689L};
+        for (long value : values) {
+            final String hex = Hex.toString(Longs.toBytes(value));
+            assertEquals(hex, Hex.toString(value));
+            assertEquals(value, Hex.parseLong(hex));
+            assertEquals(value, Hex.parseLong(hex.toUpperCase()));
+            assertEquals(value, Hex.parseLong("#" + hex + "#", 1));
+
+            final int i = (int) value;
+            final String intHex = Hex.toString(Ints.toBytes(i));
+            assertEquals(intHex, Hex.toString(i));
+            assertEquals(i, Hex.parseInt(intHex));
+        }
+
+        final char[] chars = new char[26];
+        assertEquals(16, Hex.encode(0xDCFEAB0132547689L, chars, 1));
+        assertEquals(8, Hex.encode(0xCAFEBABE, chars, 18));
+        assertEquals("dcfeab0132547689", new String(chars, 1, 16));
+        assertEquals("cafebabe", new String(chars, 18, 8));
+
+        for (String invalid : new String[]{"", "ff", "dcfeab01325476891", "dcfeab013254768g"}) {
+            try {
+                Hex.parseLong(invalid);
+                fail(invalid);
+            } catch (Hex.InvalidHexFormatException e) {
+                // pass
+            }
+        }
+        try {
+            Hex.parseInt("dcfeab0132547689", 10);
+            fail();
+        } catch (Hex.InvalidHexFormatException e) {
+            // pass
+        }
+    }
+
     private void assertHex(String hexString, int... bytes) {
         assertHex(hexString, bytes(bytes));
     }
@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class IOTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.tmpdir();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.remove(dir);
+    }
+
+    @Test
+    public void copyFile() throws Exception {
+        for (int length : new int[]{0, 1, 1024, 1024 * 1024 + 17}) {
+            final byte[] bytes = bytes(length);
+            final File from = new File(dir, "from-" + length);
+            final File to = new File(dir, "to-" + length);
+            IO.copy(bytes, from);
+
+            IO.copy(from, to);
+            assertArrayEquals(bytes, IO.readBytes(to));
+
+            IO.copy(from, to, true);
+            assertArrayEquals(bytes, IO.readBytes(to));
+        }
+    }
+
+    @Test
+    public void copyFileTruncates() throws Exception {
+        final File from = new File(dir, "from");
+        final File to = new File(dir, "to");
+        IO.copy(bytes(100), from);
+        IO.copy(bytes(5000), to);
+
+        IO.copy(from, to);
+        assertArrayEquals(IO.readBytes(from), IO.readBytes(to));
+    }
+
+    @Test(expected = IOException.class)
+    public void copyMissingFile() throws Exception {
+        IO.copy(new File(dir, "missing"), new File(dir, "to"));
+    }
+
+    @Test
+    public void transfer() throws Exception {
+        final byte[] bytes = bytes(300_000);
+        final File from = new File(dir, "from");
+        final File to = new File(dir, "to");
+        IO.copy(bytes, from);
+        IO.copy("header".getBytes(), to);
+
+        // transfers the whole source, appending at the position of the target
+        try (FileChannel in = FileChannel.open(from.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(to.toPath(), StandardOpenOption.WRITE)) {
+            in.position(1000);
+            out.position(6);
+            assertEquals(bytes.length, IO.transfer(in, out));
+        }
+
+        final byte[] copied = IO.readBytes(to);
+        assertEquals(6 + bytes.length, copied.length);
+        assertEquals("header", new String(copied, 0, 6));
+        for (int i = 0; i < bytes.length; i++) {
+            assertEquals(bytes[i], copied[6 + i]);
+        }
+    }
+
+    @Test
+    public void transferProcFile() throws Exception {
+        final File cpuinfo = new File("/proc/cpuinfo");
+        Assume.assumeTrue(cpuinfo.isFile() && cpuinfo.length() == 0);
+
+        // reports a size of zero, yet has content
+        final byte[] expected;
+        try (FileInputStream in = new FileInputStream(cpuinfo)) {
+            expected = IO.readBytes(in);
+        }
+        Assume.assumeTrue(expected.length > 0);
+
+        final File to = new File(dir, "cpuinfo");
+        IO.copy(cpuinfo, to);
+        assertArrayEquals(expected, IO.readBytes(to));
+    }
+
+    @Test
+    public void transferGrowingFile() throws Exception {
+        final byte[] bytes = bytes(300_000);
+        final File from = new File(dir, "from");
+        final File to = new File(dir, "to");
+        IO.copy(bytes, from);
+
+        // the first size is taken before the last 100,000 bytes were appended
+        try (FileChannel in = new GrowingChannel(FileChannel.open(from.toPath(), StandardOpenOption.READ), 200_000);
+             FileChannel out = FileChannel.open(to.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            assertEquals(bytes.length, IO.transfer(in, out));
+        }
+        assertArrayEquals(bytes, IO.readBytes(to));
+    }
+
+    private static byte[] bytes(final int length) {
+        final byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * A channel whose file seems to grow: the first size reported is smaller
+     * than the file and the first transfer stops there.
+     */
+    private static class GrowingChannel extends FileChannel {
+        private final FileChannel channel;
+        private long visible;
+
+        private GrowingChannel(final FileChannel channel, final long visible) {
+            this.channel = channel;
+            this.visible = visible;
+        }
+
+        @Override
+        public long size() throws IOException {
+            final long size = Math.min(visible, channel.size());
+            visible = Long.MAX_VALUE;
+            return size;
+        }
+
+        @Override
+        public long transferTo(final long position, final long count, final WritableByteChannel target) throws IOException {
+            return channel.transferTo(position, count, target);
+        }
+
+        @Override
+        public int read(final ByteBuffer dst) throws IOException {
+            return channel.read(dst);
+        }
+
+        @Override
+        public long read(final ByteBuffer[] dsts, final int offset, final int length) throws IOException {
+            return channel.read(dsts, offset, length);
+        }
+
+        @Override
+        public int read(final ByteBuffer dst, final long position) throws IOException {
+            return channel.read(dst, position);
+        }
+
+        @Override
+        public int write(final ByteBuffer src) throws IOException {
+            return channel.write(src);
+        }
+
+        @Override
+        public long write(final ByteBuffer[] srcs, final int offset, final int length) throws IOException {
+            return channel.write(srcs, offset, length);
+        }
+
+        @Override
+        public int write(final ByteBuffer src, final long position) throws IOException {
+            return channel.write(src, position);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return channel.position();
+        }
+
+        @Override
+        public FileChannel position(final long newPosition) throws IOException {
+            channel.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public FileChannel truncate(final long size) throws IOException {
+            channel.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(final boolean metaData) throws IOException {
+            channel.force(metaData);
+        }
+
+        @Override
+        public long transferFrom(final ReadableByteChannel src, final long position, final long count) throws IOException {
+            return channel.transferFrom(src, position, count);
+        }
+
+        @Override
+        public MappedByteBuffer map(final MapMode mode, final long position, final long size) throws IOException {
+            return channel.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(final long position, final long size, final boolean shared) throws IOException {
+            return channel.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(final long position, final long size, final boolean shared) throws IOException {
+            return channel.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -171,6 +171,13 @@ public class LongsTest extends Assert {
         assertBase64("3P6rAQAAAAA=", 0xdcfeab0100000000L);
     }
 
+    @Test
+    public void base64SkipsNonAlphabetCharacters() throws Exception {
+        assertEquals(0x1032457600000000L, Longs.fromBase64("EDJF\r\ndgAA AAA="));
+        assertEquals(0x1032457600000000L, Longs.fromBase64("ED*JFdg.AAAAA="));
+        assertEquals(0xfe23120000000000L, Longs.fromBase64("/iMSAA-AAA_A="));
+    }
+
     private void assertBase64(String base64String, long value) {
 //        System.out.printf("        assertBase64(\"%s\", 0x%sL);\n", Longs.toBase64(value), Longs.toHex(value));
         assertEquals(base64String, Longs.toBase64(value));
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.junit.Test;
+import org.tomitribe.util.IO;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BloomFilterTest {
+
+    @Test
+    public void noFalseNegatives() throws Exception {
+        final BloomFilter filter = BloomFilter.create(10000, 0.01);
+        for (long i = 0; i < 10000; i++) {
+            filter.put(Slices.utf8Slice("element-" + i));
+            filter.put(i);
+        }
+        for (long i = 0; i < 10000; i++) {
+            assertTrue(filter.mightContain(Slices.utf8Slice("element-" + i)));
+            assertTrue(filter.mightContain(i));
+        }
+        assertFalse(filter.put(Slices.utf8Slice("element-0")));
+    }
+
+    @Test
+    public void falsePositiveRate() throws Exception {
+        final BloomFilter filter = BloomFilter.create(100000, 0.01);
+        assertEquals(7, filter.getHashFunctions());
+
+        for (long i = 0; i < 100000; i++) {
+            filter.put(i);
+        }
+
+        int falsePositives = 0;
+        for (long i = 100000; i < 200000; i++) {
+            if (filter.mightContain(i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue("false positives " + falsePositives, falsePositives < 1500);
+        assertEquals(0.01, filter.getExpectedFalsePositiveProbability(), 0.003);
+    }
+
+    @Test
+    public void keyRange() throws Exception {
+        final BloomFilter filter = BloomFilter.create(100, 0.01, true);
+        final Slice record = Slices.utf8Slice("key=value");
+        filter.put(record, 0, 3);
+        assertTrue(filter.mightContain(Slices.utf8Slice("key")));
+        assertTrue(filter.mightContain(record, 0, 3));
+    }
+
+    @Test
+    public void serialize() throws Exception {
+        final BloomFilter filter = BloomFilter.create(1000, 0.001);
+        for (long i = 0; i < 1000; i++) {
+            filter.put(i);
+        }
+
+        final BloomFilter copy = BloomFilter.fromSlice(Slices.copyOf(filter.toSlice()));
+        assertEquals(filter.getBitSize(), copy.getBitSize());
+        assertEquals(filter.getHashFunctions(), copy.getHashFunctions());
+        assertEquals(filter.getBitCount(), copy.getBitCount());
+        for (long i = 0; i < 1000; i++) {
+            assertTrue(copy.mightContain(i));
+        }
+
+        final File file = File.createTempFile("bloom", ".bin");
+        file.deleteOnExit();
+        try {
+            IO.copy(filter.toSlice().getBytes(), file);
+            final BloomFilter mapped = BloomFilter.fromSlice(Slices.mapFileReadOnly(file));
+            for (long i = 0; i < 1000; i++) {
+                assertTrue(mapped.mightContain(i));
+            }
+            assertEquals(filter.getBitCount(), mapped.getBitCount());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void putAll() throws Exception {
+        final BloomFilter even = BloomFilter.create(1000, 0.01);
+        final BloomFilter odd = BloomFilter.create(1000, 0.01);
+        for (long i = 0; i < 1000; i++) {
+            (i % 2 == 0 ? even : odd).put(i);
+        }
+
+        even.putAll(odd);
+        for (long i = 0; i < 1000; i++) {
+            assertTrue(even.mightContain(i));
+        }
+
+        try {
+            even.putAll(BloomFilter.create(5000, 0.01));
+            fail("different geometry");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void invalidSlice() throws Exception {
+        try {
+            BloomFilter.fromSlice(Slices.allocate(64));
+            fail("no header");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+
+        final Slice truncated = Slices.copyOf(BloomFilter.create(1000, 0.01).toSlice(), 0, 24);
+        try {
+            BloomFilter.fromSlice(truncated);
+            fail("truncated");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tomitribe.util.Files;
+import org.tomitribe.util.IO;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+public class ChecksumCacheTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.tmpdir();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.remove(dir);
+    }
+
+    @Test
+    public void hitsAndMisses() throws Exception {
+        final File file = write("a.jar", 5000, 1);
+        final ChecksumCache cache = new ChecksumCache(10);
+
+        final long hash = cache.hash(file);
+        assertEquals(XxHash64.hash(Slices.wrappedBuffer(IO.readBytes(file))), hash);
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        assertEquals(hash, cache.hash(file));
+        assertEquals(hash, cache.hash(new File(dir, "./a.jar")));
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void changedFile() throws Exception {
+        final File file = write("a.jar", 5000, 1);
+        final ChecksumCache cache = new ChecksumCache(10);
+        final long hash = cache.hash(file);
+
+        // same length, new content and time
+        write("a.jar", 5000, 2);
+        file.setLastModified(file.lastModified() + 2000);
+        final long changed = cache.hash(file);
+        assertEquals(XxHash64.hash(Slices.wrappedBuffer(IO.readBytes(file))), changed);
+        assertEquals(2, cache.getMisses());
+
+        // new length, same time
+        final long lastModified = file.lastModified();
+        write("a.jar", 6000, 2);
+        file.setLastModified(lastModified);
+        assertEquals(XxHash64.hash(Slices.wrappedBuffer(IO.readBytes(file))), cache.hash(file));
+        assertEquals(3, cache.getMisses());
+
+        assertEquals(1, cache.size());
+        assertNotEquals(hash, changed);
+    }
+
+    @Test
+    public void leastRecentlyUsed() throws Exception {
+        final File a = write("a.jar", 100, 1);
+        final File b = write("b.jar", 100, 2);
+        final File c = write("c.jar", 100, 3);
+
+        final ChecksumCache cache = new ChecksumCache(2);
+        cache.hash(a);
+        cache.hash(b);
+        cache.hash(a);
+        cache.hash(c);
+        assertEquals(2, cache.size());
+        assertEquals(3, cache.getMisses());
+
+        // b was evicted, a was kept
+        cache.hash(a);
+        assertEquals(3, cache.getMisses());
+        cache.hash(b);
+        assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    public void sidecar() throws Exception {
+        final File a = write("a.jar", 1000, 1);
+        final File b = write("b.jar", 0, 2);
+        final File sidecar = new File(dir, "cache/checksums.bin");
+
+        final ChecksumCache cache = new ChecksumCache(10, sidecar);
+        final long hashA = cache.hash(a);
+        final long hashB = cache.hash(b);
+        cache.save();
+
+        final ChecksumCache reloaded = new ChecksumCache(10, sidecar);
+        assertEquals(2, reloaded.size());
+        assertEquals(hashA, reloaded.hash(a));
+        assertEquals(hashB, reloaded.hash(b));
+        assertEquals(2, reloaded.getHits());
+        assertEquals(0, reloaded.getMisses());
+
+        // a corrupt sidecar is ignored
+        IO.copy(new byte[]{1, 2, 3}, sidecar);
+        assertEquals(0, new ChecksumCache(10, sidecar).size());
+    }
+
+    @Test
+    public void missingFile() throws Exception {
+        try {
+            new ChecksumCache(10).hash(new File(dir, "missing.jar"));
+            fail("file does not exist");
+        } catch (FileNotFoundException expected) {
+            // expected
+        }
+    }
+
+    private File write(String name, int length, int seed) throws Exception {
+        final byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        final File file = new File(dir, name);
+        IO.copy(bytes, file);
+        return file;
+    }
+}
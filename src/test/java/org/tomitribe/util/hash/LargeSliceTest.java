@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tomitribe.util.IO;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LargeSliceTest {
+
+    private File file;
+    private byte[] bytes;
+    private Slice expected;
+
+    @Before
+    public void setUp() throws Exception {
+        bytes = new byte[1003];
+        new Random(7).nextBytes(bytes);
+        expected = Slices.wrappedBuffer(bytes);
+
+        file = File.createTempFile("largeslice", ".bin");
+        file.deleteOnExit();
+        IO.copy(bytes, file);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        file.delete();
+    }
+
+    @Test
+    public void getters() throws Exception {
+        // 16 byte segments, so most multi-byte reads straddle a boundary somewhere
+        final LargeSlice slice = Slices.mapLargeFileReadOnly(file, 4);
+        assertEquals(bytes.length, slice.length());
+
+        for (int i = 0; i < bytes.length; i++) {
+            assertEquals(expected.getByte(i), slice.getByte(i));
+            assertEquals(expected.getUnsignedByte(i), slice.getUnsignedByte(i));
+            if (i <= bytes.length - 2) {
+                assertEquals(expected.getShort(i), slice.getShort(i));
+            }
+            if (i <= bytes.length - 4) {
+                assertEquals(expected.getInt(i), slice.getInt(i));
+                assertEquals(Float.floatToRawIntBits(expected.getFloat(i)), Float.floatToRawIntBits(slice.getFloat(i)));
+            }
+            if (i <= bytes.length - 8) {
+                assertEquals(expected.getLong(i), slice.getLong(i));
+                assertEquals(Double.doubleToRawLongBits(expected.getDouble(i)), Double.doubleToRawLongBits(slice.getDouble(i)));
+            }
+        }
+
+        final byte[] copy = new byte[100];
+        slice.getBytes(10, copy);
+        assertArrayEquals(Arrays.copyOfRange(bytes, 10, 110), copy);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfBounds() throws Exception {
+        Slices.mapLargeFileReadOnly(file, 4).getLong(bytes.length - 7);
+    }
+
+    @Test
+    public void slice() throws Exception {
+        final LargeSlice slice = Slices.mapLargeFileReadOnly(file, 4).slice(13, 500);
+        assertEquals(500, slice.length());
+        assertEquals(expected.getLong(13), slice.getLong(0));
+        assertEquals(expected.getInt(509), slice.getInt(496));
+
+        final LargeSlice nested = slice.slice(100, 50);
+        assertEquals(expected.getLong(113), nested.getLong(0));
+
+        assertEquals(expected.slice(20, 10), slice.getSlice(7, 10));
+        assertEquals(expected.slice(20, 100), slice.getSlice(7, 100));
+    }
+
+    @Test
+    public void compareToAndEquals() throws Exception {
+        final LargeSlice small = Slices.mapLargeFileReadOnly(file, 4);
+        final LargeSlice large = Slices.mapLargeFileReadOnly(file);
+
+        assertEquals(0, small.compareTo(large));
+        assertEquals(small, large);
+        assertEquals(small.hashCode(), large.hashCode());
+
+        assertEquals(Integer.signum(expected.slice(0, 100).compareTo(expected.slice(1, 100))),
+                Integer.signum(small.slice(0, 100).compareTo(large.slice(1, 100))));
+        assertTrue(small.slice(0, 99).compareTo(large.slice(0, 100)) < 0);
+        assertNotEquals(small.slice(0, 99), large.slice(0, 100));
+        assertNotEquals(small.slice(0, 100), large.slice(1, 100));
+    }
+
+    @Test
+    public void xxHash64() throws Exception {
+        final LargeSlice slice = Slices.mapLargeFileReadOnly(file, 4);
+
+        assertEquals(XxHash64.hash(expected), XxHash64.hash(slice));
+        assertEquals(XxHash64.hash(42, expected), XxHash64.hash(42, slice));
+        assertEquals(XxHash64.hash(expected, 5, 400), XxHash64.hash(slice.slice(5, 400)));
+        assertEquals(XxHash64.hash(expected), XxHash64.hash(Slices.mapLargeFileReadOnly(file)));
+        assertEquals(XxHash64.hash(expected, 3, 5), new XxHash64().update(slice, 3, 5).hash());
+    }
+
+    @Test
+    public void largerThan2GB() throws Exception {
+        final File sparse = File.createTempFile("largeslice", ".sparse");
+        sparse.deleteOnExit();
+
+        final long length = 3L * 1024 * 1024 * 1024;
+        try (RandomAccessFile raf = new RandomAccessFile(sparse, "rw")) {
+            raf.setLength(length);
+            raf.seek(length - 8);
+            raf.writeLong(0x0102030405060708L);
+            raf.seek((1L << 31) - 4);
+            raf.writeLong(0x1112131415161718L);
+        }
+
+        try {
+            final LargeSlice slice = Slices.mapLargeFileReadOnly(sparse);
+            assertEquals(length, slice.length());
+            assertEquals(0x0102030405060708L, Long.reverseBytes(slice.getLong(length - 8)));
+            assertEquals(0x1112131415161718L, Long.reverseBytes(slice.getLong((1L << 31) - 4)));
+            assertEquals(0x0708, Short.reverseBytes(slice.slice(length - 100, 100).getShort(98)));
+        } finally {
+            sparse.delete();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class LongIntMapTest {
+
+    @Test
+    public void random() throws Exception {
+        final LongIntMap map = new LongIntMap();
+        final Map<Long, Integer> expected = new HashMap<>();
+
+        final Random random = new Random(5);
+        for (int i = 0; i < 100000; i++) {
+            final long key = random.nextInt(5000) * 0x1_0000_0001L;
+            if (random.nextInt(4) == 0) {
+                final Integer removed = expected.remove(key);
+                assertEquals(removed == null ? -1 : removed, map.remove(key, -1));
+            } else {
+                assertEquals(expected.merge(key, i, Integer::sum).intValue(), map.addTo(key, i));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        final Map<Long, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+
+        map.put(0, Integer.MIN_VALUE);
+        assertEquals(Integer.MIN_VALUE, map.get(0, 0));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LongLongMapTest {
+
+    @Test
+    public void putAndGet() throws Exception {
+        final LongLongMap map = new LongLongMap();
+        map.put(1, 10);
+        map.put(-1, 20);
+        map.put(0, 30);
+        map.put(Long.MIN_VALUE, 40);
+        map.put(1, 11);
+
+        assertEquals(4, map.size());
+        assertEquals(11, map.get(1, -1));
+        assertEquals(20, map.get(-1, -1));
+        assertEquals(30, map.get(0, -1));
+        assertEquals(40, map.get(Long.MIN_VALUE, -1));
+        assertEquals(-1, map.get(2, -1));
+        assertTrue(map.containsKey(0));
+        assertFalse(map.containsKey(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void addToAndRemove() throws Exception {
+        final LongLongMap map = new LongLongMap();
+        assertEquals(3, map.addTo(7, 3));
+        assertEquals(5, map.addTo(7, 2));
+        assertEquals(1, map.addTo(0, 1));
+
+        assertEquals(5, map.remove(7, -1));
+        assertEquals(-1, map.remove(7, -1));
+        assertEquals(1, map.remove(0, -1));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void random() throws Exception {
+        assertRandom(new LongLongMap(0));
+        assertRandom(new LongLongMap(100000, true));
+    }
+
+    private static void assertRandom(LongLongMap map) {
+        final Random random = new Random(11);
+        final Map<Long, Long> expected = new HashMap<>();
+
+        for (int i = 0; i < 200000; i++) {
+            // a small key range so removes and collisions are frequent
+            final long key = random.nextInt(20000) - 10000;
+            final int operation = random.nextInt(3);
+            if (operation == 0) {
+                map.put(key, i);
+                expected.put(key, (long) i);
+            } else if (operation == 1) {
+                assertEquals(expected.merge(key, 1L, Long::sum).longValue(), map.addTo(key, 1));
+            } else {
+                final Long removed = expected.remove(key);
+                assertEquals(removed == null ? Long.MIN_VALUE : removed, map.remove(key, Long.MIN_VALUE));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = -10000; key < 10000; key++) {
+            final Long value = expected.get(key);
+            assertEquals(value != null, map.containsKey(key));
+            assertEquals(value == null ? Long.MIN_VALUE : value, map.get(key, Long.MIN_VALUE));
+        }
+
+        final Map<Long, Long> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void growAndClear() throws Exception {
+        final LongLongMap map = new LongLongMap();
+        final long initialSize = map.getSizeInBytes();
+
+        for (long i = 0; i < 100000; i++) {
+            map.put(i * 31, i);
+        }
+        assertEquals(100000, map.size());
+        for (long i = 0; i < 100000; i++) {
+            assertEquals(i, map.get(i * 31, -1));
+        }
+        assertTrue(map.getSizeInBytes() > initialSize);
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(31));
+        assertFalse(map.containsKey(0));
+
+        map.trim();
+        assertEquals(initialSize, map.getSizeInBytes());
+        map.put(31, 1);
+        assertEquals(1, map.get(31, -1));
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tomitribe.util.IO;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MappedFileTest {
+
+    private File file;
+    private byte[] bytes;
+
+    @Before
+    public void setUp() throws Exception {
+        bytes = new byte[4099];
+        new Random(3).nextBytes(bytes);
+
+        file = File.createTempFile("mappedfile", ".bin");
+        file.deleteOnExit();
+        IO.copy(bytes, file);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        file.delete();
+    }
+
+    @Test
+    public void canUnmap() throws Exception {
+        assertTrue(JvmUtils.canUnmap());
+    }
+
+    @Test
+    public void read() throws Exception {
+        try (MappedFile mapped = Slices.openMappedFile(file)) {
+            assertEquals(bytes.length, mapped.length());
+            assertEquals(Slices.wrappedBuffer(bytes), mapped.getSlice());
+            assertEquals(XxHash64.hash(Slices.wrappedBuffer(bytes)), XxHash64.hash(mapped.getLargeSlice()));
+        }
+    }
+
+    @Test
+    public void closed() throws Exception {
+        final MappedFile mapped = Slices.openMappedFile(file);
+        assertFalse(mapped.isClosed());
+
+        mapped.close();
+        assertTrue(mapped.isClosed());
+        mapped.close();
+
+        try {
+            mapped.getSlice();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException expected) {
+            // ok
+        }
+
+        try {
+            mapped.getLargeSlice();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException expected) {
+            // ok
+        }
+
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void sliceAfterClose() throws Exception {
+        final MappedFile mapped = Slices.openMappedFile(file);
+        final Slice slice = mapped.getSlice();
+        final Slice part = slice.slice(100, 200);
+        final LargeSlice large = mapped.getLargeSlice();
+        assertEquals(bytes[0], slice.getByte(0));
+        mapped.close();
+
+        assertClosed(() -> slice.getByte(0));
+        assertClosed(() -> slice.getLong(8));
+        assertClosed(() -> part.getBytes());
+        assertClosed(() -> large.getInt(0));
+        assertClosed(() -> XxHash64.hash(slice));
+        assertClosed(() -> XxHash64.hash(large));
+        assertClosed(() -> XxHash32.hash(part));
+        assertClosed(() -> XxHash3.hash128(slice));
+        assertClosed(() -> slice.compareTo(Slices.wrappedBuffer(bytes)));
+        assertClosed(() -> Slices.wrappedBuffer(bytes).equals(slice));
+        assertClosed(() -> Slices.allocate(10).setBytes(0, part, 0, 10));
+        assertClosed(() -> slice.toByteBuffer());
+    }
+
+    @Test
+    public void closeWhileReading() throws Exception {
+        final MappedFile mapped = Slices.openMappedFile(file);
+        final Slice slice = mapped.getSlice();
+        final long expected = XxHash64.hash(Slices.wrappedBuffer(bytes));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final CountDownLatch started = new CountDownLatch(4);
+            final List<Future<Long>> readers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                readers.add(executor.submit(() -> {
+                    started.countDown();
+                    long reads = 0;
+                    try {
+                        while (true) {
+                            assertEquals(expected, XxHash64.hash(slice));
+                            assertEquals(bytes[4000], slice.getByte(4000));
+                            reads++;
+                        }
+                    } catch (IllegalStateException closed) {
+                        return reads;
+                    }
+                }));
+            }
+
+            started.await();
+            Thread.sleep(50);
+            mapped.close();
+
+            for (Future<Long> reader : readers) {
+                assertTrue(reader.get(10, TimeUnit.SECONDS) > 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertClosed(final Runnable access) {
+        try {
+            access.run();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith("MappedFile is closed"));
+        }
+    }
+
+    @Test
+    public void empty() throws Exception {
+        final File empty = File.createTempFile("mappedfile", ".empty");
+        empty.deleteOnExit();
+
+        try (MappedFile mapped = Slices.openMappedFile(empty)) {
+            assertEquals(0, mapped.length());
+            assertEquals(Slices.EMPTY_SLICE, mapped.getSlice());
+            assertEquals(0, mapped.getLargeSlice().length());
+        }
+        empty.delete();
+    }
+
+    @Test
+    public void readWrite() throws Exception {
+        final File log = new File(file.getParentFile(), file.getName() + ".log");
+        log.deleteOnExit();
+        assertFalse(log.exists());
+
+        try (MappedFile mapped = Slices.mapFileReadWrite(log, 1024)) {
+            assertTrue(mapped.isWritable());
+            assertEquals(1024, log.length());
+
+            final Slice slice = mapped.getSlice();
+            slice.setLong(0, 0x0102030405060708L);
+            slice.setBytes(8, bytes, 0, 100);
+            mapped.force(0, 108);
+            slice.setInt(1020, 42);
+            mapped.force();
+        }
+
+        final Slice written = Slices.wrappedBuffer(IO.readBytes(log));
+        assertEquals(0x0102030405060708L, written.getLong(0));
+        assertEquals(Slices.wrappedBuffer(bytes, 0, 100), written.slice(8, 100));
+        assertEquals(42, written.getInt(1020));
+
+        // extending keeps the existing content
+        try (MappedFile mapped = Slices.mapFileReadWrite(log, 4096)) {
+            assertEquals(4096, log.length());
+            assertEquals(0x0102030405060708L, mapped.getSlice().getLong(0));
+            assertEquals(0, mapped.getSlice().getLong(4088));
+        }
+
+        assertTrue(log.delete());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void forceOutOfBounds() throws Exception {
+        try (MappedFile mapped = Slices.mapFileReadWrite(file, bytes.length)) {
+            mapped.force(4000, 100);
+        }
+    }
+}
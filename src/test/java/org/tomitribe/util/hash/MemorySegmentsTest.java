@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs only on JVMs with the foreign memory API.  The API is called through
+ * reflection as the tests are compiled for Java 8.
+ */
+public class MemorySegmentsTest {
+
+    private Class<?> segmentClass;
+    private Class<?> arenaClass;
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue(MemorySegments.isAvailable());
+        segmentClass = Class.forName("java.lang.foreign.MemorySegment");
+        arenaClass = Class.forName("java.lang.foreign.Arena");
+    }
+
+    @Test
+    public void heapSegment() throws Exception {
+        final byte[] bytes = new byte[1000];
+        new Random(1).nextBytes(bytes);
+
+        final Object segment = segmentClass.getMethod("ofArray", byte[].class).invoke(null, (Object) bytes);
+        final Object middle = segmentClass.getMethod("asSlice", long.class, long.class).invoke(segment, 100L, 800L);
+
+        final Slice slice = Slices.wrappedSegment(middle);
+        assertEquals(800, slice.length());
+        assertEquals(Slices.wrappedBuffer(bytes, 100, 800), slice);
+        assertEquals(XxHash64.hash(Slices.wrappedBuffer(bytes, 100, 800)), XxHash64.hash(slice));
+
+        slice.setByte(0, 42);
+        assertEquals(42, bytes[100]);
+    }
+
+    @Test
+    public void readOnlyHeapSegment() throws Exception {
+        final byte[] bytes = new byte[1000];
+        new Random(2).nextBytes(bytes);
+
+        final Object segment = segmentClass.getMethod("ofArray", byte[].class).invoke(null, (Object) bytes);
+        final Object readOnly = segmentClass.getMethod("asReadOnly").invoke(asSlice(segment, 100, 800));
+
+        final Slice slice = Slices.wrappedSegment(readOnly);
+        assertEquals(800, slice.length());
+        assertEquals(Slices.wrappedBuffer(bytes, 100, 800), slice);
+        assertEquals(XxHash64.hash(Slices.wrappedBuffer(bytes, 100, 800)), XxHash64.hash(slice));
+
+        if (Memory.VAR_HANDLES) {
+            // a view, checked by the segment (UnsupportedOperationException up to Java 21)
+            try {
+                slice.setByte(0, (byte) ~bytes[100]);
+                fail("expected the read-only segment to refuse writes");
+            } catch (IllegalArgumentException | UnsupportedOperationException expected) {
+                assertEquals(bytes[100], slice.getByte(0));
+            }
+        } else {
+            // a copy, the segment stays unchanged
+            slice.setByte(0, (byte) ~bytes[100]);
+            assertEquals(bytes[100], (byte) ~slice.getByte(0));
+        }
+
+        final LargeSlice large = Slices.wrappedLargeSegment(readOnly);
+        assertEquals(800, large.length());
+        assertEquals(bytes[899], large.getByte(799));
+    }
+
+    @Test
+    public void longArraySegment() throws Exception {
+        final long[] longs = {1, 2, 3, 0x0102030405060708L};
+        final Object segment = segmentClass.getMethod("ofArray", long[].class).invoke(null, (Object) longs);
+
+        final Slice slice = Slices.wrappedSegment(segment);
+        assertEquals(32, slice.length());
+        assertEquals(Slices.wrappedLongArray(longs), slice);
+        assertEquals(0x0102030405060708L, slice.getLong(24));
+
+        slice.setLong(0, 42);
+        assertEquals(42, longs[0]);
+    }
+
+    @Test
+    public void nativeSegment() throws Exception {
+        final AutoCloseable arena = (AutoCloseable) arenaClass.getMethod("ofConfined").invoke(null);
+        try {
+            final Object segment = arenaClass.getMethod("allocate", long.class).invoke(arena, 4096L);
+
+            final Slice slice = Slices.wrappedSegment(segment);
+            assertEquals(4096, slice.length());
+            for (int i = 0; i < 4096; i += 8) {
+                slice.setLong(i, i);
+            }
+
+            final Slice copy = Slices.copyOf(slice);
+            assertEquals(copy, slice);
+            assertEquals(XxHash64.hash(copy), XxHash64.hash(slice));
+            assertEquals(Slices.copyOf(slice, 8, 8), Slices.wrappedSegment(asSlice(segment, 8, 8)));
+
+            final LargeSlice large = Slices.wrappedLargeSegment(segment);
+            assertEquals(4096, large.length());
+            assertEquals(4088, large.getLong(4088));
+        } finally {
+            arena.close();
+        }
+    }
+
+    @Test
+    public void closedArena() throws Exception {
+        final AutoCloseable arena = (AutoCloseable) arenaClass.getMethod("ofConfined").invoke(null);
+        final Object segment = arenaClass.getMethod("allocate", long.class).invoke(arena, 4096L);
+        final Slice slice = Slices.wrappedSegment(segment);
+        final Slice part = slice.slice(8, 16);
+        final LargeSlice large = Slices.wrappedLargeSegment(segment);
+        slice.setLong(8, 42);
+        assertEquals(42, part.getLong(0));
+        arena.close();
+
+        assertClosed(() -> slice.getLong(8));
+        assertClosed(() -> part.setLong(0, 1));
+        assertClosed(() -> large.getByte(0));
+        assertClosed(() -> XxHash64.hash(slice));
+        assertClosed(() -> Slices.copyOf(part));
+    }
+
+    @Test
+    public void notASegment() throws Exception {
+        try {
+            Slices.wrappedSegment(new byte[10]);
+            fail("not a segment");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    private static void assertClosed(final Runnable access) {
+        try {
+            access.run();
+            fail("expected the closed arena to be detected");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+
+    private Object asSlice(Object segment, long offset, long length) throws Exception {
+        final Method method = segmentClass.getMethod("asSlice", long.class, long.class);
+        return method.invoke(segment, offset, length);
+    }
+}
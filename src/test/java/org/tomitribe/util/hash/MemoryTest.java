@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MemoryTest {
+
+    @Test
+    public void backend() throws Exception {
+        final String requested = System.getProperty(Memory.PROPERTY);
+        if (requested != null) {
+            assertEquals(requested, Memory.backend());
+        } else {
+            assertEquals(Memory.javaVersion() >= Memory.VAR_HANDLES_BY_DEFAULT, Memory.VAR_HANDLES);
+        }
+        assertEquals(Memory.VAR_HANDLES ? 0 : sun.misc.Unsafe.ARRAY_BYTE_BASE_OFFSET, Memory.ARRAY_BYTE_BASE_OFFSET);
+    }
+
+    @Test
+    public void heap() throws Exception {
+        assertAccess(Slices.allocate(64));
+    }
+
+    @Test
+    public void direct() throws Exception {
+        assertAccess(Slices.allocateDirect(64));
+    }
+
+    @Test
+    public void bufferLimitIgnored() throws Exception {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+        buffer.limit(4);
+
+        final Slice slice = Slices.wrappedBuffer(buffer);
+        slice.setLong(8, 42);
+        assertEquals(42, slice.getLong(8));
+        assertEquals(4, buffer.limit());
+    }
+
+    @Test
+    public void nativeOrder() throws Exception {
+        final Slice slice = Slices.allocateDirect(8);
+        slice.setLong(0, 0x0102030405060708L);
+
+        final ByteBuffer expected = ByteBuffer.allocate(8).order(ByteOrder.nativeOrder()).putLong(0, 0x0102030405060708L);
+        assertArrayEquals(expected.array(), slice.getBytes());
+    }
+
+    @Test
+    public void typedArrays() throws Exception {
+        final long[] longs = {1, 2, 3, 4};
+        if (Memory.VAR_HANDLES && !MemorySegments.isAvailable()) {
+            try {
+                Slices.wrappedLongArray(longs, 1, 2);
+                fail("expected UnsupportedOperationException");
+            } catch (UnsupportedOperationException expected) {
+                return;
+            }
+        }
+
+        final Slice slice = Slices.wrappedLongArray(longs, 1, 2);
+        assertEquals(16, slice.length());
+        assertEquals(2, slice.getLong(0));
+        assertEquals(3, slice.getLong(8));
+
+        slice.setLong(8, 42);
+        assertEquals(42, longs[2]);
+
+        assertAccess(Slices.wrappedLongArray(new long[4]));
+    }
+
+    @Test
+    public void booleanArray() throws Exception {
+        final boolean[] booleans = {false, false, true};
+        if (Memory.VAR_HANDLES) {
+            try {
+                Slices.wrappedBooleanArray(booleans);
+                fail("expected UnsupportedOperationException");
+            } catch (UnsupportedOperationException expected) {
+                return;
+            }
+        }
+
+        final Slice slice = Slices.wrappedBooleanArray(booleans);
+        assertEquals(1, slice.getByte(2));
+        slice.setByte(0, 1);
+        assertTrue(booleans[0]);
+    }
+
+    private static void assertAccess(final Slice slice) {
+        slice.setByte(0, 0x7F);
+        slice.setShort(2, 0x1234);
+        slice.setInt(4, 0x12345678);
+        slice.setLong(8, 0x123456789ABCDEFL);
+        slice.setFloat(16, 1.5f);
+        slice.setDouble(24, 2.5);
+
+        assertEquals(0x7F, slice.getByte(0));
+        assertEquals(0x1234, slice.getShort(2));
+        assertEquals(0x12345678, slice.getInt(4));
+        assertEquals(0x123456789ABCDEFL, slice.getLong(8));
+        assertEquals(1.5f, slice.getFloat(16), 0);
+        assertEquals(2.5, slice.getDouble(24), 0);
+
+        // copies between every combination of heap and direct memory
+        final Slice heap = Slices.allocate(slice.length());
+        final Slice direct = Slices.allocateDirect(slice.length());
+        heap.setBytes(0, slice);
+        direct.setBytes(0, slice);
+        assertEquals(slice, heap);
+        assertEquals(slice, direct);
+
+        final Slice copy = Slices.allocate(slice.length());
+        copy.setBytes(3, direct, 3, 20);
+        assertArrayEquals(slice.getBytes(3, 20), copy.getBytes(3, 20));
+        assertEquals(XxHash64.hash(heap), XxHash64.hash(direct));
+    }
+}
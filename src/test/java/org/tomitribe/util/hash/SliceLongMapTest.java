@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SliceLongMapTest {
+
+    @Test
+    public void putAndGet() throws Exception {
+        final SliceLongMap map = new SliceLongMap();
+        assertTrue(map.isEmpty());
+
+        map.put(Slices.utf8Slice("one"), 1);
+        map.put(Slices.utf8Slice("two"), 2);
+        map.put(Slices.utf8Slice(""), 0);
+        map.put(Slices.utf8Slice("one"), 11);
+
+        assertEquals(3, map.size());
+        assertEquals(11, map.get(Slices.utf8Slice("one"), -1));
+        assertEquals(2, map.get(Slices.utf8Slice("two"), -1));
+        assertEquals(0, map.get(Slices.EMPTY_SLICE, -1));
+        assertEquals(-1, map.get(Slices.utf8Slice("three"), -1));
+        assertTrue(map.containsKey(Slices.utf8Slice("two")));
+        assertFalse(map.containsKey(Slices.utf8Slice("tw")));
+    }
+
+    @Test
+    public void keyRange() throws Exception {
+        final SliceLongMap map = new SliceLongMap();
+        final Slice record = Slices.utf8Slice("key=value");
+
+        map.put(record, 0, 3, 42);
+        assertEquals(42, map.get(Slices.utf8Slice("key"), -1));
+        assertEquals(42, map.get(record, 0, 3, -1));
+        assertTrue(map.containsKey(record, 0, 3));
+        assertFalse(map.containsKey(record, 4, 5));
+
+        // the key bytes are copied
+        record.setByte(0, 'x');
+        assertEquals(42, map.get(Slices.utf8Slice("key"), -1));
+    }
+
+    @Test
+    public void addTo() throws Exception {
+        final SliceLongMap map = new SliceLongMap();
+        final Slice key = Slices.utf8Slice("counter");
+
+        assertEquals(5, map.addTo(key, 5));
+        assertEquals(8, map.addTo(key, 3));
+        assertEquals(8, map.get(key, 0));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void manyKeys() throws Exception {
+        assertManyKeys(new SliceLongMap(0, false, 64));
+        assertManyKeys(new SliceLongMap(1000, true, 4096));
+        assertManyKeys(new SliceLongMap(100000));
+    }
+
+    private static void assertManyKeys(SliceLongMap map) {
+        final Random random = new Random(7);
+        final Map<Slice, Long> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            final byte[] key = new byte[random.nextInt(40)];
+            random.nextBytes(key);
+            final Slice slice = Slices.wrappedBuffer(key);
+            map.addTo(slice, i);
+            expected.merge(slice, (long) i, Long::sum);
+        }
+
+        // a key larger than a page
+        final byte[] large = new byte[10000];
+        random.nextBytes(large);
+        map.put(Slices.wrappedBuffer(large), -7);
+        expected.put(Slices.wrappedBuffer(large), -7L);
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Slice, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().longValue(), map.get(entry.getKey(), Long.MIN_VALUE));
+        }
+
+        final Map<Slice, Long> actual = new HashMap<>();
+        map.forEach((key, value) -> actual.put(Slices.copyOf(key), value));
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void clear() throws Exception {
+        final SliceLongMap map = new SliceLongMap(10);
+        for (int i = 0; i < 1000; i++) {
+            map.put(Slices.utf8Slice("key" + i), i);
+        }
+        final long sizeInBytes = map.getSizeInBytes();
+        assertTrue(sizeInBytes > SliceLongMap.DEFAULT_PAGE_SIZE);
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(Slices.utf8Slice("key1")));
+        assertTrue(map.getSizeInBytes() < sizeInBytes);
+
+        map.put(Slices.utf8Slice("key1"), 1);
+        assertEquals(1, map.get(Slices.utf8Slice("key1"), -1));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SliceOutputTest {
+
+    @Test
+    public void roundTrip() throws Exception {
+        final SliceOutput out = new SliceOutput(0);
+        out.writeByte(-1);
+        out.writeShort(0x1234);
+        out.writeInt(0xCAFEBABE);
+        out.writeLong(Long.MIN_VALUE + 7);
+        out.writeFloat(1.5f);
+        out.writeDouble(-2.25);
+        out.writeBytes(new byte[]{1, 2, 3});
+        out.writeBytes(Slices.utf8Slice("slice"));
+        out.writeString("héllo");
+        assertEquals(1 + 2 + 4 + 8 + 4 + 8 + 3 + 5 + 1 + 6, out.size());
+
+        final SliceInput in = new SliceInput(out.slice());
+        assertEquals(-1, in.readByte());
+        assertEquals(0x1234, in.readShort());
+        assertEquals(0xCAFEBABE, in.readInt());
+        assertEquals(Long.MIN_VALUE + 7, in.readLong());
+        assertEquals(1.5f, in.readFloat(), 0);
+        assertEquals(-2.25, in.readDouble(), 0);
+
+        final byte[] bytes = new byte[3];
+        in.readBytes(bytes);
+        assertArrayEquals(new byte[]{1, 2, 3}, bytes);
+        assertEquals(Slices.utf8Slice("slice"), in.readSlice(5));
+        assertEquals("héllo", in.readString());
+        assertFalse(in.isReadable());
+        assertEquals(0, in.remaining());
+    }
+
+    @Test
+    public void varInt() throws Exception {
+        final int[] ints = {0, 1, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE, -1, Integer.MIN_VALUE};
+        final long[] longs = {0, 1, 127, 128, 1L << 35, Long.MAX_VALUE, -1, Long.MIN_VALUE};
+
+        final SliceOutput out = new SliceOutput(4);
+        for (int value : ints) {
+            out.writeVarInt(value);
+        }
+        for (long value : longs) {
+            out.writeVarLong(value);
+        }
+
+        final SliceInput in = new SliceInput(out.slice());
+        for (int value : ints) {
+            assertEquals(value, in.readVarInt());
+        }
+        for (long value : longs) {
+            assertEquals(value, in.readVarLong());
+        }
+        assertFalse(in.isReadable());
+
+        out.reset();
+        out.writeVarInt(127);
+        assertEquals(1, out.size());
+        out.writeVarInt(128);
+        assertEquals(3, out.size());
+        out.writeVarInt(-1);
+        assertEquals(8, out.size());
+    }
+
+    @Test
+    public void utf8() throws Exception {
+        final String[] strings = {
+            "",
+            "ascii only",
+            "café",
+            "€ uro",
+            "😀 smile",
+            "unpaired \ud83d high",
+            "unpaired \ude00 low",
+            "trailing \ud83d",
+        };
+
+        for (String string : strings) {
+            final byte[] expected = string.getBytes(StandardCharsets.UTF_8);
+            assertEquals(string, expected.length, SliceOutput.utf8Length(string));
+
+            final SliceOutput out = new SliceOutput(1);
+            assertEquals(string, expected.length, out.writeUtf8(string));
+            assertArrayEquals(string, expected, out.slice().getBytes());
+
+            final SliceInput in = new SliceInput(out.slice());
+            assertEquals(new String(expected, StandardCharsets.UTF_8), in.readUtf8(expected.length));
+        }
+    }
+
+    @Test
+    public void growth() throws Exception {
+        final SliceOutput out = new SliceOutput(1);
+        for (int i = 0; i < 100000; i++) {
+            out.writeInt(i);
+        }
+        assertEquals(400000, out.size());
+
+        final SliceInput in = new SliceInput(out.slice());
+        for (int i = 0; i < 100000; i++) {
+            assertEquals(i, in.readInt());
+        }
+
+        out.reset();
+        assertEquals(0, out.size());
+        out.writeLong(42);
+        assertEquals(42, new SliceInput(out.slice()).readLong());
+    }
+
+    @Test
+    public void inputStream() throws Exception {
+        final SliceInput in = new SliceInput(Slices.wrappedBuffer(new byte[]{1, 2, 3, 4, 5}));
+        assertEquals(5, in.available());
+        assertEquals(1, in.read());
+        assertEquals(2, in.skip(2));
+        assertEquals(3, in.position());
+
+        final byte[] bytes = new byte[10];
+        assertEquals(2, in.read(bytes, 0, 10));
+        assertEquals(4, bytes[0]);
+        assertEquals(5, bytes[1]);
+        assertEquals(-1, in.read());
+        assertEquals(-1, in.read(bytes, 0, 10));
+        assertEquals(0, in.skip(1));
+
+        in.setPosition(1);
+        assertEquals(2, in.read());
+    }
+
+    @Test
+    public void readPastEnd() throws Exception {
+        final SliceInput in = new SliceInput(Slices.wrappedBuffer(new byte[]{1, 2, 3}));
+        try {
+            in.readInt();
+            fail("only three bytes");
+        } catch (IndexOutOfBoundsException expected) {
+            // expected
+        }
+        assertEquals(0, in.position());
+        assertEquals(1, in.readByte());
+        assertTrue(in.isReadable());
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class SlicePoolTest {
+
+    @Test
+    public void allocate() throws Exception {
+        final SlicePool pool = new SlicePool(1024 * 1024);
+
+        final Slice slice = pool.allocate(100);
+        assertEquals(100, slice.length());
+        assertEquals(128, pool.getAllocatedBytes());
+        assertEquals(128, pool.getInUseBytes());
+        assertEquals(0, pool.getPooledBytes());
+
+        slice.setLong(0, 42);
+        slice.setByte(99, 7);
+        assertEquals(42, slice.getLong(0));
+        assertEquals(7, slice.getByte(99));
+
+        final Slice small = pool.allocate(1);
+        assertEquals(1, small.length());
+        assertEquals(128 + SlicePool.MIN_SIZE_CLASS, pool.getAllocatedBytes());
+
+        assertSame(Slices.EMPTY_SLICE, pool.allocate(0));
+    }
+
+    @Test
+    public void reuse() throws Exception {
+        final SlicePool pool = new SlicePool(1024 * 1024);
+
+        final Slice first = pool.allocate(1000);
+        first.setByte(0, 42);
+        pool.release(first);
+        assertEquals(1024, pool.getAllocatedBytes());
+        assertEquals(1024, pool.getPooledBytes());
+        assertEquals(0, pool.getInUseBytes());
+
+        // same size class, same memory
+        final Slice second = pool.allocate(600);
+        assertEquals(600, second.length());
+        assertEquals(42, second.getByte(0));
+        assertEquals(1024, pool.getAllocatedBytes());
+        assertEquals(0, pool.getPooledBytes());
+
+        // other size class, new memory
+        final Slice third = pool.allocate(100);
+        third.setByte(0, 7);
+        assertEquals(42, second.getByte(0));
+        assertEquals(1024 + 128, pool.getAllocatedBytes());
+    }
+
+    @Test
+    public void limit() throws Exception {
+        final SlicePool pool = new SlicePool(4096);
+
+        final Slice a = pool.allocate(2048);
+        final Slice b = pool.allocate(2048);
+
+        try {
+            pool.allocate(1);
+            fail("limit exceeded");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+
+        // pooled memory of another size class is freed to make room
+        pool.release(a);
+        pool.release(b);
+        assertEquals(4096, pool.getPooledBytes());
+
+        final Slice c = pool.allocate(4096);
+        assertEquals(4096, c.length());
+        assertEquals(4096, pool.getAllocatedBytes());
+        assertEquals(0, pool.getPooledBytes());
+        assertEquals(4096, pool.getInUseBytes());
+    }
+
+    @Test
+    public void trim() throws Exception {
+        final SlicePool pool = new SlicePool(1024 * 1024);
+
+        final Slice kept = pool.allocate(256);
+        pool.release(pool.allocate(512));
+        pool.release(pool.allocate(1024));
+        assertEquals(256 + 512 + 1024, pool.getAllocatedBytes());
+
+        pool.trim();
+        assertEquals(256, pool.getAllocatedBytes());
+        assertEquals(0, pool.getPooledBytes());
+        assertEquals(256, pool.getInUseBytes());
+
+        pool.release(kept);
+        assertEquals(256, pool.getPooledBytes());
+    }
+
+    @Test
+    public void releasedSliceIsClosed() throws Exception {
+        final SlicePool pool = new SlicePool(1024 * 1024);
+
+        final Slice slice = pool.allocate(100);
+        final Slice part = slice.slice(10, 20);
+        pool.release(slice);
+
+        // the memory goes to the next allocation, the released slices refuse access
+        final Slice next = pool.allocate(100);
+        next.setLong(0, 42);
+        assertClosed(() -> slice.getLong(0));
+        assertClosed(() -> slice.setLong(0, 7));
+        assertClosed(() -> part.getBytes());
+        assertClosed(() -> XxHash64.hash(slice));
+        assertEquals(42, next.getLong(0));
+
+        // and stay closed once trim has freed the memory
+        pool.release(next);
+        pool.trim();
+        assertClosed(() -> next.getLong(0));
+    }
+
+    @Test
+    public void releaseTwice() throws Exception {
+        final SlicePool pool = new SlicePool(1024 * 1024);
+
+        final Slice slice = pool.allocate(64);
+        pool.release(slice);
+
+        try {
+            pool.release(slice);
+            fail("slice was already released");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        assertEquals(64, pool.getPooledBytes());
+    }
+
+    @Test
+    public void releaseForeign() throws Exception {
+        final SlicePool pool = new SlicePool(1024 * 1024);
+
+        try {
+            pool.release(Slices.allocateDirect(64));
+            fail("slice was not allocated by the pool");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+
+        try {
+            pool.allocate(SlicePool.MAX_SIZE_CLASS + 1);
+            fail("capacity is too large");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    private static void assertClosed(final Runnable access) {
+        try {
+            access.run();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+}
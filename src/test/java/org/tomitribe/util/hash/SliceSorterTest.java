@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SliceSorterTest {
+
+    @Test
+    public void mismatch() throws Exception {
+        final Slice a = Slices.utf8Slice("0123456789abcdefghij");
+        final Slice b = Slices.utf8Slice("0123456789abcdefghiJ");
+
+        // every position, in the word loop, the int step and the byte tail
+        for (int i = 0; i < a.length(); i++) {
+            final Slice copy = Slices.copyOf(a);
+            copy.setByte(i, 'X');
+            assertEquals(i, a.mismatch(copy));
+            assertEquals(i, copy.mismatch(a));
+            assertTrue(Integer.signum(a.compareTo(copy)) == Integer.signum(Byte.toUnsignedInt(a.getByte(i)) - 'X'));
+            assertFalse(a.equals(copy));
+        }
+
+        assertEquals(19, a.mismatch(b));
+        assertEquals(-1, a.mismatch(Slices.copyOf(a)));
+        assertEquals(-1, a.mismatch(0, 19, b, 0, 19));
+        assertEquals(10, a.mismatch(0, 10, b, 0, 19));
+        assertEquals(0, a.mismatch(0, 0, b, 0, 1));
+        assertEquals(-1, a.mismatch(a));
+        assertEquals(5, a.mismatch(0, 5, a, 0, 8));
+        assertEquals(0, a.mismatch(1, 5, a, 2, 5));
+    }
+
+    @Test
+    public void unsignedOrder() throws Exception {
+        final Slice low = Slices.wrappedBuffer(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 0x7F});
+        final Slice high = Slices.wrappedBuffer(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, (byte) 0x80});
+        assertTrue(low.compareTo(high) < 0);
+        assertTrue(high.compareTo(low) > 0);
+
+        final Slice word = Slices.wrappedBuffer(new byte[]{(byte) 0xFF, 0, 0, 0, 0, 0, 0, 0});
+        final Slice other = Slices.wrappedBuffer(new byte[]{0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF});
+        assertTrue(word.compareTo(other) > 0);
+
+        final Slice prefix = Slices.utf8Slice("abcdefghi");
+        assertTrue(prefix.compareTo(0, 8, prefix, 0, 9) < 0);
+        assertEquals(0, prefix.compareTo(0, 8, Slices.utf8Slice("abcdefgh"), 0, 8));
+    }
+
+    @Test
+    public void sort() throws Exception {
+        final Random random = new Random(42);
+
+        for (int count : new int[]{0, 1, 2, 15, 16, 17, 1000}) {
+            final SliceOutput out = new SliceOutput(count * 8);
+            final long[] records = new long[count];
+            final String[] expected = new String[count];
+            for (int i = 0; i < count; i++) {
+                // short keys from a small alphabet, so there are duplicates and prefixes
+                final char[] chars = new char[random.nextInt(12)];
+                for (int j = 0; j < chars.length; j++) {
+                    chars[j] = (char) ('a' + random.nextInt(3));
+                }
+                expected[i] = new String(chars);
+                records[i] = SliceSorter.record(out.size(), out.writeUtf8(expected[i]));
+            }
+
+            final Slice slice = out.slice();
+            SliceSorter.sort(slice, records);
+            Arrays.sort(expected);
+
+            for (int i = 0; i < count; i++) {
+                final long record = records[i];
+                assertEquals(expected[i], slice.toString(SliceSorter.offset(record), SliceSorter.length(record), UTF_8));
+            }
+
+            for (String key : expected) {
+                final int index = SliceSorter.binarySearch(slice, records, Slices.utf8Slice(key));
+                assertTrue(index >= 0);
+                assertEquals(key, slice.toString(SliceSorter.offset(records[index]), SliceSorter.length(records[index]), UTF_8));
+            }
+        }
+    }
+
+    @Test
+    public void sorted() throws Exception {
+        // already sorted and reversed input must not degrade to quadratic recursion
+        final int count = 100_000;
+        final SliceOutput out = new SliceOutput(count * 8);
+        final long[] records = new long[count];
+        for (int i = 0; i < count; i++) {
+            records[count - 1 - i] = SliceSorter.record(out.size(), 8);
+            out.writeLong(Long.reverseBytes(i));
+        }
+
+        final Slice slice = out.slice();
+        SliceSorter.sort(slice, records);
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, Long.reverseBytes(slice.getLong(SliceSorter.offset(records[i]))));
+        }
+
+        SliceSorter.sort(slice, records);
+        assertEquals(0, Long.reverseBytes(slice.getLong(SliceSorter.offset(records[0]))));
+
+        assertEquals(-1, SliceSorter.binarySearch(slice, records, Slices.EMPTY_SLICE));
+        assertEquals(-(count + 1), SliceSorter.binarySearch(slice, records, Slices.utf8Slice("\u007f\u007f\u007f\u007f\u007f\u007f\u007f\u007f\u007f")));
+    }
+}
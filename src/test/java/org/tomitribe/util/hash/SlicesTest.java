@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SlicesTest {
+
+    @Test
+    public void wrappedDirectBuffer() throws Exception {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+        buffer.put(0, (byte) 1);
+        buffer.put(5, (byte) 5);
+
+        final Slice slice = Slices.wrappedBuffer(buffer);
+        assertEquals(16, slice.length());
+        assertEquals(1, slice.getByte(0));
+        assertEquals(5, slice.getByte(5));
+
+        slice.setByte(15, 15);
+        assertEquals(15, buffer.get(15));
+
+        // a sliced buffer starts at its own address
+        buffer.position(4);
+        final Slice tail = Slices.wrappedBuffer(buffer.slice());
+        assertEquals(12, tail.length());
+        assertEquals(5, tail.getByte(1));
+    }
+
+    @Test
+    public void directToByteBuffer() throws Exception {
+        final Slice slice = Slices.allocateDirect(32);
+        slice.setBytes(8, "direct".getBytes(UTF_8));
+
+        final ByteBuffer buffer = slice.slice(4, 20).toByteBuffer(4, 6);
+        assertTrue(buffer.isDirect());
+        assertEquals(0, buffer.position());
+        assertEquals(6, buffer.remaining());
+        assertEquals('d', buffer.get(0));
+
+        // shares memory with the slice
+        buffer.put(0, (byte) 'D');
+        assertEquals('D', slice.getByte(8));
+
+        assertEquals("Direct", slice.toString(8, 6, UTF_8));
+        assertEquals("Direct", Slices.wrappedBuffer(buffer).toStringUtf8());
+    }
+
+    @Test
+    public void heapToByteBuffer() throws Exception {
+        final Slice slice = Slices.utf8Slice("hello world");
+        final ByteBuffer buffer = slice.toByteBuffer(6, 5);
+        assertEquals(5, buffer.remaining());
+        assertEquals('w', buffer.get(buffer.position()));
+
+        if (Memory.VAR_HANDLES && !MemorySegments.isAvailable()) {
+            return;
+        }
+        final Slice longs = Slices.wrappedLongArray(0x0102030405060708L);
+        final ByteBuffer copy = longs.toByteBuffer().order(ByteOrder.nativeOrder());
+        assertEquals(8, copy.remaining());
+        assertEquals(0x0102030405060708L, copy.getLong(0));
+    }
+}
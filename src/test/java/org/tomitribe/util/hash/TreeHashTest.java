@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.junit.Test;
+import org.tomitribe.util.Files;
+import org.tomitribe.util.IO;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class TreeHashTest {
+
+    private final Slice data;
+
+    public TreeHashTest() {
+        final byte[] bytes = new byte[100_003];
+        new Random(42).nextBytes(bytes);
+        data = Slices.wrappedBuffer(bytes);
+    }
+
+    @Test
+    public void rootOfChunkHashes() throws Exception {
+        final int chunkSize = 4096;
+        final int chunks = (data.length() + chunkSize - 1) / chunkSize;
+
+        final long[] tree = new long[chunks + 2];
+        tree[0] = data.length();
+        tree[1] = chunkSize;
+        for (int i = 0; i < chunks; i++) {
+            final int offset = i * chunkSize;
+            tree[i + 2] = XxHash64.hash(data, offset, Math.min(chunkSize, data.length() - offset));
+        }
+
+        final TreeHash hash = TreeHash.hash(data, chunkSize, ForkJoinPool.commonPool());
+        assertEquals(XxHash64.hash(littleEndian(tree)), hash.getHash());
+        assertEquals(data.length(), hash.getLength());
+        assertEquals(chunkSize, hash.getChunkSize());
+    }
+
+    @Test
+    public void fileMatchesSlice() throws Exception {
+        final File file = File.createTempFile("treehash", ".bin");
+        file.deleteOnExit();
+        IO.copy(data.getBytes(), file);
+
+        for (int chunkSize : new int[]{1024, 4096, 100_003, 1 << 20}) {
+            final TreeHash expected = TreeHash.hash(data, chunkSize, ForkJoinPool.commonPool());
+            assertEquals(expected, TreeHash.hash(file, chunkSize));
+            assertEquals(expected, TreeHash.hash(file, chunkSize, new ForkJoinPool(1)));
+        }
+
+        Files.remove(file);
+    }
+
+    @Test
+    public void chunkSizeIsPartOfTheHash() throws Exception {
+        assertNotEquals(TreeHash.hash(data, 1024, ForkJoinPool.commonPool()).getHash(),
+                TreeHash.hash(data, 2048, ForkJoinPool.commonPool()).getHash());
+    }
+
+    @Test
+    public void empty() throws Exception {
+        final TreeHash hash = TreeHash.hash(Slices.EMPTY_SLICE);
+        assertEquals(0, hash.getLength());
+        assertEquals(XxHash64.hash(littleEndian(0, TreeHash.DEFAULT_CHUNK_SIZE)), hash.getHash());
+    }
+
+    /**
+     * The root hash is defined over little-endian longs whatever the platform
+     * byte order, so it has the same value everywhere.
+     */
+    @Test
+    public void fixedValue() throws Exception {
+        final Slice slice = Slices.utf8Slice("The quick brown fox jumps over the lazy dog");
+        assertEquals(0x4a3ecf71aa26af57L, TreeHash.hash(slice, 8, ForkJoinPool.commonPool()).getHash());
+        assertEquals(0x2bd39ed1799ea30dL, TreeHash.hash(Slices.EMPTY_SLICE).getHash());
+    }
+
+    private static Slice littleEndian(long... values) {
+        final ByteBuffer buffer = ByteBuffer.allocate(values.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+        for (long value : values) {
+            buffer.putLong(value);
+        }
+        return Slices.wrappedBuffer(buffer.array());
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class TreeHasherTest {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    @Test
+    public void inOrder() throws Exception {
+        final byte[] bytes = bytes(10500);
+
+        final TreeHasher hasher = new TreeHasher(CHUNK_SIZE);
+        for (int position = 0; position < bytes.length; position += 333) {
+            hasher.update(position, bytes, position, Math.min(333, bytes.length - position));
+        }
+
+        assertEquals(bytes.length, hasher.getLength());
+        assertEquals(expected(bytes), hasher.hash());
+    }
+
+    @Test
+    public void shuffled() throws Exception {
+        final byte[] bytes = bytes(25000);
+
+        // uneven pieces that straddle chunk boundaries, in random order
+        final List<int[]> pieces = new ArrayList<>();
+        final Random random = new Random(17);
+        for (int position = 0; position < bytes.length; ) {
+            final int length = Math.min(1 + random.nextInt(2500), bytes.length - position);
+            pieces.add(new int[]{position, length});
+            position += length;
+        }
+        Collections.shuffle(pieces, random);
+
+        final TreeHasher hasher = new TreeHasher(CHUNK_SIZE);
+        for (int[] piece : pieces) {
+            hasher.update(piece[0], bytes, piece[0], piece[1]);
+        }
+
+        assertEquals(expected(bytes), hasher.hash());
+    }
+
+    @Test
+    public void concurrent() throws Exception {
+        final byte[] bytes = bytes(1024 * 1024 + 17);
+        final TreeHasher hasher = new TreeHasher(64 * 1024);
+
+        final int producers = 8;
+        final int range = bytes.length / producers + 1;
+        final ExecutorService executor = Executors.newFixedThreadPool(producers);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                final int start = p * range;
+                final int end = Math.min(bytes.length, start + range);
+                futures.add(executor.submit(() -> {
+                    for (int position = start; position < end; position += 4096) {
+                        hasher.update(position, bytes, position, Math.min(4096, end - position));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(TreeHash.hash(Slices.wrappedBuffer(bytes), 64 * 1024, ForkJoinPool.commonPool()), hasher.hash());
+    }
+
+    @Test
+    public void empty() throws Exception {
+        assertEquals(expected(new byte[0]), new TreeHasher(CHUNK_SIZE).hash());
+    }
+
+    @Test
+    public void missingBytes() throws Exception {
+        final byte[] bytes = bytes(3000);
+        final TreeHasher hasher = new TreeHasher(CHUNK_SIZE);
+        hasher.update(0, bytes, 0, 1200);
+        hasher.update(1500, bytes, 1500, 1500);
+
+        try {
+            hasher.hash();
+            fail("bytes 1200 to 1500 are missing");
+        } catch (IllegalStateException expected) {
+            assertEquals("bytes 1200 to 1500 are missing", expected.getMessage());
+        }
+
+        hasher.update(1200, bytes, 1200, 300);
+        assertEquals(expected(bytes), hasher.hash());
+    }
+
+    @Test
+    public void overlap() throws Exception {
+        final byte[] bytes = bytes(3000);
+        final TreeHasher hasher = new TreeHasher(CHUNK_SIZE);
+        hasher.update(0, bytes, 0, 500);
+        hasher.update(700, bytes, 700, 100);
+
+        assertOverlap(hasher, 400, 50);
+        assertOverlap(hasher, 750, 10);
+        assertOverlap(hasher, 600, 200);
+    }
+
+    private static void assertOverlap(TreeHasher hasher, int position, int length) {
+        try {
+            hasher.update(position, new byte[length]);
+            fail("overlapping update");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+
+    private static TreeHash expected(byte[] bytes) {
+        return TreeHash.hash(Slices.wrappedBuffer(bytes), CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    private static byte[] bytes(int length) {
+        final byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.tomitribe.util.hash;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.tomitribe.util.hash.XxHash3.hash;
+import static org.tomitribe.util.hash.XxHash3.hash128;
+
+/**
+ * Expected values were produced by the xxHash 0.8 reference implementation.
+ */
+public class XxHash3Test {
+    private static final long PRIME = 2654435761L;
+
+    private final Slice buffer;
+
+    public XxHash3Test() {
+        buffer = Slices.allocate(2367);
+
+        long value = PRIME;
+        for (int i = 0; i < buffer.length(); i++) {
+            buffer.setByte(i, (byte) (value >> 24));
+            value *= value;
+        }
+    }
+
+    @Test
+    public void testSanity()
+            throws Exception {
+        assertEquals(0x2D06800538D394C2L, hash(0, buffer, 0, 0));
+        assertEquals(0xDD02FBE6D2C66464L, hash(0, buffer, 0, 1));
+        assertEquals(0x1EC6342ADDFB473BL, hash(0, buffer, 0, 3));
+        assertEquals(0x7820B394AA4138B7L, hash(0, buffer, 0, 4));
+        assertEquals(0xAD88D07B162DB3A0L, hash(0, buffer, 0, 8));
+        assertEquals(0xD786B95825A026A8L, hash(0, buffer, 0, 14));
+        assertEquals(0xB16CED2C35147203L, hash(0, buffer, 0, 16));
+        assertEquals(0x53759CC1E99F99C2L, hash(0, buffer, 0, 17));
+        assertEquals(0xAE1A3FDB89806A1FL, hash(0, buffer, 0, 32));
+        assertEquals(0x3B5B238EAF04B0F1L, hash(0, buffer, 0, 100));
+        assertEquals(0x386383C82519660EL, hash(0, buffer, 0, 128));
+        assertEquals(0x5848AC77B6975421L, hash(0, buffer, 0, 129));
+        assertEquals(0x78C3C57A9DCF6CFFL, hash(0, buffer, 0, 240));
+        assertEquals(0x728AD46AD0FF448AL, hash(0, buffer, 0, 241));
+        assertEquals(0xEE203CBADDC2AA5EL, hash(0, buffer, 0, 1024));
+        assertEquals(0x37496A215699527CL, hash(0, buffer, 0, 2367));
+        assertEquals(0xF702CA3814DE2125L, hash(PRIME, buffer, 0, 0));
+        assertEquals(0x45356F9D4AE81D8BL, hash(PRIME, buffer, 0, 1));
+        assertEquals(0xB42E27A55541444BL, hash(PRIME, buffer, 0, 3));
+        assertEquals(0x6B8C501A7B3BC54FL, hash(PRIME, buffer, 0, 4));
+        assertEquals(0x3BF14CAF1641EF62L, hash(PRIME, buffer, 0, 8));
+        assertEquals(0x99C2B977668EE59BL, hash(PRIME, buffer, 0, 14));
+        assertEquals(0xEA4416AF35D07C0AL, hash(PRIME, buffer, 0, 16));
+        assertEquals(0xB72867D74F8D9FFCL, hash(PRIME, buffer, 0, 17));
+        assertEquals(0xA74EC7F7EF695EF6L, hash(PRIME, buffer, 0, 32));
+        assertEquals(0xFE9F9F15B6568F4EL, hash(PRIME, buffer, 0, 100));
+        assertEquals(0x4CD839A85F66CF4BL, hash(PRIME, buffer, 0, 128));
+        assertEquals(0xAC5D749289167F05L, hash(PRIME, buffer, 0, 129));
+        assertEquals(0x48518FEE0F8228D6L, hash(PRIME, buffer, 0, 240));
+        assertEquals(0x22E5482493CA1BB7L, hash(PRIME, buffer, 0, 241));
+        assertEquals(0xB58D4CDD53D7BB84L, hash(PRIME, buffer, 0, 1024));
+        assertEquals(0xC4DD6A41899B4F57L, hash(PRIME, buffer, 0, 2367));
+    }
+
+    @Test
+    public void testSanity128()
+            throws Exception {
+        assertEquals(new Hash128(0x99AA06D3014798D8L, 0x6001C324468D497FL), hash128(0, buffer, 0, 0));
+        assertEquals(new Hash128(0x80A904279C75BA2AL, 0xDD02FBE6D2C66464L), hash128(0, buffer, 0, 1));
+        assertEquals(new Hash128(0xEE4D5BA6E4479045L, 0x1EC6342ADDFB473BL), hash128(0, buffer, 0, 3));
+        assertEquals(new Hash128(0x880E99F2B22E1933L, 0xBD0CBCD51957643BL), hash128(0, buffer, 0, 4));
+        assertEquals(new Hash128(0x5C7347787DBBC441L, 0x359D8CF2288D2685L), hash128(0, buffer, 0, 8));
+        assertEquals(new Hash128(0x9C59098F7381244L, 0xCCAF3D49A52C2A3CL), hash128(0, buffer, 0, 14));
+        assertEquals(new Hash128(0x8811E6EC33C4B1A1L, 0xF20219CC1743A7BBL), hash128(0, buffer, 0, 16));
+        assertEquals(new Hash128(0x9CDBF4CA0EB91A04L, 0x60652FEE7ED70AB8L), hash128(0, buffer, 0, 17));
+        assertEquals(new Hash128(0x1687D50C1E4BC1FDL, 0xD6024671B956E05DL), hash128(0, buffer, 0, 32));
+        assertEquals(new Hash128(0xB87E8A295B9F44C3L, 0xF55E101273730663L), hash128(0, buffer, 0, 100));
+        assertEquals(new Hash128(0x6EF876BE150E200EL, 0x7F1A05B6D42B3F56L), hash128(0, buffer, 0, 128));
+        assertEquals(new Hash128(0xBE42AF26469101C8L, 0xA47495A3810CACE6L), hash128(0, buffer, 0, 129));
+        assertEquals(new Hash128(0x1583F7A9FA8BAB6L, 0x53E9E7FFE1491BF8L), hash128(0, buffer, 0, 240));
+        assertEquals(new Hash128(0x8D3F82E531794FB1L, 0x728AD46AD0FF448AL), hash128(0, buffer, 0, 241));
+        assertEquals(new Hash128(0x6F8BE11577668B4AL, 0xEE203CBADDC2AA5EL), hash128(0, buffer, 0, 1024));
+        assertEquals(new Hash128(0x7B088AB3F6C13BEAL, 0x37496A215699527CL), hash128(0, buffer, 0, 2367));
+        assertEquals(new Hash128(0x92220AE55E14AB50L, 0x5444F7869C671AB0L), hash128(PRIME, buffer, 0, 0));
+        assertEquals(new Hash128(0xDDA65E127E7CC588L, 0x45356F9D4AE81D8BL), hash128(PRIME, buffer, 0, 1));
+        assertEquals(new Hash128(0xCB8593B051910716L, 0xB42E27A55541444BL), hash128(PRIME, buffer, 0, 3));
+        assertEquals(new Hash128(0xD3705E7AAC1E709FL, 0x6EA7F931C6590CDEL), hash128(PRIME, buffer, 0, 4));
+        assertEquals(new Hash128(0xA193A9DC84DD3A7FL, 0x11339D7E03742734L), hash128(PRIME, buffer, 0, 8));
+        assertEquals(new Hash128(0xDC7A06C7D15B393FL, 0x22406E32737294BDL), hash128(PRIME, buffer, 0, 14));
+        assertEquals(new Hash128(0xCE77364D1E1F29F5L, 0x30F679062A966964L), hash128(PRIME, buffer, 0, 16));
+        assertEquals(new Hash128(0xAAB6BB95D636A186L, 0x7BBAD1E604C0E3A6L), hash128(PRIME, buffer, 0, 17));
+        assertEquals(new Hash128(0xBBCF187D8E537B1AL, 0xBC0403CA15022D8DL), hash128(PRIME, buffer, 0, 32));
+        assertEquals(new Hash128(0x98CD4944819AA610L, 0x16C983C31B55545FL), hash128(PRIME, buffer, 0, 100));
+        assertEquals(new Hash128(0x1E5EFEF09343F9E4L, 0x8810CA4C0FDB0C99L), hash128(PRIME, buffer, 0, 128));
+        assertEquals(new Hash128(0x8162B89252D4CDD4L, 0xBA70DCF44772E559L), hash128(PRIME, buffer, 0, 129));
+        assertEquals(new Hash128(0xF868D36EF11662EDL, 0xF1C1435FC7FBE43FL), hash128(PRIME, buffer, 0, 240));
+        assertEquals(new Hash128(0x5F4297EF5481799FL, 0x22E5482493CA1BB7L), hash128(PRIME, buffer, 0, 241));
+        assertEquals(new Hash128(0xAAE36DCB1684EDE3L, 0xB58D4CDD53D7BB84L), hash128(PRIME, buffer, 0, 1024));
+        assertEquals(new Hash128(0x978FDB36FE3276C9L, 0xC4DD6A41899B4F57L), hash128(PRIME, buffer, 0, 2367));
+    }
+
+    @Test
+    public void testSanityStream()
+            throws Exception {
+        assertEquals(0x37496A215699527CL, hash(0, new ByteArrayInputStream(buffer.getBytes())));
+        assertEquals(0xC4DD6A41899B4F57L, hash(PRIME, new ByteArrayInputStream(buffer.getBytes())));
+        assertEquals(new Hash128(0x978FDB36FE3276C9L, 0xC4DD6A41899B4F57L), hash128(PRIME, new ByteArrayInputStream(buffer.getBytes())));
+    }
+
+    @Test
+    public void testStreamingChunks()
+            throws Exception {
+        final int[] lengths = {0, 3, 16, 100, 240, 241, 255, 256, 257, 1024, 1025, 2367};
+        final int[] chunks = {1, 7, 64, 255, 256, 1000};
+
+        for (int length : lengths) {
+            for (int chunk : chunks) {
+                final XxHash3 hasher = new XxHash3(PRIME);
+                for (int offset = 0; offset < length; offset += chunk) {
+                    hasher.update(buffer, offset, Math.min(chunk, length - offset));
+                }
+                assertEquals(hash(PRIME, buffer, 0, length), hasher.hash());
+                assertEquals(hash128(PRIME, buffer, 0, length), hasher.hash128());
+            }
+        }
+    }
+
+    @Test
+    public void testEmpty()
+            throws Exception {
+        assertEquals(0x2D06800538D394C2L, hash(Slices.EMPTY_SLICE));
+        assertEquals("99aa06d3014798d86001c324468d497f", hash128(Slices.EMPTY_SLICE).toString());
+        assertEquals(0x2D06800538D394C2L, new XxHash3().hash());
+    }
+
+    @Test
+    public void testHashLong()
+            throws Exception {
+        assertEquals(hash(buffer.getLong(0)), hash(buffer, 0, SizeOf.SIZE_OF_LONG));
+    }
+}
@@ -80,4 +80,47 @@ public class XxHash64Test {
             throws Exception {
         assertEquals(hash(buffer.getLong(0)), hash(buffer, 0, SizeOf.SIZE_OF_LONG));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testHashRecords()
+            throws Exception {
+        final long[] hashes = new long[12];
+        XxHash64.hashRecords(PRIME, buffer, 3, 8, 5, hashes, 1, 11);
+
+        assertEquals(0, hashes[0]);
+        for (int i = 0; i < 11; i++) {
+            assertEquals(hash(PRIME, buffer, 3 + i * 8, 5), hashes[i + 1]);
+        }
+
+        final long[] records = XxHash64.hashRecords(buffer, 33);
+        assertEquals(3, records.length);
+        for (int i = 0; i < records.length; i++) {
+            assertEquals(hash(buffer, i * 33, 33), records[i]);
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testHashRecordsOutOfBounds()
+            throws Exception {
+        XxHash64.hashRecords(0, buffer, 0, 10, 10, new long[11], 0, 11);
+    }
+
+    @Test
+    public void testHashRanges()
+            throws Exception {
+        final int[] offsets = {0, 7, 50, 100, 0};
+        final int[] lengths = {1, 32, 51, 1, 0};
+        final long[] hashes = new long[offsets.length];
+        XxHash64.hashRanges(PRIME, buffer, offsets, lengths, hashes, offsets.length);
+
+        for (int i = 0; i < offsets.length; i++) {
+            assertEquals(hash(PRIME, buffer, offsets[i], lengths[i]), hashes[i]);
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testHashRangesOutOfBounds()
+            throws Exception {
+        XxHash64.hashRanges(0, buffer, new int[]{0, 90}, new int[]{1, 12}, new long[2], 2);
+    }
+}